@@ -0,0 +1,151 @@
+package com.plcoding.audiorecorder.data;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per-message insert latency with the old pattern, opening a rollback-journal database, inserting
+ * in its own transaction and closing it again, versus the shared WAL handle. The baseline runs on
+ * a separate database file with the same schema. Results are written to logcat under the
+ * "ChatInsertBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatInsertBenchmark {
+    private static final String TAG = "ChatInsertBenchmark";
+    private static final int WARMUP = 20;
+    private static final int MESSAGES = 300;
+    // Rows written here belong to no real recording and are removed afterwards
+    private static final long BENCH_RECORDING_ID = -4242;
+    private static final String BASELINE_DATABASE_NAME = "chat_insert_baseline.db";
+
+    private Context context;
+    private RecordingRepository repository;
+    private File baselineFile;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        repository = new RecordingRepository(context);
+        deleteBenchRows();
+
+        baselineFile = context.getDatabasePath(BASELINE_DATABASE_NAME);
+        SQLiteDatabase.deleteDatabase(baselineFile);
+        SQLiteDatabase baseline = openBaseline();
+        try {
+            RecordingDatabase.getInstance(context).onCreate(baseline);
+        } finally {
+            baseline.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        deleteBenchRows();
+        SQLiteDatabase.deleteDatabase(baselineFile);
+    }
+
+    @Test
+    public void insertLatency_openClosePerCall_vs_sharedHandle() {
+        long[] reopen = measure(this::insertWithReopen);
+        long[] shared = measure(i -> repository.saveLocalChatMessage(BENCH_RECORDING_ID,
+                "shared " + i, true, null, System.currentTimeMillis()));
+
+        Log.i(TAG, "open/close per call: " + summary(reopen));
+        Log.i(TAG, "shared WAL handle:   " + summary(shared));
+
+        assertEquals(WARMUP + MESSAGES, countBenchRows());
+        SQLiteDatabase baseline = openBaseline();
+        try {
+            assertEquals(WARMUP + MESSAGES, DatabaseUtils.queryNumEntries(baseline, RecordingDatabase.TABLE_CHAT_MESSAGES));
+        } finally {
+            baseline.close();
+        }
+        assertEquals("wal", DatabaseUtils.stringForQuery(
+                RecordingDatabase.getInstance(context).getReadableDatabase(), "PRAGMA journal_mode", null));
+    }
+
+    private interface Insert {
+        void run(int i);
+    }
+
+    private long[] measure(Insert insert) {
+        for (int i = 0; i < WARMUP; i++) {
+            insert.run(-i);
+        }
+        long[] samples = new long[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            long start = System.nanoTime();
+            insert.run(i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    // What every chat method did before: open the database, insert in its own transaction, close
+    private void insertWithReopen(int i) {
+        SQLiteDatabase db = openBaseline();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_MSG_RECORDING_ID, BENCH_RECORDING_ID);
+            values.put(RecordingDatabase.COLUMN_MSG_CONTENT, "reopen " + i);
+            values.put(RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE, 1);
+            values.put(RecordingDatabase.COLUMN_MSG_TIMESTAMP, System.currentTimeMillis());
+            values.put(RecordingDatabase.COLUMN_MSG_IS_SYNCED, 0);
+            db.insert(RecordingDatabase.TABLE_CHAT_MESSAGES, null, values);
+        } finally {
+            db.close();
+        }
+    }
+
+    // Android may turn on WAL for databases that don't choose a mode, so the baseline asks for
+    // the rollback journal the app used before
+    private SQLiteDatabase openBaseline() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(baselineFile, null);
+        DatabaseUtils.stringForQuery(db, "PRAGMA journal_mode=DELETE", null);
+        return db;
+    }
+
+    private int countBenchRows() {
+        return (int) DatabaseUtils.queryNumEntries(
+                RecordingDatabase.getInstance(context).getReadableDatabase(),
+                RecordingDatabase.TABLE_CHAT_MESSAGES,
+                RecordingDatabase.COLUMN_MSG_RECORDING_ID + " = ?",
+                new String[]{String.valueOf(BENCH_RECORDING_ID)});
+    }
+
+    private void deleteBenchRows() {
+        RecordingDatabase.getInstance(context).getWritableDatabase().delete(
+                RecordingDatabase.TABLE_CHAT_MESSAGES,
+                RecordingDatabase.COLUMN_MSG_RECORDING_ID + " = ?",
+                new String[]{String.valueOf(BENCH_RECORDING_ID)});
+    }
+
+    private static long median(long[] sorted) {
+        return sorted[sorted.length / 2];
+    }
+
+    private static String summary(long[] sorted) {
+        return String.format(Locale.US, "median %.1f us, p90 %.1f us, p99 %.1f us",
+                median(sorted) / 1000.0,
+                sorted[(int) (sorted.length * 0.9)] / 1000.0,
+                sorted[(int) (sorted.length * 0.99)] / 1000.0);
+    }
+}
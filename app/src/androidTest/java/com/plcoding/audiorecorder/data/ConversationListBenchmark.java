@@ -0,0 +1,160 @@
+package com.plcoding.audiorecorder.data;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Conversation list latency with 100,000 chat messages: one read of the chat_summary table
+ * versus the per-recording queries it replaced. Results are written to logcat under the
+ * "ConversationListBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConversationListBenchmark {
+    private static final String TAG = "ConversationListBenchmark";
+    private static final int CONVERSATIONS = 500;
+    private static final int MESSAGES = 100_000;
+    private static final int RUNS = 20;
+    // Rows written here are tagged with this device id and removed afterwards
+    private static final String BENCH_DEVICE_ID = "conversation-benchmark";
+
+    private RecordingRepository repository;
+    private SQLiteDatabase db;
+    private final List<Long> recordingIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        repository = new RecordingRepository(context);
+        db = RecordingDatabase.getInstance(context).getWritableDatabase();
+        deleteBenchRows();
+
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < CONVERSATIONS; i++) {
+                ContentValues values = new ContentValues();
+                values.put(RecordingDatabase.COLUMN_TITLE, "Benchmark " + i);
+                values.put(RecordingDatabase.COLUMN_DATE, now - i);
+                values.put(RecordingDatabase.COLUMN_TYPE, Recording.TYPE_TEXT);
+                values.put(RecordingDatabase.COLUMN_DEVICE_ID, BENCH_DEVICE_ID);
+                recordingIds.add(db.insert(RecordingDatabase.TABLE_RECORDINGS, null, values));
+            }
+
+            SQLiteStatement statement = db.compileStatement("INSERT INTO " + RecordingDatabase.TABLE_CHAT_MESSAGES + " (" +
+                    RecordingDatabase.COLUMN_MSG_RECORDING_ID + ", " +
+                    RecordingDatabase.COLUMN_MSG_CONTENT + ", " +
+                    RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE + ", " +
+                    RecordingDatabase.COLUMN_MSG_TIMESTAMP + ", " +
+                    RecordingDatabase.COLUMN_MSG_IS_SYNCED + ") VALUES (?, ?, ?, ?, ?)");
+            for (int i = 0; i < MESSAGES; i++) {
+                statement.clearBindings();
+                statement.bindLong(1, recordingIds.get(i % CONVERSATIONS));
+                statement.bindString(2, "Benchmark message " + i);
+                // Every other message of a conversation is incoming, one in ten is unsynced
+                int round = i / CONVERSATIONS;
+                statement.bindLong(3, round % 2);
+                statement.bindLong(4, now + i);
+                statement.bindLong(5, round % 10 == 0 ? 0 : 1);
+                statement.executeInsert();
+            }
+            statement.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        deleteBenchRows();
+    }
+
+    @Test
+    public void listLatency_summaryTable_vs_queryPerRecording() {
+        long[] summary = measure(() -> repository.getConversations().size());
+        long[] perRecording = measure(this::queryPerRecording);
+
+        Log.i(TAG, "chat_summary read:     " + summary(summary));
+        Log.i(TAG, "query per recording:   " + summary(perRecording));
+
+        int bench = 0;
+        for (ConversationSummary conversation : repository.getConversations()) {
+            if (recordingIds.contains(conversation.getRecordingId())) {
+                assertEquals(MESSAGES / CONVERSATIONS / 2, conversation.getUnreadCount());
+                bench++;
+            }
+        }
+        assertEquals(CONVERSATIONS, bench);
+    }
+
+    private interface Query {
+        int run();
+    }
+
+    private long[] measure(Query query) {
+        query.run();
+        long[] samples = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    // What building the list took before the summary: latest message and counts per recording
+    private int queryPerRecording() {
+        int found = 0;
+        for (long recordingId : recordingIds) {
+            String[] args = {String.valueOf(recordingId)};
+            try (Cursor latest = db.rawQuery("SELECT " + RecordingDatabase.COLUMN_MSG_CONTENT + ", " +
+                    RecordingDatabase.COLUMN_MSG_TIMESTAMP + " FROM " + RecordingDatabase.TABLE_CHAT_MESSAGES +
+                    " WHERE " + RecordingDatabase.COLUMN_MSG_RECORDING_ID + " = ?" +
+                    " ORDER BY " + RecordingDatabase.COLUMN_MSG_TIMESTAMP + " DESC LIMIT 1", args);
+                 Cursor counts = db.rawQuery("SELECT SUM(" + RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE + " = 0), SUM(" +
+                         RecordingDatabase.COLUMN_MSG_IS_SYNCED + " = 0) FROM " + RecordingDatabase.TABLE_CHAT_MESSAGES +
+                         " WHERE " + RecordingDatabase.COLUMN_MSG_RECORDING_ID + " = ?", args)) {
+                if (latest.moveToFirst() && counts.moveToFirst()) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private void deleteBenchRows() {
+        db.execSQL("DELETE FROM " + RecordingDatabase.TABLE_CHAT_MESSAGES + " WHERE " +
+                RecordingDatabase.COLUMN_MSG_RECORDING_ID + " IN (SELECT " + RecordingDatabase.COLUMN_ID +
+                " FROM " + RecordingDatabase.TABLE_RECORDINGS + " WHERE " + RecordingDatabase.COLUMN_DEVICE_ID + " = ?)",
+                new Object[]{BENCH_DEVICE_ID});
+        db.delete(RecordingDatabase.TABLE_RECORDINGS, RecordingDatabase.COLUMN_DEVICE_ID + " = ?",
+                new String[]{BENCH_DEVICE_ID});
+        recordingIds.clear();
+    }
+
+    private static String summary(long[] sorted) {
+        return String.format(Locale.US, "median %.2f ms, p90 %.2f ms",
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.9)] / 1e6);
+    }
+}
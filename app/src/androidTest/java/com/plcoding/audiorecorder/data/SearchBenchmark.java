@@ -0,0 +1,235 @@
+package com.plcoding.audiorecorder.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Search latency over 500,000 chat messages: a page of ranked, snippeted results from the
+ * full-text index versus a LIKE scan of the messages. The target is a median under 50 ms for a
+ * page of results. Results are written to logcat under the "SearchBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchBenchmark {
+    private static final String TAG = "SearchBenchmark";
+    private static final int CONVERSATIONS = 200;
+    private static final int MESSAGES = 500_000;
+    // One message in this many mentions the rare word
+    private static final int RARE_EVERY = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final int RUNS = 20;
+    private static final double TARGET_MEDIAN_MS = 50;
+    // Rows written here are tagged with this device id and removed afterwards
+    private static final String BENCH_DEVICE_ID = "search-benchmark";
+    private static final String RARE_WORD = "compressor";
+    private static final String[] VOCABULARY = {
+            "pump", "valve", "oil", "pressure", "line", "check", "ok", "temperature", "motor", "belt",
+            "filter", "noise", "door", "panel", "level", "report", "shift", "team", "site", "alarm"
+    };
+
+    private RecordingRepository repository;
+    private SQLiteDatabase db;
+    private final List<Long> recordingIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        repository = new RecordingRepository(context);
+        db = RecordingDatabase.getInstance(context).getWritableDatabase();
+        deleteBenchRows();
+
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < CONVERSATIONS; i++) {
+                ContentValues values = new ContentValues();
+                values.put(RecordingDatabase.COLUMN_TITLE, "Benchmark " + i);
+                values.put(RecordingDatabase.COLUMN_DATE, now - i);
+                values.put(RecordingDatabase.COLUMN_TYPE, Recording.TYPE_TEXT);
+                values.put(RecordingDatabase.COLUMN_TEXT_CONTENT, i % 10 == 0 ? RARE_WORD + " inspection notes" : "inspection notes");
+                values.put(RecordingDatabase.COLUMN_DEVICE_ID, BENCH_DEVICE_ID);
+                recordingIds.add(db.insert(RecordingDatabase.TABLE_RECORDINGS, null, values));
+            }
+
+            SQLiteStatement statement = db.compileStatement("INSERT INTO " + RecordingDatabase.TABLE_CHAT_MESSAGES + " (" +
+                    RecordingDatabase.COLUMN_MSG_RECORDING_ID + ", " +
+                    RecordingDatabase.COLUMN_MSG_CONTENT + ", " +
+                    RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE + ", " +
+                    RecordingDatabase.COLUMN_MSG_TIMESTAMP + ", " +
+                    RecordingDatabase.COLUMN_MSG_IS_SYNCED + ") VALUES (?, ?, ?, ?, ?)");
+            StringBuilder message = new StringBuilder();
+            for (int i = 0; i < MESSAGES; i++) {
+                message.setLength(0);
+                for (int word = 0; word < 8; word++) {
+                    message.append(VOCABULARY[random.nextInt(VOCABULARY.length)]).append(' ');
+                }
+                if (i % RARE_EVERY == 0) {
+                    message.append(RARE_WORD);
+                }
+                statement.clearBindings();
+                statement.bindLong(1, recordingIds.get(i % CONVERSATIONS));
+                statement.bindString(2, message.toString().trim());
+                statement.bindLong(3, i % 2);
+                statement.bindLong(4, now + i);
+                statement.bindLong(5, 1);
+                statement.executeInsert();
+            }
+            statement.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        deleteBenchRows();
+    }
+
+    @Test
+    public void searchLatency_fullTextIndex_vs_likeScan() {
+        long[] rare = measure(() -> repository.search(RARE_WORD, 0, PAGE_SIZE).size());
+        long[] prefix = measure(() -> repository.search("compr", 0, PAGE_SIZE).size());
+        long[] twoWords = measure(() -> repository.search("pump " + RARE_WORD, 0, PAGE_SIZE).size());
+        long[] common = measure(() -> repository.search("pump valve", 0, PAGE_SIZE).size());
+        long[] like = measure(this::likeScan);
+
+        Log.i(TAG, "fts \"" + RARE_WORD + "\":      " + summary(rare));
+        Log.i(TAG, "fts prefix \"compr\":     " + summary(prefix));
+        Log.i(TAG, "fts two words:          " + summary(twoWords));
+        Log.i(TAG, "fts common words:       " + summary(common));
+        Log.i(TAG, "LIKE scan:              " + summary(like));
+
+        assertUnderTarget("rare word", rare);
+        assertUnderTarget("prefix", prefix);
+        assertUnderTarget("two words", twoWords);
+        assertUnderTarget("common words", common);
+
+        // Pages are ranked, highlighted and don't repeat hits
+        List<SearchResult> first = repository.search(RARE_WORD, 0, PAGE_SIZE);
+        List<SearchResult> second = repository.search(RARE_WORD, PAGE_SIZE, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, first.size());
+        assertEquals(PAGE_SIZE, second.size());
+        Set<String> seen = new HashSet<>();
+        double previous = Double.MAX_VALUE;
+        for (SearchResult result : first) {
+            assertTrue(result.getScore() <= previous);
+            previous = result.getScore();
+            assertTrue(result.getSnippet().toLowerCase(Locale.ROOT)
+                    .contains(SearchResult.HIGHLIGHT_START + RARE_WORD + SearchResult.HIGHLIGHT_END));
+            seen.add(result.getKind() + result.getId());
+        }
+        for (SearchResult result : second) {
+            assertTrue(seen.add(result.getKind() + result.getId()));
+        }
+    }
+
+    @Test
+    public void indexFollowsEditsAndDeletes() {
+        long recordingId = recordingIds.get(0);
+        long messageId = repository.saveLocalChatMessage(recordingId, "turbocharger making noise", true, null, System.currentTimeMillis());
+        assertEquals(1, repository.search("turbocharger", 0, PAGE_SIZE).size());
+
+        ContentValues values = new ContentValues();
+        values.put(RecordingDatabase.COLUMN_MSG_CONTENT, "intercooler making noise");
+        db.update(RecordingDatabase.TABLE_CHAT_MESSAGES, values, RecordingDatabase.COLUMN_MSG_ID + " = ?",
+                new String[]{String.valueOf(messageId)});
+        assertTrue(repository.search("turbocharger", 0, PAGE_SIZE).isEmpty());
+        List<SearchResult> edited = repository.search("intercooler", 0, PAGE_SIZE);
+        assertEquals(1, edited.size());
+        assertEquals(messageId, edited.get(0).getId());
+        assertEquals(recordingId, edited.get(0).getRecordingId());
+
+        db.delete(RecordingDatabase.TABLE_CHAT_MESSAGES, RecordingDatabase.COLUMN_MSG_ID + " = ?",
+                new String[]{String.valueOf(messageId)});
+        assertTrue(repository.search("intercooler", 0, PAGE_SIZE).isEmpty());
+
+        ContentValues note = new ContentValues();
+        note.put(RecordingDatabase.COLUMN_TITLE, "Benchmark note");
+        note.put(RecordingDatabase.COLUMN_DATE, System.currentTimeMillis());
+        note.put(RecordingDatabase.COLUMN_TYPE, Recording.TYPE_TEXT);
+        note.put(RecordingDatabase.COLUMN_TEXT_CONTENT, "heat exchanger descaled");
+        note.put(RecordingDatabase.COLUMN_DEVICE_ID, BENCH_DEVICE_ID);
+        long noteId = db.insert(RecordingDatabase.TABLE_RECORDINGS, null, note);
+        List<SearchResult> notes = repository.search("exchanger", 0, PAGE_SIZE);
+        assertEquals(1, notes.size());
+        assertFalse(notes.get(0).isMessage());
+        assertEquals(noteId, notes.get(0).getId());
+
+        db.delete(RecordingDatabase.TABLE_RECORDINGS, RecordingDatabase.COLUMN_ID + " = ?",
+                new String[]{String.valueOf(noteId)});
+        assertTrue(repository.search("exchanger", 0, PAGE_SIZE).isEmpty());
+    }
+
+    private interface Query {
+        int run();
+    }
+
+    private long[] measure(Query query) {
+        query.run();
+        long[] samples = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    // What searching took without the index: a scan of every message
+    private int likeScan() {
+        try (Cursor cursor = db.rawQuery("SELECT " + RecordingDatabase.COLUMN_MSG_ID + " FROM " +
+                RecordingDatabase.TABLE_CHAT_MESSAGES + " WHERE " + RecordingDatabase.COLUMN_MSG_CONTENT +
+                " LIKE ? ORDER BY " + RecordingDatabase.COLUMN_MSG_TIMESTAMP + " DESC LIMIT " + PAGE_SIZE,
+                new String[]{"%" + RARE_WORD + "%"})) {
+            return cursor.getCount();
+        }
+    }
+
+    private void deleteBenchRows() {
+        db.execSQL("DELETE FROM " + RecordingDatabase.TABLE_CHAT_MESSAGES + " WHERE " +
+                RecordingDatabase.COLUMN_MSG_RECORDING_ID + " IN (SELECT " + RecordingDatabase.COLUMN_ID +
+                " FROM " + RecordingDatabase.TABLE_RECORDINGS + " WHERE " + RecordingDatabase.COLUMN_DEVICE_ID + " = ?)",
+                new Object[]{BENCH_DEVICE_ID});
+        db.delete(RecordingDatabase.TABLE_RECORDINGS, RecordingDatabase.COLUMN_DEVICE_ID + " = ?",
+                new String[]{BENCH_DEVICE_ID});
+        recordingIds.clear();
+    }
+
+    private static void assertUnderTarget(String query, long[] sorted) {
+        double medianMs = sorted[sorted.length / 2] / 1e6;
+        assertTrue(String.format(Locale.US, "%s search median %.2f ms is over the %.0f ms target",
+                query, medianMs, TARGET_MEDIAN_MS), medianMs < TARGET_MEDIAN_MS);
+    }
+
+    private static String summary(long[] sorted) {
+        return String.format(Locale.US, "median %.2f ms, p90 %.2f ms",
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.9)] / 1e6);
+    }
+}
@@ -0,0 +1,175 @@
+package com.plcoding.audiorecorder.forms;
+
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Encode time and final size of the adaptive encoder versus the old quality 85 then 50 attempts,
+ * over a generated corpus that ranges from flat documents to noisy, detailed scenes. Results are
+ * written to logcat under the "JpegEncoderBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AdaptiveJpegEncoderBenchmark {
+    private static final String TAG = "JpegEncoderBenchmark";
+    private static final long[] BUDGETS = {200 * 1024, 500 * 1024, 1024 * 1024};
+    private static final int RUNS = 3;
+
+    private final List<Bitmap> corpus = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        add("document 1080x1920", document(1080, 1920));
+        add("gradient 1920x1080", gradient(1920, 1080));
+        add("scene 1920x1080", scene(1920, 1080, 0.3f));
+        add("noisy scene 1920x1080", scene(1920, 1080, 1f));
+        add("noisy scene 1080x1920", scene(1080, 1920, 1f));
+    }
+
+    @After
+    public void tearDown() {
+        for (Bitmap bitmap : corpus) {
+            bitmap.recycle();
+        }
+    }
+
+    @Test
+    public void adaptive_vs_fixedQualities() throws Exception {
+        AdaptiveJpegEncoder encoder = new AdaptiveJpegEncoder();
+
+        for (long budget : BUDGETS) {
+            for (int i = 0; i < corpus.size(); i++) {
+                Bitmap bitmap = corpus.get(i);
+
+                long[] adaptiveTimes = new long[RUNS];
+                AdaptiveJpegEncoder.Result result = null;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    result = encoder.encode(bitmap, budget);
+                    adaptiveTimes[run] = System.nanoTime() - start;
+                }
+
+                long[] fixedTimes = new long[RUNS];
+                long fixedSize = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    fixedSize = encodeFixed(bitmap, budget);
+                    fixedTimes[run] = System.nanoTime() - start;
+                }
+
+                Log.i(TAG, String.format(Locale.US,
+                        "%-22s budget %4d KB | adaptive %s, median %.1f ms | fixed %s, median %.1f ms",
+                        names.get(i), budget / 1024,
+                        result.fits() ? (result.getBytes() / 1024) + " KB q" + result.getQuality()
+                                + " x" + String.format(Locale.US, "%.2f", result.getScale()) : "no fit",
+                        median(adaptiveTimes) / 1e6,
+                        fixedSize >= 0 ? (fixedSize / 1024) + " KB" : "no fit",
+                        median(fixedTimes) / 1e6));
+
+                if (result.fits()) {
+                    assertTrue(result.getBytes() <= budget);
+                }
+                assertTrue(result.getPasses() <= AdaptiveJpegEncoder.MAX_PASSES + 1);
+            }
+        }
+    }
+
+    // What writeJpegForUpload did before: quality 85, then 50, else give up (-1)
+    private static long encodeFixed(Bitmap bitmap, long budget) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+        if (out.size() <= budget) {
+            return out.size();
+        }
+        out.reset();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 50, out);
+        return out.size() <= budget ? out.size() : -1;
+    }
+
+    private void add(String name, Bitmap bitmap) {
+        names.add(name);
+        corpus.add(bitmap);
+    }
+
+    private static Bitmap document(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.WHITE);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.DKGRAY);
+        paint.setTextSize(28);
+        for (int y = 60; y < height; y += 40) {
+            canvas.drawText("Checklist item " + y + " inspected and signed off by operator", 40, y, paint);
+        }
+        return bitmap;
+    }
+
+    private static Bitmap gradient(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setShader(new LinearGradient(0, 0, width, height, Color.BLUE, Color.YELLOW, Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, width, height, paint);
+        return bitmap;
+    }
+
+    // Random shapes plus per-pixel noise; noise 1 is roughly a dim indoor phone photo
+    private static Bitmap scene(int width, int height, float noise) {
+        Random random = new Random(42);
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.rgb(90, 110, 80));
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        for (int i = 0; i < 400; i++) {
+            paint.setColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            float x = random.nextFloat() * width;
+            float y = random.nextFloat() * height;
+            canvas.drawCircle(x, y, 10 + random.nextFloat() * 120, paint);
+        }
+
+        int[] row = new int[width];
+        int amplitude = (int) (40 * noise);
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                int delta = amplitude > 0 ? random.nextInt(2 * amplitude + 1) - amplitude : 0;
+                int pixel = row[x];
+                row[x] = Color.rgb(clamp(Color.red(pixel) + delta), clamp(Color.green(pixel) + delta),
+                        clamp(Color.blue(pixel) + delta));
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        return bitmap;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
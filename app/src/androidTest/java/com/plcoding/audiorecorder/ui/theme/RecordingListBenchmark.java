@@ -0,0 +1,144 @@
+package com.plcoding.audiorecorder.ui.theme;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Instrumentation;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.plcoding.audiorecorder.R;
+import com.plcoding.audiorecorder.data.Recording;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame cost of scrolling a 5,000 recording list while playback toggles every few frames, with
+ * the payload rebinds versus rebinding the whole list on each toggle. Results are written to
+ * logcat under the "RecordingListBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RecordingListBenchmark {
+    private static final String TAG = "RecordingListBenchmark";
+    private static final int RECORDINGS = 5000;
+    private static final int WARMUP = 30;
+    private static final int FRAMES = 600;
+    private static final int TOGGLE_EVERY = 5;
+    private static final int SCROLL_PX = 40;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2000;
+
+    private Instrumentation instrumentation;
+    private RecyclerView recyclerView;
+    private RecordingAdapter adapter;
+    private List<Recording> recordings;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        recordings = new ArrayList<>(RECORDINGS);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < RECORDINGS; i++) {
+            String type = i % 7 == 0 ? Recording.TYPE_TEXT : Recording.TYPE_VOICE;
+            recordings.add(new Recording(i + 1, "Recording " + i, "/bench/" + i + ".m4a",
+                    (i % 600) * 1000L, now - i * 60_000L, type, null, "bench"));
+        }
+
+        CountDownLatch committed = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> {
+            ContextThemeWrapper context = new ContextThemeWrapper(
+                    instrumentation.getTargetContext(), R.style.Theme_AudioRecorder);
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            adapter = new RecordingAdapter(recording -> { }, recording -> { }, recording -> { });
+            recyclerView.setAdapter(adapter);
+            adapter.submitList(recordings, committed::countDown);
+        });
+        assertTrue("diff did not commit", committed.await(10, TimeUnit.SECONDS));
+        instrumentation.runOnMainSync(this::frame);
+    }
+
+    @Test
+    public void scrollWhileTogglingPlayback_payloads_vs_fullRebind() {
+        long[] payloads = measure(this::togglePlayback);
+        long[] fullRebind = measure(i -> {
+            togglePlayback(i);
+            adapter.notifyDataSetChanged();
+        });
+
+        Log.i(TAG, "payload rebinds: " + summary(payloads));
+        Log.i(TAG, "full rebinds:    " + summary(fullRebind));
+
+        assertEquals(RECORDINGS, adapter.getItemCount());
+    }
+
+    private interface Toggle {
+        void run(int frame);
+    }
+
+    // Plays whichever row is at the top, then stops it a few frames later
+    private void togglePlayback(int frame) {
+        if (frame % TOGGLE_EVERY != 0) {
+            return;
+        }
+        if ((frame / TOGGLE_EVERY) % 2 == 0) {
+            View top = recyclerView.getChildAt(0);
+            long id = top != null ? recyclerView.getChildItemId(top) : RecyclerView.NO_ID;
+            adapter.setCurrentlyPlayingId(id);
+            adapter.setIsPlaying(true);
+        } else {
+            adapter.setIsPlaying(false);
+            adapter.setCurrentlyPlayingId(null);
+        }
+    }
+
+    private long[] measure(Toggle toggle) {
+        long[] samples = new long[FRAMES];
+        for (int i = -WARMUP; i < FRAMES; i++) {
+            int frame = i;
+            long[] elapsed = new long[1];
+            instrumentation.runOnMainSync(() -> {
+                long start = System.nanoTime();
+                toggle.run(frame);
+                recyclerView.scrollBy(0, SCROLL_PX);
+                frame();
+                elapsed[0] = System.nanoTime() - start;
+            });
+            if (i >= 0) {
+                samples[i] = elapsed[0];
+            }
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    // The measure and layout pass a real frame would run
+    private void frame() {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static String summary(long[] sorted) {
+        return String.format(Locale.US, "median %.2f ms, p90 %.2f ms, p99 %.2f ms",
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.9)] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+}
@@ -1,11 +1,5 @@
 package com.plcoding.audiorecorder;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -27,7 +21,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.plcoding.audiorecorder.api.ChatWebSocketClient;
+import com.plcoding.audiorecorder.api.ReachabilityMonitor;
 import com.plcoding.audiorecorder.api.RetrofitClient;
+import com.plcoding.audiorecorder.data.ChatOutbox;
 import com.plcoding.audiorecorder.data.Recording;
 import com.plcoding.audiorecorder.data.RecordingRepository;
 import com.plcoding.audiorecorder.utils.DeviceIdHelper;
@@ -51,6 +47,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import okhttp3.CacheControl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -58,6 +55,7 @@ import okhttp3.Response;
 public class ChatActivity extends AppCompatActivity implements ChatWebSocketClient.MessageListener {
     private static final String TAG = "ChatActivity";
     private static final int MAX_RECONNECT_ATTEMPTS = 3;
+    private static final long REACHABILITY_WAIT_MS = 6000;
 
     // UI Components
     private RecyclerView chatRecyclerView;
@@ -99,6 +97,8 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
     private SimpleDateFormat utcFormat;
 
     // ✅ ADD: Timezone offset tracking
+    private ChatOutbox outbox;
+    private ReachabilityMonitor.State lastReachability;
     private long serverTimeOffset = 0;
     private boolean timezoneSynced = false;
 
@@ -106,6 +106,20 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
     private final Map<String, Long> recentContentTimestamps = new HashMap<>();
     private long lastProcessedMessageTime = 0;
 
+    // History arrives one frame per message; admin messages are stored in batches
+    private static final long HISTORY_FLUSH_DELAY_MS = 300;
+    private static final int HISTORY_FLUSH_MAX = 500;
+    private final List<LocalChatMessage> pendingHistory = new ArrayList<>();
+    private final Runnable flushHistoryRunnable = this::flushHistoricalMessages;
+
+    // Local history paging, keyed on the (timestamp, id) of the oldest message shown
+    private static final int CHAT_PAGE_SIZE = 50;
+    private static final int LOAD_OLDER_THRESHOLD = 5;
+    private long oldestLoadedTimestamp = Long.MAX_VALUE;
+    private long oldestLoadedId = Long.MAX_VALUE;
+    private boolean hasOlderMessages = true;
+    private boolean isLoadingOlder = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -121,6 +135,7 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
         // Initialize other components
         repository = new RecordingRepository(this);
         initializeViews();
+        observeReachability();
 
         // ✅ IMPORTANT: Sync with server timezone FIRST
         syncServerTimezone(() -> {
@@ -159,8 +174,8 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
             try {
                 Log.d(TAG, "🔄 Syncing with server timezone...");
 
-                // Call server time API
-                OkHttpClient client = new OkHttpClient.Builder()
+                // Call server time API (shorter timeouts, same shared connection pool)
+                OkHttpClient client = RetrofitClient.getInstance(this).getHttpClient().newBuilder()
                         .connectTimeout(10, TimeUnit.SECONDS)
                         .readTimeout(10, TimeUnit.SECONDS)
                         .build();
@@ -171,6 +186,7 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
                 Request request = new Request.Builder()
                         .url(timeApiUrl)
                         .addHeader("X-Requested-With", "XMLHttpRequest")
+                        .cacheControl(CacheControl.FORCE_NETWORK)
                         .build();
 
                 try (Response response = client.newCall(request).execute()) {
@@ -272,6 +288,16 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
         chatAdapter = new ChatAdapter(chatMessages);
         chatRecyclerView.setAdapter(chatAdapter);
 
+        // Older history is fetched a page at a time as the user scrolls up
+        chatRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    loadOlderMessages();
+                }
+            }
+        });
+
         // Setup input controls
         updateInputState(false);
 
@@ -319,38 +345,12 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
     private void loadLocalMessages() {
         executor.execute(() -> {
             try {
-                List<LocalChatMessage> localMessages = repository.getLocalChatMessages(Long.parseLong(recordingId));
+                List<LocalChatMessage> page = repository.getLocalChatMessagesPage(
+                        Long.parseLong(recordingId), Long.MAX_VALUE, Long.MAX_VALUE, CHAT_PAGE_SIZE);
 
                 mainHandler.post(() -> {
-                    if (!localMessages.isEmpty()) {
-                        addSystemMessage("Loading " + localMessages.size() + " local messages with timezone sync...");
-
-                        for (LocalChatMessage msg : localMessages) {
-                            if (TextUtils.isEmpty(msg.getMessage()) ||
-                                    isPingPongMessage(msg.getMessage()) ||
-                                    processedMessageIds.contains(msg.getMessageId())) {
-                                continue;
-                            }
-
-                            // ✅ FIXED: Format timestamp with server timezone
-                            String formattedTimestamp = formatTimestamp(String.valueOf(msg.getTimestamp()));
-
-                            ChatMessage chatMessage = new ChatMessage(
-                                    msg.getMessage(),
-                                    msg.isFromDevice() ? ChatMessage.TYPE_DEVICE : ChatMessage.TYPE_ADMIN,
-                                    msg.isFromDevice() ? "You" : "Admin",
-                                    formattedTimestamp,
-                                    msg.getMessageId(),
-                                    true
-                            );
-
-                            addMessageToChat(chatMessage);
-
-                            if (msg.getMessageId() != null) {
-                                processedMessageIds.add(msg.getMessageId());
-                            }
-                        }
-
+                    onHistoryPageLoaded(page, false);
+                    if (!page.isEmpty()) {
                         addSystemMessage("✅ Local messages loaded with correct timezone");
                         initialHistoryLoaded = true;
                     }
@@ -363,6 +363,84 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
         });
     }
 
+    // Fetch the page just before the oldest message shown; called when scrolled near the top
+    private void loadOlderMessages() {
+        if (isLoadingOlder || !hasOlderMessages || oldestLoadedTimestamp == Long.MAX_VALUE) {
+            return;
+        }
+        isLoadingOlder = true;
+
+        long beforeTimestamp = oldestLoadedTimestamp;
+        long beforeId = oldestLoadedId;
+        executor.execute(() -> {
+            List<LocalChatMessage> page = new ArrayList<>();
+            try {
+                page = repository.getLocalChatMessagesPage(
+                        Long.parseLong(recordingId), beforeTimestamp, beforeId, CHAT_PAGE_SIZE);
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading older messages", e);
+            }
+
+            List<LocalChatMessage> loaded = page;
+            mainHandler.post(() -> {
+                isLoadingOlder = false;
+                onHistoryPageLoaded(loaded, true);
+            });
+        });
+    }
+
+    // Add a page in one adapter update: appended for the first page, prepended for older ones
+    private void onHistoryPageLoaded(List<LocalChatMessage> page, boolean older) {
+        if (isDestroyed) {
+            return;
+        }
+        hasOlderMessages = page.size() >= CHAT_PAGE_SIZE;
+        if (page.isEmpty()) {
+            return;
+        }
+
+        oldestLoadedTimestamp = page.get(0).getTimestamp();
+        oldestLoadedId = page.get(0).getId();
+
+        List<ChatMessage> toAdd = new ArrayList<>();
+        for (LocalChatMessage msg : page) {
+            if (msg.getMessageId() != null && processedMessageIds.contains(msg.getMessageId())) {
+                continue;
+            }
+
+            // ✅ FIXED: Format timestamp with server timezone
+            String formattedTimestamp = formatTimestamp(String.valueOf(msg.getTimestamp()));
+
+            toAdd.add(new ChatMessage(
+                    msg.getMessage(),
+                    msg.isFromDevice() ? ChatMessage.TYPE_DEVICE : ChatMessage.TYPE_ADMIN,
+                    msg.isFromDevice() ? "You" : "Admin",
+                    formattedTimestamp,
+                    msg.getMessageId(),
+                    true
+            ));
+
+            if (msg.getMessageId() != null) {
+                processedMessageIds.add(msg.getMessageId());
+            }
+        }
+
+        if (toAdd.isEmpty()) {
+            return;
+        }
+
+        if (older) {
+            // Inserted above the first visible row, so the view stays where the user is reading
+            chatMessages.addAll(0, toAdd);
+            chatAdapter.notifyItemRangeInserted(0, toAdd.size());
+        } else {
+            int start = chatMessages.size();
+            chatMessages.addAll(toAdd);
+            chatAdapter.notifyItemRangeInserted(start, toAdd.size());
+            chatRecyclerView.scrollToPosition(chatMessages.size() - 1);
+        }
+    }
+
     // ✅ COMPLETE connectToServerSafely METHOD
     private void connectToServerSafely() {
         if (isDestroyed || isConnecting.get()) {
@@ -379,7 +457,9 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
         isConnecting.set(true);
 
         executor.execute(() -> {
-            boolean serverReachable = RetrofitClient.getInstance(this).isServerReachable();
+            // Joins any probe already in flight instead of opening another socket
+            boolean serverReachable = ReachabilityMonitor.getInstance(this)
+                    .awaitServerReachable(REACHABILITY_WAIT_MS);
 
             mainHandler.post(() -> {
                 if (serverReachable) {
@@ -403,6 +483,7 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
             Log.d(TAG, "Creating WebSocket connection to: " + serverUrl);
 
             chatWebSocket = new ChatWebSocketClient(serverUrl, this, deviceId, recordingId);
+            chatWebSocket.setOutbox(getOutbox());
             chatWebSocket.connect();
 
         } catch (URISyntaxException e) {
@@ -457,8 +538,11 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
             return;
         }
 
+        String clientMessageId = ChatOutbox.newClientMessageId();
+
         if (!isConnected.get() || chatWebSocket == null) {
-            saveMessageLocally(message, true);
+            // Replayed from the outbox when the socket opens
+            queueOutgoingMessage(message, clientMessageId, null);
 
             ChatMessage chatMessage = new ChatMessage(
                     message, ChatMessage.TYPE_DEVICE, "You", getCurrentTimestamp(), null, false
@@ -475,9 +559,8 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
             String tempMessageId = "temp_" + deviceId + "_" + System.currentTimeMillis();
             trackProcessedMessage(tempMessageId, message, getCurrentTimestamp());
 
-            chatWebSocket.sendMessage(message, deviceId);
+            queueOutgoingMessage(message, clientMessageId, chatWebSocket);
             messageInput.setText("");
-            saveMessageLocally(message, true);
 
             // ✅ NEW: Show optimistic message immediately for better UX
             ChatMessage optimisticMessage = new ChatMessage(
@@ -506,7 +589,16 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
     }
 
     // ✅ FIXED: Save message with correct server timezone
-    private void saveMessageLocally(String message, boolean isFromDevice) {
+    private ChatOutbox getOutbox() {
+        if (outbox == null) {
+            outbox = new ChatOutbox(repository, Long.parseLong(recordingId));
+        }
+        return outbox;
+    }
+
+    // Save first, then send on the same executor task so the server's ack always finds the row
+    private void queueOutgoingMessage(String message, String clientMessageId, ChatWebSocketClient client) {
+        ChatOutbox chatOutbox = getOutbox();
         executor.execute(() -> {
             try {
                 // ✅ CRITICAL: Save with server timezone timestamp
@@ -515,23 +607,60 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
                     timestamp += serverTimeOffset; // Adjust to server time
                 }
 
-                // Create message with server timestamp
-                repository.saveLocalChatMessage(
-                        Long.parseLong(recordingId),
-                        message,
-                        isFromDevice,
-                        null,
-                        timestamp // Pass server-adjusted timestamp
-                );
-
+                chatOutbox.enqueue(message, clientMessageId, timestamp);
                 Log.d(TAG, "✅ Message saved with server timestamp: " + new Date(timestamp));
 
+                if (client != null) {
+                    client.sendMessage(message, deviceId, clientMessageId);
+                }
+
             } catch (Exception e) {
                 Log.e(TAG, "Error saving message locally", e);
             }
         });
     }
 
+    // The message's own timestamp, or now when it has none, adjusted to server time
+    private long toServerTime(String timestamp) {
+        Date date = TextUtils.isEmpty(timestamp) ? null : parseTimestamp(timestamp);
+        long time = date != null ? date.getTime() : System.currentTimeMillis();
+        if (timezoneSynced) {
+            time += serverTimeOffset;
+        }
+        return time;
+    }
+
+    // Buffer a history message; the buffer is written in one transaction once the burst settles
+    private void queueHistoricalMessage(String message, String timestamp, String messageId) {
+        pendingHistory.add(new LocalChatMessage(0, Long.parseLong(recordingId), message, false,
+                toServerTime(timestamp), true, messageId));
+
+        mainHandler.removeCallbacks(flushHistoryRunnable);
+        if (pendingHistory.size() >= HISTORY_FLUSH_MAX) {
+            flushHistoricalMessages();
+        } else {
+            mainHandler.postDelayed(flushHistoryRunnable, HISTORY_FLUSH_DELAY_MS);
+        }
+    }
+
+    private void flushHistoricalMessages() {
+        if (pendingHistory.isEmpty()) {
+            return;
+        }
+
+        List<LocalChatMessage> batch = new ArrayList<>(pendingHistory);
+        pendingHistory.clear();
+
+        executor.execute(() -> {
+            try {
+                int inserted = repository.saveLocalChatMessages(batch);
+                Log.d(TAG, "✅ Stored " + inserted + " new history messages (" + batch.size() + " received)");
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving history messages", e);
+            }
+        });
+    }
+
     // ✅ COMPLETE retryConnection METHOD
     private void retryConnection() {
         Log.d(TAG, "Manual retry connection requested");
@@ -682,6 +811,27 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
         chatRecyclerView.smoothScrollToPosition(chatMessages.size() - 1);
     }
 
+    // One adapter update and one scroll for a whole batch
+    private void addMessagesToChat(List<ChatMessage> messages) {
+        int start = chatMessages.size();
+        for (ChatMessage message : messages) {
+            if (!shouldSkipMessage(message)) {
+                chatMessages.add(message);
+            }
+        }
+
+        int added = chatMessages.size() - start;
+        if (added == 0) {
+            return;
+        }
+        chatAdapter.notifyItemRangeInserted(start, added);
+        if (added == 1) {
+            chatRecyclerView.smoothScrollToPosition(chatMessages.size() - 1);
+        } else {
+            chatRecyclerView.scrollToPosition(chatMessages.size() - 1);
+        }
+    }
+
     private void addSystemMessage(String message) {
         if (recentSystemMessages.contains(message)) {
             return;
@@ -731,55 +881,87 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
     // ✅ OVERRIDE: WebSocket message handler with timezone fix
     @Override
     public void onMessageReceived(String sender, String message, String timestamp, String messageId, boolean isHistorical) {
+        mainHandler.post(() -> {
+            ChatMessage chatMessage = processIncomingMessage(sender, message, timestamp, messageId, isHistorical);
+            if (chatMessage != null) {
+                addMessageToChat(chatMessage);
+            }
+        });
+    }
+
+    // Called once per frame on the main thread with everything that arrived since the last one
+    @Override
+    public void onMessagesReceived(List<ChatWebSocketClient.IncomingMessage> messages) {
+        List<ChatMessage> toAdd = new ArrayList<>();
+        for (ChatWebSocketClient.IncomingMessage incoming : messages) {
+            ChatMessage chatMessage = processIncomingMessage(incoming.getSender(), incoming.getMessage(),
+                    incoming.getTimestamp(), incoming.getMessageId(), incoming.isHistorical());
+            if (chatMessage != null) {
+                toAdd.add(chatMessage);
+            }
+        }
+        addMessagesToChat(toAdd);
+    }
+
+    // Dedupe, format, track and persist one incoming message; returns what to show, or null
+    private ChatMessage processIncomingMessage(String sender, String message, String timestamp, String messageId, boolean isHistorical) {
         if (isDestroyed || TextUtils.isEmpty(message) || isPingPongMessage(message)) {
-            return;
+            return null;
         }
 
         // ✅ ENHANCED: Multiple levels of duplicate detection
         if (isDuplicateMessage(messageId, message, timestamp, sender)) {
             Log.d(TAG, "🔇 Duplicate message ignored: ID=" + messageId + ", content=" + message.substring(0, Math.min(30, message.length())));
-            return;
+            return null;
         }
 
-        mainHandler.post(() -> {
-            int messageType;
-            String displaySender;
-
-            switch (sender.toLowerCase()) {
-                case "admin":
-                    messageType = ChatMessage.TYPE_ADMIN;
-                    displaySender = "Admin";
-                    break;
-                case "system":
-                    messageType = ChatMessage.TYPE_SYSTEM;
-                    displaySender = "System";
-                    break;
-                case "device":
-                default:
-                    messageType = ChatMessage.TYPE_DEVICE;
-                    displaySender = deviceId.equals(sender) ? "You" : sender;
-                    break;
-            }
-
-            // ✅ FIXED: Format timestamp with server timezone
-            String formattedTimestamp = formatTimestamp(timestamp);
+        int messageType;
+        String displaySender;
 
-            ChatMessage chatMessage = new ChatMessage(
-                    message, messageType, displaySender, formattedTimestamp, messageId, isHistorical
-            );
+        switch (sender.toLowerCase()) {
+            case "admin":
+                messageType = ChatMessage.TYPE_ADMIN;
+                displaySender = "Admin";
+                break;
+            case "system":
+                messageType = ChatMessage.TYPE_SYSTEM;
+                displaySender = "System";
+                break;
+            case "device":
+            default:
+                messageType = ChatMessage.TYPE_DEVICE;
+                displaySender = deviceId.equals(sender) ? "You" : sender;
+                break;
+        }
 
-            addMessageToChat(chatMessage);
+        // ✅ FIXED: Format timestamp with server timezone
+        String formattedTimestamp = formatTimestamp(timestamp);
 
-            // ✅ TRACK MESSAGE AFTER ADDING TO UI
-            trackProcessedMessage(messageId, message, timestamp);
+        ChatMessage chatMessage = new ChatMessage(
+                message, messageType, displaySender, formattedTimestamp, messageId, isHistorical
+        );
 
-            // Save message locally with server timezone (only for admin messages, not historical)
-            if (messageType == ChatMessage.TYPE_ADMIN && !isHistorical) {
-                saveMessageLocally(message, false);
-            }
+        // ✅ TRACK MESSAGE
+        trackProcessedMessage(messageId, message, timestamp);
+
+        // Save message locally with server timezone (only for admin messages)
+        if (messageType == ChatMessage.TYPE_ADMIN && !isHistorical) {
+            // Live messages keep their server id, so a paged reload finds them and a replay is ignored
+            long id = Long.parseLong(recordingId);
+            long time = toServerTime(timestamp);
+            executor.execute(() -> {
+                try {
+                    repository.saveLocalChatMessage(id, message, false, messageId, time);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error saving incoming message", e);
+                }
+            });
+        } else if (messageType == ChatMessage.TYPE_ADMIN && messageId != null) {
+            queueHistoricalMessage(message, timestamp, messageId);
+        }
 
-            Log.d(TAG, "✅ Message displayed with server timezone - " + sender + ": " + message + " at " + formattedTimestamp);
-        });
+        Log.d(TAG, "✅ Message displayed with server timezone - " + sender + ": " + message + " at " + formattedTimestamp);
+        return chatMessage;
     }
 
     // ✅ NEW: Enhanced duplicate detection method
@@ -924,28 +1106,28 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
         });
     }
 
-    // ✅ NETWORK RECEIVER
-    private final BroadcastReceiver networkReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            if (isDestroyed) return;
+    // ✅ NETWORK STATE (shared process-wide monitor)
+    private void observeReachability() {
+        ReachabilityMonitor.getInstance(this).getStateLiveData().observe(this, state -> {
+            if (isDestroyed || state == null) return;
 
-            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-            NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-            boolean hasConnectivity = activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+            // The first delivery is the current state, not a change; onResume handles connecting
+            ReachabilityMonitor.State previous = lastReachability;
+            lastReachability = state;
+            if (previous == null || previous == state) return;
 
-            Log.d(TAG, "Network connectivity changed: " + hasConnectivity);
+            Log.d(TAG, "Reachability changed: " + previous + " -> " + state);
 
-            if (hasConnectivity && !isConnected.get() && !isConnecting.get()) {
+            if (state == ReachabilityMonitor.State.ONLINE && !isConnected.get() && !isConnecting.get()) {
                 addSystemMessage("Network restored, reconnecting...");
                 reconnectAttempts = 0;
                 connectToServerSafely();
-            } else if (!hasConnectivity) {
+            } else if (state == ReachabilityMonitor.State.NO_NETWORK) {
                 addSystemMessage("Network connection lost");
                 showConnectionStatus("No network", false);
             }
-        }
-    };
+        });
+    }
 
     @Override
     protected void onResume() {
@@ -956,19 +1138,30 @@ public class ChatActivity extends AppCompatActivity implements ChatWebSocketClie
         }
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+
+        // Everything shown while the chat was open is read; queued history is stored first
+        mainHandler.removeCallbacks(flushHistoryRunnable);
+        flushHistoricalMessages();
+        if (recordingId != null && !executor.isShutdown()) {
+            long id = Long.parseLong(recordingId);
+            executor.execute(() -> repository.markConversationRead(id));
+        }
+    }
+
     @Override
     protected void onDestroy() {
         isDestroyed = true;
 
         closeExistingConnectionAndWait();
 
-        try {
-            unregisterReceiver(networkReceiver);
-        } catch (Exception e) {
-            Log.e(TAG, "Error unregistering network receiver", e);
-        }
+        mainHandler.removeCallbacks(flushHistoryRunnable);
+        flushHistoricalMessages();
 
-        executor.shutdownNow();
+        // Let queued saves finish; nothing new is accepted after this
+        executor.shutdown();
         mainHandler.removeCallbacksAndMessages(null);
 
         super.onDestroy();
@@ -5,25 +5,12 @@ import android.app.DatePickerDialog;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
-import android.text.Editable;
-import android.text.InputType;
-import android.text.TextWatcher;
-import android.util.Base64;
 import android.util.Log;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
-import android.widget.CheckBox;
-import android.widget.EditText;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
-import android.widget.RadioButton;
-import android.widget.RadioGroup;
-import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -32,37 +19,39 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.plcoding.audiorecorder.api.ChecklistResponse;
-import com.plcoding.audiorecorder.api.RetrofitClient;
-import com.plcoding.audiorecorder.api.TaskChecklistApiService;
+import com.plcoding.audiorecorder.data.ChecklistDraftStore;
+import com.plcoding.audiorecorder.data.ChecklistRepository;
+import com.plcoding.audiorecorder.data.ChecklistSubmitter;
 import com.plcoding.audiorecorder.forms.ChecklistAnswer;
-import com.plcoding.audiorecorder.forms.ChecklistCategory;
-import com.plcoding.audiorecorder.forms.ChecklistOption;
+import com.plcoding.audiorecorder.forms.ChecklistDraft;
 import com.plcoding.audiorecorder.forms.ChecklistQuestion;
 import com.plcoding.audiorecorder.forms.ChecklistQuestionsResponse;
 import com.plcoding.audiorecorder.forms.ChecklistSubmissionRequest;
-import com.plcoding.audiorecorder.forms.PhotoUploadHelper;
+import com.plcoding.audiorecorder.forms.CompiledForm;
+import com.plcoding.audiorecorder.forms.FormState;
+import com.plcoding.audiorecorder.forms.PhotoPipeline;
 import com.plcoding.audiorecorder.forms.SubmitChecklistResponse;
 import com.plcoding.audiorecorder.forms.ValidationHelper;
 import com.plcoding.audiorecorder.utils.DeviceIdHelper;
+import com.plcoding.audiorecorder.utils.StickyHeaderDecoration;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.Set;
 
 public class ChecklistCompletionActivity extends AppCompatActivity {
     private static final String TAG = "ChecklistCompletion";
@@ -74,12 +63,22 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
     private static final int FRONT_CAMERA_REQUEST = 1004;
     private static final int BACK_CAMERA_REQUEST = 1005;
 
+    // Compressed photo answers waiting to be submitted, under the files dir so drafts keep them
+    private static final String PHOTO_UPLOAD_DIR = "checklist_photos";
+
+    // Capture in progress, kept across process death while the camera app is in front
+    private static final String STATE_PHOTO_PATH = "current_photo_path";
+    private static final String STATE_PHOTO_QUESTION_ID = "current_photo_question_id";
+    private static final String STATE_CAMERA_PREFERENCE = "current_camera_preference";
+
     private Map<Integer, String> cameraUsageTracker = new HashMap<>();
     private String currentQuestionCameraPreference = "back";
 
 
     // UI Components
-    private LinearLayout questionsContainer;
+    private RecyclerView questionsList;
+    private ChecklistFormAdapter formAdapter;
+    private StickyHeaderDecoration stickyHeaders;
     private Button submitButton;
     private Button startTaskButton;
 
@@ -93,19 +92,35 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
     private List<ChecklistQuestionsResponse.CategorySection> categorizedQuestions = new ArrayList<>();
     private List<ChecklistQuestion> uncategorizedQuestions = new ArrayList<>();
 
-    // Responses tracking
-    private Map<Integer, Object> responses = new HashMap<>();
-    private Map<Integer, String> photoResponses = new HashMap<>();
+    // Responses tracking: answers, typed text, photo files and previews, independent of the rows
+    private final FormState formState = new FormState();
+    // Question index, compiled rules and unanswered required count of the displayed form
+    private CompiledForm compiledForm = CompiledForm.compile(null, null);
     private Map<Integer, String> photoSourceUsed = new HashMap<>(); // ✅ NEW: Track photo sources
-    private Map<Integer, View> questionViews = new HashMap<>();
 
     // Photo capture state
     private String currentPhotoPath;
     private int currentPhotoQuestionId = -1;
     private String currentPhotoSource; // ✅ NEW: Track current photo source
 
-    // API service
-    private TaskChecklistApiService apiService;
+    // Background submission
+    private ChecklistSubmitter submitter;
+    private String submissionKey;
+    // Files owned by the queued submission; replacing a photo must not delete them
+    private final Set<String> submittedPhotoPaths = new HashSet<>();
+    private boolean submissionDeferredShown = false;
+    private CharSequence submitButtonText;
+    private PhotoPipeline photoPipeline;
+    // Latest photo request per question; results of older ones are dropped
+    private final Map<Integer, Long> pendingPhotoRequests = new HashMap<>();
+    private long photoRequestCounter = 0;
+
+    // Every edit is journaled so the form can be restored after the process is killed
+    private ChecklistDraftStore draftStore;
+    // A photo result that arrived before the recreated activity had its questions again
+    private boolean hasDeferredPhotoResult = false;
+    private int deferredRequestCode;
+    private Intent deferredResultData;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -117,17 +132,63 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
         formTitle = getIntent().getStringExtra("form_title");
         isMandatory = getIntent().getBooleanExtra("is_mandatory", false);
 
-        apiService = RetrofitClient.getInstance(this).createService(TaskChecklistApiService.class);
+        submitter = ChecklistSubmitter.getInstance(this);
+        photoPipeline = PhotoPipeline.getInstance(this);
+        draftStore = ChecklistDraftStore.getInstance(this);
+
+        if (savedInstanceState != null) {
+            currentPhotoPath = savedInstanceState.getString(STATE_PHOTO_PATH);
+            currentPhotoQuestionId = savedInstanceState.getInt(STATE_PHOTO_QUESTION_ID, -1);
+            currentQuestionCameraPreference = savedInstanceState.getString(STATE_CAMERA_PREFERENCE, "back");
+        }
 
         initializeViews();
+        formState.setEditListener(draftStore.journal(formId));
+        loadDraft();
         loadQuestions();
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_PHOTO_PATH, currentPhotoPath);
+        outState.putInt(STATE_PHOTO_QUESTION_ID, currentPhotoQuestionId);
+        outState.putString(STATE_CAMERA_PREFERENCE, currentQuestionCameraPreference);
+    }
+
+    // 📝 Restore whatever was entered before the app was closed or killed
+    private void loadDraft() {
+        draftStore.load(formId, draft -> {
+            if (isFinishing() || isDestroyed() || draft.isEmpty()) {
+                return;
+            }
+
+            int restored = draft.restoreInto(formState);
+            for (Map.Entry<Integer, String> entry : draft.getSources().entrySet()) {
+                if (formState.hasPhoto(entry.getKey()) && !cameraUsageTracker.containsKey(entry.getKey())) {
+                    cameraUsageTracker.put(entry.getKey(), entry.getValue());
+                }
+            }
+            Log.d(TAG, "Restored " + restored + " answers from draft of form " + formId);
+
+            // Questions shown before the draft was read are rebound to the restored answers
+            if (restored > 0 && compiledForm.size() > 0) {
+                displayQuestions();
+            }
+        });
+    }
+
     private void initializeViews() {
         setTitle(formTitle);
 
-        questionsContainer = findViewById(R.id.questions_container);
+        questionsList = findViewById(R.id.questions_list);
+        formAdapter = new ChecklistFormAdapter(formState, formListener);
+        stickyHeaders = new StickyHeaderDecoration(formAdapter);
+        questionsList.setLayoutManager(new LinearLayoutManager(this));
+        questionsList.setAdapter(formAdapter);
+        questionsList.addItemDecoration(stickyHeaders);
         submitButton = findViewById(R.id.submit_button);
+        submitButtonText = submitButton.getText();
         startTaskButton = findViewById(R.id.start_task_button);
 
         submitButton.setOnClickListener(v -> submitChecklist());
@@ -140,541 +201,93 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
     }
 
     private void loadQuestions() {
-        Call<ChecklistQuestionsResponse> call = apiService.getChecklistQuestions(formId);
-        call.enqueue(new Callback<ChecklistQuestionsResponse>() {
+        ChecklistRepository.getInstance(this).loadQuestions(formId, new ChecklistRepository.Listener<ChecklistQuestionsResponse>() {
             @Override
-            public void onResponse(Call<ChecklistQuestionsResponse> call, Response<ChecklistQuestionsResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ChecklistQuestionsResponse questionsResponse = response.body();
-                    if ("success".equals(questionsResponse.getStatus())) {
-                        categorizedQuestions.clear();
-                        uncategorizedQuestions.clear();
-
-                        if (questionsResponse.getCategorized_questions() != null) {
-                            categorizedQuestions.addAll(questionsResponse.getCategorized_questions());
-                        }
-                        if (questionsResponse.getUncategorized_questions() != null) {
-                            uncategorizedQuestions.addAll(questionsResponse.getUncategorized_questions());
-                        }
-
-                        showStartAfterCompletion = questionsResponse.getForm().isShow_start_button_after_completion();
-
-                        displayQuestions();
-                    }
+            public void onData(ChecklistQuestionsResponse questionsResponse, boolean fromCache) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
                 }
-            }
-
-            @Override
-            public void onFailure(Call<ChecklistQuestionsResponse> call, Throwable t) {
-                Log.e(TAG, "Error loading questions", t);
-                Toast.makeText(ChecklistCompletionActivity.this, "Error loading questions", Toast.LENGTH_SHORT).show();
-            }
-        });
-    }
-
-    private void displayQuestions() {
-        questionsContainer.removeAllViews();
-        questionViews.clear();
-
-        // Add categorized questions
-        for (ChecklistQuestionsResponse.CategorySection categorySection : categorizedQuestions) {
-            addCategoryHeader(categorySection.getCategory());
-            for (ChecklistQuestion question : categorySection.getQuestions()) {
-                View questionView = createQuestionView(question);
-                questionsContainer.addView(questionView);
-                questionViews.put(question.getId(), questionView);
-            }
-        }
-
-        // Add uncategorized questions
-        if (!uncategorizedQuestions.isEmpty()) {
-            if (!categorizedQuestions.isEmpty()) {
-                addCategoryHeader(null); // "Other Questions" header
-            }
-            for (ChecklistQuestion question : uncategorizedQuestions) {
-                View questionView = createQuestionView(question);
-                questionsContainer.addView(questionView);
-                questionViews.put(question.getId(), questionView);
-            }
-        }
-
-        updateFormValidation();
-    }
 
-    private void addCategoryHeader(ChecklistCategory category) {
-        LayoutInflater inflater = LayoutInflater.from(this);
-        View headerView = inflater.inflate(R.layout.category_header, questionsContainer, false);
-
-        TextView categoryTitle = headerView.findViewById(R.id.category_title);
-        TextView categoryDescription = headerView.findViewById(R.id.category_description);
-
-        if (category != null) {
-            categoryTitle.setText(category.getName());
-            if (category.getDescription() != null && !category.getDescription().isEmpty()) {
-                categoryDescription.setText(category.getDescription());
-                categoryDescription.setVisibility(View.GONE);
-            }
-
-            // Set category color if available
-            if (category.getColor() != null) {
-                try {
-                    int color = android.graphics.Color.parseColor(category.getColor());
-                    headerView.setBackgroundColor(color & 0x1AFFFFFF); // Add transparency
-                } catch (Exception e) {
-                    Log.w(TAG, "Invalid color: " + category.getColor());
+                // A newer definition arriving after the user started answering is kept for next time
+                boolean rendered = !categorizedQuestions.isEmpty() || !uncategorizedQuestions.isEmpty();
+                if (rendered && formState.hasAnswers()) {
+                    Log.d(TAG, "Updated questions available, keeping current form while it is being filled");
+                    return;
                 }
-            }
-        } else {
-            categoryTitle.setText("Other Questions");
-            categoryDescription.setVisibility(View.GONE);
-        }
-
-        questionsContainer.addView(headerView);
-    }
 
-    // ✅ CORRECTION: Méthode pour gérer les questions avec configuration photo manquante
-    private void handleMissingPhotoConfiguration(View questionView, ChecklistQuestion question) {
-        TextView errorText = new TextView(this);
-        errorText.setText("❌ Photo upload configuration is missing");
-        errorText.setTextColor(getColor(android.R.color.holo_red_dark));
-        errorText.setPadding(16, 8, 16, 8);
-        errorText.setTextSize(14);
-
-        if (questionView instanceof LinearLayout) {
-            ((LinearLayout) questionView).addView(errorText);
-        }
-
-        Log.e(TAG, "Missing photo configuration for question: " + question.getId() + " - " + question.getText());
-    }
-
-    // ✅ CORRECTION: Validation supplémentaire dans createQuestionView
-    private View createQuestionView(ChecklistQuestion question) {
-        if (question == null) {
-            Log.e(TAG, "Cannot create view for null question");
-            return new View(this); // Vue vide en cas d'urgence
-        }
-
-        LayoutInflater inflater = LayoutInflater.from(this);
-        View questionView = null;
-
-        String questionType = question.getType();
-        if (questionType == null) {
-            Log.e(TAG, "Question type is null for question: " + question.getId());
-            questionType = ChecklistQuestion.TYPE_TEXT; // Défaut sécurisé
-        }
+                categorizedQuestions.clear();
+                uncategorizedQuestions.clear();
 
-        switch (questionType) {
-            case ChecklistQuestion.TYPE_YES_NO:
-                questionView = createYesNoQuestion(question, inflater);
-                break;
-            case ChecklistQuestion.TYPE_RADIO_SINGLE:
-                questionView = createRadioSingleQuestion(question, inflater);
-                break;
-            case ChecklistQuestion.TYPE_RADIO_MULTIPLE:
-                questionView = createRadioMultipleQuestion(question, inflater);
-                break;
-            case ChecklistQuestion.TYPE_TEXT:
-            case ChecklistQuestion.TYPE_PARAGRAPH:
-                questionView = createTextQuestion(question, inflater);
-                break;
-            case ChecklistQuestion.TYPE_INTEGER:
-            case ChecklistQuestion.TYPE_DECIMAL:
-                questionView = createNumberQuestion(question, inflater);
-                break;
-            case ChecklistQuestion.TYPE_DATE:
-                questionView = createDateQuestion(question, inflater);
-                break;
-            case ChecklistQuestion.TYPE_PHOTO_UPLOAD:
-                // ✅ VALIDATION: Vérifier la configuration photo avant de créer la vue
-                if (isPhotoSourceValid(question)) {
-                    questionView = createPhotoUploadQuestion(question, inflater);
-                } else {
-                    // Créer une vue d'erreur au lieu de crasher
-                    questionView = createErrorQuestionView(question, inflater, "Photo upload configuration missing");
+                if (questionsResponse.getCategorized_questions() != null) {
+                    categorizedQuestions.addAll(questionsResponse.getCategorized_questions());
                 }
-                break;
-            default:
-                Log.w(TAG, "Unknown question type: " + questionType + " for question: " + question.getId());
-                questionView = createTextQuestion(question, inflater); // Défaut sécurisé
-                break;
-        }
-
-        return questionView;
-    }
-    // ✅ NOUVELLE MÉTHODE: Créer une vue d'erreur
-    private View createErrorQuestionView(ChecklistQuestion question, LayoutInflater inflater, String errorMessage) {
-        View view = inflater.inflate(R.layout.question_text_enhanced, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        EditText textInput = view.findViewById(R.id.text_input);
-
-        setupQuestionText(questionText, question);
-
-        // Désactiver l'input et afficher l'erreur
-        textInput.setEnabled(false);
-        textInput.setText(errorMessage);
-        textInput.setTextColor(getColor(android.R.color.holo_red_dark));
-
-        return view;
-    }
-
-    private View createYesNoQuestion(ChecklistQuestion question, LayoutInflater inflater) {
-        View view = inflater.inflate(R.layout.question_yes_no, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        RadioGroup radioGroup = view.findViewById(R.id.yes_no_radio_group);
-
-        setupQuestionText(questionText, question);
-
-        radioGroup.setOnCheckedChangeListener((group, checkedId) -> {
-            boolean response = checkedId == R.id.yes_button;
-            responses.put(question.getId(), response);
-            updateFormValidation();
-        });
-
-        return view;
-    }
-
-    private View createRadioSingleQuestion(ChecklistQuestion question, LayoutInflater inflater) {
-        View view = inflater.inflate(R.layout.question_radio_single, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        RadioGroup radioGroup = view.findViewById(R.id.options_radio_group);
-
-        setupQuestionText(questionText, question);
-
-        // Add radio buttons for each option
-        for (ChecklistOption option : question.getOptions()) {
-            RadioButton radioButton = new RadioButton(this);
-            radioButton.setText(option.getText());
-            radioButton.setId(View.generateViewId());
-            radioButton.setTag(option.getId());
-            radioButton.setPadding(16, 12, 16, 12);
-            radioGroup.addView(radioButton);
-        }
-
-        radioGroup.setOnCheckedChangeListener((group, checkedId) -> {
-            RadioButton selectedButton = group.findViewById(checkedId);
-            if (selectedButton != null) {
-                int optionId = (Integer) selectedButton.getTag();
-                responses.put(question.getId(), optionId);
-                updateFormValidation();
-            }
-        });
-
-        return view;
-    }
-
-    private View createRadioMultipleQuestion(ChecklistQuestion question, LayoutInflater inflater) {
-        View view = inflater.inflate(R.layout.question_radio_multiple, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        LinearLayout optionsContainer = view.findViewById(R.id.options_container);
-
-        setupQuestionText(questionText, question);
-
-        List<Integer> selectedOptions = new ArrayList<>();
-
-        // Add checkboxes for each option
-        for (ChecklistOption option : question.getOptions()) {
-            CheckBox checkBox = new CheckBox(this);
-            checkBox.setText(option.getText());
-            checkBox.setTag(option.getId());
-            checkBox.setPadding(16, 12, 16, 12);
-
-            checkBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                int optionId = (Integer) buttonView.getTag();
-                if (isChecked) {
-                    if (!selectedOptions.contains(optionId)) {
-                        selectedOptions.add(optionId);
-                    }
-                } else {
-                    selectedOptions.remove(Integer.valueOf(optionId));
+                if (questionsResponse.getUncategorized_questions() != null) {
+                    uncategorizedQuestions.addAll(questionsResponse.getUncategorized_questions());
                 }
 
-                responses.put(question.getId(), new ArrayList<>(selectedOptions));
-                updateFormValidation();
-            });
-
-            optionsContainer.addView(checkBox);
-        }
-
-        return view;
-    }
-
-    private View createTextQuestion(ChecklistQuestion question, LayoutInflater inflater) {
-        View view = inflater.inflate(R.layout.question_text_enhanced, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        EditText editText = view.findViewById(R.id.text_input);
-        TextView charCounter = view.findViewById(R.id.char_counter);
-
-        setupQuestionText(questionText, question);
-
-        // Configure for paragraph type
-        if (ChecklistQuestion.TYPE_PARAGRAPH.equals(question.getType())) {
-            editText.setLines(4);
-            editText.setMaxLines(8);
-            editText.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_MULTI_LINE);
-            editText.setVerticalScrollBarEnabled(true);
-            editText.setScrollBarStyle(View.SCROLLBARS_INSIDE_INSET);
-        }
-
-        setupHelpText(view, question);
-
-        editText.addTextChangedListener(new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-
-            @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) {}
-
-            @Override
-            public void afterTextChanged(Editable s) {
-                String text = s.toString();
-                responses.put(question.getId(), text);
-
-                // Update character counter
-                if (charCounter != null) {
-                    charCounter.setText(text.length() + " characters");
+                if (questionsResponse.getForm() != null) {
+                    showStartAfterCompletion = questionsResponse.getForm().isShow_start_button_after_completion();
                 }
 
-                updateFormValidation();
+                displayQuestions();
             }
-        });
-
-        return view;
-    }
-
-    private View createNumberQuestion(ChecklistQuestion question, LayoutInflater inflater) {
-        View view = inflater.inflate(R.layout.question_number_enhanced, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        EditText editText = view.findViewById(R.id.number_input);
-        TextView validationText = view.findViewById(R.id.validation_text);
-
-        setupQuestionText(questionText, question);
-        setupHelpText(view, question);
-
-        // Configure input type
-        if (ChecklistQuestion.TYPE_INTEGER.equals(question.getType())) {
-            editText.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_SIGNED);
-        } else {
-            editText.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED);
-        }
-
-        // Set validation text
-        if (question.getValidation() != null) {
-            StringBuilder validationInfo = new StringBuilder();
-            if (question.getValidation().getMin_value() != null && question.getValidation().getMax_value() != null) {
-                validationInfo.append("Range: ").append(question.getValidation().getMin_value())
-                        .append(" - ").append(question.getValidation().getMax_value());
-            } else if (question.getValidation().getMin_value() != null) {
-                validationInfo.append("Minimum: ").append(question.getValidation().getMin_value());
-            } else if (question.getValidation().getMax_value() != null) {
-                validationInfo.append("Maximum: ").append(question.getValidation().getMax_value());
-            }
-
-            if (validationInfo.length() > 0) {
-                validationText.setText(validationInfo.toString());
-                validationText.setVisibility(View.VISIBLE);
-            }
-        }
-
-        editText.addTextChangedListener(new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-
-            @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) {}
 
             @Override
-            public void afterTextChanged(Editable s) {
-                String text = s.toString().trim();
-
-                // Validate input
-                String errorMessage = ValidationHelper.getValidationErrorMessage(question, text);
-                if (errorMessage != null) {
-                    editText.setError(errorMessage);
-                    responses.put(question.getId(), null);
-                } else {
-                    editText.setError(null);
-                    if (!text.isEmpty()) {
-                        try {
-                            if (ChecklistQuestion.TYPE_INTEGER.equals(question.getType())) {
-                                responses.put(question.getId(), Integer.parseInt(text));
-                            } else {
-                                responses.put(question.getId(), Double.parseDouble(text));
-                            }
-                        } catch (NumberFormatException e) {
-                            responses.put(question.getId(), null);
-                        }
-                    } else {
-                        responses.put(question.getId(), null);
-                    }
+            public void onError(String message, boolean hasCachedData) {
+                Log.e(TAG, "Error loading questions: " + message);
+                if (!hasCachedData) {
+                    Toast.makeText(ChecklistCompletionActivity.this, "Error loading questions", Toast.LENGTH_SHORT).show();
                 }
-
-                updateFormValidation();
             }
         });
-
-        return view;
     }
 
-    private View createDateQuestion(ChecklistQuestion question, LayoutInflater inflater) {
-        View view = inflater.inflate(R.layout.question_date_enhanced, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        EditText dateInput = view.findViewById(R.id.date_input);
-        Button calendarButton = view.findViewById(R.id.calendar_button);
-
-        setupQuestionText(questionText, question);
-        setupHelpText(view, question);
-
-        dateInput.setInputType(InputType.TYPE_NULL);
-        dateInput.setFocusable(false);
-        dateInput.setClickable(true);
-
-        View.OnClickListener dateClickListener = v -> showDatePicker(question, dateInput);
-        dateInput.setOnClickListener(dateClickListener);
-        calendarButton.setOnClickListener(dateClickListener);
+    private void displayQuestions() {
+        compiledForm = CompiledForm.compile(categorizedQuestions, uncategorizedQuestions);
+        compiledForm.bind(formState);
+        formAdapter.setQuestions(categorizedQuestions, uncategorizedQuestions, compiledForm);
+        stickyHeaders.invalidate();
+        updateFormValidation();
 
-        return view;
+        if (hasDeferredPhotoResult) {
+            hasDeferredPhotoResult = false;
+            handlePhotoResult(deferredRequestCode, deferredResultData);
+            deferredResultData = null;
+        }
     }
 
-    // ✅ ENHANCED: Create photo upload question with source control
-    private View createPhotoUploadQuestion(ChecklistQuestion question, LayoutInflater inflater) {
-        View view = inflater.inflate(R.layout.question_photo_enhanced, questionsContainer, false);
-
-        TextView questionText = view.findViewById(R.id.question_text);
-        ImageView photoPreview = view.findViewById(R.id.photo_preview);
-        Button cameraButton = view.findViewById(R.id.camera_button);
-        Button galleryButton = view.findViewById(R.id.gallery_button);
-        Button removePhotoButton = view.findViewById(R.id.remove_photo_button);
-        TextView fileInfoText = view.findViewById(R.id.file_info_text);
-        TextView cameraInfoText = view.findViewById(R.id.camera_info_text);
-
-        setupQuestionText(questionText, question);
-        setupHelpText(view, question);
-
-        // Set file size and type info
-        if (question.getValidation() != null) {
-            StringBuilder fileInfo = new StringBuilder();
-            if (question.getValidation().getMax_file_size() != null) {
-                long maxSizeMB = question.getValidation().getMax_file_size() / (1024 * 1024);
-                fileInfo.append("Max size: ").append(maxSizeMB).append("MB");
-            }
-            if (question.getValidation().getAllowed_file_types() != null) {
-                if (fileInfo.length() > 0) fileInfo.append(" • ");
-                fileInfo.append("Types: ").append(String.join(", ", question.getValidation().getAllowed_file_types()));
-            }
-
-            if (fileInfo.length() > 0) {
-                fileInfoText.setText(fileInfo.toString());
-                fileInfoText.setVisibility(View.VISIBLE);
-            }
+    private final ChecklistFormAdapter.FormListener formListener = new ChecklistFormAdapter.FormListener() {
+        @Override
+        public void onAnswerChanged(ChecklistQuestion question) {
+            updateFormValidation();
         }
 
-        // ✅ CORRECTION: Vérifications null strictes pour éviter NullPointerException
-        if (question.getPhoto_source() != null) {
-            StringBuilder cameraInfo = new StringBuilder();
-
-            // ✅ CORRECTION: Vérifications null pour camera_preference
-            String cameraPreference = question.getPhoto_source().getCamera_preference();
-            String cameraInstructions = question.getPhoto_source().getCamera_instructions();
-
-            if (cameraInstructions != null && !cameraInstructions.trim().isEmpty()) {
-                cameraInfo.append("📸 ").append(cameraInstructions);
-
-                // ✅ CORRECTION: Utiliser if-else au lieu de switch pour éviter hashCode() sur null
-                if (cameraPreference != null) {
-                    if ("front".equals(cameraPreference)) {
-                        cameraInfo.append(" 👤");
-                    } else if ("back".equals(cameraPreference)) {
-                        cameraInfo.append(" 📷");
-                    } else if ("any".equals(cameraPreference)) {
-                        cameraInfo.append(" 🔄");
-                    }
-                }
-
-                cameraInfoText.setText(cameraInfo.toString());
-                cameraInfoText.setVisibility(View.VISIBLE);
-            } else {
-                // Si pas d'instructions, cacher le texte
-                cameraInfoText.setVisibility(View.GONE);
-            }
-
-            // ✅ CORRECTION: Bouton caméra avec gestion des valeurs null
-            cameraButton.setOnClickListener(v -> {
-                // ✅ Défaut sécurisé pour camera preference
-                String safeCameraPreference = cameraPreference != null ? cameraPreference : "back";
-                currentQuestionCameraPreference = safeCameraPreference;
-
-                Log.d(TAG, "Camera button clicked - preference: " + safeCameraPreference);
-                openCameraWithPreference(question.getId(), safeCameraPreference);
-            });
-
-            // ✅ CORRECTION: Configuration des boutons avec vérifications null
-            boolean cameraEnabled = question.getPhoto_source().isCamera_enabled();
-            boolean galleryEnabled = question.getPhoto_source().isGallery_enabled();
-
-            cameraButton.setVisibility(cameraEnabled ? View.VISIBLE : View.GONE);
-            galleryButton.setVisibility(galleryEnabled ? View.VISIBLE : View.GONE);
-
-            // ✅ CORRECTION: Mise à jour du texte du bouton avec vérifications
-            if (cameraEnabled && cameraPreference != null) {
-                String buttonText = getCameraButtonText(cameraPreference);
-                cameraButton.setText(buttonText);
-            } else if (cameraEnabled) {
-                cameraButton.setText("📸 Camera");
-            }
-        } else {
-            // ✅ GESTION: Si photo_source est null, désactiver les boutons
-            Log.w(TAG, "Photo source is null for question: " + question.getId());
-            cameraButton.setVisibility(View.GONE);
-            galleryButton.setVisibility(View.GONE);
-            cameraInfoText.setVisibility(View.GONE);
-
-            // Afficher un message d'erreur
-            cameraInfoText.setText("❌ Photo upload configuration missing");
-            cameraInfoText.setVisibility(View.VISIBLE);
+        @Override
+        public void onCameraRequested(ChecklistQuestion question, String cameraPreference) {
+            currentQuestionCameraPreference = cameraPreference;
+            Log.d(TAG, "Camera button clicked - preference: " + cameraPreference);
+            openCameraWithPreference(question.getId(), cameraPreference);
         }
 
-        // Configuration du bouton gallery
-        galleryButton.setOnClickListener(v -> openGallery(question.getId()));
+        @Override
+        public void onGalleryRequested(ChecklistQuestion question) {
+            openGallery(question.getId());
+        }
 
-        // Configuration du bouton remove
-        removePhotoButton.setOnClickListener(v -> {
-            photoPreview.setImageResource(R.drawable.ic_add_photo);
-            photoPreview.setScaleType(ImageView.ScaleType.CENTER);
-            removePhotoButton.setVisibility(View.GONE);
-            photoResponses.remove(question.getId());
-            responses.remove(question.getId());
+        @Override
+        public void onPhotoRemoved(ChecklistQuestion question) {
+            pendingPhotoRequests.remove(question.getId());
+            clearPhotoPreview(question.getId());
+            setPhotoResponse(question.getId(), null);
             cameraUsageTracker.remove(question.getId());
             updateFormValidation();
-        });
-
-        return view;
-    }
-
-    // ✅ NOUVELLE MÉTHODE: Helper pour obtenir le texte du bouton caméra
-    private String getCameraButtonText(String cameraPreference) {
-        if (cameraPreference == null) {
-            return "📸 Camera";
         }
 
-        switch (cameraPreference) {
-            case "front":
-                return "📱 Selfie Camera";
-            case "back":
-                return "📷 Main Camera";
-            case "any":
-                return "📸 Camera";
-            default:
-                return "📸 Camera";
+        @Override
+        public void onDateRequested(ChecklistQuestion question) {
+            showDatePicker(question);
         }
-    }
-
+    };
 
     private void openCameraWithPreference(int questionId, String cameraPreference) {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
@@ -695,22 +308,6 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
         }
     }
 
-    // ✅ CORRECTION: Validation des objets photo source
-    private boolean isPhotoSourceValid(ChecklistQuestion question) {
-        if (question == null) {
-            Log.e(TAG, "Question is null");
-            return false;
-        }
-
-        if (question.getPhoto_source() == null) {
-            Log.e(TAG, "Photo source is null for question: " + question.getId());
-            return false;
-        }
-
-        return true;
-    }
-
-
     // ✅ NEW: Show camera choice dialog
     private void showCameraChoiceDialog(int questionId) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
@@ -766,45 +363,11 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
         startActivityForResult(galleryIntent, GALLERY_REQUEST_CODE);
     }
 
-    // ✅ NEW: Handle case where no photo source is available
-    private void showNoPhotoSourceAvailable(View questionView, ChecklistQuestion question) {
-        TextView errorText = new TextView(this);
-        errorText.setText("❌ Photo upload not available for this question");
-        errorText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-        errorText.setPadding(16, 8, 16, 8);
-        errorText.setBackgroundResource(android.R.drawable.dialog_holo_light_frame);
-
-        // Add to the question view
-        if (questionView instanceof LinearLayout) {
-            ((LinearLayout) questionView).addView(errorText, 1); // Add after question text
-        }
-
-        Log.w(TAG, "No photo source available for question: " + question.getText());
-    }
-
-    private void setupQuestionText(TextView questionText, ChecklistQuestion question) {
-        String displayText = question.getText();
-        if (question.isIs_required()) {
-            displayText += " *";
-        }
-        questionText.setText(displayText);
-    }
-
-    private void setupHelpText(View view, ChecklistQuestion question) {
-        TextView helpText = view.findViewById(R.id.help_text);
-        if (helpText != null && question.getHelp_text() != null && !question.getHelp_text().isEmpty()) {
-            helpText.setText(question.getHelp_text());
-            helpText.setVisibility(View.VISIBLE);
-        } else if (helpText != null) {
-            helpText.setVisibility(View.GONE);
-        }
-    }
-
-    private void showDatePicker(ChecklistQuestion question, EditText dateInput) {
+    private void showDatePicker(ChecklistQuestion question) {
         Calendar calendar = Calendar.getInstance();
 
         // If there's already a selected date, use it as the initial date
-        Object currentResponse = responses.get(question.getId());
+        Object currentResponse = formState.getAnswer(question.getId());
         if (currentResponse instanceof String) {
             try {
                 SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
@@ -822,10 +385,9 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
                 this,
                 (view, year, month, dayOfMonth) -> {
                     String selectedDate = String.format(Locale.getDefault(), "%04d-%02d-%02d", year, month + 1, dayOfMonth);
-                    String displayDate = String.format(Locale.getDefault(), "%02d/%02d/%04d", month + 1, dayOfMonth, year);
 
-                    dateInput.setText(displayDate);
-                    responses.put(question.getId(), selectedDate);
+                    formState.setAnswer(question.getId(), selectedDate);
+                    formAdapter.notifyQuestionChanged(question.getId());
                     updateFormValidation();
                 },
                 calendar.get(Calendar.YEAR),
@@ -920,6 +482,18 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
             return;
         }
 
+        // After process death the questions are still loading; the result waits for them
+        if (compiledForm.size() == 0) {
+            hasDeferredPhotoResult = true;
+            deferredRequestCode = requestCode;
+            deferredResultData = data;
+            return;
+        }
+
+        handlePhotoResult(requestCode, data);
+    }
+
+    private void handlePhotoResult(int requestCode, Intent data) {
         // Find the corresponding question
         ChecklistQuestion targetQuestion = findQuestionById(currentPhotoQuestionId);
         if (targetQuestion == null) {
@@ -927,84 +501,136 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
             return;
         }
 
-        String imagePath = null;
-        Bitmap bitmap = null;
+        int questionId = currentPhotoQuestionId;
+        String cameraFilePath = null;
+        Uri galleryUri = null;
         String actualCameraUsed = null;
 
-        try {
-            // ✅ ENHANCED: Handle different camera request codes
-            if (requestCode == FRONT_CAMERA_REQUEST || requestCode == BACK_CAMERA_REQUEST || requestCode == CAMERA_REQUEST_CODE) {
-                imagePath = currentPhotoPath;
-                bitmap = BitmapFactory.decodeFile(imagePath);
-
-                // ✅ Determine which camera was actually used
-                if (requestCode == FRONT_CAMERA_REQUEST) {
-                    actualCameraUsed = "front";
-                } else if (requestCode == BACK_CAMERA_REQUEST) {
-                    actualCameraUsed = "back";
-                } else {
-                    // Legacy camera request - use tracked preference
-                    actualCameraUsed = cameraUsageTracker.get(currentPhotoQuestionId);
-                    if (actualCameraUsed == null || "gallery".equals(actualCameraUsed)) {
-                        actualCameraUsed = "back"; // Default assumption
-                    }
+        // ✅ ENHANCED: Handle different camera request codes
+        if (requestCode == FRONT_CAMERA_REQUEST || requestCode == BACK_CAMERA_REQUEST || requestCode == CAMERA_REQUEST_CODE) {
+            cameraFilePath = currentPhotoPath;
+
+            // ✅ Determine which camera was actually used
+            if (requestCode == FRONT_CAMERA_REQUEST) {
+                actualCameraUsed = "front";
+            } else if (requestCode == BACK_CAMERA_REQUEST) {
+                actualCameraUsed = "back";
+            } else {
+                // Legacy camera request - use tracked preference
+                actualCameraUsed = cameraUsageTracker.get(questionId);
+                if (actualCameraUsed == null || "gallery".equals(actualCameraUsed)) {
+                    actualCameraUsed = "back"; // Default assumption
                 }
+            }
 
-                // ✅ Update camera usage tracker with actual camera used
-                cameraUsageTracker.put(currentPhotoQuestionId, actualCameraUsed);
+            // ✅ Update camera usage tracker with actual camera used
+            cameraUsageTracker.put(questionId, actualCameraUsed);
 
-                Log.d(TAG, "Photo taken with " + actualCameraUsed + " camera for question " + currentPhotoQuestionId);
+            Log.d(TAG, "Photo taken with " + actualCameraUsed + " camera for question " + questionId);
 
-            } else if (requestCode == GALLERY_REQUEST_CODE && data != null) {
-                Uri selectedImage = data.getData();
-                if (selectedImage != null) {
-                    InputStream imageStream = getContentResolver().openInputStream(selectedImage);
-                    bitmap = BitmapFactory.decodeStream(imageStream);
-                    if (imageStream != null) {
-                        imageStream.close();
-                    }
+        } else if (requestCode == GALLERY_REQUEST_CODE && data != null) {
+            galleryUri = data.getData();
+            if (galleryUri != null) {
+                // ✅ Ensure gallery usage is tracked
+                cameraUsageTracker.put(questionId, "gallery");
+            }
+        }
 
-                    // ✅ Ensure gallery usage is tracked
-                    cameraUsageTracker.put(currentPhotoQuestionId, "gallery");
-                }
+        currentPhotoQuestionId = -1;
+        currentPhotoPath = null;
+
+        if (cameraFilePath == null && galleryUri == null) {
+            Toast.makeText(this, "Failed to load image", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Decoding, rotation and compression run on the photo pipeline; only the latest
+        // request per question may touch the form when it completes
+        long requestToken = ++photoRequestCounter;
+        pendingPhotoRequests.put(questionId, requestToken);
+        PhotoPipeline.Callback callback = new PhotoCallback(questionId, requestToken, targetQuestion, cameraFilePath);
+        File uploadFile = createUploadFile(questionId);
+
+        if (cameraFilePath != null) {
+            photoPipeline.processFile(cameraFilePath, targetQuestion, uploadFile, callback);
+        } else {
+            photoPipeline.processUri(galleryUri, targetQuestion, uploadFile, callback);
+        }
+    }
+
+    private class PhotoCallback implements PhotoPipeline.Callback {
+        private final int questionId;
+        private final long requestToken;
+        private final ChecklistQuestion question;
+        private final String cameraFilePath;
+
+        PhotoCallback(int questionId, long requestToken, ChecklistQuestion question, String cameraFilePath) {
+            this.questionId = questionId;
+            this.requestToken = requestToken;
+            this.question = question;
+            this.cameraFilePath = cameraFilePath;
+        }
+
+        private boolean isCurrent() {
+            Long latest = pendingPhotoRequests.get(questionId);
+            return !isDestroyed() && latest != null && latest == requestToken;
+        }
+
+        @Override
+        public void onPreviewReady(Bitmap preview) {
+            if (!isCurrent()) {
+                photoPipeline.releasePreview(preview);
+                return;
             }
+            updatePhotoPreview(questionId, preview);
+        }
 
-            if (bitmap != null) {
-                // Compress and encode image to base64
-                String base64Image = compressAndEncodeImage(bitmap, targetQuestion);
-                if (base64Image != null) {
-                    photoResponses.put(currentPhotoQuestionId, base64Image);
-                    responses.put(currentPhotoQuestionId, base64Image);
+        @Override
+        public void onUploadFileReady(File uploadFile) {
+            deleteCameraFile();
+            if (!isCurrent()) {
+                uploadFile.delete();
+                return;
+            }
+            pendingPhotoRequests.remove(questionId);
+            setPhotoResponse(questionId, uploadFile.getAbsolutePath());
+            draftStore.append(formId, questionId, ChecklistDraft.KIND_SOURCE, cameraUsageTracker.get(questionId));
+            updateFormValidation();
 
-                    // Update UI to show photo preview
-                    updatePhotoPreview(currentPhotoQuestionId, bitmap);
-                    updateFormValidation();
+            // ✅ Log camera configuration compliance
+            String configuredPreference = question.getPhoto_source() != null ?
+                    question.getPhoto_source().getCamera_preference() : "back";
+            String actualUsage = cameraUsageTracker.get(questionId);
 
-                    // ✅ Log camera configuration compliance
-                    String configuredPreference = targetQuestion.getPhoto_source() != null ?
-                            targetQuestion.getPhoto_source().getCamera_preference() : "back";
-                    String actualUsage = cameraUsageTracker.get(currentPhotoQuestionId);
+            boolean configCompliant = "gallery".equals(actualUsage) ||
+                    "any".equals(configuredPreference) ||
+                    configuredPreference.equals(actualUsage);
 
-                    boolean configCompliant = "gallery".equals(actualUsage) ||
-                            "any".equals(configuredPreference) ||
-                            configuredPreference.equals(actualUsage);
+            Log.d(TAG, "Photo processed successfully for question " + questionId);
+            Log.d(TAG, "Configuration compliance - Configured: " + configuredPreference +
+                    ", Actual: " + actualUsage + ", Compliant: " + configCompliant);
+        }
 
-                    Log.d(TAG, "Photo processed successfully for question " + currentPhotoQuestionId);
-                    Log.d(TAG, "Configuration compliance - Configured: " + configuredPreference +
-                            ", Actual: " + actualUsage + ", Compliant: " + configCompliant);
-                } else {
-                    Toast.makeText(this, "Failed to process image", Toast.LENGTH_SHORT).show();
-                }
-            } else {
-                Toast.makeText(this, "Failed to load image", Toast.LENGTH_SHORT).show();
+        @Override
+        public void onError(String message) {
+            deleteCameraFile();
+            if (!isCurrent()) {
+                return;
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing photo", e);
-            Toast.makeText(this, "Error processing photo: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            pendingPhotoRequests.remove(questionId);
+            // The preview may already show the failed photo, so the answer is cleared with it
+            clearPhotoPreview(questionId);
+            setPhotoResponse(questionId, null);
+            updateFormValidation();
+            showPhotoError(message);
         }
 
-        currentPhotoQuestionId = -1;
-        currentPhotoPath = null;
+        // The full-size camera file is only an input; the compressed copy is what gets submitted
+        private void deleteCameraFile() {
+            if (cameraFilePath != null) {
+                new File(cameraFilePath).delete();
+            }
+        }
     }
 
     // ✅ NEW: Reset photo capture state
@@ -1021,74 +647,40 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
     }
 
     private ChecklistQuestion findQuestionById(int questionId) {
-        // Search in categorized questions
-        for (ChecklistQuestionsResponse.CategorySection section : categorizedQuestions) {
-            for (ChecklistQuestion question : section.getQuestions()) {
-                if (question.getId() == questionId) {
-                    return question;
-                }
-            }
-        }
+        return compiledForm.getQuestion(questionId);
+    }
 
-        // Search in uncategorized questions
-        for (ChecklistQuestion question : uncategorizedQuestions) {
-            if (question.getId() == questionId) {
-                return question;
-            }
+    private File createUploadFile(int questionId) {
+        File dir = new File(getFilesDir(), PHOTO_UPLOAD_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
         }
-
-        return null;
+        return new File(dir, "form_" + formId + "_q_" + questionId + "_" + System.currentTimeMillis() + ".jpg");
     }
 
-    private String compressAndEncodeImage(Bitmap bitmap, ChecklistQuestion question) {
-        try {
-            // Compress bitmap
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-            // Compress to JPEG with 85% quality
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 85, outputStream);
-            byte[] imageBytes = outputStream.toByteArray();
-
-            // Validate file size
-            if (question.getValidation() != null && question.getValidation().getMax_file_size() != null) {
-                if (imageBytes.length > question.getValidation().getMax_file_size()) {
-                    // Try with lower quality if image is too large
-                    outputStream = new ByteArrayOutputStream();
-                    bitmap.compress(Bitmap.CompressFormat.JPEG, 50, outputStream);
-                    imageBytes = outputStream.toByteArray();
-
-                    if (imageBytes.length > question.getValidation().getMax_file_size()) {
-                        Log.e(TAG, "Image file size exceeds maximum allowed size even after compression");
-                        return null;
-                    }
-                }
-            }
-
-            String base64String = Base64.encodeToString(imageBytes, Base64.NO_WRAP);
-            String dataUrl = "data:image/jpeg;base64," + base64String;
-
-            Log.d(TAG, "Image compressed and encoded. Size: " + imageBytes.length + " bytes");
-            return dataUrl;
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error compressing and encoding image", e);
-            return null;
+    // Photo answers are paths of compressed JPEGs; the replaced file is deleted
+    private void setPhotoResponse(int questionId, String path) {
+        String previous = formState.setPhotoPath(questionId, path);
+        if (previous != null && !previous.equals(path) && !submittedPhotoPaths.contains(previous)) {
+            new File(previous).delete();
         }
     }
 
-
     private void updatePhotoPreview(int questionId, Bitmap bitmap) {
-        View questionView = questionViews.get(questionId);
-        if (questionView != null) {
-            ImageView photoPreview = questionView.findViewById(R.id.photo_preview);
-            Button removeButton = questionView.findViewById(R.id.remove_photo_button);
-
-            if (photoPreview != null && removeButton != null) {
-                photoPreview.setImageBitmap(bitmap);
-                photoPreview.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                removeButton.setVisibility(View.VISIBLE);
-            }
+        replacePreview(questionId, bitmap);
+    }
+
+    private void clearPhotoPreview(int questionId) {
+        replacePreview(questionId, null);
+    }
+
+    // The replaced preview goes back to the pool only once no row can still be drawing it
+    private void replacePreview(int questionId, Bitmap bitmap) {
+        Bitmap previous = formState.setPreview(questionId, bitmap);
+        if (!formAdapter.showPreviewNow(questionsList, questionId)) {
+            formAdapter.notifyQuestionChanged(questionId);
         }
+        photoPipeline.releasePreview(previous);
     }
 
     @Override
@@ -1109,27 +701,9 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
 
 
     // ✅ ENHANCED: Form validation with photo source checking
+    // Cheap enough to run on every keystroke: the compiled form keeps the unanswered count current
     private void updateFormValidation() {
-        boolean isValid = true;
-
-        // Check all required questions
-        List<ChecklistQuestion> allQuestions = new ArrayList<>();
-        for (ChecklistQuestionsResponse.CategorySection section : categorizedQuestions) {
-            allQuestions.addAll(section.getQuestions());
-        }
-        allQuestions.addAll(uncategorizedQuestions);
-
-        for (ChecklistQuestion question : allQuestions) {
-            if (question.isIs_required()) {
-                Object response = responses.get(question.getId());
-                if (response == null ||
-                        (response instanceof String && ((String) response).trim().isEmpty()) ||
-                        (response instanceof List && ((List<?>) response).isEmpty())) {
-                    isValid = false;
-                    break;
-                }
-            }
-        }
+        boolean isValid = compiledForm.isComplete();
 
         if (showStartAfterCompletion && isMandatory) {
             startTaskButton.setVisibility(isValid ? View.VISIBLE : View.GONE);
@@ -1138,34 +712,28 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
 
     // ✅ NEW: Get all questions from both categorized and uncategorized lists
     private List<ChecklistQuestion> getAllQuestions() {
-        List<ChecklistQuestion> allQuestions = new ArrayList<>();
-
-        // Add categorized questions
-        for (ChecklistQuestionsResponse.CategorySection section : categorizedQuestions) {
-            allQuestions.addAll(section.getQuestions());
-        }
-
-        // Add uncategorized questions
-        allQuestions.addAll(uncategorizedQuestions);
-
-        return allQuestions;
+        return new ArrayList<>(compiledForm.getQuestions());
     }
 
     // ✅ ENHANCED: Submit checklist with photo source tracking
+    // The submission is queued with its photo files and sent by ChecklistSubmitter, which keeps
+    // retrying after this screen is closed
     private void submitChecklist() {
         List<ChecklistAnswer> responseList = new ArrayList<>();
+        Map<String, String> photos = new LinkedHashMap<>();
 
-        for (Map.Entry<Integer, Object> entry : responses.entrySet()) {
+        for (Map.Entry<Integer, Object> entry : formState.getAnswers().entrySet()) {
             ChecklistAnswer response = new ChecklistAnswer();
             response.setQuestion_id(String.valueOf(entry.getKey()));
 
             Object value = entry.getValue();
 
             // Handle photo uploads specially with camera tracking
-            if (photoResponses.containsKey(entry.getKey())) {
-                String photoData = photoResponses.get(entry.getKey());
-                response.setPhoto_base64(photoData);
-                response.setValue(photoData);
+            if (formState.hasPhoto(entry.getKey())) {
+                String photoPath = formState.getPhotoPath(entry.getKey());
+                String partName = "photo_" + entry.getKey();
+                response.setPhoto_part(partName);
+                photos.put(partName, photoPath);
 
                 // ✅ NEW: Add camera usage information
                 String cameraUsage = cameraUsageTracker.get(entry.getKey());
@@ -1179,7 +747,7 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
                 }
 
                 Log.d(TAG, "Adding photo response for question " + entry.getKey() +
-                        " (size: " + (photoData != null ? photoData.length() : 0) + " chars)" +
+                        " (size: " + new File(photoPath).length() + " bytes)" +
                         " (source: " + (cameraUsage != null && !"gallery".equals(cameraUsage) ? "camera-" + cameraUsage : "gallery") + ")");
             } else {
                 response.setValue(value);
@@ -1195,60 +763,108 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
         String deviceId = DeviceIdHelper.getDeviceId(this);
 
         Log.d(TAG, "Submitting checklist with " + responseList.size() + " responses");
-        Log.d(TAG, "Photo responses: " + photoResponses.size());
+        Log.d(TAG, "Photo responses: " + photos.size());
         Log.d(TAG, "Camera usage tracking: " + cameraUsageTracker.size() + " entries");
 
-        Call<SubmitChecklistResponse> call = apiService.submitChecklist(deviceId, request);
-        call.enqueue(new Callback<SubmitChecklistResponse>() {
-            @Override
-            public void onResponse(Call<SubmitChecklistResponse> call, Response<SubmitChecklistResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    SubmitChecklistResponse submitResponse = response.body();
-                    if ("success".equals(submitResponse.getStatus())) {
-                        // ✅ Enhanced success message with camera statistics
-                        String message = "Checklist submitted successfully";
-
-                        // Add camera usage summary if available
-                        if (response.body().getCamera_statistics() != null) {
-                            try {
-                                org.json.JSONObject cameraStats = new org.json.JSONObject(response.body().getCamera_statistics().toString());
-                                int totalPhotos = cameraStats.optInt("total_camera_photos", 0);
-                                int frontUsed = cameraStats.optInt("front_camera_used", 0);
-                                int backUsed = cameraStats.optInt("back_camera_used", 0);
-                                String matchRate = cameraStats.optString("configuration_match_rate", "N/A");
-
-                                if (totalPhotos > 0) {
-                                    message += String.format("\n📸 Photos: %d total, 👤 %d front, 📷 %d back\n✅ Config compliance: %s",
-                                            totalPhotos, frontUsed, backUsed, matchRate);
-                                }
-                            } catch (Exception e) {
-                                Log.w(TAG, "Error parsing camera statistics", e);
-                            }
-                        }
-
-                        Toast.makeText(ChecklistCompletionActivity.this, message, Toast.LENGTH_LONG).show();
-
-                        if (!showStartAfterCompletion || !isMandatory) {
-                            startTask();
-                        }
+        submissionKey = submitter.submit(formId, deviceId, request, photos);
+        submittedPhotoPaths.addAll(photos.values());
+        // The draft now mirrors the queued submission until it is sent; later edits are not journaled into it
+        formState.setEditListener(null);
+        submitButton.setEnabled(false);
+        observeSubmission(submissionKey);
+    }
+
+    private void observeSubmission(String key) {
+        submitter.getProgress(key).observe(this, progress -> {
+            if (!key.equals(submissionKey)) {
+                return;
+            }
+            switch (progress.getStatus()) {
+                case QUEUED:
+                    submitButton.setText("Queued…");
+                    break;
+                case SENDING:
+                    if (progress.getPhotoIndex() > 0) {
+                        submitButton.setText(String.format(Locale.getDefault(), "📤 Photo %d/%d – %d%%",
+                                progress.getPhotoIndex(), progress.getPhotoCount(), progress.getPhotoPercent()));
                     } else {
-                        Toast.makeText(ChecklistCompletionActivity.this,
-                                "Error: " + submitResponse.getMessage(), Toast.LENGTH_LONG).show();
+                        submitButton.setText("📤 Submitting…");
                     }
-                } else {
-                    Log.e(TAG, "Submission failed with response code: " + response.code());
-                    Toast.makeText(ChecklistCompletionActivity.this,
-                            "Submission failed: " + response.code(), Toast.LENGTH_LONG).show();
-                }
+                    break;
+                case WAITING:
+                    onSubmissionWaiting(progress.getMessage());
+                    break;
+                case SENT:
+                    onSubmissionSent(progress.getResponse());
+                    break;
+                case FAILED:
+                    onSubmissionRejected(progress.getMessage());
+                    break;
             }
+        });
+    }
 
-            @Override
-            public void onFailure(Call<SubmitChecklistResponse> call, Throwable t) {
-                Log.e(TAG, "Error submitting checklist", t);
-                Toast.makeText(ChecklistCompletionActivity.this,
-                        "Error submitting checklist: " + t.getMessage(), Toast.LENGTH_LONG).show();
+    // Offline or server trouble: the submission is safe in the queue, so the crew can move on
+    private void onSubmissionWaiting(String error) {
+        Log.d(TAG, "Submission waiting for retry: " + error);
+        submitButton.setText("📥 Queued – will send when online");
+        if (!submissionDeferredShown) {
+            submissionDeferredShown = true;
+            Toast.makeText(this, "📥 Checklist saved. It will be submitted automatically when the connection is back",
+                    Toast.LENGTH_LONG).show();
+            finishAfterSubmission();
+        }
+    }
+
+    private void onSubmissionSent(SubmitChecklistResponse submitResponse) {
+        // ✅ Enhanced success message with camera statistics
+        String message = "Checklist submitted successfully";
+
+        // Add camera usage summary if available
+        if (submitResponse != null && submitResponse.getCamera_statistics() != null) {
+            try {
+                org.json.JSONObject cameraStats = new org.json.JSONObject(submitResponse.getCamera_statistics().toString());
+                int totalPhotos = cameraStats.optInt("total_camera_photos", 0);
+                int frontUsed = cameraStats.optInt("front_camera_used", 0);
+                int backUsed = cameraStats.optInt("back_camera_used", 0);
+                String matchRate = cameraStats.optString("configuration_match_rate", "N/A");
+
+                if (totalPhotos > 0) {
+                    message += String.format("\n📸 Photos: %d total, 👤 %d front, 📷 %d back\n✅ Config compliance: %s",
+                            totalPhotos, frontUsed, backUsed, matchRate);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Error parsing camera statistics", e);
             }
-        });
+        }
+
+        submitButton.setText("✅ Submitted");
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        if (!submissionDeferredShown) {
+            finishAfterSubmission();
+        }
+    }
+
+    // The server refused the submission; the form is editable and durable again so it can be fixed
+    private void onSubmissionRejected(String error) {
+        Log.e(TAG, "Submission rejected: " + error);
+        Toast.makeText(this, "Error: " + error, Toast.LENGTH_LONG).show();
+
+        submitter.discard(submissionKey);
+        submissionKey = null;
+        submittedPhotoPaths.clear();
+        submissionDeferredShown = false;
+        formState.setEditListener(draftStore.journal(formId));
+        draftStore.save(formId, ChecklistDraft.snapshot(formState, cameraUsageTracker));
+
+        submitButton.setText(submitButtonText);
+        submitButton.setEnabled(true);
+    }
+
+    private void finishAfterSubmission() {
+        if (!showStartAfterCompletion || !isMandatory) {
+            startTask();
+        }
     }
 
     private void startTask() {
@@ -1263,15 +879,21 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
         super.onDestroy();
 
         // Clean up resources
-        if (questionsContainer != null) {
-            questionsContainer.removeAllViews();
+        // Detach the rows first so no view still draws a preview handed back to the pool
+        if (questionsList != null) {
+            questionsList.setAdapter(null);
         }
 
+        // Photo files stay with the draft or the queued submission; the submitter deletes them once sent
+        formState.setEditListener(null);
+
         // Clear data structures
-        responses.clear();
-        photoResponses.clear();
+        pendingPhotoRequests.clear();
+        for (Bitmap preview : formState.takePreviews()) {
+            photoPipeline.releasePreview(preview);
+        }
+        formState.clear();
         photoSourceUsed.clear();
-        questionViews.clear();
         categorizedQuestions.clear();
         uncategorizedQuestions.clear();
 
@@ -1283,8 +905,8 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
         super.onPause();
 
         // Save current state if needed
-        Log.d(TAG, "Activity paused - Current responses: " + responses.size() +
-                ", Photos: " + photoResponses.size() +
+        Log.d(TAG, "Activity paused - Current responses: " + formState.getAnswers().size() +
+                ", Photos: " + formState.getPhotoPaths().size() +
                 ", Photo sources: " + photoSourceUsed.size());
     }
 
@@ -1307,8 +929,8 @@ public class ChecklistCompletionActivity extends AppCompatActivity {
         Log.d(TAG, "Is Mandatory: " + isMandatory);
         Log.d(TAG, "Show Start After Completion: " + showStartAfterCompletion);
         Log.d(TAG, "Total Questions: " + getAllQuestions().size());
-        Log.d(TAG, "Responses: " + responses.size());
-        Log.d(TAG, "Photo Responses: " + photoResponses.size());
+        Log.d(TAG, "Responses: " + formState.getAnswers().size());
+        Log.d(TAG, "Photo Responses: " + formState.getPhotoPaths().size());
         Log.d(TAG, "Photo Sources: " + photoSourceUsed.size());
 
         // Log photo source details
@@ -0,0 +1,759 @@
+package com.plcoding.audiorecorder;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.core.graphics.ColorUtils;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.plcoding.audiorecorder.forms.ChecklistCategory;
+import com.plcoding.audiorecorder.forms.ChecklistOption;
+import com.plcoding.audiorecorder.forms.ChecklistQuestion;
+import com.plcoding.audiorecorder.forms.ChecklistQuestionsResponse;
+import com.plcoding.audiorecorder.forms.CompiledForm;
+import com.plcoding.audiorecorder.forms.FormState;
+import com.plcoding.audiorecorder.forms.QuestionRules;
+import com.plcoding.audiorecorder.utils.StickyHeaderDecoration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a checklist as a recycled list: one row per category header and one per question, each
+ * question type with its own view type and ViewHolder. Rows hold no answers themselves; they are
+ * bound from and write to the FormState, so any number of questions costs a screenful of views.
+ */
+public class ChecklistFormAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+        implements StickyHeaderDecoration.StickyHeaderAdapter {
+    private static final String TAG = "ChecklistFormAdapter";
+
+    private static final int TYPE_HEADER = 0;
+    private static final int TYPE_YES_NO = 1;
+    private static final int TYPE_RADIO_SINGLE = 2;
+    private static final int TYPE_RADIO_MULTIPLE = 3;
+    private static final int TYPE_TEXT = 4;
+    private static final int TYPE_PARAGRAPH = 5;
+    private static final int TYPE_NUMBER = 6;
+    private static final int TYPE_DATE = 7;
+    private static final int TYPE_PHOTO = 8;
+    // Photo question without a photo_source configuration
+    private static final int TYPE_UNAVAILABLE = 9;
+
+    private final FormState state;
+    private final FormListener listener;
+    private final List<Item> items = new ArrayList<>();
+    private final Map<Integer, Integer> positions = new HashMap<>();
+    private CompiledForm form = CompiledForm.compile(null, null);
+
+    public interface FormListener {
+        void onAnswerChanged(ChecklistQuestion question);
+        void onCameraRequested(ChecklistQuestion question, String cameraPreference);
+        void onGalleryRequested(ChecklistQuestion question);
+        void onPhotoRemoved(ChecklistQuestion question);
+        void onDateRequested(ChecklistQuestion question);
+    }
+
+    private static class Item {
+        final int viewType;
+        final ChecklistCategory category;
+        final ChecklistQuestion question;
+        final int headerPosition;
+
+        Item(int viewType, ChecklistCategory category, ChecklistQuestion question, int headerPosition) {
+            this.viewType = viewType;
+            this.category = category;
+            this.question = question;
+            this.headerPosition = headerPosition;
+        }
+    }
+
+    public ChecklistFormAdapter(FormState state, FormListener listener) {
+        this.state = state;
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    public void setQuestions(List<ChecklistQuestionsResponse.CategorySection> categorized,
+                             List<ChecklistQuestion> uncategorized, CompiledForm form) {
+        this.form = form;
+        items.clear();
+        positions.clear();
+
+        for (ChecklistQuestionsResponse.CategorySection section : categorized) {
+            int header = addHeader(section.getCategory());
+            if (section.getQuestions() != null) {
+                for (ChecklistQuestion question : section.getQuestions()) {
+                    addQuestion(question, header);
+                }
+            }
+        }
+
+        if (!uncategorized.isEmpty()) {
+            // "Other Questions" header, only needed to set them apart from categories
+            int header = categorized.isEmpty() ? RecyclerView.NO_POSITION : addHeader(null);
+            for (ChecklistQuestion question : uncategorized) {
+                addQuestion(question, header);
+            }
+        }
+
+        notifyDataSetChanged();
+    }
+
+    private int addHeader(ChecklistCategory category) {
+        items.add(new Item(TYPE_HEADER, category, null, items.size()));
+        return items.size() - 1;
+    }
+
+    private void addQuestion(ChecklistQuestion question, int headerPosition) {
+        if (question == null) {
+            Log.e(TAG, "Skipping null question");
+            return;
+        }
+        positions.put(question.getId(), items.size());
+        items.add(new Item(viewTypeFor(question), null, question, headerPosition));
+    }
+
+    private static int viewTypeFor(ChecklistQuestion question) {
+        String type = question.getType();
+        if (type == null) {
+            Log.e(TAG, "Question type is null for question: " + question.getId());
+            return TYPE_TEXT;
+        }
+        switch (type) {
+            case ChecklistQuestion.TYPE_YES_NO:
+                return TYPE_YES_NO;
+            case ChecklistQuestion.TYPE_RADIO_SINGLE:
+                return TYPE_RADIO_SINGLE;
+            case ChecklistQuestion.TYPE_RADIO_MULTIPLE:
+                return TYPE_RADIO_MULTIPLE;
+            case ChecklistQuestion.TYPE_TEXT:
+                return TYPE_TEXT;
+            case ChecklistQuestion.TYPE_PARAGRAPH:
+                return TYPE_PARAGRAPH;
+            case ChecklistQuestion.TYPE_INTEGER:
+            case ChecklistQuestion.TYPE_DECIMAL:
+                return TYPE_NUMBER;
+            case ChecklistQuestion.TYPE_DATE:
+                return TYPE_DATE;
+            case ChecklistQuestion.TYPE_PHOTO_UPLOAD:
+                if (question.getPhoto_source() == null) {
+                    Log.e(TAG, "Photo source is null for question: " + question.getId());
+                    return TYPE_UNAVAILABLE;
+                }
+                return TYPE_PHOTO;
+            default:
+                Log.w(TAG, "Unknown question type: " + type + " for question: " + question.getId());
+                return TYPE_TEXT;
+        }
+    }
+
+    /**
+     * Rebind one question after its state changed outside the row (photo result, date picker).
+     */
+    public void notifyQuestionChanged(int questionId) {
+        Integer position = positions.get(questionId);
+        if (position != null) {
+            notifyItemChanged(position);
+        }
+    }
+
+    /**
+     * Show the question's current preview right away if its row is on screen. Returns false if
+     * it isn't, in which case nothing displays the old preview any more.
+     */
+    public boolean showPreviewNow(RecyclerView recyclerView, int questionId) {
+        RecyclerView.ViewHolder holder = recyclerView.findViewHolderForItemId(questionId);
+        if (holder instanceof PhotoHolder) {
+            ((PhotoHolder) holder).bindPreview();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return items.get(position).viewType;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        Item item = items.get(position);
+        // Headers get negative ids so they never collide with question ids
+        return item.question != null ? item.question.getId() : -1 - position;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        switch (viewType) {
+            case TYPE_HEADER:
+                return new HeaderHolder(inflater.inflate(R.layout.category_header, parent, false));
+            case TYPE_YES_NO:
+                return new YesNoHolder(inflater.inflate(R.layout.question_yes_no, parent, false));
+            case TYPE_RADIO_SINGLE:
+                return new RadioSingleHolder(inflater.inflate(R.layout.question_radio_single, parent, false));
+            case TYPE_RADIO_MULTIPLE:
+                return new RadioMultipleHolder(inflater.inflate(R.layout.question_radio_multiple, parent, false));
+            case TYPE_PARAGRAPH:
+                return new TextHolder(inflater.inflate(R.layout.question_text_enhanced, parent, false), true);
+            case TYPE_NUMBER:
+                return new NumberHolder(inflater.inflate(R.layout.question_number_enhanced, parent, false));
+            case TYPE_DATE:
+                return new DateHolder(inflater.inflate(R.layout.question_date_enhanced, parent, false));
+            case TYPE_PHOTO:
+                return new PhotoHolder(inflater.inflate(R.layout.question_photo_enhanced, parent, false));
+            case TYPE_UNAVAILABLE:
+                return new UnavailableHolder(inflater.inflate(R.layout.question_text_enhanced, parent, false));
+            case TYPE_TEXT:
+            default:
+                return new TextHolder(inflater.inflate(R.layout.question_text_enhanced, parent, false), false);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Item item = items.get(position);
+        if (holder instanceof HeaderHolder) {
+            bindHeader(holder.itemView, item.category);
+        } else {
+            ((QuestionHolder) holder).bindQuestion(item.question);
+        }
+    }
+
+    // ===== Sticky headers =====
+
+    @Override
+    public boolean isHeader(int position) {
+        return position >= 0 && position < items.size() && items.get(position).viewType == TYPE_HEADER;
+    }
+
+    @Override
+    public int getHeaderPositionFor(int position) {
+        if (position < 0 || position >= items.size()) {
+            return RecyclerView.NO_POSITION;
+        }
+        return items.get(position).headerPosition;
+    }
+
+    @Override
+    public View createHeaderView(ViewGroup parent) {
+        return LayoutInflater.from(parent.getContext()).inflate(R.layout.category_header, parent, false);
+    }
+
+    @Override
+    public void bindHeaderView(View header, int headerPosition) {
+        bindHeader(header, items.get(headerPosition).category);
+    }
+
+    private static void bindHeader(View headerView, ChecklistCategory category) {
+        TextView categoryTitle = headerView.findViewById(R.id.category_title);
+        TextView categoryDescription = headerView.findViewById(R.id.category_description);
+        Context context = headerView.getContext();
+
+        // Opaque background, since the pinned copy is drawn over the questions
+        int background = ContextCompat.getColor(context, R.color.category_background);
+        categoryDescription.setVisibility(View.GONE);
+
+        if (category != null) {
+            categoryTitle.setText(category.getName());
+            if (category.getDescription() != null && !category.getDescription().isEmpty()) {
+                categoryDescription.setText(category.getDescription());
+            }
+
+            // Set category color if available
+            if (category.getColor() != null) {
+                try {
+                    int color = Color.parseColor(category.getColor());
+                    background = ColorUtils.compositeColors(color & 0x1AFFFFFF, background); // Add transparency
+                } catch (Exception e) {
+                    Log.w(TAG, "Invalid color: " + category.getColor());
+                }
+            }
+        } else {
+            categoryTitle.setText("Other Questions");
+        }
+
+        headerView.setBackgroundColor(background);
+    }
+
+    // ===== View holders =====
+
+    static class HeaderHolder extends RecyclerView.ViewHolder {
+        HeaderHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    abstract class QuestionHolder extends RecyclerView.ViewHolder {
+        final TextView questionText;
+        final TextView helpText;
+        ChecklistQuestion question;
+        // Set while views are filled from state, so their listeners don't write it back
+        boolean binding;
+
+        QuestionHolder(View itemView) {
+            super(itemView);
+            questionText = itemView.findViewById(R.id.question_text);
+            helpText = itemView.findViewById(R.id.help_text);
+        }
+
+        void bindQuestion(ChecklistQuestion question) {
+            this.question = question;
+            binding = true;
+            try {
+                String displayText = question.getText();
+                if (question.isIs_required()) {
+                    displayText += " *";
+                }
+                questionText.setText(displayText);
+
+                if (helpText != null) {
+                    if (question.getHelp_text() != null && !question.getHelp_text().isEmpty()) {
+                        helpText.setText(question.getHelp_text());
+                        helpText.setVisibility(View.VISIBLE);
+                    } else {
+                        helpText.setVisibility(View.GONE);
+                    }
+                }
+
+                bind(question);
+            } finally {
+                binding = false;
+            }
+        }
+
+        abstract void bind(ChecklistQuestion question);
+
+        void answer(Object value) {
+            if (binding || question == null) {
+                return;
+            }
+            state.setAnswer(question.getId(), value);
+            listener.onAnswerChanged(question);
+        }
+    }
+
+    class YesNoHolder extends QuestionHolder {
+        final RadioGroup radioGroup;
+
+        YesNoHolder(View itemView) {
+            super(itemView);
+            radioGroup = itemView.findViewById(R.id.yes_no_radio_group);
+            radioGroup.setOnCheckedChangeListener((group, checkedId) -> {
+                if (checkedId != View.NO_ID) {
+                    answer(checkedId == R.id.yes_button);
+                }
+            });
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+            Object answer = state.getAnswer(question.getId());
+            if (answer instanceof Boolean) {
+                radioGroup.check((Boolean) answer ? R.id.yes_button : R.id.no_button);
+            } else {
+                radioGroup.clearCheck();
+            }
+        }
+    }
+
+    class RadioSingleHolder extends QuestionHolder {
+        final RadioGroup radioGroup;
+
+        RadioSingleHolder(View itemView) {
+            super(itemView);
+            radioGroup = itemView.findViewById(R.id.options_radio_group);
+            radioGroup.setOnCheckedChangeListener((group, checkedId) -> {
+                RadioButton selectedButton = group.findViewById(checkedId);
+                if (selectedButton != null && selectedButton.getTag() instanceof Integer) {
+                    answer(selectedButton.getTag());
+                }
+            });
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+            List<ChecklistOption> options = question.getOptions() != null ? question.getOptions()
+                    : Collections.emptyList();
+
+            // Reuse the buttons this row already has; only the difference is added or removed
+            while (radioGroup.getChildCount() > options.size()) {
+                radioGroup.removeViewAt(radioGroup.getChildCount() - 1);
+            }
+            while (radioGroup.getChildCount() < options.size()) {
+                RadioButton radioButton = new RadioButton(itemView.getContext());
+                radioButton.setId(View.generateViewId());
+                radioButton.setPadding(16, 12, 16, 12);
+                radioGroup.addView(radioButton);
+            }
+
+            radioGroup.clearCheck();
+            Object answer = state.getAnswer(question.getId());
+            for (int i = 0; i < options.size(); i++) {
+                RadioButton radioButton = (RadioButton) radioGroup.getChildAt(i);
+                radioButton.setText(options.get(i).getText());
+                radioButton.setTag(options.get(i).getId());
+                if (answer instanceof Integer && (Integer) answer == options.get(i).getId()) {
+                    radioGroup.check(radioButton.getId());
+                }
+            }
+        }
+    }
+
+    class RadioMultipleHolder extends QuestionHolder {
+        final LinearLayout optionsContainer;
+
+        RadioMultipleHolder(View itemView) {
+            super(itemView);
+            optionsContainer = itemView.findViewById(R.id.options_container);
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+            List<ChecklistOption> options = question.getOptions() != null ? question.getOptions()
+                    : Collections.emptyList();
+
+            while (optionsContainer.getChildCount() > options.size()) {
+                optionsContainer.removeViewAt(optionsContainer.getChildCount() - 1);
+            }
+            while (optionsContainer.getChildCount() < options.size()) {
+                CheckBox checkBox = new CheckBox(itemView.getContext());
+                checkBox.setPadding(16, 12, 16, 12);
+                checkBox.setOnCheckedChangeListener((buttonView, isChecked) ->
+                        onOptionToggled((Integer) buttonView.getTag(), isChecked));
+                optionsContainer.addView(checkBox);
+            }
+
+            List<?> selected = state.getAnswer(question.getId()) instanceof List
+                    ? (List<?>) state.getAnswer(question.getId()) : Collections.emptyList();
+            for (int i = 0; i < options.size(); i++) {
+                CheckBox checkBox = (CheckBox) optionsContainer.getChildAt(i);
+                checkBox.setText(options.get(i).getText());
+                checkBox.setTag(options.get(i).getId());
+                checkBox.setChecked(selected.contains(options.get(i).getId()));
+            }
+        }
+
+        private void onOptionToggled(int optionId, boolean isChecked) {
+            if (binding || question == null) {
+                return;
+            }
+            List<Integer> selectedOptions = new ArrayList<>();
+            Object current = state.getAnswer(question.getId());
+            if (current instanceof List) {
+                for (Object id : (List<?>) current) {
+                    selectedOptions.add((Integer) id);
+                }
+            }
+            if (isChecked) {
+                if (!selectedOptions.contains(optionId)) {
+                    selectedOptions.add(optionId);
+                }
+            } else {
+                selectedOptions.remove(Integer.valueOf(optionId));
+            }
+            answer(selectedOptions);
+        }
+    }
+
+    class TextHolder extends QuestionHolder {
+        final EditText editText;
+        final TextView charCounter;
+
+        TextHolder(View itemView, boolean paragraph) {
+            super(itemView);
+            editText = itemView.findViewById(R.id.text_input);
+            charCounter = itemView.findViewById(R.id.char_counter);
+
+            // Configure for paragraph type
+            if (paragraph) {
+                editText.setLines(4);
+                editText.setMaxLines(8);
+                editText.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_MULTI_LINE);
+                editText.setVerticalScrollBarEnabled(true);
+                editText.setScrollBarStyle(View.SCROLLBARS_INSIDE_INSET);
+            }
+
+            editText.addTextChangedListener(new SimpleTextWatcher() {
+                @Override
+                public void afterTextChanged(Editable s) {
+                    String text = s.toString();
+                    updateCounter(text);
+                    answer(text);
+                }
+            });
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+            Object answer = state.getAnswer(question.getId());
+            String text = answer instanceof String ? (String) answer : "";
+            editText.setText(text);
+            updateCounter(text);
+        }
+
+        private void updateCounter(String text) {
+            if (charCounter != null) {
+                charCounter.setText(text.length() + " characters");
+            }
+        }
+    }
+
+    class NumberHolder extends QuestionHolder {
+        final EditText editText;
+        final TextView validationText;
+
+        NumberHolder(View itemView) {
+            super(itemView);
+            editText = itemView.findViewById(R.id.number_input);
+            validationText = itemView.findViewById(R.id.validation_text);
+
+            editText.addTextChangedListener(new SimpleTextWatcher() {
+                @Override
+                public void afterTextChanged(Editable s) {
+                    if (binding || question == null) {
+                        return;
+                    }
+                    String text = s.toString();
+                    state.setInput(question.getId(), text);
+                    answer(parse(question, text.trim()));
+                }
+            });
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+            // Configure input type
+            int inputType = ChecklistQuestion.TYPE_INTEGER.equals(question.getType())
+                    ? InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_SIGNED
+                    : InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED;
+            if (editText.getInputType() != inputType) {
+                editText.setInputType(inputType);
+            }
+
+            QuestionRules rules = form.getRules(question.getId());
+            String rangeText = rules.getRangeText();
+            validationText.setText(rangeText);
+            validationText.setVisibility(rangeText.isEmpty() ? View.GONE : View.VISIBLE);
+
+            String input = state.getInput(question.getId());
+            editText.setText(input != null ? input : "");
+            // Errors only show for fields the user has typed in
+            editText.setError(input != null ? rules.errorFor(input.trim()) : null);
+        }
+
+        // Parsed value, or null while the text is empty or invalid
+        private Object parse(ChecklistQuestion question, String text) {
+            String errorMessage = form.getRules(question.getId()).errorFor(text);
+            editText.setError(errorMessage);
+            if (errorMessage != null || text.isEmpty()) {
+                return null;
+            }
+            try {
+                if (ChecklistQuestion.TYPE_INTEGER.equals(question.getType())) {
+                    return Integer.parseInt(text);
+                }
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    class DateHolder extends QuestionHolder {
+        final EditText dateInput;
+
+        DateHolder(View itemView) {
+            super(itemView);
+            dateInput = itemView.findViewById(R.id.date_input);
+            Button calendarButton = itemView.findViewById(R.id.calendar_button);
+
+            dateInput.setInputType(InputType.TYPE_NULL);
+            dateInput.setFocusable(false);
+            dateInput.setClickable(true);
+
+            View.OnClickListener dateClickListener = v -> {
+                if (question != null) {
+                    listener.onDateRequested(question);
+                }
+            };
+            dateInput.setOnClickListener(dateClickListener);
+            calendarButton.setOnClickListener(dateClickListener);
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+            Object answer = state.getAnswer(question.getId());
+            dateInput.setText(answer instanceof String ? displayDate((String) answer) : "");
+        }
+
+        // yyyy-MM-dd as stored, MM/dd/yyyy as shown
+        private String displayDate(String date) {
+            String[] parts = date.split("-");
+            if (parts.length != 3) {
+                return date;
+            }
+            return parts[1] + "/" + parts[2] + "/" + parts[0];
+        }
+    }
+
+    class PhotoHolder extends QuestionHolder {
+        final ImageView photoPreview;
+        final Button cameraButton;
+        final Button galleryButton;
+        final Button removePhotoButton;
+        final TextView fileInfoText;
+        final TextView cameraInfoText;
+
+        PhotoHolder(View itemView) {
+            super(itemView);
+            photoPreview = itemView.findViewById(R.id.photo_preview);
+            cameraButton = itemView.findViewById(R.id.camera_button);
+            galleryButton = itemView.findViewById(R.id.gallery_button);
+            removePhotoButton = itemView.findViewById(R.id.remove_photo_button);
+            fileInfoText = itemView.findViewById(R.id.file_info_text);
+            cameraInfoText = itemView.findViewById(R.id.camera_info_text);
+
+            cameraButton.setOnClickListener(v -> {
+                if (question == null || question.getPhoto_source() == null) {
+                    return;
+                }
+                // ✅ Défaut sécurisé pour camera preference
+                String cameraPreference = question.getPhoto_source().getCamera_preference();
+                listener.onCameraRequested(question, cameraPreference != null ? cameraPreference : "back");
+            });
+            galleryButton.setOnClickListener(v -> {
+                if (question != null) {
+                    listener.onGalleryRequested(question);
+                }
+            });
+            removePhotoButton.setOnClickListener(v -> {
+                if (question != null) {
+                    listener.onPhotoRemoved(question);
+                }
+            });
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+            bindFileInfo(question);
+            bindSource(question.getPhoto_source());
+            bindPreview();
+        }
+
+        void bindPreview() {
+            if (question == null) {
+                return;
+            }
+            Bitmap preview = state.getPreview(question.getId());
+            if (preview != null) {
+                photoPreview.setImageBitmap(preview);
+                photoPreview.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            } else {
+                photoPreview.setImageResource(R.drawable.ic_add_photo);
+                photoPreview.setScaleType(ImageView.ScaleType.CENTER);
+            }
+            boolean hasPhoto = preview != null || state.hasPhoto(question.getId());
+            removePhotoButton.setVisibility(hasPhoto ? View.VISIBLE : View.GONE);
+        }
+
+        private void bindFileInfo(ChecklistQuestion question) {
+            StringBuilder fileInfo = new StringBuilder();
+            ChecklistQuestion.ValidationRules validation = question.getValidation();
+            if (validation != null) {
+                if (validation.getMax_file_size() != null) {
+                    long maxSizeMB = validation.getMax_file_size() / (1024 * 1024);
+                    fileInfo.append("Max size: ").append(maxSizeMB).append("MB");
+                }
+                if (validation.getAllowed_file_types() != null) {
+                    if (fileInfo.length() > 0) fileInfo.append(" • ");
+                    fileInfo.append("Types: ").append(String.join(", ", validation.getAllowed_file_types()));
+                }
+            }
+            fileInfoText.setText(fileInfo.toString());
+            fileInfoText.setVisibility(fileInfo.length() > 0 ? View.VISIBLE : View.GONE);
+        }
+
+        private void bindSource(ChecklistQuestion.PhotoSource source) {
+            String cameraPreference = source.getCamera_preference();
+            String cameraInstructions = source.getCamera_instructions();
+
+            if (cameraInstructions != null && !cameraInstructions.trim().isEmpty()) {
+                StringBuilder cameraInfo = new StringBuilder("📸 ").append(cameraInstructions);
+                if ("front".equals(cameraPreference)) {
+                    cameraInfo.append(" 👤");
+                } else if ("back".equals(cameraPreference)) {
+                    cameraInfo.append(" 📷");
+                } else if ("any".equals(cameraPreference)) {
+                    cameraInfo.append(" 🔄");
+                }
+                cameraInfoText.setText(cameraInfo.toString());
+                cameraInfoText.setVisibility(View.VISIBLE);
+            } else {
+                cameraInfoText.setVisibility(View.GONE);
+            }
+
+            cameraButton.setVisibility(source.isCamera_enabled() ? View.VISIBLE : View.GONE);
+            galleryButton.setVisibility(source.isGallery_enabled() ? View.VISIBLE : View.GONE);
+            cameraButton.setText(cameraButtonText(cameraPreference));
+        }
+
+        private String cameraButtonText(String cameraPreference) {
+            if ("front".equals(cameraPreference)) {
+                return "📱 Selfie Camera";
+            } else if ("back".equals(cameraPreference)) {
+                return "📷 Main Camera";
+            }
+            return "📸 Camera";
+        }
+    }
+
+    class UnavailableHolder extends QuestionHolder {
+        UnavailableHolder(View itemView) {
+            super(itemView);
+            EditText textInput = itemView.findViewById(R.id.text_input);
+            textInput.setEnabled(false);
+            textInput.setText("Photo upload configuration missing");
+            textInput.setTextColor(ContextCompat.getColor(itemView.getContext(), android.R.color.holo_red_dark));
+        }
+
+        @Override
+        void bind(ChecklistQuestion question) {
+        }
+    }
+
+    private abstract static class SimpleTextWatcher implements TextWatcher {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {}
+    }
+}
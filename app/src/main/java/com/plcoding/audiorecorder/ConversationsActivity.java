@@ -13,15 +13,25 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.plcoding.audiorecorder.api.RetrofitClient;
-import com.plcoding.audiorecorder.data.Recording;
+import com.plcoding.audiorecorder.data.ConversationSummary;
+import com.plcoding.audiorecorder.data.InvalidationTracker;
+import com.plcoding.audiorecorder.data.RecordingDatabase;
 import com.plcoding.audiorecorder.data.RecordingRepository;
 import com.plcoding.audiorecorder.utils.DeviceIdHelper;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ConversationsActivity extends AppCompatActivity implements ConversationsAdapter.ConversationClickListener {
     private static final String TAG = "ConversationsActivity";
+    private static final String[] OBSERVED_TABLES = {
+            RecordingDatabase.TABLE_CHAT_MESSAGES,
+            RecordingDatabase.TABLE_CHAT_SUMMARY,
+            RecordingDatabase.TABLE_RECORDINGS
+    };
 
     private RecyclerView recyclerView;
     private ConversationsAdapter adapter;
@@ -30,6 +40,11 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
     private RecordingRepository repository;
     private String deviceId;
 
+    // The list is one indexed read of chat_summary; changes to any table behind it re-run it once
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean reloadPending = new AtomicBoolean(false);
+    private final InvalidationTracker.Observer changeObserver = delta -> scheduleReload();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -57,48 +72,28 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
         // Setup SwipeRefreshLayout
         swipeRefreshLayout.setOnRefreshListener(this::loadConversations);
 
-        // Load conversations
+        // Load conversations once; later writes trigger a reload of the summaries only
+        for (String table : OBSERVED_TABLES) {
+            repository.addObserver(table, changeObserver);
+        }
         loadConversations();
     }
 
     private void loadConversations() {
         // Show loading
         swipeRefreshLayout.setRefreshing(true);
+        scheduleReload();
+    }
 
-        // Load recordings with chat history
-        new Thread(() -> {
+    // Collapses a burst of deltas (messages, recordings, read markers) into one query
+    private void scheduleReload() {
+        if (executor.isShutdown() || !reloadPending.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            reloadPending.set(false);
             try {
-                // Get all recordings
-                List<Recording> recordings = repository.getAllRecordings();
-
-                // Filter recordings with chat history (in a real app, we'd have a better way to track this)
-                List<ConversationItem> conversations = new ArrayList<>();
-
-                for (Recording recording : recordings) {
-                    // In a real app, we would check if this recording has chat history
-                    // For now, we'll simply show all recordings as potential conversations
-                    conversations.add(new ConversationItem(
-                            recording.getId(),
-                            recording.getTitle(),
-                            recording.isVoiceRecording() ? "Voice Recording" : "Text Note",
-                            recording.getCreatedAt(),
-                            recording.getDeviceId()
-                    ));
-                }
-
-                // Update UI on main thread
-                runOnUiThread(() -> {
-                    swipeRefreshLayout.setRefreshing(false);
-
-                    if (conversations.isEmpty()) {
-                        recyclerView.setVisibility(View.GONE);
-                        emptyView.setVisibility(View.VISIBLE);
-                    } else {
-                        recyclerView.setVisibility(View.VISIBLE);
-                        emptyView.setVisibility(View.GONE);
-                        adapter.setConversations(conversations);
-                    }
-                });
+                showConversations(toConversations(repository.getConversations()));
             } catch (Exception e) {
                 Log.e(TAG, "Error loading conversations", e);
                 runOnUiThread(() -> {
@@ -108,7 +103,39 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
                             Toast.LENGTH_SHORT).show();
                 });
             }
-        }).start();
+        });
+    }
+
+    private List<ConversationItem> toConversations(List<ConversationSummary> summaries) {
+        List<ConversationItem> conversations = new ArrayList<>(summaries.size());
+        for (ConversationSummary summary : summaries) {
+            ConversationItem item = new ConversationItem(
+                    summary.getRecordingId(),
+                    summary.getTitle(),
+                    summary.isVoiceRecording() ? "Voice Recording" : "Text Note",
+                    summary.getLastTimestamp(),
+                    summary.getDeviceId()
+            );
+            item.setLastMessage(summary.getLastMessage());
+            item.setUnreadCount(summary.getUnreadCount());
+            conversations.add(item);
+        }
+        return conversations;
+    }
+
+    private void showConversations(List<ConversationItem> conversations) {
+        runOnUiThread(() -> {
+            swipeRefreshLayout.setRefreshing(false);
+
+            if (conversations.isEmpty()) {
+                recyclerView.setVisibility(View.GONE);
+                emptyView.setVisibility(View.VISIBLE);
+            } else {
+                recyclerView.setVisibility(View.VISIBLE);
+                emptyView.setVisibility(View.GONE);
+            }
+            adapter.setConversations(conversations);
+        });
     }
 
     @Override
@@ -120,10 +147,12 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Reload conversations when activity is resumed
-        loadConversations();
+    protected void onDestroy() {
+        for (String table : OBSERVED_TABLES) {
+            repository.removeObserver(table, changeObserver);
+        }
+        executor.shutdown();
+        super.onDestroy();
     }
 }
 
@@ -134,6 +163,7 @@ class ConversationItem {
     private String type;
     private long timestamp;
     private String deviceId;
+    private String lastMessage;
     private int unreadCount;
 
     public ConversationItem(long id, String title, String type, long timestamp, String deviceId) {
@@ -142,7 +172,7 @@ class ConversationItem {
         this.type = type;
         this.timestamp = timestamp;
         this.deviceId = deviceId;
-        this.unreadCount = 0; // In a real app, we'd get the actual unread count
+        this.unreadCount = 0;
     }
 
     public long getId() {
@@ -165,6 +195,14 @@ class ConversationItem {
         return deviceId;
     }
 
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
     public int getUnreadCount() {
         return unreadCount;
     }
@@ -7,29 +7,53 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdapter.ConversationViewHolder> {
-    private List<ConversationItem> conversations = new ArrayList<>();
+public class ConversationsAdapter extends ListAdapter<ConversationItem, ConversationsAdapter.ConversationViewHolder> {
     private final ConversationClickListener listener;
 
     public interface ConversationClickListener {
         void onConversationClick(ConversationItem conversation);
     }
 
+    private static final DiffUtil.ItemCallback<ConversationItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<ConversationItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ConversationItem oldItem, @NonNull ConversationItem newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ConversationItem oldItem, @NonNull ConversationItem newItem) {
+            return oldItem.getTimestamp() == newItem.getTimestamp()
+                    && oldItem.getUnreadCount() == newItem.getUnreadCount()
+                    && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getType(), newItem.getType())
+                    && Objects.equals(oldItem.getLastMessage(), newItem.getLastMessage());
+        }
+    };
+
     public ConversationsAdapter(ConversationClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
+    // Diffed against the shown list on a background thread
     public void setConversations(List<ConversationItem> conversations) {
-        this.conversations = conversations;
-        notifyDataSetChanged();
+        submitList(conversations);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     @NonNull
@@ -42,10 +66,12 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
 
     @Override
     public void onBindViewHolder(@NonNull ConversationViewHolder holder, int position) {
-        ConversationItem conversation = conversations.get(position);
+        ConversationItem conversation = getItem(position);
 
         holder.titleTextView.setText(conversation.getTitle());
-        holder.typeTextView.setText(conversation.getType());
+        // Preview of the latest message, or the recording type if there is none
+        holder.typeTextView.setText(conversation.getLastMessage() != null
+                ? conversation.getLastMessage() : conversation.getType());
         holder.timeTextView.setText(formatDateTime(conversation.getTimestamp()));
 
         // Set icon based on type
@@ -71,11 +97,6 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return conversations.size();
-    }
-
     private String formatDateTime(long timestamp) {
         SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
         return sdf.format(new Date(timestamp));
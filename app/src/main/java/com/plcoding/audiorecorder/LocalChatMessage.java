@@ -11,6 +11,15 @@ public class LocalChatMessage {
     private long timestamp;
     private boolean isSynced;
     private String messageId;
+    // Idempotency key of a message sent from this device, null for received messages
+    private String clientMessageId;
+
+    public LocalChatMessage(long id, long recordingId, String message,
+                            boolean isFromDevice, long timestamp,
+                            boolean isSynced, String messageId, String clientMessageId) {
+        this(id, recordingId, message, isFromDevice, timestamp, isSynced, messageId);
+        this.clientMessageId = clientMessageId;
+    }
 
     public LocalChatMessage(long id, long recordingId, String message,
                             boolean isFromDevice, long timestamp,
@@ -52,4 +61,8 @@ public class LocalChatMessage {
     public String getMessageId() {
         return messageId;
     }
+
+    public String getClientMessageId() {
+        return clientMessageId;
+    }
 }
\ No newline at end of file
@@ -38,7 +38,8 @@ import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.transition.platform.MaterialContainerTransformSharedElementCallback;
 
-import com.plcoding.audiorecorder.api.RetrofitClient;
+import com.plcoding.audiorecorder.api.ReachabilityMonitor;
+import com.plcoding.audiorecorder.data.ChecklistSubmitter;
 import com.plcoding.audiorecorder.data.RecordingRepository;
 import com.plcoding.audiorecorder.playback.AndroidAudioPlayer;
 import com.plcoding.audiorecorder.record.AndroidAudioRecorder;
@@ -102,6 +103,10 @@ public class MainActivity extends AppCompatActivity {
         setupRecyclerView();
         setupSwipeRefresh();
         observeViewModel();
+        observeReachability();
+        // Checklists queued by an earlier run continue in the background
+        ChecklistSubmitter.getInstance(this).start();
+        observeRejectedChecklists();
 
         requestNecessaryPermissions();
         checkServerConnection();
@@ -204,6 +209,7 @@ public class MainActivity extends AppCompatActivity {
 
     private void setupRecyclerView() {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setHasFixedSize(true);
         adapter = new RecordingAdapter(
                 this::handleRecordingPlay,
                 this::handleRecordingStop,
@@ -399,29 +405,31 @@ public class MainActivity extends AppCompatActivity {
         }, 1000);
     }
 
+    // Cheap: answers from the shared cache and only probes in the background when it's stale;
+    // observeReachability() updates the UI when the answer changes
     private void checkServerConnection() {
-        executor.execute(() -> {
-            boolean isServerAvailable = false;
+        ReachabilityMonitor.getInstance(this).isServerReachable();
+    }
 
-            try {
-                RetrofitClient client = RetrofitClient.getInstance(this);
-                isServerAvailable = client.isServerReachable();
-            } catch (Exception e) {
-                Log.e(TAG, "Error checking server connection", e);
+    private void observeReachability() {
+        ReachabilityMonitor.getInstance(this).getStateLiveData().observe(this, state -> {
+            if (state == ReachabilityMonitor.State.ONLINE) {
+                networkStatus.setText(R.string.online);
+                networkStatus.setTextColor(getColor(R.color.success));
+                trySyncPendingUploads();
+            } else if (state != ReachabilityMonitor.State.UNKNOWN) {
+                networkStatus.setText(R.string.offline);
+                networkStatus.setTextColor(getColor(R.color.error));
             }
+        });
+    }
 
-            final boolean finalIsServerAvailable = isServerAvailable;
-
-            mainHandler.post(() -> {
-                if (finalIsServerAvailable) {
-                    networkStatus.setText(R.string.online);
-                    networkStatus.setTextColor(getColor(R.color.success));
-                    trySyncPendingUploads();
-                } else {
-                    networkStatus.setText(R.string.offline);
-                    networkStatus.setTextColor(getColor(R.color.error));
-                }
-            });
+    // ⚠️ Submissions the server refused after their screen closed wait for the crew to fix them
+    private void observeRejectedChecklists() {
+        ChecklistSubmitter.getInstance(this).getFailedCount().observe(this, count -> {
+            if (count != null && count > 0 && recyclerView != null) {
+                Snackbar.make(recyclerView, getString(R.string.checklists_rejected, count), Snackbar.LENGTH_LONG).show();
+            }
         });
     }
 
@@ -435,7 +443,7 @@ public class MainActivity extends AppCompatActivity {
                     mainHandler.post(() -> {
                         showSnackbar(getString(R.string.syncing_pending_uploads, pendingCount));
                     });
-                    repository.syncPendingUploads(null);
+                    repository.syncPendingUploads();
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Error syncing pending uploads", e);
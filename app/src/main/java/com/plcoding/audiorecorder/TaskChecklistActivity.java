@@ -13,18 +13,13 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.plcoding.audiorecorder.api.ChecklistResponse;
-import com.plcoding.audiorecorder.api.TaskChecklistApiService;
-import com.plcoding.audiorecorder.api.RetrofitClient;
+import com.plcoding.audiorecorder.data.ChecklistRepository;
 import com.plcoding.audiorecorder.forms.ChecklistForm;
 import com.plcoding.audiorecorder.utils.DeviceIdHelper;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class TaskChecklistActivity extends AppCompatActivity {
     private static final String TAG = "TaskChecklistActivity";
 
@@ -91,52 +86,38 @@ public class TaskChecklistActivity extends AppCompatActivity {
 
         Log.d(TAG, "Loading checklists for device ID: '" + deviceId + "'");
 
-        TaskChecklistApiService apiService = RetrofitClient.getInstance(this).createService(TaskChecklistApiService.class);
-
-        Call<ChecklistResponse> call = apiService.getAvailableChecklists(deviceId);
-        call.enqueue(new Callback<ChecklistResponse>() {
+        ChecklistRepository.getInstance(this).loadAvailableChecklists(deviceId, new ChecklistRepository.Listener<ChecklistResponse>() {
             @SuppressLint("NotifyDataSetChanged")
             @Override
-            public void onResponse(Call<ChecklistResponse> call, Response<ChecklistResponse> response) {
-                Log.d(TAG, "Response received: " + response.code());
-                if (response.isSuccessful() && response.body() != null) {
-                    ChecklistResponse checklistResponse = response.body();
-                    if ("success".equals(checklistResponse.getStatus())) {
-                        availableChecklists.clear();
-                        availableChecklists.addAll(checklistResponse.getForms());
-                        adapter.notifyDataSetChanged();
-
-                        if (availableChecklists.isEmpty()) {
-                            checklistsRecyclerView.setVisibility(View.GONE);
-                            emptyView.setVisibility(View.VISIBLE);
-                        } else {
-                            checklistsRecyclerView.setVisibility(View.VISIBLE);
-                            emptyView.setVisibility(View.GONE);
-                        }
-
-                        Log.d(TAG, "Loaded " + availableChecklists.size() + " checklists");
-                    } else {
-                        Log.e(TAG, "API error: " + checklistResponse.getMessage());
-                        Toast.makeText(TaskChecklistActivity.this, "API Error: " + checklistResponse.getMessage(), Toast.LENGTH_LONG).show();
-                    }
+            public void onData(ChecklistResponse checklistResponse, boolean fromCache) {
+                availableChecklists.clear();
+                if (checklistResponse.getForms() != null) {
+                    availableChecklists.addAll(checklistResponse.getForms());
+                }
+                adapter.notifyDataSetChanged();
+
+                if (availableChecklists.isEmpty()) {
+                    checklistsRecyclerView.setVisibility(View.GONE);
+                    emptyView.setVisibility(View.VISIBLE);
                 } else {
-                    Log.e(TAG, "Failed to load checklists: " + response.code());
-                    if (response.errorBody() != null) {
-                        try {
-                            String errorBody = response.errorBody().string();
-                            Log.e(TAG, "Error body: " + errorBody);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error reading error body", e);
-                        }
-                    }
-                    Toast.makeText(TaskChecklistActivity.this, "Failed to load checklists: " + response.code(), Toast.LENGTH_LONG).show();
+                    checklistsRecyclerView.setVisibility(View.VISIBLE);
+                    emptyView.setVisibility(View.GONE);
                 }
+
+                Log.d(TAG, "Loaded " + availableChecklists.size() + " checklists" + (fromCache ? " from cache" : ""));
+
+                // Have every form ready for offline use
+                ChecklistRepository.getInstance(TaskChecklistActivity.this).prefetchForms(availableChecklists);
             }
 
             @Override
-            public void onFailure(Call<ChecklistResponse> call, Throwable t) {
-                Log.e(TAG, "Error loading checklists", t);
-                Toast.makeText(TaskChecklistActivity.this, "Network error: " + t.getMessage(), Toast.LENGTH_LONG).show();
+            public void onError(String message, boolean hasCachedData) {
+                Log.e(TAG, "Error loading checklists: " + message);
+                if (hasCachedData) {
+                    Toast.makeText(TaskChecklistActivity.this, "Offline - showing saved checklists", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(TaskChecklistActivity.this, message, Toast.LENGTH_LONG).show();
+                }
             }
         });
     }
@@ -3,7 +3,9 @@
 package com.plcoding.audiorecorder.api;
 
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.view.Choreographer;
 import android.util.Log;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
@@ -13,12 +15,13 @@ import org.json.JSONObject;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -36,16 +39,17 @@ public class ChatWebSocketClient extends WebSocketClient {
     private static final String SERVER_TIMEZONE = "Africa/Casablanca";
     private SimpleDateFormat timestampFormat;
 
+    // Pings, pong timeouts, connect timeout and reconnect backoff run on one background thread
+    // shared by all chat connections, never on the main looper
+    private static HandlerThread ioThread;
+    private final Handler ioHandler = new Handler(getIoLooper());
+
     // Ping/pong management
-    private final Handler pingHandler = new Handler(Looper.getMainLooper());
     private final AtomicBoolean waitingForPong = new AtomicBoolean(false);
     private final AtomicBoolean isPinging = new AtomicBoolean(false);
 
-    // ✅ ENHANCED MESSAGE DEDUPLICATION
-    private final Set<String> recentMessageIds = new HashSet<>();
-    private final Set<String> recentMessageContent = new HashSet<>();
-    private final Map<String, Long> messageTimestamps = new HashMap<>();
-    private final Map<String, String> messageSources = new HashMap<>(); // Track message sources
+    // ✅ ENHANCED MESSAGE DEDUPLICATION (touched from the socket and main threads)
+    private final MessageDeduplicator deduplicator = new MessageDeduplicator();
     private final AtomicLong lastProcessedTimestamp = new AtomicLong(0);
 
     // Connection state
@@ -54,20 +58,107 @@ public class ChatWebSocketClient extends WebSocketClient {
     private int reconnectAttempts = 0;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
+    // Parsed, deduplicated messages waiting for the next frame on the main thread
+    private final List<IncomingMessage> pendingMessages = new ArrayList<>();
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
+    private final Choreographer.FrameCallback dispatchFrameCallback = frameTimeNanos -> dispatchPendingMessages();
+
     // Client info
     private final MessageListener listener;
+    private volatile Outbox outbox;
     private final String deviceId;
     private final String recordingId;
     private final String connectionId; // ✅ NEW: Unique connection identifier
 
     public interface MessageListener {
         void onMessageReceived(String sender, String message, String timestamp, String messageId, boolean isHistorical);
+
+        // Messages that arrived since the last frame, in arrival order; called on the main thread
+        default void onMessagesReceived(List<IncomingMessage> messages) {
+            for (IncomingMessage message : messages) {
+                onMessageReceived(message.getSender(), message.getMessage(), message.getTimestamp(),
+                        message.getMessageId(), message.isHistorical());
+            }
+        }
+
         void onTypingStarted();
         void onConnectionStateChange(boolean connected, String message);
         void onError(String errorMessage);
         String getWebSocketUrl();
     }
 
+    /**
+     * Durable store of messages sent from this device. Everything it returns is replayed, in
+     * order, each time the socket opens; the server dedupes by client_message_id.
+     * Both methods are called on the background I/O thread.
+     */
+    public interface Outbox {
+        List<OutgoingMessage> getPendingMessages();
+        void onMessageAcknowledged(String clientMessageId, String serverMessageId);
+    }
+
+    public static class OutgoingMessage {
+        private final String clientMessageId;
+        private final String message;
+
+        public OutgoingMessage(String clientMessageId, String message) {
+            this.clientMessageId = clientMessageId;
+            this.message = message;
+        }
+
+        public String getClientMessageId() {
+            return clientMessageId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public static class IncomingMessage {
+        private final String sender;
+        private final String message;
+        private final String timestamp;
+        private final String messageId;
+        private final boolean historical;
+
+        IncomingMessage(String sender, String message, String timestamp, String messageId, boolean historical) {
+            this.sender = sender;
+            this.message = message;
+            this.timestamp = timestamp;
+            this.messageId = messageId;
+            this.historical = historical;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getTimestamp() {
+            return timestamp;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public boolean isHistorical() {
+            return historical;
+        }
+    }
+
+    private static synchronized Looper getIoLooper() {
+        if (ioThread == null) {
+            ioThread = new HandlerThread("ChatWebSocketIO");
+            ioThread.start();
+        }
+        return ioThread.getLooper();
+    }
+
     public ChatWebSocketClient(String serverUri, MessageListener listener, String deviceId, String recordingId) throws URISyntaxException {
         super(new URI(serverUri));
 
@@ -141,11 +232,11 @@ public class ChatWebSocketClient extends WebSocketClient {
         super.connect();
 
         // Set connection timeout
-        mainHandler.postDelayed(() -> {
+        ioHandler.postDelayed(() -> {
             if (!isOpen() && !isClosingPermanently) {
                 Log.e(TAG, "❌ Connection timeout");
                 if (listener != null) {
-                    listener.onConnectionStateChange(false, "Connection timeout");
+                    mainHandler.post(() -> listener.onConnectionStateChange(false, "Connection timeout"));
                 }
                 reconnectAfterError("Connection timeout");
             }
@@ -164,6 +255,9 @@ public class ChatWebSocketClient extends WebSocketClient {
         // Start ping/pong mechanism
         startPingPong();
 
+        // Flush messages written while offline
+        ioHandler.post(this::replayOutbox);
+
         // Notify listener
         if (listener != null) {
             mainHandler.post(() -> listener.onConnectionStateChange(true, "Connected to chat server"));
@@ -194,6 +288,8 @@ public class ChatWebSocketClient extends WebSocketClient {
             String timestamp = jsonMessage.optString("timestamp", getCurrentTimestamp());
             String timestampIso = jsonMessage.optString("timestamp_iso", "");
             String messageId = jsonMessage.optString("message_id", null);
+            String clientMessageId = jsonMessage.isNull("client_message_id")
+                    ? null : jsonMessage.optString("client_message_id", null);
             boolean isHistorical = jsonMessage.optBoolean("is_historical", false);
 
             // Skip empty messages and ping/pong
@@ -203,50 +299,79 @@ public class ChatWebSocketClient extends WebSocketClient {
                 return;
             }
 
+            // The server echoes the idempotency key of messages it stored from this device
+            if (clientMessageId != null) {
+                acknowledge(clientMessageId, messageId);
+            }
+
+            // Echo of a message sent on this connection: it is already on screen
+            if (clientMessageId != null && deduplicator.isDuplicate(clientMessageId, null)) {
+                trackMessage(messageId, null, timestamp, "echo");
+                return;
+            }
+
+            // Keyed by whichever id the frame has; only frames with neither fall back to content
+            String dedupId = messageId != null && !messageId.isEmpty() ? messageId : clientMessageId;
+
             // ✅ ENHANCED DUPLICATE DETECTION
-            if (isDuplicateMessage(messageId, messageContent, timestamp, "websocket")) {
+            if (isDuplicateMessage(dedupId, messageContent, timestamp, "websocket")) {
                 Log.d(TAG, "🔇 Duplicate WebSocket message ignored: " + messageContent.substring(0, Math.min(30, messageContent.length())));
                 return;
             }
 
             // ✅ TRACK MESSAGE
-            trackMessage(messageId, messageContent, timestamp, "websocket");
+            trackMessage(dedupId, messageContent, timestamp, "websocket");
 
             Log.d(TAG, "📤 Processing message from " + sender + ": " + messageContent.substring(0, Math.min(50, messageContent.length())));
 
-            if (listener != null) {
-                mainHandler.post(() ->
-                        listener.onMessageReceived(sender, messageContent, timestampIso.isEmpty() ? timestamp : timestampIso, messageId, isHistorical)
-                );
-            }
+            enqueueForDispatch(new IncomingMessage(sender, messageContent,
+                    timestampIso.isEmpty() ? timestamp : timestampIso, messageId, isHistorical));
 
         } catch (JSONException e) {
             Log.e(TAG, "Error parsing JSON message", e);
             // Try to handle as plain text
-            if (!message.trim().isEmpty() && listener != null) {
-                mainHandler.post(() ->
-                        listener.onMessageReceived("system", message, getCurrentTimestamp(), null, false)
-                );
+            if (!message.trim().isEmpty()) {
+                enqueueForDispatch(new IncomingMessage("system", message, getCurrentTimestamp(), null, false));
             }
         } catch (Exception e) {
             Log.e(TAG, "Error handling message", e);
         }
     }
 
-    // ✅ ENHANCED DUPLICATE DETECTION
-    private boolean isDuplicateMessage(String messageId, String content, String timestamp, String source) {
-        // Check by message ID first
-        if (messageId != null && !messageId.isEmpty()) {
-            if (recentMessageIds.contains(messageId)) {
-                Log.d(TAG, "🔇 Duplicate by ID: " + messageId + " (source: " + source + ")");
-                return true;
+    // Queue a parsed message; the first one queued since the last frame schedules a frame callback
+    private void enqueueForDispatch(IncomingMessage incoming) {
+        if (listener == null) {
+            return;
+        }
+        synchronized (pendingMessages) {
+            pendingMessages.add(incoming);
+        }
+        if (dispatchScheduled.compareAndSet(false, true)) {
+            mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(dispatchFrameCallback));
+        }
+    }
+
+    private void dispatchPendingMessages() {
+        List<IncomingMessage> batch;
+        synchronized (pendingMessages) {
+            dispatchScheduled.set(false);
+            if (pendingMessages.isEmpty()) {
+                return;
             }
+            batch = new ArrayList<>(pendingMessages);
+            pendingMessages.clear();
         }
 
-        // Check by content
-        String contentKey = content.trim().toLowerCase();
-        if (!contentKey.isEmpty() && recentMessageContent.contains(contentKey)) {
-            Log.d(TAG, "🔇 Duplicate by content: " + contentKey.substring(0, Math.min(30, contentKey.length())) + "... (source: " + source + ")");
+        if (listener != null && !isClosingPermanently) {
+            listener.onMessagesReceived(Collections.unmodifiableList(batch));
+        }
+    }
+
+    // ✅ ENHANCED DUPLICATE DETECTION
+    private boolean isDuplicateMessage(String messageId, String content, String timestamp, String source) {
+        // Check by message ID, then by content fingerprint within the time window (counts hits/misses)
+        if (deduplicator.checkAndRecord(messageId, content)) {
+            Log.d(TAG, "🔇 Duplicate by ID/content: " + messageId + " (source: " + source + ")");
             return true;
         }
 
@@ -261,45 +386,20 @@ public class ChatWebSocketClient extends WebSocketClient {
             Log.w(TAG, "Error parsing timestamp for duplicate check: " + timestamp);
         }
 
-        // ✅ NEW: Check if we already received this message from another source
-        if (messageId != null && messageSources.containsKey(messageId)) {
-            String previousSource = messageSources.get(messageId);
-            Log.d(TAG, "🔇 Message " + messageId + " already received from " + previousSource + ", ignoring " + source);
-            return true;
-        }
-
         return false;
     }
 
     // ✅ NEW: Track message to prevent duplicates
     private void trackMessage(String messageId, String content, String timestamp, String source) {
-        // Track by ID
-        if (messageId != null && !messageId.isEmpty()) {
-            recentMessageIds.add(messageId);
-            messageSources.put(messageId, source);
-        }
-
-        // Track by content
-        String contentKey = content.trim().toLowerCase();
-        if (!contentKey.isEmpty()) {
-            recentMessageContent.add(contentKey);
-        }
+        deduplicator.record(messageId, content);
 
         // Track timestamp
         try {
             long msgTimestamp = parseTimestamp(timestamp);
-            if (msgTimestamp > lastProcessedTimestamp.get()) {
-                lastProcessedTimestamp.set(msgTimestamp);
-            }
-            if (messageId != null) {
-                messageTimestamps.put(messageId, msgTimestamp);
-            }
+            lastProcessedTimestamp.accumulateAndGet(msgTimestamp, Math::max);
         } catch (Exception e) {
             Log.w(TAG, "Error parsing timestamp for tracking: " + timestamp);
         }
-
-        // Clean up old data
-        cleanupOldTrackingData();
     }
 
     // ✅ NEW: Parse timestamp properly
@@ -330,41 +430,6 @@ public class ChatWebSocketClient extends WebSocketClient {
         }
     }
 
-    // ✅ NEW: Clean up old tracking data to prevent memory leaks
-    private void cleanupOldTrackingData() {
-        // Keep only last 100 messages in tracking
-        if (recentMessageIds.size() > 100) {
-            // Convert to array and keep last 50
-            String[] idsArray = recentMessageIds.toArray(new String[0]);
-            recentMessageIds.clear();
-            for (int i = Math.max(0, idsArray.length - 50); i < idsArray.length; i++) {
-                recentMessageIds.add(idsArray[i]);
-            }
-        }
-
-        if (recentMessageContent.size() > 100) {
-            String[] contentArray = recentMessageContent.toArray(new String[0]);
-            recentMessageContent.clear();
-            for (int i = Math.max(0, contentArray.length - 50); i < contentArray.length; i++) {
-                recentMessageContent.add(contentArray[i]);
-            }
-        }
-
-        if (messageSources.size() > 100) {
-            // Remove oldest entries
-            long cutoffTime = System.currentTimeMillis() - (24 * 60 * 60 * 1000); // 24 hours ago
-            messageSources.entrySet().removeIf(entry -> {
-                Long timestamp = messageTimestamps.get(entry.getKey());
-                return timestamp != null && timestamp < cutoffTime;
-            });
-        }
-
-        if (messageTimestamps.size() > 100) {
-            long cutoffTime = System.currentTimeMillis() - (24 * 60 * 60 * 1000);
-            messageTimestamps.entrySet().removeIf(entry -> entry.getValue() < cutoffTime);
-        }
-    }
-
     @Override
     public void onClose(int code, String reason, boolean remote) {
         Log.d(TAG, "🔌 WebSocket closed: code=" + code + ", reason=" + reason + ", remote=" + remote);
@@ -383,7 +448,7 @@ public class ChatWebSocketClient extends WebSocketClient {
         // Attempt reconnection for abnormal closures
         if (!manualClose && !isClosingPermanently && shouldReconnect(code)) {
             Log.d(TAG, "🔄 Attempting reconnection after abnormal closure");
-            attemptReconnect();
+            ioHandler.post(this::attemptReconnect);
         }
     }
 
@@ -401,23 +466,69 @@ public class ChatWebSocketClient extends WebSocketClient {
 
         // Attempt reconnection on error
         if (!manualClose && !isClosingPermanently) {
-            reconnectAfterError("Connection error: " + ex.getMessage());
+            ioHandler.post(() -> reconnectAfterError("Connection error: " + ex.getMessage()));
+        }
+    }
+
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    // Send every pending outbox message back to back; acks come back asynchronously
+    private void replayOutbox() {
+        Outbox currentOutbox = outbox;
+        if (currentOutbox == null || !isOpen()) {
+            return;
+        }
+
+        List<OutgoingMessage> pending = currentOutbox.getPendingMessages();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Log.d(TAG, "📤 Replaying " + pending.size() + " outbox messages");
+        for (OutgoingMessage outgoing : pending) {
+            if (!sendMessage(outgoing.getMessage(), deviceId, outgoing.getClientMessageId())) {
+                // Socket dropped mid-replay; the rest goes out on the next onOpen
+                break;
+            }
+        }
+    }
+
+    private void acknowledge(String clientMessageId, String serverMessageId) {
+        Outbox currentOutbox = outbox;
+        if (currentOutbox == null || serverMessageId == null) {
+            return;
         }
+        ioHandler.post(() -> currentOutbox.onMessageAcknowledged(clientMessageId, serverMessageId));
     }
 
     // ✅ ENHANCED: Send message method with duplicate prevention
     public void sendMessage(String message, String deviceId) {
+        sendMessage(message, deviceId, null);
+    }
+
+    /**
+     * Send with an idempotency key. A keyed message that can't be sent now stays in the outbox
+     * and goes out on the next onOpen, so no error is reported for it.
+     * Returns true if the frame was handed to the socket.
+     */
+    public boolean sendMessage(String message, String deviceId, String clientMessageId) {
         if (message == null || message.trim().isEmpty()) {
             Log.d(TAG, "Attempting to send empty message, skipping");
-            return;
+            return false;
         }
 
         if (!isOpen()) {
+            if (clientMessageId != null) {
+                Log.d(TAG, "Not connected, message " + clientMessageId + " stays in the outbox");
+                return false;
+            }
             Log.e(TAG, "Cannot send message: WebSocket not connected");
             if (listener != null) {
                 mainHandler.post(() -> listener.onError("Cannot send message: not connected"));
             }
-            return;
+            return false;
         }
 
         try {
@@ -427,15 +538,19 @@ public class ChatWebSocketClient extends WebSocketClient {
             jsonMessage.put("device_id", deviceId);
             jsonMessage.put("connection_id", connectionId); // ✅ NEW: Track connection
             jsonMessage.put("timestamp", getCurrentTimestamp());
+            if (clientMessageId != null) {
+                jsonMessage.put("client_message_id", clientMessageId);
+            }
+
+            // Track before sending so an echo racing the send is still recognised: by key when
+            // the message has one, by content otherwise
+            trackMessage(clientMessageId, message, getCurrentTimestamp(), "sent");
 
             String jsonString = jsonMessage.toString();
             send(jsonString);
 
             Log.d(TAG, "✅ Message sent via WebSocket: " + message);
-
-            // ✅ NEW: Track our own message to prevent echo
-            String tempMessageId = "temp_" + connectionId + "_" + System.currentTimeMillis();
-            trackMessage(tempMessageId, message, getCurrentTimestamp(), "sent");
+            return true;
 
         } catch (JSONException e) {
             Log.e(TAG, "Error creating message JSON", e);
@@ -448,6 +563,7 @@ public class ChatWebSocketClient extends WebSocketClient {
                 mainHandler.post(() -> listener.onError("Failed to send message: " + e.getMessage()));
             }
         }
+        return false;
     }
 
     // === PING/PONG MANAGEMENT === (unchanged)
@@ -469,7 +585,7 @@ public class ChatWebSocketClient extends WebSocketClient {
                     Log.d(TAG, "📡 Ping sent to server");
 
                     // Set timeout for pong response
-                    pingHandler.postDelayed(() -> {
+                    ioHandler.postDelayed(() -> {
                         if (waitingForPong.get() && !isClosingPermanently) {
                             Log.w(TAG, "⚠️ Pong timeout - connection may be dead");
                             waitingForPong.set(false);
@@ -484,7 +600,7 @@ public class ChatWebSocketClient extends WebSocketClient {
 
             // Schedule next ping
             if (isOpen() && !isClosingPermanently) {
-                pingHandler.postDelayed(this, PING_INTERVAL);
+                ioHandler.postDelayed(this, PING_INTERVAL);
             }
         }
     };
@@ -494,13 +610,13 @@ public class ChatWebSocketClient extends WebSocketClient {
 
         if (isPinging.compareAndSet(false, true)) {
             // Start ping cycle after initial delay
-            pingHandler.postDelayed(pingRunnable, 5000); // 5 second initial delay
+            ioHandler.postDelayed(pingRunnable, 5000); // 5 second initial delay
             Log.d(TAG, "✅ Started ping/pong mechanism");
         }
     }
 
     private void stopPingPong() {
-        pingHandler.removeCallbacks(pingRunnable);
+        ioHandler.removeCallbacks(pingRunnable);
         waitingForPong.set(false);
         isPinging.set(false);
         Log.d(TAG, "⏹️ Stopped ping/pong mechanism");
@@ -563,7 +679,7 @@ public class ChatWebSocketClient extends WebSocketClient {
 
         Log.d(TAG, "🔄 Scheduling reconnect attempt #" + reconnectAttempts + " in " + (delay / 1000) + " seconds");
 
-        mainHandler.postDelayed(() -> {
+        ioHandler.postDelayed(() -> {
             if (!isClosingPermanently && !manualClose) {
                 Log.d(TAG, "🔄 Attempting reconnect #" + reconnectAttempts);
                 try {
@@ -607,11 +723,14 @@ public class ChatWebSocketClient extends WebSocketClient {
         manualClose = true;
         stopPingPong();
 
+        // Drop pending timeouts/reconnects and undelivered messages for this connection
+        ioHandler.removeCallbacksAndMessages(null);
+        synchronized (pendingMessages) {
+            pendingMessages.clear();
+        }
+
         // Clear tracking data
-        recentMessageIds.clear();
-        recentMessageContent.clear();
-        messageTimestamps.clear();
-        messageSources.clear();
+        deduplicator.clear();
 
         super.close();
     }
@@ -628,9 +747,7 @@ public class ChatWebSocketClient extends WebSocketClient {
     // ✅ NEW: Debug method to get tracking statistics
     public void logTrackingStats() {
         Log.d(TAG, "=== TRACKING STATISTICS ===");
-        Log.d(TAG, "Message IDs tracked: " + recentMessageIds.size());
-        Log.d(TAG, "Message content tracked: " + recentMessageContent.size());
-        Log.d(TAG, "Message sources tracked: " + messageSources.size());
+        Log.d(TAG, "Deduplication: " + deduplicator.getStats());
         Log.d(TAG, "Last processed timestamp: " + new Date(lastProcessedTimestamp.get()));
         Log.d(TAG, "Connection ID: " + connectionId);
         Log.d(TAG, "===========================");
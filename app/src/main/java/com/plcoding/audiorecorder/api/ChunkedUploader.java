@@ -0,0 +1,270 @@
+package com.plcoding.audiorecorder.api;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import retrofit2.Response;
+
+/**
+ * Resumable upload of a voice recording in fixed-size byte ranges.
+ *
+ * The acknowledged offset is persisted after every chunk, so an upload interrupted by a dropped
+ * connection or a killed process continues from the last byte the server confirmed instead of
+ * starting over. Calls are synchronous; run this off the main thread.
+ */
+public class ChunkedUploader {
+    private static final String TAG = "ChunkedUploader";
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private static final int DEFAULT_MAX_RETRIES_PER_CHUNK = 3;
+    private static final long DEFAULT_RETRY_DELAY_MS = 2000;
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private final RecordingApiService apiService;
+    private final ProgressStore progressStore;
+    private final int chunkSize;
+    private final int maxRetriesPerChunk;
+    private final long retryDelayMs;
+
+    /**
+     * Where upload progress is kept between attempts and across restarts.
+     */
+    public interface ProgressStore {
+        UploadProgress load(long recordingId);
+
+        void save(UploadProgress progress);
+
+        void clear(long recordingId);
+    }
+
+    public static class UploadProgress {
+        private final long recordingId;
+        private final String uploadId;
+        private final long fileSize;
+        private final int chunkSize;
+        private final long ackedOffset;
+
+        public UploadProgress(long recordingId, String uploadId, long fileSize, int chunkSize, long ackedOffset) {
+            this.recordingId = recordingId;
+            this.uploadId = uploadId;
+            this.fileSize = fileSize;
+            this.chunkSize = chunkSize;
+            this.ackedOffset = ackedOffset;
+        }
+
+        public long getRecordingId() {
+            return recordingId;
+        }
+
+        public String getUploadId() {
+            return uploadId;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public long getAckedOffset() {
+            return ackedOffset;
+        }
+
+        UploadProgress withOffset(long offset) {
+            return new UploadProgress(recordingId, uploadId, fileSize, chunkSize, offset);
+        }
+    }
+
+    /**
+     * The server does not offer the chunked endpoints; callers should fall back to a single
+     * multipart upload.
+     */
+    public static class UnsupportedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public UnsupportedException(String message) {
+            super(message);
+        }
+    }
+
+    public ChunkedUploader(RecordingApiService apiService, ProgressStore progressStore) {
+        this(apiService, progressStore, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_RETRIES_PER_CHUNK, DEFAULT_RETRY_DELAY_MS);
+    }
+
+    public ChunkedUploader(RecordingApiService apiService, ProgressStore progressStore,
+                           int chunkSize, int maxRetriesPerChunk, long retryDelayMs) {
+        this.apiService = apiService;
+        this.progressStore = progressStore;
+        this.chunkSize = chunkSize;
+        this.maxRetriesPerChunk = maxRetriesPerChunk;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    public RecordingDto upload(long recordingId, File file, String title, long duration, String deviceId) throws IOException {
+        long fileSize = file.length();
+        UploadProgress progress = resumeOrStart(recordingId, file, title, duration, deviceId);
+
+        int failures = 0;
+        while (progress.getAckedOffset() < fileSize) {
+            long start = progress.getAckedOffset();
+            long end = Math.min(fileSize, start + progress.getChunkSize());
+
+            Response<UploadSessionDto> response;
+            try {
+                response = apiService.uploadChunk(
+                        progress.getUploadId(),
+                        "bytes " + start + "-" + (end - 1) + "/" + fileSize,
+                        new FileRangeRequestBody(file, start, end - start)
+                ).execute();
+            } catch (IOException e) {
+                // Connection dropped mid-chunk, the server may have kept part of it
+                failures++;
+                Log.w(TAG, "Chunk at " + start + " failed (" + failures + "/" + maxRetriesPerChunk + "): " + e.getMessage());
+                if (failures > maxRetriesPerChunk) {
+                    throw e;
+                }
+                sleepBeforeRetry(failures);
+                progress = acknowledge(progress, fetchServerOffset(progress));
+                continue;
+            }
+
+            if (response.isSuccessful() && response.body() != null) {
+                long acked = response.body().getOffset();
+                if (acked > start) {
+                    failures = 0;
+                } else if (++failures > maxRetriesPerChunk) {
+                    throw new IOException("Server is not advancing past offset " + start);
+                }
+                progress = acknowledge(progress, acked);
+                continue;
+            }
+
+            if (response.code() != 409 && response.code() != 416) {
+                throw new IOException("Chunk upload failed: HTTP " + response.code());
+            }
+
+            // Offset mismatch, ask the server where it actually is
+            failures++;
+            Log.w(TAG, "Server rejected range at " + start + " (HTTP " + response.code() + "), resyncing");
+            if (failures > maxRetriesPerChunk) {
+                throw new IOException("Server keeps rejecting range at " + start);
+            }
+            progress = acknowledge(progress, fetchServerOffset(progress));
+        }
+
+        Response<RecordingDto> response = apiService.completeChunkedUpload(progress.getUploadId()).execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("Completing chunked upload failed: HTTP " + response.code());
+        }
+
+        progressStore.clear(recordingId);
+        Log.d(TAG, "Chunked upload of recording " + recordingId + " complete (" + fileSize + " bytes)");
+        return response.body();
+    }
+
+    private UploadProgress resumeOrStart(long recordingId, File file, String title, long duration, String deviceId) throws IOException {
+        UploadProgress saved = progressStore.load(recordingId);
+        if (saved != null && saved.getFileSize() == file.length()) {
+            Response<UploadSessionDto> status = apiService.getChunkedUploadStatus(saved.getUploadId()).execute();
+            if (status.isSuccessful() && status.body() != null) {
+                Log.d(TAG, "Resuming upload " + saved.getUploadId() + " at offset " + status.body().getOffset());
+                return acknowledge(saved, status.body().getOffset());
+            }
+            // Session expired or unknown on the server, start a new one
+            Log.w(TAG, "Saved upload session " + saved.getUploadId() + " is gone (HTTP " + status.code() + ")");
+            progressStore.clear(recordingId);
+        }
+
+        UploadSessionRequest request = new UploadSessionRequest(title, duration, deviceId, file.getName(), file.length(), chunkSize);
+        Response<UploadSessionDto> response = apiService.startChunkedUpload(request).execute();
+        if (response.code() == 404 || response.code() == 405) {
+            throw new UnsupportedException("Server does not support chunked uploads (HTTP " + response.code() + ")");
+        }
+        if (!response.isSuccessful() || response.body() == null || response.body().getUploadId() == null) {
+            throw new IOException("Starting chunked upload failed: HTTP " + response.code());
+        }
+
+        UploadProgress progress = new UploadProgress(recordingId, response.body().getUploadId(),
+                file.length(), chunkSize, response.body().getOffset());
+        progressStore.save(progress);
+        Log.d(TAG, "Started chunked upload " + progress.getUploadId() + " for recording " + recordingId);
+        return progress;
+    }
+
+    private long fetchServerOffset(UploadProgress progress) throws IOException {
+        Response<UploadSessionDto> status = apiService.getChunkedUploadStatus(progress.getUploadId()).execute();
+        if (!status.isSuccessful() || status.body() == null) {
+            throw new IOException("Could not read upload status: HTTP " + status.code());
+        }
+        return status.body().getOffset();
+    }
+
+    private UploadProgress acknowledge(UploadProgress progress, long offset) {
+        long clamped = Math.max(0, Math.min(offset, progress.getFileSize()));
+        UploadProgress updated = progress.withOffset(clamped);
+        progressStore.save(updated);
+        return updated;
+    }
+
+    private void sleepBeforeRetry(int failures) throws IOException {
+        if (retryDelayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(retryDelayMs * failures);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    /**
+     * Streams one byte range of a file straight from disk. Repeatable, so OkHttp may retry it.
+     */
+    static class FileRangeRequestBody extends RequestBody {
+        private final File file;
+        private final long offset;
+        private final long length;
+
+        FileRangeRequestBody(File file, long offset, long length) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            byte[] buffer = new byte[8192];
+            try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+                input.seek(offset);
+                long remaining = length;
+                while (remaining > 0) {
+                    int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read == -1) {
+                        throw new IOException("File shrank while uploading: " + file.getName());
+                    }
+                    sink.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        }
+    }
+}
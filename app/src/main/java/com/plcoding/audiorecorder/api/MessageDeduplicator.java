@@ -0,0 +1,193 @@
+package com.plcoding.audiorecorder.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded, thread-safe duplicate filter for incoming chat messages.
+ *
+ * Messages with an id (server or client) are deduplicated by id only, remembered in an
+ * access-ordered LRU, so ids that keep showing up (history replays, reconnects) stay while
+ * one-off ids age out first. Two messages with different ids are never duplicates, even with the
+ * same text. Messages without an id are fingerprinted by their normalized content within a time
+ * bucket instead, which catches re-deliveries while still allowing the same text to be sent
+ * again later. All operations are O(1).
+ */
+public class MessageDeduplicator {
+    public static final int DEFAULT_MAX_IDS = 500;
+    public static final int DEFAULT_MAX_FINGERPRINTS = 200;
+    public static final long DEFAULT_WINDOW_MS = 10_000;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Time source, replaceable in tests.
+     */
+    public interface Clock {
+        long now();
+    }
+
+    private final int maxIds;
+    private final int maxFingerprints;
+    private final long windowMs;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Boolean> ids;
+    // Fingerprint -> time bucket it was last seen in; insertion order == age order
+    private final LinkedHashMap<Long, Long> fingerprints = new LinkedHashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public MessageDeduplicator() {
+        this(DEFAULT_MAX_IDS, DEFAULT_MAX_FINGERPRINTS, DEFAULT_WINDOW_MS, System::currentTimeMillis);
+    }
+
+    public MessageDeduplicator(int maxIds, int maxFingerprints, long windowMs, Clock clock) {
+        this.maxIds = Math.max(1, maxIds);
+        this.maxFingerprints = Math.max(1, maxFingerprints);
+        this.windowMs = Math.max(1, windowMs);
+        this.clock = clock;
+        this.ids = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MessageDeduplicator.this.maxIds;
+            }
+        };
+    }
+
+    /**
+     * Returns true if the message was seen before; otherwise records it and returns false.
+     */
+    public synchronized boolean checkAndRecord(String messageId, String content) {
+        if (isDuplicateLocked(messageId, content)) {
+            hits++;
+            return true;
+        }
+        misses++;
+        recordLocked(messageId, content);
+        return false;
+    }
+
+    /**
+     * Lookup only. A hit on an id refreshes its position in the LRU.
+     */
+    public synchronized boolean isDuplicate(String messageId, String content) {
+        return isDuplicateLocked(messageId, content);
+    }
+
+    /**
+     * Remember a message without counting it as a hit or a miss, e.g. one we just sent.
+     */
+    public synchronized void record(String messageId, String content) {
+        recordLocked(messageId, content);
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+        fingerprints.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getIdCount() {
+        return ids.size();
+    }
+
+    public synchronized int getFingerprintCount() {
+        expireFingerprints(currentBucket());
+        return fingerprints.size();
+    }
+
+    public synchronized String getStats() {
+        return String.format(Locale.US, "ids=%d/%d, fingerprints=%d/%d, hits=%d, misses=%d",
+                ids.size(), maxIds, fingerprints.size(), maxFingerprints, hits, misses);
+    }
+
+    private boolean isDuplicateLocked(String messageId, String content) {
+        if (hasId(messageId)) {
+            return ids.get(messageId) != null;
+        }
+
+        Long fingerprint = fingerprint(content);
+        if (fingerprint == null) {
+            return false;
+        }
+        long bucket = currentBucket();
+        expireFingerprints(bucket);
+        return fingerprints.containsKey(fingerprint);
+    }
+
+    private void recordLocked(String messageId, String content) {
+        if (hasId(messageId)) {
+            ids.put(messageId, Boolean.TRUE);
+            return;
+        }
+
+        Long fingerprint = fingerprint(content);
+        if (fingerprint == null) {
+            return;
+        }
+        long bucket = currentBucket();
+        expireFingerprints(bucket);
+
+        // Re-insert so the entry moves to the young end
+        fingerprints.remove(fingerprint);
+        fingerprints.put(fingerprint, bucket);
+
+        Iterator<Long> iterator = fingerprints.keySet().iterator();
+        while (fingerprints.size() > maxFingerprints && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A fingerprint stays valid for its own bucket and the next one, so a duplicate is caught for
+     * at least one full window whatever the phase of the bucket boundary.
+     */
+    private void expireFingerprints(long bucket) {
+        Iterator<Long> iterator = fingerprints.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() >= bucket - 1) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static boolean hasId(String messageId) {
+        return messageId != null && !messageId.isEmpty();
+    }
+
+    private long currentBucket() {
+        return clock.now() / windowMs;
+    }
+
+    // 64-bit FNV-1a over trimmed, lower-cased content
+    private static Long fingerprint(String content) {
+        if (content == null) {
+            return null;
+        }
+        String normalized = content.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
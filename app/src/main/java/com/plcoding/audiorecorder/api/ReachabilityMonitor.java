@@ -0,0 +1,252 @@
+package com.plcoding.audiorecorder.api;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide view of whether the server can be reached.
+ *
+ * Network availability comes from ConnectivityManager callbacks, so losing the network is seen
+ * immediately without probing. Server health comes from a socket probe whose result is cached
+ * for a TTL; concurrent callers that find the cache stale share one in-flight probe instead of
+ * each opening a socket. Reads never block: they return the cached state and refresh it in the
+ * background. State changes are published through {@link #getStateLiveData()}.
+ */
+public class ReachabilityMonitor {
+    private static final String TAG = "ReachabilityMonitor";
+
+    // A good result is trusted longer than a bad one so recovery is noticed quickly
+    private static final long ONLINE_TTL_MS = 30_000;
+    private static final long UNREACHABLE_TTL_MS = 5_000;
+
+    public enum State {
+        UNKNOWN,
+        NO_NETWORK,
+        SERVER_UNREACHABLE,
+        ONLINE
+    }
+
+    private static volatile ReachabilityMonitor instance;
+
+    private final Context context;
+    private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ReachabilityProbe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final MutableLiveData<State> stateLiveData = new MutableLiveData<>(State.UNKNOWN);
+
+    private final Object lock = new Object();
+    private volatile State state = State.UNKNOWN;
+    private volatile boolean networkAvailable;
+    private volatile boolean unmetered;
+    private long lastProbeAt = 0;
+    // Bumped on every network change so a probe started on the old network isn't trusted
+    private int networkGeneration = 0;
+    private CompletableFuture<Boolean> inFlightProbe;
+
+    private ReachabilityMonitor(Context context) {
+        this.context = context.getApplicationContext();
+
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            networkAvailable = connectivityManager.getActiveNetwork() != null;
+            unmetered = networkAvailable && !connectivityManager.isActiveNetworkMetered();
+            try {
+                connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                    @Override
+                    public void onAvailable(Network network) {
+                        onNetworkChanged(true);
+                    }
+
+                    @Override
+                    public void onLost(Network network) {
+                        unmetered = false;
+                        onNetworkChanged(false);
+                    }
+
+                    @Override
+                    public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                        unmetered = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+                    }
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Error registering network callback", e);
+            }
+        } else {
+            networkAvailable = true;
+        }
+
+        if (networkAvailable) {
+            startProbe();
+        } else {
+            publish(State.NO_NETWORK);
+        }
+    }
+
+    public static ReachabilityMonitor getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ReachabilityMonitor.class) {
+                if (instance == null) {
+                    instance = new ReachabilityMonitor(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public LiveData<State> getStateLiveData() {
+        return stateLiveData;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isNetworkAvailable() {
+        return networkAvailable;
+    }
+
+    /**
+     * True on Wi-Fi/Ethernet and other networks the user isn't billed for; used to gate prefetching.
+     */
+    public boolean isUnmeteredNetwork() {
+        return networkAvailable && unmetered;
+    }
+
+    /**
+     * Cached answer; never blocks. A stale cache triggers a background probe whose result
+     * shows up in later calls and in the LiveData.
+     */
+    public boolean isServerReachable() {
+        if (!networkAvailable) {
+            return false;
+        }
+        if (isStale()) {
+            startProbe();
+        }
+        return state == State.ONLINE;
+    }
+
+    /**
+     * Fresh answer for background callers that must know before acting, e.g. before opening a
+     * WebSocket. Joins the in-flight probe if there is one. Must not be called on the main thread.
+     */
+    public boolean awaitServerReachable(long timeoutMs) {
+        if (!networkAvailable) {
+            return false;
+        }
+        if (!isStale()) {
+            return state == State.ONLINE;
+        }
+        try {
+            return startProbe().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Reachability probe did not finish: " + e.getMessage());
+            return state == State.ONLINE;
+        }
+    }
+
+    /**
+     * Drop the cached result and probe again, e.g. after the server URL changed.
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            lastProbeAt = 0;
+            networkGeneration++;
+        }
+        if (networkAvailable) {
+            startProbe();
+        }
+    }
+
+    private void onNetworkChanged(boolean available) {
+        Log.d(TAG, "Default network " + (available ? "available" : "lost"));
+        synchronized (lock) {
+            networkAvailable = available;
+            lastProbeAt = 0;
+            networkGeneration++;
+        }
+        if (available) {
+            startProbe();
+        } else {
+            publish(State.NO_NETWORK);
+        }
+    }
+
+    private boolean isStale() {
+        synchronized (lock) {
+            if (lastProbeAt == 0 || state == State.UNKNOWN) {
+                return true;
+            }
+            long ttl = state == State.ONLINE ? ONLINE_TTL_MS : UNREACHABLE_TTL_MS;
+            return SystemClock.elapsedRealtime() - lastProbeAt > ttl;
+        }
+    }
+
+    // Single flight: every caller while a probe runs gets the same future
+    private CompletableFuture<Boolean> startProbe() {
+        synchronized (lock) {
+            if (inFlightProbe != null) {
+                return inFlightProbe;
+            }
+            CompletableFuture<Boolean> probe = new CompletableFuture<>();
+            inFlightProbe = probe;
+            int generation = networkGeneration;
+            probeExecutor.execute(() -> runProbe(probe, generation));
+            return probe;
+        }
+    }
+
+    private void runProbe(CompletableFuture<Boolean> probe, int generation) {
+        boolean reachable = false;
+        try {
+            reachable = RetrofitClient.getInstance(context).pingServer();
+        } catch (Exception e) {
+            Log.e(TAG, "Error probing server", e);
+        }
+
+        boolean current;
+        synchronized (lock) {
+            inFlightProbe = null;
+            current = generation == networkGeneration;
+            if (current) {
+                lastProbeAt = SystemClock.elapsedRealtime();
+            }
+        }
+
+        if (current && networkAvailable) {
+            publish(reachable ? State.ONLINE : State.SERVER_UNREACHABLE);
+        }
+        probe.complete(reachable);
+
+        // The network changed while probing; the answer belongs to the old network
+        if (!current && networkAvailable) {
+            startProbe();
+        }
+    }
+
+    private void publish(State newState) {
+        synchronized (lock) {
+            State previous = state;
+            state = newState;
+            if (previous != newState) {
+                Log.d(TAG, "Reachability " + previous + " -> " + newState);
+                stateLiveData.postValue(newState);
+            }
+        }
+    }
+}
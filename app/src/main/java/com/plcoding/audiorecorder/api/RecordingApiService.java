@@ -9,6 +9,7 @@ import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
@@ -23,6 +24,14 @@ public interface RecordingApiService {
             @Query("device_id") String deviceId
     );
 
+    // Delta feed; a null "since" returns everything from the start of the change log
+    @GET("recordings/changes/")
+    Call<RecordingChangesDto> getRecordingChanges(
+            @Query("device_id") String deviceId,
+            @Query("since") String since,
+            @Query("limit") int limit
+    );
+
     @GET("recordings/{id}/")
     Call<RecordingDto> getRecording(
             @Path("id") long id
@@ -52,4 +61,28 @@ public interface RecordingApiService {
     Call<ResponseBody> downloadRecording(
             @Path("id") long id
     );
+
+    // Resumable chunked upload for large voice recordings
+
+    @POST("recordings/uploads/")
+    Call<UploadSessionDto> startChunkedUpload(
+            @Body UploadSessionRequest request
+    );
+
+    @GET("recordings/uploads/{upload_id}/")
+    Call<UploadSessionDto> getChunkedUploadStatus(
+            @Path("upload_id") String uploadId
+    );
+
+    @PUT("recordings/uploads/{upload_id}/")
+    Call<UploadSessionDto> uploadChunk(
+            @Path("upload_id") String uploadId,
+            @Header("Content-Range") String contentRange,  // "bytes start-end/total"
+            @Body RequestBody chunk
+    );
+
+    @POST("recordings/uploads/{upload_id}/complete/")
+    Call<RecordingDto> completeChunkedUpload(
+            @Path("upload_id") String uploadId
+    );
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.plcoding.audiorecorder.api;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+/**
+ * One page of the recordings delta feed: rows changed since the client's cursor plus the ids of
+ * rows deleted on the server since then.
+ */
+public class RecordingChangesDto {
+    // Opaque position in the server's change log, sent back as "since" on the next request
+    private String cursor;
+
+    @SerializedName("has_more")
+    private boolean hasMore;
+
+    private List<RecordingDto> changed;
+
+    private List<Long> deleted;
+
+    public RecordingChangesDto() {
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<RecordingDto> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<RecordingDto> changed) {
+        this.changed = changed;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -2,19 +2,26 @@ package com.plcoding.audiorecorder.api;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.Looper;
 import android.preference.PreferenceManager;
 import android.util.Log;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -28,16 +35,47 @@ public class RetrofitClient {
     private static final int WRITE_TIMEOUT = 15;
     private static final int PING_TIMEOUT = 5; // seconds for socket ping
 
+    // One HTTP stack for the whole app: everything talks to the same server, so sharing the
+    // pool keeps connections warm across screens
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 32;
+    // Leaves room above UploadScheduler's 5 concurrent uploads for checklist and chat calls
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final long HTTP_CACHE_SIZE = 10L * 1024 * 1024;
+
     private static volatile RetrofitClient instance;
     private final Context context;
-    private Retrofit retrofit;
-    private Retrofit checklistRetrofit; // Add separate retrofit for checklist API
-    private RecordingApiService apiService;
-    private final AtomicBoolean isCheckingServer = new AtomicBoolean(false);
+    private final OkHttpClient httpClient;
+    private final BaseUrlInterceptor baseUrlInterceptor;
+    private final Retrofit retrofit;
+    private final Retrofit checklistRetrofit; // Add separate retrofit for checklist API
+    private final RecordingApiService apiService;
+    // Retrofit proxies are built once per interface and reused
+    private final Map<Class<?>, Object> services = new ConcurrentHashMap<>();
 
     private RetrofitClient(Context context) {
         this.context = context.getApplicationContext();
-        initRetrofit();
+
+        String serverUrl = getServerUrl();
+        String checklistUrl = getChecklistServerUrl();
+        baseUrlInterceptor = new BaseUrlInterceptor(serverUrl, checklistUrl);
+        httpClient = buildHttpClient();
+
+        // Built once against the URLs at startup; BaseUrlInterceptor redirects to the current ones
+        retrofit = new Retrofit.Builder()
+                .baseUrl(serverUrl)
+                .client(httpClient)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+
+        checklistRetrofit = new Retrofit.Builder()
+                .baseUrl(checklistUrl)
+                .client(httpClient)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+
+        apiService = createService(RecordingApiService.class);
     }
 
     public static RetrofitClient getInstance(Context context) {
@@ -51,38 +89,42 @@ public class RetrofitClient {
         return instance;
     }
 
-    private void initRetrofit() {
+    private OkHttpClient buildHttpClient() {
         HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor(message -> Log.d(TAG, message));
         loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
 
-        OkHttpClient client = new OkHttpClient.Builder()
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+                .addInterceptor(baseUrlInterceptor)
                 .addInterceptor(loggingInterceptor)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .cache(new Cache(new File(context.getCacheDir(), "http_cache"), HTTP_CACHE_SIZE))
                 .connectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS)
                 .readTimeout(READ_TIMEOUT, TimeUnit.SECONDS)
                 .writeTimeout(WRITE_TIMEOUT, TimeUnit.SECONDS)
                 .retryOnConnectionFailure(true)
                 .build();
+    }
 
-        // Main API retrofit (for recordings)
-        retrofit = new Retrofit.Builder()
-                .baseUrl(getServerUrl())
-                .client(client)
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-
-        // Checklist API retrofit
-        checklistRetrofit = new Retrofit.Builder()
-                .baseUrl(getChecklistServerUrl())
-                .client(client)
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-
-        apiService = retrofit.create(RecordingApiService.class);
+    /**
+     * The shared client. Callers that need different timeouts should use newBuilder(), which
+     * keeps the same connection pool, dispatcher and cache.
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
     }
 
     // Get checklist-specific server URL
     private String getChecklistServerUrl() {
-        String baseUrl = getServerUrl();
+        return toChecklistUrl(getServerUrl());
+    }
+
+    private static String toChecklistUrl(String serverUrl) {
+        String baseUrl = serverUrl;
         // Remove /api/ from the end and add checklists/api/
         baseUrl = baseUrl.replace("/api/", "/");
         if (!baseUrl.endsWith("/")) {
@@ -92,77 +134,23 @@ public class RetrofitClient {
     }
 
     public TaskChecklistApiService getTaskChecklistApiService() {
-        if (checklistRetrofit == null) {
-            initRetrofit();
-        }
-        return checklistRetrofit.create(TaskChecklistApiService.class);
+        return createService(TaskChecklistApiService.class);
     }
 
-    // Or if you prefer the createService pattern:
+    @SuppressWarnings("unchecked")
     public <T> T createService(Class<T> serviceClass) {
-        if (serviceClass == TaskChecklistApiService.class) {
-            if (checklistRetrofit == null) {
-                initRetrofit();
-            }
-            return checklistRetrofit.create(serviceClass);
-        } else {
-            if (retrofit == null) {
-                initRetrofit();
-            }
-            return retrofit.create(serviceClass);
-        }
+        return (T) services.computeIfAbsent(serviceClass, type -> type == TaskChecklistApiService.class
+                ? checklistRetrofit.create(type)
+                : retrofit.create(type));
     }
 
     public RecordingApiService getApiService() {
         return apiService;
     }
 
+    // Cached, non-blocking; see ReachabilityMonitor
     public boolean isServerReachable() {
-        if (Looper.myLooper() == Looper.getMainLooper()) {
-            Log.w(TAG, "Network operation attempted on main thread");
-            return false;
-        }
-
-        if (isCheckingServer.getAndSet(true)) {
-            Log.d(TAG, "Server check already in progress");
-            return false;
-        }
-
-        try {
-            // Skip HTTP check for now, just use socket ping
-            Log.d(TAG, "Using socket ping only for reachability check");
-            return pingServer();
-        } finally {
-            isCheckingServer.set(false);
-        }
-    }
-
-    private boolean httpReachabilityCheck() {
-        try {
-            URL url = new URL(getServerUrl());
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setConnectTimeout(10000); // Increased from 5000
-            connection.setReadTimeout(10000);    // Increased from 5000
-            connection.setRequestMethod("GET");  // Changed from HEAD to GET
-
-            // Important: Follow redirects
-            connection.setInstanceFollowRedirects(true);
-
-            // Add headers that Django expects
-            connection.setRequestProperty("User-Agent", "AudioRecorder-Android/1.0");
-            connection.setRequestProperty("Accept", "application/json");
-
-            int responseCode = connection.getResponseCode();
-            connection.disconnect();
-
-            // Accept both 200 and other success codes
-            boolean reachable = (responseCode >= 200 && responseCode < 400);
-            Log.d(TAG, "HTTP reachability: " + reachable + " (code: " + responseCode + ")");
-            return reachable;
-        } catch (Exception e) {
-            Log.e(TAG, "HTTP reachability check failed", e);
-            return false;
-        }
+        return ReachabilityMonitor.getInstance(context).isServerReachable();
     }
 
     public boolean pingServer() {
@@ -236,6 +224,51 @@ public class RetrofitClient {
     public void setServerUrl(String newUrl) {
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
         prefs.edit().putString(PREF_SERVER_URL, newUrl).apply();
-        initRetrofit(); // Reinitialize with new URL
+        // Services and warm connections stay; only the target of new requests changes
+        String serverUrl = getServerUrl();
+        baseUrlInterceptor.setCurrentUrls(serverUrl, toChecklistUrl(serverUrl));
+        ReachabilityMonitor.getInstance(context).invalidate();
+    }
+
+    /**
+     * Rewrites requests built against the startup base URLs to the currently configured ones,
+     * so the server URL can change without rebuilding Retrofit or the connection pool.
+     */
+    private static class BaseUrlInterceptor implements Interceptor {
+        private final String initialApiUrl;
+        private final String initialChecklistUrl;
+        private volatile String[] currentUrls;
+
+        BaseUrlInterceptor(String apiUrl, String checklistUrl) {
+            this.initialApiUrl = apiUrl;
+            this.initialChecklistUrl = checklistUrl;
+            this.currentUrls = new String[]{apiUrl, checklistUrl};
+        }
+
+        void setCurrentUrls(String apiUrl, String checklistUrl) {
+            currentUrls = new String[]{apiUrl, checklistUrl};
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            String[] urls = currentUrls;
+            String url = request.url().toString();
+
+            String rewritten = null;
+            if (url.startsWith(initialChecklistUrl) && !initialChecklistUrl.equals(urls[1])) {
+                rewritten = urls[1] + url.substring(initialChecklistUrl.length());
+            } else if (url.startsWith(initialApiUrl) && !initialApiUrl.equals(urls[0])) {
+                rewritten = urls[0] + url.substring(initialApiUrl.length());
+            }
+
+            if (rewritten != null) {
+                HttpUrl httpUrl = HttpUrl.parse(rewritten);
+                if (httpUrl != null) {
+                    request = request.newBuilder().url(httpUrl).build();
+                }
+            }
+            return chain.proceed(request);
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,10 +4,17 @@ import com.plcoding.audiorecorder.forms.ChecklistQuestionsResponse;
 import com.plcoding.audiorecorder.forms.ChecklistSubmissionRequest;
 import com.plcoding.audiorecorder.forms.SubmitChecklistResponse;
 
+import java.util.List;
+
+import okhttp3.MultipartBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Multipart;
 import retrofit2.http.POST;
+import retrofit2.http.Part;
 import retrofit2.http.Path;
 
 public interface TaskChecklistApiService {
@@ -19,12 +26,36 @@ public interface TaskChecklistApiService {
     @GET("checklists/{form_id}/questions/")
     Call<ChecklistQuestionsResponse> getChecklistQuestions(@Path("form_id") int formId);
 
+    // The Idempotency-Key header repeats the request's client_submission_id so a retry of a
+    // submission the server already stored is acknowledged instead of stored twice
     @POST("devices/{device_id}/submit-checklist/")
-    Call<SubmitChecklistResponse> submitChecklist(@Path("device_id") String deviceId, @Body ChecklistSubmissionRequest request);
+    Call<SubmitChecklistResponse> submitChecklist(@Header("Idempotency-Key") String idempotencyKey,
+                                                  @Path("device_id") String deviceId,
+                                                  @Body ChecklistSubmissionRequest request);
+
+    // Same submission with photos as binary parts streamed from disk; each photo answer names
+    // its part in photo_part instead of carrying base64
+    @Multipart
+    @POST("devices/{device_id}/submit-checklist-multipart/")
+    Call<SubmitChecklistResponse> submitChecklistMultipart(@Header("Idempotency-Key") String idempotencyKey,
+                                                           @Path("device_id") String deviceId,
+                                                           @Part("payload") ChecklistSubmissionRequest request,
+                                                           @Part List<MultipartBody.Part> photos);
 
     @GET("categories/")
     Call<CategoriesResponse> getCategories();
 
+    // Raw JSON for the offline checklist cache. The cached ETag (if any) is sent so an unchanged
+    // resource comes back as 304 without a body
+    @GET("devices/{device_id}/checklists/")
+    Call<ResponseBody> getAvailableChecklistsRaw(@Path("device_id") String deviceId, @Header("If-None-Match") String etag);
+
+    @GET("checklists/{form_id}/questions/")
+    Call<ResponseBody> getChecklistQuestionsRaw(@Path("form_id") int formId, @Header("If-None-Match") String etag);
+
+    @GET("categories/")
+    Call<ResponseBody> getCategoriesRaw(@Header("If-None-Match") String etag);
+
     @GET("submissions/{submission_id}/")
     Call<SubmissionDetailResponse> getSubmissionDetail(@Path("submission_id") int submissionId);
 }
\ No newline at end of file
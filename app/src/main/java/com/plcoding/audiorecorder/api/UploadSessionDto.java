@@ -0,0 +1,54 @@
+package com.plcoding.audiorecorder.api;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Server state of a resumable (chunked) upload.
+ */
+public class UploadSessionDto {
+    @SerializedName("upload_id")
+    private String uploadId;
+
+    // Number of bytes the server has acknowledged so far
+    private long offset;
+
+    @SerializedName("file_size")
+    private long fileSize;
+
+    private boolean complete;
+
+    public UploadSessionDto() {
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
@@ -0,0 +1,64 @@
+package com.plcoding.audiorecorder.api;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Opens a resumable upload for a voice recording. The file itself follows in chunks.
+ */
+public class UploadSessionRequest {
+    private String title;
+
+    private long duration;
+
+    @SerializedName("device_id")
+    private String deviceId;
+
+    private String type;
+
+    @SerializedName("file_name")
+    private String fileName;
+
+    @SerializedName("file_size")
+    private long fileSize;
+
+    @SerializedName("chunk_size")
+    private int chunkSize;
+
+    public UploadSessionRequest(String title, long duration, String deviceId, String fileName, long fileSize, int chunkSize) {
+        this.title = title;
+        this.duration = duration;
+        this.deviceId = deviceId;
+        this.type = "voice";
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+        this.chunkSize = chunkSize;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
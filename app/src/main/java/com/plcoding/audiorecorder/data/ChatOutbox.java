@@ -0,0 +1,56 @@
+package com.plcoding.audiorecorder.data;
+
+import android.util.Log;
+
+import com.plcoding.audiorecorder.LocalChatMessage;
+import com.plcoding.audiorecorder.api.ChatWebSocketClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Chat messages typed on this device, kept in chat_messages until the server acknowledges them.
+ *
+ * Every outgoing message gets a client-generated idempotency key before it is saved. Unsynced
+ * rows are replayed in order on each reconnect, and the server's echo of the key marks the row
+ * synced, so a message is never lost and never stored twice on the server.
+ */
+public class ChatOutbox implements ChatWebSocketClient.Outbox {
+    private static final String TAG = "ChatOutbox";
+
+    private final RecordingRepository repository;
+    private final long recordingId;
+
+    public ChatOutbox(RecordingRepository repository, long recordingId) {
+        this.repository = repository;
+        this.recordingId = recordingId;
+    }
+
+    public static String newClientMessageId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Persist a message before it is sent. Must be called off the main thread.
+     */
+    public long enqueue(String message, String clientMessageId, long timestamp) {
+        return repository.saveOutgoingChatMessage(recordingId, message, clientMessageId, timestamp);
+    }
+
+    @Override
+    public List<ChatWebSocketClient.OutgoingMessage> getPendingMessages() {
+        List<LocalChatMessage> unsynced = repository.getUnsyncedOutgoingMessages(recordingId);
+        List<ChatWebSocketClient.OutgoingMessage> pending = new ArrayList<>(unsynced.size());
+        for (LocalChatMessage message : unsynced) {
+            pending.add(new ChatWebSocketClient.OutgoingMessage(message.getClientMessageId(), message.getMessage()));
+        }
+        return pending;
+    }
+
+    @Override
+    public void onMessageAcknowledged(String clientMessageId, String serverMessageId) {
+        Log.d(TAG, "Server acknowledged " + clientMessageId + " as " + serverMessageId);
+        repository.markChatMessageSyncedByClientId(clientMessageId, serverMessageId);
+    }
+}
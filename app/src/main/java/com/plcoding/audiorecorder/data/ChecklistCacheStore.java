@@ -0,0 +1,124 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+/**
+ * SQLite side of the checklist cache: the raw JSON of each checklist API response together with
+ * the validators needed to revalidate it (server ETag, content hash, form version).
+ */
+public class ChecklistCacheStore {
+    private static final String TAG = "ChecklistCacheStore";
+
+    private final RecordingDatabase database;
+
+    public static class Entry {
+        private final String body;
+        private final String etag;
+        private final String contentHash;
+        private final String version;
+        private final long fetchedAt;
+
+        Entry(String body, String etag, String contentHash, String version, long fetchedAt) {
+            this.body = body;
+            this.etag = etag;
+            this.contentHash = contentHash;
+            this.version = version;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        Entry withFetchedAt(long time) {
+            return new Entry(body, etag, contentHash, version, time);
+        }
+    }
+
+    public ChecklistCacheStore(RecordingDatabase database) {
+        this.database = database;
+    }
+
+    public Entry get(String key) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_CHECKLIST_CACHE,
+                    new String[]{
+                            RecordingDatabase.COLUMN_CACHE_BODY,
+                            RecordingDatabase.COLUMN_CACHE_ETAG,
+                            RecordingDatabase.COLUMN_CACHE_HASH,
+                            RecordingDatabase.COLUMN_CACHE_VERSION,
+                            RecordingDatabase.COLUMN_CACHE_FETCHED_AT
+                    },
+                    RecordingDatabase.COLUMN_CACHE_KEY + " = ?",
+                    new String[]{key},
+                    null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                return new Entry(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getLong(4));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading cache entry " + key, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return null;
+    }
+
+    public Entry put(String key, String body, String etag, String contentHash, String version, long fetchedAt) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_CACHE_KEY, key);
+            values.put(RecordingDatabase.COLUMN_CACHE_BODY, body);
+            values.put(RecordingDatabase.COLUMN_CACHE_ETAG, etag);
+            values.put(RecordingDatabase.COLUMN_CACHE_HASH, contentHash);
+            values.put(RecordingDatabase.COLUMN_CACHE_VERSION, version);
+            values.put(RecordingDatabase.COLUMN_CACHE_FETCHED_AT, fetchedAt);
+            db.insertWithOnConflict(RecordingDatabase.TABLE_CHECKLIST_CACHE, null, values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.e(TAG, "Error writing cache entry " + key, e);
+        }
+        return new Entry(body, etag, contentHash, version, fetchedAt);
+    }
+
+    /**
+     * The server confirmed the cached copy is current; only the fetch time moves.
+     */
+    public void touch(String key, long fetchedAt) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_CACHE_FETCHED_AT, fetchedAt);
+            db.update(RecordingDatabase.TABLE_CHECKLIST_CACHE, values,
+                    RecordingDatabase.COLUMN_CACHE_KEY + " = ?", new String[]{key});
+        } catch (Exception e) {
+            Log.e(TAG, "Error touching cache entry " + key, e);
+        }
+    }
+}
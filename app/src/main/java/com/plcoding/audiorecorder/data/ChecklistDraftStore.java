@@ -0,0 +1,177 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.plcoding.audiorecorder.forms.ChecklistDraft;
+import com.plcoding.audiorecorder.forms.FormState;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Crash-safe drafts of checklists being filled in. Every edit is appended as one small row, so a
+ * keystroke costs a single insert instead of a snapshot of the whole form, and the draft survives
+ * the process being killed while the camera app is in front. Photos are stored as paths of the
+ * compressed files. All database work runs in order on one background thread.
+ */
+public class ChecklistDraftStore {
+    private static final String TAG = "ChecklistDraftStore";
+
+    private static volatile ChecklistDraftStore instance;
+
+    private final RecordingDatabase database;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface Callback {
+        void onLoaded(ChecklistDraft draft);
+    }
+
+    private ChecklistDraftStore(Context context) {
+        this.database = RecordingDatabase.getInstance(context.getApplicationContext());
+    }
+
+    public static ChecklistDraftStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ChecklistDraftStore.class) {
+                if (instance == null) {
+                    instance = new ChecklistDraftStore(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * A FormState listener that journals every edit of the given form.
+     */
+    public FormState.EditListener journal(int formId) {
+        return new FormState.EditListener() {
+            @Override
+            public void onAnswerWritten(int questionId, Object value) {
+                append(formId, questionId, ChecklistDraft.KIND_ANSWER, ChecklistDraft.encode(value));
+            }
+
+            @Override
+            public void onInputWritten(int questionId, String text) {
+                append(formId, questionId, ChecklistDraft.KIND_INPUT, text);
+            }
+
+            @Override
+            public void onPhotoWritten(int questionId, String path) {
+                append(formId, questionId, ChecklistDraft.KIND_PHOTO, path);
+            }
+        };
+    }
+
+    public void append(int formId, int questionId, String kind, String value) {
+        long now = System.currentTimeMillis();
+        executor.execute(() -> {
+            try {
+                insert(database.getWritableDatabase(), formId, questionId, kind, value, now);
+            } catch (Exception e) {
+                Log.e(TAG, "Error journaling " + kind + " of question " + questionId, e);
+            }
+        });
+    }
+
+    /**
+     * Replay the form's journal and deliver the draft on the main thread; an empty draft if there
+     * is none. A journal made mostly of overwritten edits is rewritten to its live entries.
+     */
+    public void load(int formId, Callback callback) {
+        executor.execute(() -> {
+            ChecklistDraft draft = replay(formId);
+            if (draft.needsCompaction()) {
+                rewrite(formId, draft);
+            }
+            mainHandler.post(() -> callback.onLoaded(draft));
+        });
+    }
+
+    /**
+     * Replace the form's journal with the given draft, e.g. to make a form whose submission was
+     * rejected durable again.
+     */
+    public void save(int formId, ChecklistDraft draft) {
+        executor.execute(() -> rewrite(formId, draft));
+    }
+
+    /**
+     * Drop the form's journal, e.g. once the server has its submission.
+     */
+    public void clear(int formId) {
+        executor.execute(() -> {
+            try {
+                int deleted = database.getWritableDatabase().delete(RecordingDatabase.TABLE_CHECKLIST_DRAFTS,
+                        RecordingDatabase.COLUMN_DRAFT_FORM_ID + " = ?", new String[]{String.valueOf(formId)});
+                Log.d(TAG, "Cleared draft of form " + formId + " (" + deleted + " entries)");
+            } catch (Exception e) {
+                Log.e(TAG, "Error clearing draft of form " + formId, e);
+            }
+        });
+    }
+
+    private ChecklistDraft replay(int formId) {
+        ChecklistDraft draft = new ChecklistDraft();
+        Cursor cursor = null;
+
+        try {
+            cursor = database.getReadableDatabase().query(RecordingDatabase.TABLE_CHECKLIST_DRAFTS,
+                    new String[]{
+                            RecordingDatabase.COLUMN_DRAFT_QUESTION_ID,
+                            RecordingDatabase.COLUMN_DRAFT_KIND,
+                            RecordingDatabase.COLUMN_DRAFT_VALUE
+                    },
+                    RecordingDatabase.COLUMN_DRAFT_FORM_ID + " = ?",
+                    new String[]{String.valueOf(formId)},
+                    null, null, RecordingDatabase.COLUMN_DRAFT_ID + " ASC");
+            while (cursor != null && cursor.moveToNext()) {
+                draft.apply(cursor.getInt(0), cursor.getString(1), cursor.isNull(2) ? null : cursor.getString(2));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading draft of form " + formId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return draft;
+    }
+
+    private void rewrite(int formId, ChecklistDraft draft) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            db.delete(RecordingDatabase.TABLE_CHECKLIST_DRAFTS,
+                    RecordingDatabase.COLUMN_DRAFT_FORM_ID + " = ?", new String[]{String.valueOf(formId)});
+            for (ChecklistDraft.Entry entry : draft.toEntries()) {
+                insert(db, formId, entry.getQuestionId(), entry.getKind(), entry.getValue(), now);
+            }
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Rewrote draft of form " + formId);
+        } catch (Exception e) {
+            Log.e(TAG, "Error rewriting draft of form " + formId, e);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void insert(SQLiteDatabase db, int formId, int questionId, String kind, String value, long createdAt) {
+        ContentValues values = new ContentValues();
+        values.put(RecordingDatabase.COLUMN_DRAFT_FORM_ID, formId);
+        values.put(RecordingDatabase.COLUMN_DRAFT_QUESTION_ID, questionId);
+        values.put(RecordingDatabase.COLUMN_DRAFT_KIND, kind);
+        values.put(RecordingDatabase.COLUMN_DRAFT_VALUE, value);
+        values.put(RecordingDatabase.COLUMN_DRAFT_CREATED_AT, createdAt);
+        db.insert(RecordingDatabase.TABLE_CHECKLIST_DRAFTS, null, values);
+    }
+}
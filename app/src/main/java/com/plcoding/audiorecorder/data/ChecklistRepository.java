@@ -0,0 +1,318 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.gson.Gson;
+import com.plcoding.audiorecorder.api.CategoriesResponse;
+import com.plcoding.audiorecorder.api.ChecklistResponse;
+import com.plcoding.audiorecorder.api.ReachabilityMonitor;
+import com.plcoding.audiorecorder.api.RetrofitClient;
+import com.plcoding.audiorecorder.api.TaskChecklistApiService;
+import com.plcoding.audiorecorder.forms.ChecklistForm;
+import com.plcoding.audiorecorder.forms.ChecklistQuestionsResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Offline-first access to the checklist catalog, question definitions and categories.
+ *
+ * Every load answers from the local copy first (memory, then SQLite), then revalidates against
+ * the server in the background unless the copy was fetched very recently. Revalidation sends the
+ * stored ETag, and bodies that come back identical (same content hash) are not delivered again,
+ * so screens only re-render when something actually changed. Question definitions of every
+ * assigned form are prefetched on unmetered networks so forms open offline.
+ */
+public class ChecklistRepository {
+    private static final String TAG = "ChecklistRepository";
+
+    // Within this window the local copy is served without asking the server
+    private static final long FRESH_MS = 60_000;
+    private static final int MEMORY_ENTRIES = 16;
+
+    private static volatile ChecklistRepository instance;
+
+    private final Context context;
+    private final ChecklistCacheStore store;
+    private final Gson gson = new Gson();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Raw entries of recently used forms, so reopening one skips the database read
+    private final LruCache<String, ChecklistCacheStore.Entry> memory = new LruCache<>(MEMORY_ENTRIES);
+    private final AtomicBoolean prefetching = new AtomicBoolean(false);
+
+    /**
+     * Called on the main thread. onData may fire twice: first with the cached copy, then with
+     * fresh data if the server had something newer.
+     */
+    public interface Listener<T> {
+        void onData(T data, boolean fromCache);
+        void onError(String message, boolean hasCachedData);
+    }
+
+    private interface Fetcher {
+        Call<ResponseBody> fetch(TaskChecklistApiService api, String etag);
+    }
+
+    private interface Inspector<T> {
+        // Error message if the body is not usable, null if it is
+        String validate(T data);
+        String versionOf(T data);
+    }
+
+    private static class Result<T> {
+        final T data;
+        final boolean changed;
+        final String error;
+
+        Result(T data, boolean changed, String error) {
+            this.data = data;
+            this.changed = changed;
+            this.error = error;
+        }
+    }
+
+    private static final Inspector<ChecklistResponse> CHECKLISTS = new Inspector<ChecklistResponse>() {
+        @Override
+        public String validate(ChecklistResponse data) {
+            return "success".equals(data.getStatus()) ? null : "API Error: " + data.getMessage();
+        }
+
+        @Override
+        public String versionOf(ChecklistResponse data) {
+            return null;
+        }
+    };
+
+    private static final Inspector<ChecklistQuestionsResponse> QUESTIONS = new Inspector<ChecklistQuestionsResponse>() {
+        @Override
+        public String validate(ChecklistQuestionsResponse data) {
+            return "success".equals(data.getStatus()) ? null : "API Error: " + data.getMessage();
+        }
+
+        @Override
+        public String versionOf(ChecklistQuestionsResponse data) {
+            return data.getForm() != null ? data.getForm().getVersion() : null;
+        }
+    };
+
+    private static final Inspector<CategoriesResponse> CATEGORIES = new Inspector<CategoriesResponse>() {
+        @Override
+        public String validate(CategoriesResponse data) {
+            return data.isSuccessful() ? null : "API Error: " + data.getMessage();
+        }
+
+        @Override
+        public String versionOf(CategoriesResponse data) {
+            return null;
+        }
+    };
+
+    private ChecklistRepository(Context context) {
+        this.context = context.getApplicationContext();
+        this.store = new ChecklistCacheStore(RecordingDatabase.getInstance(this.context));
+    }
+
+    public static ChecklistRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ChecklistRepository.class) {
+                if (instance == null) {
+                    instance = new ChecklistRepository(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void loadAvailableChecklists(String deviceId, Listener<ChecklistResponse> listener) {
+        load(checklistsKey(deviceId), ChecklistResponse.class, CHECKLISTS,
+                (api, etag) -> api.getAvailableChecklistsRaw(deviceId, etag), listener);
+    }
+
+    public void loadQuestions(int formId, Listener<ChecklistQuestionsResponse> listener) {
+        load(questionsKey(formId), ChecklistQuestionsResponse.class, QUESTIONS,
+                (api, etag) -> api.getChecklistQuestionsRaw(formId, etag), listener);
+    }
+
+    public void loadCategories(Listener<CategoriesResponse> listener) {
+        load("categories", CategoriesResponse.class, CATEGORIES,
+                (api, etag) -> api.getCategoriesRaw(etag), listener);
+    }
+
+    /**
+     * Download question definitions of the given forms whose cached version differs from the
+     * catalog's, but only on an unmetered network. Runs in the background; one pass at a time.
+     */
+    public void prefetchForms(List<ChecklistForm> forms) {
+        if (forms == null || forms.isEmpty()) {
+            return;
+        }
+        ReachabilityMonitor monitor = ReachabilityMonitor.getInstance(context);
+        if (!monitor.isUnmeteredNetwork() || !monitor.isServerReachable()) {
+            return;
+        }
+        if (!prefetching.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<ChecklistForm> snapshot = new ArrayList<>(forms);
+        executor.execute(() -> {
+            int fetched = 0;
+            try {
+                for (ChecklistForm form : snapshot) {
+                    if (!monitor.isUnmeteredNetwork()) {
+                        Log.d(TAG, "Left unmetered network, stopping prefetch");
+                        break;
+                    }
+                    String key = questionsKey(form.getId());
+                    ChecklistCacheStore.Entry cached = readEntry(key);
+                    if (cached != null && form.getVersion() != null && form.getVersion().equals(cached.getVersion())) {
+                        continue;
+                    }
+                    Result<ChecklistQuestionsResponse> result = revalidate(key, ChecklistQuestionsResponse.class,
+                            QUESTIONS, (api, etag) -> api.getChecklistQuestionsRaw(form.getId(), etag), cached);
+                    if (result.changed) {
+                        fetched++;
+                    }
+                }
+            } finally {
+                prefetching.set(false);
+            }
+            Log.d(TAG, "Prefetch finished, " + fetched + " of " + snapshot.size() + " forms updated");
+        });
+    }
+
+    private <T> void load(String key, Class<T> type, Inspector<T> inspector, Fetcher fetcher, Listener<T> listener) {
+        executor.execute(() -> {
+            ChecklistCacheStore.Entry cached = readEntry(key);
+            T cachedData = cached != null ? parse(cached.getBody(), type) : null;
+            if (cachedData != null) {
+                mainHandler.post(() -> listener.onData(cachedData, true));
+                if (System.currentTimeMillis() - cached.getFetchedAt() < FRESH_MS) {
+                    return;
+                }
+            }
+
+            Result<T> result = revalidate(key, type, inspector, fetcher, cached);
+            if (result.error != null) {
+                mainHandler.post(() -> listener.onError(result.error, cachedData != null));
+            } else if (result.changed || (cachedData == null && result.data != null)) {
+                mainHandler.post(() -> listener.onData(result.data, false));
+            }
+        });
+    }
+
+    // Blocking; runs on the executor
+    private <T> Result<T> revalidate(String key, Class<T> type, Inspector<T> inspector, Fetcher fetcher,
+                                     ChecklistCacheStore.Entry cached) {
+        TaskChecklistApiService api = RetrofitClient.getInstance(context).getTaskChecklistApiService();
+        String etag = cached != null ? cached.getEtag() : null;
+
+        try {
+            Response<ResponseBody> response = fetcher.fetch(api, etag).execute();
+            long now = System.currentTimeMillis();
+
+            if (response.code() == 304 && cached != null) {
+                touch(key, cached, now);
+                return new Result<>(null, false, null);
+            }
+
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                return new Result<>(null, false, "Failed to load: " + response.code());
+            }
+
+            String json;
+            try {
+                json = body.string();
+            } finally {
+                body.close();
+            }
+
+            T data = parse(json, type);
+            if (data == null) {
+                return new Result<>(null, false, "Invalid response from server");
+            }
+            String error = inspector.validate(data);
+            if (error != null) {
+                return new Result<>(null, false, error);
+            }
+
+            String hash = sha256(json);
+            if (cached != null && hash.equals(cached.getContentHash())) {
+                // Server without ETag support sent the same bytes again
+                touch(key, cached, now);
+                return new Result<>(data, false, null);
+            }
+
+            ChecklistCacheStore.Entry entry = store.put(key, json, response.headers().get("ETag"), hash,
+                    inspector.versionOf(data), now);
+            memory.put(key, entry);
+            Log.d(TAG, "Cached " + key + " (" + json.length() + " chars)");
+            return new Result<>(data, true, null);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error revalidating " + key, e);
+            return new Result<>(null, false, "Network error: " + e.getMessage());
+        }
+    }
+
+    private ChecklistCacheStore.Entry readEntry(String key) {
+        ChecklistCacheStore.Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = store.get(key);
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    private void touch(String key, ChecklistCacheStore.Entry cached, long now) {
+        store.touch(key, now);
+        memory.put(key, cached.withFetchedAt(now));
+    }
+
+    // Parsed fresh on every load so screens never share mutable DTOs
+    private <T> T parse(String json, Class<T> type) {
+        try {
+            return gson.fromJson(json, type);
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing cached " + type.getSimpleName(), e);
+            return null;
+        }
+    }
+
+    private static String checklistsKey(String deviceId) {
+        return "checklists:" + deviceId;
+    }
+
+    private static String questionsKey(int formId) {
+        return "questions:" + formId;
+    }
+
+    private static String sha256(String text) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
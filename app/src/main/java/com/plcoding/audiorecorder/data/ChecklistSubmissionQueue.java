@@ -0,0 +1,371 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable outbox of checklist submissions.
+ *
+ * Each row holds the submission JSON, the photo files it streams (multipart part name to path)
+ * and the idempotency key sent with every attempt, so the server can recognise a retry of a
+ * submission it already stored. Like {@link UploadQueue}, a row is claimed before it is sent,
+ * deleted once the server accepts it and rescheduled with exponential backoff when the network
+ * or server fails. A submission the server rejects is parked as failed until the form is
+ * submitted again.
+ */
+public class ChecklistSubmissionQueue {
+    private static final String TAG = "ChecklistSubmissionQueue";
+
+    public static final String STATE_PENDING = "pending";
+    public static final String STATE_IN_FLIGHT = "in_flight";
+    public static final String STATE_FAILED = "failed";
+
+    private static final long BASE_BACKOFF_MS = 15_000;
+    private static final long MAX_BACKOFF_MS = 30 * 60_000;
+
+    private static final Type PHOTOS_TYPE = new TypeToken<LinkedHashMap<String, String>>() {}.getType();
+
+    private final RecordingDatabase database;
+    private final Gson gson = new Gson();
+
+    public static class Entry {
+        private final long id;
+        private final String idempotencyKey;
+        private final int formId;
+        private final String deviceId;
+        private final String payload;
+        private final Map<String, String> photos;
+        private final int attempts;
+
+        Entry(long id, String idempotencyKey, int formId, String deviceId, String payload,
+              Map<String, String> photos, int attempts) {
+            this.id = id;
+            this.idempotencyKey = idempotencyKey;
+            this.formId = formId;
+            this.deviceId = deviceId;
+            this.payload = payload;
+            this.photos = photos;
+            this.attempts = attempts;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public int getFormId() {
+            return formId;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+
+        // Multipart part name -> compressed photo file
+        public Map<String, String> getPhotos() {
+            return photos;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+
+    public ChecklistSubmissionQueue(RecordingDatabase database) {
+        this.database = database;
+    }
+
+    public boolean enqueue(String idempotencyKey, int formId, String deviceId, String payload, Map<String, String> photos) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_KEY, idempotencyKey);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_FORM_ID, formId);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_DEVICE_ID, deviceId);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_PAYLOAD, payload);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_PHOTOS, gson.toJson(photos, PHOTOS_TYPE));
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_STATE, STATE_PENDING);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_CREATED_AT, System.currentTimeMillis());
+            db.insertOrThrow(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, null, values);
+            Log.d(TAG, "Queued submission " + idempotencyKey + " of form " + formId + " with " + photos.size() + " photos");
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error queueing submission of form " + formId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Atomically move the oldest ready row to in_flight and return it, or null if none is ready.
+     */
+    public Entry claimNext() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        Cursor cursor = null;
+        Entry entry = null;
+
+        db.beginTransaction();
+        try {
+            cursor = db.query(
+                    RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS,
+                    new String[]{
+                            RecordingDatabase.COLUMN_SUBMISSION_ID,
+                            RecordingDatabase.COLUMN_SUBMISSION_KEY,
+                            RecordingDatabase.COLUMN_SUBMISSION_FORM_ID,
+                            RecordingDatabase.COLUMN_SUBMISSION_DEVICE_ID,
+                            RecordingDatabase.COLUMN_SUBMISSION_PAYLOAD,
+                            RecordingDatabase.COLUMN_SUBMISSION_PHOTOS,
+                            RecordingDatabase.COLUMN_SUBMISSION_ATTEMPTS
+                    },
+                    RecordingDatabase.COLUMN_SUBMISSION_STATE + " = ? AND " +
+                            RecordingDatabase.COLUMN_SUBMISSION_NEXT_RETRY + " <= ?",
+                    new String[]{STATE_PENDING, String.valueOf(System.currentTimeMillis())},
+                    null, null,
+                    RecordingDatabase.COLUMN_SUBMISSION_CREATED_AT + " ASC",
+                    "1"
+            );
+
+            if (cursor.moveToFirst()) {
+                Map<String, String> photos = cursor.isNull(5) ? null : gson.fromJson(cursor.getString(5), PHOTOS_TYPE);
+                entry = new Entry(cursor.getLong(0), cursor.getString(1), cursor.getInt(2), cursor.getString(3),
+                        cursor.getString(4), photos != null ? photos : Collections.emptyMap(), cursor.getInt(6));
+
+                ContentValues values = new ContentValues();
+                values.put(RecordingDatabase.COLUMN_SUBMISSION_STATE, STATE_IN_FLIGHT);
+                db.update(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, values,
+                        RecordingDatabase.COLUMN_SUBMISSION_ID + " = ?", new String[]{String.valueOf(entry.getId())});
+            }
+
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Error claiming queued submission", e);
+            entry = null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            db.endTransaction();
+        }
+
+        return entry;
+    }
+
+    /**
+     * The server has the submission, drop it from the outbox.
+     */
+    public void markSent(long id) {
+        remove(id);
+    }
+
+    /**
+     * Record a failed attempt. A retryable failure is scheduled again after an exponentially
+     * growing delay, without a cap on attempts since a crew may be out of coverage for hours;
+     * anything else is parked as failed. Returns the time of the next attempt, or 0 if parked.
+     */
+    public long markFailed(Entry entry, String error, boolean retryable) {
+        int attempts = entry.getAttempts() + 1;
+        long nextRetryAt = retryable ? System.currentTimeMillis() + backoffFor(attempts) : 0;
+
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_STATE, retryable ? STATE_PENDING : STATE_FAILED);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_ATTEMPTS, attempts);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_NEXT_RETRY, nextRetryAt);
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_LAST_ERROR, error);
+            db.update(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, values,
+                    RecordingDatabase.COLUMN_SUBMISSION_ID + " = ?", new String[]{String.valueOf(entry.getId())});
+            Log.d(TAG, "Submission " + entry.getIdempotencyKey() + " failed (attempt " + attempts + ", "
+                    + (retryable ? "retrying" : "parked") + "): " + error);
+        } catch (Exception e) {
+            Log.e(TAG, "Error recording failed submission " + entry.getIdempotencyKey(), e);
+        }
+        return nextRetryAt;
+    }
+
+    /**
+     * Make every waiting row eligible right away; parked failures stay parked.
+     */
+    public int retryNow() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        int updated = 0;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_NEXT_RETRY, 0);
+            updated = db.update(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, values,
+                    RecordingDatabase.COLUMN_SUBMISSION_STATE + " = ? AND " +
+                            RecordingDatabase.COLUMN_SUBMISSION_NEXT_RETRY + " > 0",
+                    new String[]{STATE_PENDING});
+        } catch (Exception e) {
+            Log.e(TAG, "Error resetting submission retries", e);
+        }
+        return updated;
+    }
+
+    public void remove(long id) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            db.delete(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS,
+                    RecordingDatabase.COLUMN_SUBMISSION_ID + " = ?", new String[]{String.valueOf(id)});
+        } catch (Exception e) {
+            Log.e(TAG, "Error removing submission " + id, e);
+        }
+    }
+
+    public void removeByKey(String idempotencyKey) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            db.delete(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS,
+                    RecordingDatabase.COLUMN_SUBMISSION_KEY + " = ?", new String[]{idempotencyKey});
+        } catch (Exception e) {
+            Log.e(TAG, "Error removing submission " + idempotencyKey, e);
+        }
+    }
+
+    /**
+     * Remove the form's parked submissions and return the photo files each of them held.
+     */
+    public List<Map<String, String>> removeFailed(int formId) {
+        List<Map<String, String>> photos = new ArrayList<>();
+        SQLiteDatabase db = database.getWritableDatabase();
+        Cursor cursor = null;
+        String selection = RecordingDatabase.COLUMN_SUBMISSION_FORM_ID + " = ? AND " +
+                RecordingDatabase.COLUMN_SUBMISSION_STATE + " = ?";
+        String[] args = {String.valueOf(formId), STATE_FAILED};
+
+        db.beginTransaction();
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS,
+                    new String[]{RecordingDatabase.COLUMN_SUBMISSION_PHOTOS},
+                    selection, args, null, null, null);
+            while (cursor.moveToNext()) {
+                Map<String, String> rowPhotos = cursor.isNull(0) ? null : gson.fromJson(cursor.getString(0), PHOTOS_TYPE);
+                photos.add(rowPhotos != null ? rowPhotos : Collections.emptyMap());
+            }
+            db.delete(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, selection, args);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Error removing parked submissions of form " + formId, e);
+            photos.clear();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            db.endTransaction();
+        }
+        return photos;
+    }
+
+    /**
+     * Earliest time a waiting row becomes ready, or 0 if nothing is waiting.
+     */
+    public long getNextRetryAt() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS,
+                    new String[]{"MIN(" + RecordingDatabase.COLUMN_SUBMISSION_NEXT_RETRY + ")"},
+                    RecordingDatabase.COLUMN_SUBMISSION_STATE + " = ?", new String[]{STATE_PENDING},
+                    null, null, null);
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading next submission retry", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Number of submissions still waiting to reach the server, including parked failures.
+     */
+    public int getDepth() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        int count = 0;
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, new String[]{"COUNT(*)"},
+                    null, null, null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error counting submission queue", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of submissions the server rejected that are waiting for the form to be fixed.
+     */
+    public int getFailedCount() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        int count = 0;
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, new String[]{"COUNT(*)"},
+                    RecordingDatabase.COLUMN_SUBMISSION_STATE + " = ?", new String[]{STATE_FAILED},
+                    null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error counting parked submissions", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rows still marked in_flight at startup belong to a process that died mid-send. Sending them
+     * again is safe: the idempotency key lets the server drop the duplicate.
+     */
+    public void recoverInFlight() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_SUBMISSION_STATE, STATE_PENDING);
+            int recoveredRows = db.update(RecordingDatabase.TABLE_CHECKLIST_SUBMISSIONS, values,
+                    RecordingDatabase.COLUMN_SUBMISSION_STATE + " = ?", new String[]{STATE_IN_FLIGHT});
+            if (recoveredRows > 0) {
+                Log.d(TAG, "Recovered " + recoveredRows + " interrupted submissions");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error recovering interrupted submissions", e);
+        }
+    }
+
+    private static long backoffFor(int attempts) {
+        long delay = BASE_BACKOFF_MS << Math.min(attempts - 1, 16);
+        return Math.min(MAX_BACKOFF_MS, delay);
+    }
+}
@@ -0,0 +1,457 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.gson.Gson;
+import com.plcoding.audiorecorder.api.ReachabilityMonitor;
+import com.plcoding.audiorecorder.api.RetrofitClient;
+import com.plcoding.audiorecorder.api.TaskChecklistApiService;
+import com.plcoding.audiorecorder.forms.ChecklistAnswer;
+import com.plcoding.audiorecorder.forms.ChecklistSubmissionRequest;
+import com.plcoding.audiorecorder.forms.PhotoUploadHelper;
+import com.plcoding.audiorecorder.forms.SubmitChecklistResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MultipartBody;
+import retrofit2.Response;
+
+/**
+ * Process-wide worker that sends queued checklist submissions in the background.
+ *
+ * Submissions are written to {@link ChecklistSubmissionQueue} first, so the screen that filled
+ * them in can close right away and nothing is lost if the process dies. The worker sends one
+ * submission at a time on its own thread, waits out failures with exponential backoff, sleeps
+ * while there is no network and wakes up when {@link ReachabilityMonitor} reports the server
+ * online again. Progress, down to the bytes of each photo, is published per submission through
+ * {@link #getProgress(String)}.
+ *
+ * The form's draft is kept until the server has the submission. A submission the server rejects
+ * after its screen has closed is parked, counted in {@link #getFailedCount()}, and replaced the
+ * next time the form is submitted.
+ */
+public class ChecklistSubmitter {
+    private static final String TAG = "ChecklistSubmitter";
+
+    private static volatile ChecklistSubmitter instance;
+
+    private final Context context;
+    private final ChecklistSubmissionQueue queue;
+    private final ChecklistDraftStore draftStore;
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ChecklistSubmitter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // One stream per watched submission, so a busy queue can't coalesce away another one's result
+    private final Map<String, MutableLiveData<Progress>> progressByKey = new ConcurrentHashMap<>();
+    private final MutableLiveData<Integer> failedCount = new MutableLiveData<>();
+    // Only touched on the worker thread
+    private ScheduledFuture<?> wakeUp;
+
+    public enum Status {
+        QUEUED,
+        SENDING,
+        WAITING,
+        SENT,
+        FAILED
+    }
+
+    public static class Progress {
+        private final String idempotencyKey;
+        private final int formId;
+        private final Status status;
+        private final int photoIndex;
+        private final int photoCount;
+        private final long photoBytesSent;
+        private final long photoBytesTotal;
+        private final String message;
+        private final SubmitChecklistResponse response;
+
+        Progress(String idempotencyKey, int formId, Status status, int photoIndex, int photoCount,
+                 long photoBytesSent, long photoBytesTotal, String message, SubmitChecklistResponse response) {
+            this.idempotencyKey = idempotencyKey;
+            this.formId = formId;
+            this.status = status;
+            this.photoIndex = photoIndex;
+            this.photoCount = photoCount;
+            this.photoBytesSent = photoBytesSent;
+            this.photoBytesTotal = photoBytesTotal;
+            this.message = message;
+            this.response = response;
+        }
+
+        static Progress of(String idempotencyKey, int formId, Status status, String message) {
+            return new Progress(idempotencyKey, formId, status, 0, 0, 0, 0, message, null);
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public int getFormId() {
+            return formId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        // 1-based index of the photo being written while SENDING, 0 before the first photo
+        public int getPhotoIndex() {
+            return photoIndex;
+        }
+
+        public int getPhotoCount() {
+            return photoCount;
+        }
+
+        public long getPhotoBytesSent() {
+            return photoBytesSent;
+        }
+
+        public long getPhotoBytesTotal() {
+            return photoBytesTotal;
+        }
+
+        public int getPhotoPercent() {
+            return photoBytesTotal > 0 ? (int) (photoBytesSent * 100 / photoBytesTotal) : 0;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        // Server reply once SENT
+        public SubmitChecklistResponse getResponse() {
+            return response;
+        }
+    }
+
+    private ChecklistSubmitter(Context context) {
+        this.context = context.getApplicationContext();
+        RecordingDatabase database = RecordingDatabase.getInstance(this.context);
+        this.queue = new ChecklistSubmissionQueue(database);
+        this.draftStore = ChecklistDraftStore.getInstance(this.context);
+
+        worker.execute(() -> {
+            queue.recoverInFlight();
+            failedCount.postValue(queue.getFailedCount());
+        });
+
+        // observeForever must be registered on the main thread; the worker lives as long as the process
+        new Handler(Looper.getMainLooper()).post(() ->
+                ReachabilityMonitor.getInstance(this.context).getStateLiveData().observeForever(state -> {
+                    if (state == ReachabilityMonitor.State.ONLINE) {
+                        onServerOnline();
+                    }
+                }));
+    }
+
+    public static ChecklistSubmitter getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ChecklistSubmitter.class) {
+                if (instance == null) {
+                    instance = new ChecklistSubmitter(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Resume whatever an earlier process left in the queue.
+     */
+    public void start() {
+        kick();
+    }
+
+    /**
+     * Updates of one submission, identified by the key {@link #submit} returned. Only the latest
+     * update is kept while nobody is observing.
+     */
+    public LiveData<Progress> getProgress(String idempotencyKey) {
+        return progressByKey.computeIfAbsent(idempotencyKey, key -> new MutableLiveData<>());
+    }
+
+    private void publish(Progress update) {
+        MutableLiveData<Progress> liveData = progressByKey.get(update.getIdempotencyKey());
+        if (liveData != null) {
+            liveData.postValue(update);
+            if (update.getStatus() == Status.SENT || update.getStatus() == Status.FAILED) {
+                // Observers keep their reference; nothing more will be posted for this key
+                progressByKey.remove(update.getIdempotencyKey());
+            }
+        }
+    }
+
+    /**
+     * Persist a submission and send it in the background. The photo files now belong to the
+     * queue and are deleted once the server has them, together with the form's draft. A parked
+     * submission of the same form is replaced. Returns the idempotency key, which also
+     * identifies the submission in {@link #getProgress(String)}.
+     */
+    public String submit(int formId, String deviceId, ChecklistSubmissionRequest request, Map<String, String> photos) {
+        String idempotencyKey = UUID.randomUUID().toString();
+        request.setClient_submission_id(idempotencyKey);
+        String payload = gson.toJson(request);
+        getProgress(idempotencyKey);
+
+        worker.execute(() -> {
+            if (queue.enqueue(idempotencyKey, formId, deviceId, payload, photos)) {
+                List<Map<String, String>> replaced = queue.removeFailed(formId);
+                for (Map<String, String> parkedPhotos : replaced) {
+                    deletePhotos(parkedPhotos.values(), photos.values());
+                }
+                if (!replaced.isEmpty()) {
+                    failedCount.postValue(queue.getFailedCount());
+                }
+                publish(Progress.of(idempotencyKey, formId, Status.QUEUED, null));
+                drain();
+            } else {
+                publish(Progress.of(idempotencyKey, formId, Status.FAILED, "Could not save submission"));
+            }
+        });
+        return idempotencyKey;
+    }
+
+    /**
+     * Drop a parked submission whose form is open again. Its photo files are left alone since
+     * the form still uses them.
+     */
+    public void discard(String idempotencyKey) {
+        worker.execute(() -> {
+            queue.removeByKey(idempotencyKey);
+            failedCount.postValue(queue.getFailedCount());
+        });
+    }
+
+    /**
+     * Submissions not yet on the server, including the ones it rejected.
+     */
+    public int getPendingCount() {
+        return queue.getDepth();
+    }
+
+    /**
+     * Number of submissions the server rejected, waiting for their form to be fixed and
+     * submitted again.
+     */
+    public LiveData<Integer> getFailedCount() {
+        return failedCount;
+    }
+
+    private void kick() {
+        worker.execute(this::drain);
+    }
+
+    // Backoff covers a flaky server; once connectivity is back there is no reason to keep waiting
+    private void onServerOnline() {
+        worker.execute(() -> {
+            int ready = queue.retryNow();
+            if (ready > 0) {
+                Log.d(TAG, "Server online, retrying " + ready + " waiting submissions");
+            }
+            drain();
+        });
+    }
+
+    // Worker thread: send ready submissions until none is left or the network is gone
+    private void drain() {
+        while (true) {
+            ReachabilityMonitor monitor = ReachabilityMonitor.getInstance(context);
+            if (!monitor.isNetworkAvailable()) {
+                Log.d(TAG, "No network, waiting for it to come back");
+                return;
+            }
+
+            ChecklistSubmissionQueue.Entry entry = queue.claimNext();
+            if (entry == null) {
+                scheduleWakeUp(queue.getNextRetryAt());
+                return;
+            }
+            send(entry);
+        }
+    }
+
+    private void scheduleWakeUp(long at) {
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        if (at > 0) {
+            long delay = Math.max(0, at - System.currentTimeMillis());
+            wakeUp = worker.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void send(ChecklistSubmissionQueue.Entry entry) {
+        String key = entry.getIdempotencyKey();
+        int formId = entry.getFormId();
+
+        ChecklistSubmissionRequest request;
+        try {
+            request = gson.fromJson(entry.getPayload(), ChecklistSubmissionRequest.class);
+        } catch (Exception e) {
+            fail(entry, "Unreadable submission: " + e.getMessage(), false);
+            return;
+        }
+
+        List<Map.Entry<String, String>> photos = new ArrayList<>(entry.getPhotos().entrySet());
+        for (Map.Entry<String, String> photo : photos) {
+            if (!isReadable(photo.getValue())) {
+                fail(entry, "Photo file missing: " + photo.getKey(), false);
+                return;
+            }
+        }
+
+        publish(new Progress(key, formId, Status.SENDING, 0, photos.size(), 0, 0, null, null));
+
+        List<MultipartBody.Part> parts = new ArrayList<>(photos.size());
+        for (int i = 0; i < photos.size(); i++) {
+            int photoIndex = i + 1;
+            File file = new File(photos.get(i).getValue());
+            parts.add(PhotoUploadHelper.createPhotoPart(photos.get(i).getKey(), file,
+                    new PhotoProgress(key, formId, photoIndex, photos.size())));
+        }
+
+        try {
+            TaskChecklistApiService api = RetrofitClient.getInstance(context).getTaskChecklistApiService();
+            Response<SubmitChecklistResponse> response =
+                    api.submitChecklistMultipart(key, entry.getDeviceId(), request, parts).execute();
+
+            if (response.code() == 404 || response.code() == 405) {
+                // Server predates the multipart endpoint
+                Log.w(TAG, "Multipart submission not supported (" + response.code() + "), sending inline photos");
+                String unreadable = inlinePhotos(request, entry.getPhotos());
+                if (unreadable != null) {
+                    // A file that is gone won't come back; one that failed to read may next time
+                    fail(entry, "Photo could not be read: " + unreadable,
+                            isReadable(entry.getPhotos().get(unreadable)));
+                    return;
+                }
+                response = api.submitChecklist(key, entry.getDeviceId(), request).execute();
+            }
+
+            handleResponse(entry, response);
+        } catch (IOException e) {
+            // Dropped connection or timeout: the server may or may not have it, the key covers both
+            fail(entry, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(), true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending submission " + key, e);
+            fail(entry, e.getMessage(), true);
+        }
+    }
+
+    private void handleResponse(ChecklistSubmissionQueue.Entry entry, Response<SubmitChecklistResponse> response) {
+        int code = response.code();
+        SubmitChecklistResponse body = response.body();
+
+        if (response.isSuccessful() && body != null && "success".equals(body.getStatus())) {
+            sent(entry, body);
+        } else if (code == 409) {
+            // The idempotency key matched a submission the server already stored
+            Log.d(TAG, "Submission " + entry.getIdempotencyKey() + " was already received");
+            sent(entry, body);
+        } else if (response.isSuccessful()) {
+            fail(entry, body != null ? body.getMessage() : "Empty response", false);
+        } else {
+            boolean retryable = code >= 500 || code == 408 || code == 429;
+            fail(entry, "Submission failed: " + code, retryable);
+        }
+    }
+
+    private void sent(ChecklistSubmissionQueue.Entry entry, SubmitChecklistResponse body) {
+        queue.markSent(entry.getId());
+        deletePhotos(entry.getPhotos().values(), null);
+        draftStore.clear(entry.getFormId());
+        Log.d(TAG, "Submission " + entry.getIdempotencyKey() + " of form " + entry.getFormId() + " delivered");
+        publish(new Progress(entry.getIdempotencyKey(), entry.getFormId(), Status.SENT,
+                0, entry.getPhotos().size(), 0, 0, body != null ? body.getMessage() : null, body));
+    }
+
+    private void fail(ChecklistSubmissionQueue.Entry entry, String error, boolean retryable) {
+        queue.markFailed(entry, error, retryable);
+        if (!retryable) {
+            failedCount.postValue(queue.getFailedCount());
+        }
+        publish(Progress.of(entry.getIdempotencyKey(), entry.getFormId(),
+                retryable ? Status.WAITING : Status.FAILED, error));
+    }
+
+    // Legacy JSON endpoint: photos read back from disk one at a time and inlined as data URLs.
+    // Returns the part name of a photo that could not be read, or null once all are inlined
+    private static String inlinePhotos(ChecklistSubmissionRequest request, Map<String, String> photos) {
+        for (ChecklistAnswer answer : request.getResponses()) {
+            String path = answer.getPhoto_part() != null ? photos.get(answer.getPhoto_part()) : null;
+            if (path == null) {
+                continue;
+            }
+            String dataUrl = PhotoUploadHelper.encodeFileToDataUrl(new File(path));
+            if (dataUrl == null) {
+                return answer.getPhoto_part();
+            }
+            answer.setPhoto_part(null);
+            answer.setPhoto_base64(dataUrl);
+            answer.setValue(dataUrl);
+        }
+        return null;
+    }
+
+    private static boolean isReadable(String path) {
+        return path != null && new File(path).isFile();
+    }
+
+    // Files still used by another submission are kept
+    private static void deletePhotos(Collection<String> paths, Collection<String> keep) {
+        for (String path : paths) {
+            if (keep == null || !keep.contains(path)) {
+                new File(path).delete();
+            }
+        }
+    }
+
+    // Posts at most one update per percent so a large photo doesn't flood the main thread
+    private class PhotoProgress implements PhotoUploadHelper.ProgressListener {
+        private final String key;
+        private final int formId;
+        private final int photoIndex;
+        private final int photoCount;
+        private int lastPercent = -1;
+
+        PhotoProgress(String key, int formId, int photoIndex, int photoCount) {
+            this.key = key;
+            this.formId = formId;
+            this.photoIndex = photoIndex;
+            this.photoCount = photoCount;
+        }
+
+        @Override
+        public void onProgress(long bytesWritten, long totalBytes) {
+            int percent = totalBytes > 0 ? (int) (bytesWritten * 100 / totalBytes) : 100;
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                publish(new Progress(key, formId, Status.SENDING, photoIndex, photoCount,
+                        bytesWritten, totalBytes, null, null));
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.plcoding.audiorecorder.api.ChunkedUploader;
+
+/**
+ * SQLite-backed progress for {@link ChunkedUploader}, one row per recording being uploaded.
+ */
+public class ChunkedUploadStore implements ChunkedUploader.ProgressStore {
+    private static final String TAG = "ChunkedUploadStore";
+
+    private final RecordingDatabase database;
+
+    public ChunkedUploadStore(RecordingDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public ChunkedUploader.UploadProgress load(long recordingId) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        ChunkedUploader.UploadProgress progress = null;
+
+        try {
+            cursor = db.query(
+                    RecordingDatabase.TABLE_CHUNKED_UPLOADS,
+                    new String[]{
+                            RecordingDatabase.COLUMN_CHUNK_UPLOAD_ID,
+                            RecordingDatabase.COLUMN_CHUNK_FILE_SIZE,
+                            RecordingDatabase.COLUMN_CHUNK_SIZE,
+                            RecordingDatabase.COLUMN_CHUNK_ACKED_OFFSET
+                    },
+                    RecordingDatabase.COLUMN_CHUNK_RECORDING_ID + " = ?",
+                    new String[]{String.valueOf(recordingId)},
+                    null, null, null
+            );
+
+            if (cursor != null && cursor.moveToFirst()) {
+                progress = new ChunkedUploader.UploadProgress(
+                        recordingId,
+                        cursor.getString(0),
+                        cursor.getLong(1),
+                        cursor.getInt(2),
+                        cursor.getLong(3)
+                );
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading chunked upload progress for " + recordingId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return progress;
+    }
+
+    @Override
+    public void save(ChunkedUploader.UploadProgress progress) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_CHUNK_RECORDING_ID, progress.getRecordingId());
+            values.put(RecordingDatabase.COLUMN_CHUNK_UPLOAD_ID, progress.getUploadId());
+            values.put(RecordingDatabase.COLUMN_CHUNK_FILE_SIZE, progress.getFileSize());
+            values.put(RecordingDatabase.COLUMN_CHUNK_SIZE, progress.getChunkSize());
+            values.put(RecordingDatabase.COLUMN_CHUNK_ACKED_OFFSET, progress.getAckedOffset());
+            values.put(RecordingDatabase.COLUMN_CHUNK_UPDATED_AT, System.currentTimeMillis());
+
+            db.insertWithOnConflict(RecordingDatabase.TABLE_CHUNKED_UPLOADS, null, values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving chunked upload progress for " + progress.getRecordingId(), e);
+        }
+    }
+
+    @Override
+    public void clear(long recordingId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            db.delete(RecordingDatabase.TABLE_CHUNKED_UPLOADS,
+                    RecordingDatabase.COLUMN_CHUNK_RECORDING_ID + " = ?",
+                    new String[]{String.valueOf(recordingId)});
+        } catch (Exception e) {
+            Log.e(TAG, "Error clearing chunked upload progress for " + recordingId, e);
+        }
+    }
+}
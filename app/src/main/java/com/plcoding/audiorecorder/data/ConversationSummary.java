@@ -0,0 +1,64 @@
+package com.plcoding.audiorecorder.data;
+
+/**
+ * One row of the conversation list: a recording that has chat, with its latest message and
+ * counts read straight from the chat_summary table.
+ */
+public class ConversationSummary {
+    private final long recordingId;
+    private final String title;
+    private final String type;
+    private final String deviceId;
+    private final String lastMessage;
+    private final long lastTimestamp;
+    private final int unreadCount;
+    private final int unsyncedCount;
+
+    public ConversationSummary(long recordingId, String title, String type, String deviceId,
+                               String lastMessage, long lastTimestamp, int unreadCount, int unsyncedCount) {
+        this.recordingId = recordingId;
+        this.title = title;
+        this.type = type;
+        this.deviceId = deviceId;
+        this.lastMessage = lastMessage;
+        this.lastTimestamp = lastTimestamp;
+        this.unreadCount = unreadCount;
+        this.unsyncedCount = unsyncedCount;
+    }
+
+    public long getRecordingId() {
+        return recordingId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public int getUnsyncedCount() {
+        return unsyncedCount;
+    }
+
+    public boolean isVoiceRecording() {
+        return Recording.TYPE_VOICE.equals(type);
+    }
+}
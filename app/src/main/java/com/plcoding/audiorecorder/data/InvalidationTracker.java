@@ -0,0 +1,217 @@
+package com.plcoding.audiorecorder.data;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Change notifications for the local database.
+ *
+ * Writers publish which rows of a table they inserted, updated or deleted, once their write (or
+ * transaction) has committed. Observers get the changes as deltas on a background thread, merged
+ * per table, so a burst of writes such as a sync page arrives as one delta rather than hundreds.
+ */
+public class InvalidationTracker {
+    private static final String TAG = "InvalidationTracker";
+
+    private static volatile InvalidationTracker instance;
+
+    private final Executor dispatcher;
+    private final Map<String, List<Observer>> observers = new ConcurrentHashMap<>();
+    // Guarded by this
+    private final Map<String, Delta> pending = new HashMap<>();
+    private boolean dispatchScheduled = false;
+
+    public interface Observer {
+        void onChanged(Delta delta);
+    }
+
+    /**
+     * Net row changes of one table. An insert followed by a delete of the same row cancels out,
+     * and a row inserted and then updated is still reported as inserted. When the writer can't
+     * tell which rows it touched the delta is table-wide and observers should re-read the table.
+     */
+    public static class Delta {
+        private final String table;
+        private final Set<Long> inserted = new LinkedHashSet<>();
+        private final Set<Long> updated = new LinkedHashSet<>();
+        private final Set<Long> deleted = new LinkedHashSet<>();
+        private boolean tableChanged = false;
+
+        public Delta(String table) {
+            this.table = table;
+        }
+
+        public Delta inserted(long rowId) {
+            if (deleted.remove(rowId)) {
+                updated.add(rowId);
+            } else {
+                inserted.add(rowId);
+            }
+            return this;
+        }
+
+        public Delta updated(long rowId) {
+            if (!inserted.contains(rowId)) {
+                updated.add(rowId);
+            }
+            return this;
+        }
+
+        public Delta deleted(long rowId) {
+            updated.remove(rowId);
+            if (!inserted.remove(rowId)) {
+                deleted.add(rowId);
+            }
+            return this;
+        }
+
+        public Delta tableChanged() {
+            tableChanged = true;
+            inserted.clear();
+            updated.clear();
+            deleted.clear();
+            return this;
+        }
+
+        void merge(Delta later) {
+            if (tableChanged) {
+                return;
+            }
+            if (later.tableChanged) {
+                tableChanged();
+                return;
+            }
+            for (long rowId : later.deleted) {
+                deleted(rowId);
+            }
+            for (long rowId : later.inserted) {
+                inserted(rowId);
+            }
+            for (long rowId : later.updated) {
+                updated(rowId);
+            }
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public Set<Long> getInserted() {
+            return Collections.unmodifiableSet(inserted);
+        }
+
+        public Set<Long> getUpdated() {
+            return Collections.unmodifiableSet(updated);
+        }
+
+        public Set<Long> getDeleted() {
+            return Collections.unmodifiableSet(deleted);
+        }
+
+        /**
+         * Rows that were inserted or updated and have to be read again.
+         */
+        public Set<Long> getChanged() {
+            Set<Long> changed = new LinkedHashSet<>(inserted);
+            changed.addAll(updated);
+            return changed;
+        }
+
+        public boolean isTableChanged() {
+            return tableChanged;
+        }
+
+        public boolean isEmpty() {
+            return !tableChanged && inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return tableChanged ? table + ": table changed"
+                    : table + ": +" + inserted.size() + " ~" + updated.size() + " -" + deleted.size();
+        }
+    }
+
+    InvalidationTracker(Executor dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    public static InvalidationTracker getInstance() {
+        if (instance == null) {
+            synchronized (InvalidationTracker.class) {
+                if (instance == null) {
+                    instance = new InvalidationTracker(Executors.newSingleThreadExecutor());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addObserver(String table, Observer observer) {
+        observers.computeIfAbsent(table, key -> new CopyOnWriteArrayList<>()).add(observer);
+    }
+
+    public void removeObserver(String table, Observer observer) {
+        List<Observer> tableObservers = observers.get(table);
+        if (tableObservers != null) {
+            tableObservers.remove(observer);
+        }
+    }
+
+    /**
+     * Report committed changes. Call after the transaction ends, never inside it, so observers
+     * can't read rows that are later rolled back.
+     */
+    public void publish(Delta delta) {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            Delta merged = pending.get(delta.getTable());
+            if (merged == null) {
+                merged = new Delta(delta.getTable());
+                pending.put(delta.getTable(), merged);
+            }
+            merged.merge(delta);
+            if (dispatchScheduled) {
+                return;
+            }
+            dispatchScheduled = true;
+        }
+        dispatcher.execute(this::dispatch);
+    }
+
+    private void dispatch() {
+        List<Delta> deltas;
+        synchronized (this) {
+            deltas = new ArrayList<>(pending.values());
+            pending.clear();
+            dispatchScheduled = false;
+        }
+
+        for (Delta delta : deltas) {
+            List<Observer> tableObservers = observers.get(delta.getTable());
+            if (tableObservers == null) {
+                continue;
+            }
+            for (Observer observer : tableObservers) {
+                try {
+                    observer.onChanged(delta);
+                } catch (Exception e) {
+                    Log.e(TAG, "Observer failed on " + delta, e);
+                }
+            }
+        }
+    }
+}
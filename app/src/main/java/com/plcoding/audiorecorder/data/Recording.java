@@ -17,6 +17,13 @@ public class Recording {
     private String type;
     private String textContent;
     private String deviceId;
+    // Id of the matching server row, -1 until the recording has been uploaded or downloaded
+    private long serverId = -1;
+
+    public Recording(long id, String title, String filePath, long duration, long createdAt, String type, String textContent, String deviceId, long serverId) {
+        this(id, title, filePath, duration, createdAt, type, textContent, deviceId);
+        this.serverId = serverId;
+    }
 
     public Recording(long id, String title, String filePath, long duration, long createdAt, String type, String textContent, String deviceId) {
         this.id = id;
@@ -63,6 +70,14 @@ public class Recording {
         return deviceId;
     }
 
+    public long getServerId() {
+        return serverId;
+    }
+
+    public boolean isOnServer() {
+        return serverId != -1;
+    }
+
     public File getFile() {
         if (filePath != null && !filePath.isEmpty()) {
             return new File(filePath);
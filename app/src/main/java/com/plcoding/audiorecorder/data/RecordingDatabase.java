@@ -10,11 +10,21 @@ import android.util.Log;
 public class RecordingDatabase extends SQLiteOpenHelper {
     private static final String TAG = "RecordingDatabase";
     private static final String DATABASE_NAME = "recordings.db";
-    private static final int DATABASE_VERSION = 7; // Increased version
+    private static final int DATABASE_VERSION = 19; // Increased version
 
     // Table names
     public static final String TABLE_RECORDINGS = "recordings";
     public static final String TABLE_CHAT_MESSAGES = "chat_messages";
+    public static final String TABLE_UPLOAD_QUEUE = "upload_queue";
+    public static final String TABLE_CHUNKED_UPLOADS = "chunked_uploads";
+    public static final String TABLE_SYNC_STATE = "sync_state";
+    public static final String TABLE_RECORDING_TOMBSTONES = "recording_tombstones";
+    public static final String TABLE_CHECKLIST_CACHE = "checklist_cache";
+    public static final String TABLE_CHECKLIST_DRAFTS = "checklist_drafts";
+    public static final String TABLE_CHECKLIST_SUBMISSIONS = "checklist_submissions";
+    public static final String TABLE_CHAT_SUMMARY = "chat_summary";
+    public static final String TABLE_CHAT_MESSAGES_FTS = "chat_messages_fts";
+    public static final String TABLE_RECORDINGS_FTS = "recordings_fts";
 
     // Recordings table columns
     public static final String COLUMN_ID = "id";
@@ -25,6 +35,7 @@ public class RecordingDatabase extends SQLiteOpenHelper {
     public static final String COLUMN_TYPE = "type";
     public static final String COLUMN_TEXT_CONTENT = "text_content";
     public static final String COLUMN_DEVICE_ID = "device_id";
+    public static final String COLUMN_SERVER_ID = "server_id";
 
     // Chat messages table columns
     public static final String COLUMN_MSG_ID = "id";
@@ -35,11 +46,109 @@ public class RecordingDatabase extends SQLiteOpenHelper {
     public static final String COLUMN_MSG_IS_SYNCED = "is_synced";
     public static final String COLUMN_MSG_SERVER_ID = "server_message_id";
     public static final String COLUMN_MSG_SENDER_TYPE = "sender_type";
-
-    public RecordingDatabase(Context context) {
+    public static final String COLUMN_MSG_CLIENT_ID = "client_message_id";
+
+    // Upload queue (outbox) columns
+    public static final String COLUMN_UPLOAD_ID = "id";
+    public static final String COLUMN_UPLOAD_RECORDING_ID = "recording_id";
+    public static final String COLUMN_UPLOAD_STATE = "state";
+    public static final String COLUMN_UPLOAD_PRIORITY = "priority";
+    public static final String COLUMN_UPLOAD_ATTEMPTS = "attempt_count";
+    public static final String COLUMN_UPLOAD_NEXT_RETRY = "next_retry_at";
+    public static final String COLUMN_UPLOAD_LAST_ERROR = "last_error";
+    public static final String COLUMN_UPLOAD_CREATED_AT = "created_at";
+
+    // Chunked upload progress columns
+    public static final String COLUMN_CHUNK_RECORDING_ID = "recording_id";
+    public static final String COLUMN_CHUNK_UPLOAD_ID = "upload_id";
+    public static final String COLUMN_CHUNK_FILE_SIZE = "file_size";
+    public static final String COLUMN_CHUNK_SIZE = "chunk_size";
+    public static final String COLUMN_CHUNK_ACKED_OFFSET = "acked_offset";
+    public static final String COLUMN_CHUNK_UPDATED_AT = "updated_at";
+
+    // Sync state columns (key/value, e.g. the recordings delta cursor)
+    public static final String COLUMN_SYNC_KEY = "key";
+    public static final String COLUMN_SYNC_VALUE = "value";
+
+    // Tombstone columns: server ids deleted on either side
+    public static final String COLUMN_TOMBSTONE_SERVER_ID = "server_id";
+    public static final String COLUMN_TOMBSTONE_DELETED_AT = "deleted_at";
+
+    // Checklist cache columns: raw JSON of checklist API responses, keyed by endpoint
+    public static final String COLUMN_CACHE_KEY = "cache_key";
+    public static final String COLUMN_CACHE_BODY = "body";
+    public static final String COLUMN_CACHE_ETAG = "etag";
+    public static final String COLUMN_CACHE_HASH = "content_hash";
+    public static final String COLUMN_CACHE_VERSION = "version";
+    public static final String COLUMN_CACHE_FETCHED_AT = "fetched_at";
+
+    // Checklist draft journal columns: one row per answer change of an unsubmitted form
+    public static final String COLUMN_DRAFT_ID = "id";
+    public static final String COLUMN_DRAFT_FORM_ID = "form_id";
+    public static final String COLUMN_DRAFT_QUESTION_ID = "question_id";
+    public static final String COLUMN_DRAFT_KIND = "kind";
+    public static final String COLUMN_DRAFT_VALUE = "value";
+    public static final String COLUMN_DRAFT_CREATED_AT = "created_at";
+
+    // Checklist submission outbox columns: the request JSON plus the photo files it streams
+    public static final String COLUMN_SUBMISSION_ID = "id";
+    public static final String COLUMN_SUBMISSION_KEY = "idempotency_key";
+    public static final String COLUMN_SUBMISSION_FORM_ID = "form_id";
+    public static final String COLUMN_SUBMISSION_DEVICE_ID = "device_id";
+    public static final String COLUMN_SUBMISSION_PAYLOAD = "payload";
+    public static final String COLUMN_SUBMISSION_PHOTOS = "photos";
+    public static final String COLUMN_SUBMISSION_STATE = "state";
+    public static final String COLUMN_SUBMISSION_ATTEMPTS = "attempt_count";
+    public static final String COLUMN_SUBMISSION_NEXT_RETRY = "next_retry_at";
+    public static final String COLUMN_SUBMISSION_LAST_ERROR = "last_error";
+    public static final String COLUMN_SUBMISSION_CREATED_AT = "created_at";
+
+    // Chat summary columns: one row per recording with chat, kept current by triggers
+    public static final String COLUMN_SUMMARY_RECORDING_ID = "recording_id";
+    public static final String COLUMN_SUMMARY_LAST_MESSAGE = "last_message";
+    public static final String COLUMN_SUMMARY_LAST_MESSAGE_ID = "last_message_id";
+    public static final String COLUMN_SUMMARY_LAST_TIMESTAMP = "last_timestamp";
+    public static final String COLUMN_SUMMARY_MESSAGE_COUNT = "message_count";
+    public static final String COLUMN_SUMMARY_UNREAD_COUNT = "unread_count";
+    public static final String COLUMN_SUMMARY_UNSYNCED_COUNT = "unsynced_count";
+    public static final String COLUMN_SUMMARY_LAST_READ_AT = "last_read_at";
+
+    // Full-text index tokenizer: unicode61 folds case and accents beyond ASCII
+    private static final String FTS_TOKENIZER = "unicode61";
+    private static final String FTS_FALLBACK_TOKENIZER = "simple";
+
+    // Characters of the last message kept for the conversation list
+    private static final int SUMMARY_PREVIEW_LENGTH = 140;
+
+    private static volatile RecordingDatabase instance;
+
+    // Only through getInstance: a second helper would open a second connection pool on the file
+    private RecordingDatabase(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
+    /**
+     * Process-wide helper. Its database handle stays open for the life of the process and is
+     * shared by every repository, so callers must not close it.
+     */
+    public static RecordingDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (RecordingDatabase.class) {
+                if (instance == null) {
+                    instance = new RecordingDatabase(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // Write-ahead logging lets readers run alongside a writer instead of waiting on it
+        db.enableWriteAheadLogging();
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         // Create recordings table
@@ -51,10 +160,13 @@ public class RecordingDatabase extends SQLiteOpenHelper {
                 COLUMN_DATE + " INTEGER NOT NULL, " +
                 COLUMN_TYPE + " TEXT NOT NULL DEFAULT 'voice', " +
                 COLUMN_TEXT_CONTENT + " TEXT, " +
-                COLUMN_DEVICE_ID + " TEXT)";
+                COLUMN_DEVICE_ID + " TEXT, " +
+                COLUMN_SERVER_ID + " INTEGER)";
 
         Log.d(TAG, "Creating recordings table: " + createRecordingsTable);
         db.execSQL(createRecordingsTable);
+        db.execSQL("CREATE UNIQUE INDEX idx_recordings_server_id ON " + TABLE_RECORDINGS + "(" + COLUMN_SERVER_ID + ")");
+        createRecordingsDateIndex(db);
 
         // Create chat messages table - FIXED VERSION
         String createChatTable = "CREATE TABLE " + TABLE_CHAT_MESSAGES + " (" +
@@ -66,15 +178,27 @@ public class RecordingDatabase extends SQLiteOpenHelper {
                 COLUMN_MSG_IS_SYNCED + " INTEGER NOT NULL DEFAULT 0, " +
                 COLUMN_MSG_SERVER_ID + " TEXT, " +
                 COLUMN_MSG_SENDER_TYPE + " TEXT DEFAULT 'device', " +
+                COLUMN_MSG_CLIENT_ID + " TEXT, " +
                 "FOREIGN KEY(" + COLUMN_MSG_RECORDING_ID + ") REFERENCES " + TABLE_RECORDINGS + "(" + COLUMN_ID + "))";
 
         Log.d(TAG, "Creating chat messages table: " + createChatTable);
         db.execSQL(createChatTable);
 
         // Create indexes for better performance
-        db.execSQL("CREATE INDEX idx_chat_recording ON " + TABLE_CHAT_MESSAGES + "(" + COLUMN_MSG_RECORDING_ID + ")");
         db.execSQL("CREATE INDEX idx_chat_timestamp ON " + TABLE_CHAT_MESSAGES + "(" + COLUMN_MSG_TIMESTAMP + ")");
         db.execSQL("CREATE INDEX idx_chat_synced ON " + TABLE_CHAT_MESSAGES + "(" + COLUMN_MSG_IS_SYNCED + ")");
+        createChatServerIdIndex(db);
+        createChatPagingIndex(db);
+        createChatClientIdIndex(db);
+
+        createUploadQueueTable(db);
+        createChunkedUploadsTable(db);
+        createSyncTables(db);
+        createChecklistCacheTable(db);
+        createChecklistDraftsTable(db);
+        createChecklistSubmissionsTable(db);
+        createChatSummaryTable(db);
+        createSearchIndex(db);
 
         Log.d(TAG, "Database tables created successfully");
     }
@@ -169,6 +293,93 @@ public class RecordingDatabase extends SQLiteOpenHelper {
                 Log.d(TAG, "Enhanced chat_messages table created");
             }
 
+            // Version 8: Persistent upload queue replacing the in-memory pending list
+            if (oldVersion < 8) {
+                createUploadQueueTable(db);
+                Log.d(TAG, "Added upload_queue table");
+            }
+
+            // Version 9: Progress of resumable chunked uploads
+            if (oldVersion < 9) {
+                createChunkedUploadsTable(db);
+                Log.d(TAG, "Added chunked_uploads table");
+            }
+
+            // Version 10: Incremental recordings sync (server id link, cursor, tombstones)
+            if (oldVersion < 10) {
+                if (!columnExists(db, TABLE_RECORDINGS, COLUMN_SERVER_ID)) {
+                    db.execSQL("ALTER TABLE " + TABLE_RECORDINGS + " ADD COLUMN " + COLUMN_SERVER_ID + " INTEGER");
+                    Log.d(TAG, "Added SERVER_ID column");
+                }
+                db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_recordings_server_id ON " + TABLE_RECORDINGS + "(" + COLUMN_SERVER_ID + ")");
+                createSyncTables(db);
+                Log.d(TAG, "Added sync_state and recording_tombstones tables");
+            }
+
+            // Version 11: Unique server_message_id so batched history inserts dedupe in SQL
+            if (oldVersion < 11) {
+                db.execSQL("DELETE FROM " + TABLE_CHAT_MESSAGES +
+                        " WHERE " + COLUMN_MSG_SERVER_ID + " IS NOT NULL AND " + COLUMN_MSG_ID + " NOT IN (" +
+                        "SELECT MIN(" + COLUMN_MSG_ID + ") FROM " + TABLE_CHAT_MESSAGES +
+                        " WHERE " + COLUMN_MSG_SERVER_ID + " IS NOT NULL GROUP BY " + COLUMN_MSG_SERVER_ID + ")");
+                createChatServerIdIndex(db);
+                Log.d(TAG, "Added unique server_message_id index");
+            }
+
+            // Version 12: Keyset paging index; it also covers lookups by recording_id alone
+            if (oldVersion < 12) {
+                createChatPagingIndex(db);
+                db.execSQL("DROP INDEX IF EXISTS idx_chat_recording");
+                Log.d(TAG, "Added chat paging index");
+            }
+
+            // Version 13: Idempotency key for the offline chat outbox
+            if (oldVersion < 13) {
+                if (!columnExists(db, TABLE_CHAT_MESSAGES, COLUMN_MSG_CLIENT_ID)) {
+                    db.execSQL("ALTER TABLE " + TABLE_CHAT_MESSAGES + " ADD COLUMN " + COLUMN_MSG_CLIENT_ID + " TEXT");
+                    Log.d(TAG, "Added CLIENT_MESSAGE_ID column");
+                }
+                createChatClientIdIndex(db);
+            }
+
+            // Version 14: Offline copy of checklist catalog and question definitions
+            if (oldVersion < 14) {
+                createChecklistCacheTable(db);
+                Log.d(TAG, "Added checklist_cache table");
+            }
+
+            // Version 15: Draft journal of checklists being filled in
+            if (oldVersion < 15) {
+                createChecklistDraftsTable(db);
+                Log.d(TAG, "Added checklist_drafts table");
+            }
+
+            // Version 16: Outbox of checklist submissions sent in the background
+            if (oldVersion < 16) {
+                createChecklistSubmissionsTable(db);
+                Log.d(TAG, "Added checklist_submissions table");
+            }
+
+            // Version 17: The recordings list is read newest first
+            if (oldVersion < 17) {
+                createRecordingsDateIndex(db);
+                Log.d(TAG, "Added recordings date index");
+            }
+
+            // Version 18: Per-conversation summary of chat_messages for the conversation list
+            if (oldVersion < 18) {
+                createChatSummaryTable(db);
+                backfillChatSummary(db);
+                Log.d(TAG, "Added chat_summary table");
+            }
+
+            // Version 19: Full-text search over chat messages and text recordings
+            if (oldVersion < 19) {
+                createSearchIndex(db);
+                backfillSearchIndex(db);
+                Log.d(TAG, "Added full-text search index");
+            }
+
             Log.d(TAG, "Database upgrade completed successfully");
 
         } catch (Exception e) {
@@ -176,6 +387,16 @@ public class RecordingDatabase extends SQLiteOpenHelper {
             // If upgrade fails, recreate all tables
             db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDINGS);
             db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_MESSAGES);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_UPLOAD_QUEUE);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHUNKED_UPLOADS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDING_TOMBSTONES);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHECKLIST_CACHE);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHECKLIST_DRAFTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHECKLIST_SUBMISSIONS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_SUMMARY);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_MESSAGES_FTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDINGS_FTS);
             onCreate(db);
         }
     }
@@ -186,9 +407,322 @@ public class RecordingDatabase extends SQLiteOpenHelper {
         // For simplicity, just recreate the database on downgrade
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDINGS);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_MESSAGES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_UPLOAD_QUEUE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHUNKED_UPLOADS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDING_TOMBSTONES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHECKLIST_CACHE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHECKLIST_DRAFTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHECKLIST_SUBMISSIONS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_SUMMARY);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_MESSAGES_FTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDINGS_FTS);
         onCreate(db);
     }
 
+    /**
+     * The recordings list is read newest first on created_at.
+     */
+    private void createRecordingsDateIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_recordings_date ON " + TABLE_RECORDINGS + "(" + COLUMN_DATE + ")");
+    }
+
+    /**
+     * One row per server message; rows not yet acknowledged by the server (NULL id) are not
+     * constrained.
+     */
+    private void createChatServerIdIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_chat_server_id ON " + TABLE_CHAT_MESSAGES +
+                "(" + COLUMN_MSG_SERVER_ID + ")");
+    }
+
+    /**
+     * Chat history is paged newest-first per recording on (timestamp, id).
+     */
+    private void createChatPagingIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_chat_recording_time ON " + TABLE_CHAT_MESSAGES + "(" +
+                COLUMN_MSG_RECORDING_ID + ", " + COLUMN_MSG_TIMESTAMP + ", " + COLUMN_MSG_ID + ")");
+    }
+
+    /**
+     * Outgoing messages are looked up by their idempotency key when the server echoes it back.
+     */
+    private void createChatClientIdIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_chat_client_id ON " + TABLE_CHAT_MESSAGES +
+                "(" + COLUMN_MSG_CLIENT_ID + ")");
+    }
+
+    /**
+     * Create the upload outbox. One row per recording that still has to reach the server.
+     */
+    private void createUploadQueueTable(SQLiteDatabase db) {
+        String createUploadQueueTable = "CREATE TABLE IF NOT EXISTS " + TABLE_UPLOAD_QUEUE + " (" +
+                COLUMN_UPLOAD_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_UPLOAD_RECORDING_ID + " INTEGER NOT NULL UNIQUE, " +
+                COLUMN_UPLOAD_STATE + " TEXT NOT NULL DEFAULT 'pending', " +
+                COLUMN_UPLOAD_PRIORITY + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_UPLOAD_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_UPLOAD_NEXT_RETRY + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_UPLOAD_LAST_ERROR + " TEXT, " +
+                COLUMN_UPLOAD_CREATED_AT + " INTEGER NOT NULL, " +
+                "FOREIGN KEY(" + COLUMN_UPLOAD_RECORDING_ID + ") REFERENCES " + TABLE_RECORDINGS + "(" + COLUMN_ID + "))";
+
+        Log.d(TAG, "Creating upload queue table: " + createUploadQueueTable);
+        db.execSQL(createUploadQueueTable);
+
+        // Drain order: ready rows first, highest priority, oldest first
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_upload_ready ON " + TABLE_UPLOAD_QUEUE + "(" +
+                COLUMN_UPLOAD_STATE + ", " + COLUMN_UPLOAD_NEXT_RETRY + ", " +
+                COLUMN_UPLOAD_PRIORITY + " DESC, " + COLUMN_UPLOAD_CREATED_AT + ")");
+    }
+
+    /**
+     * Create the table holding the last acknowledged offset of each resumable upload.
+     */
+    private void createChunkedUploadsTable(SQLiteDatabase db) {
+        String createChunkedUploadsTable = "CREATE TABLE IF NOT EXISTS " + TABLE_CHUNKED_UPLOADS + " (" +
+                COLUMN_CHUNK_RECORDING_ID + " INTEGER PRIMARY KEY, " +
+                COLUMN_CHUNK_UPLOAD_ID + " TEXT NOT NULL, " +
+                COLUMN_CHUNK_FILE_SIZE + " INTEGER NOT NULL, " +
+                COLUMN_CHUNK_SIZE + " INTEGER NOT NULL, " +
+                COLUMN_CHUNK_ACKED_OFFSET + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_CHUNK_UPDATED_AT + " INTEGER NOT NULL)";
+
+        Log.d(TAG, "Creating chunked uploads table: " + createChunkedUploadsTable);
+        db.execSQL(createChunkedUploadsTable);
+    }
+
+    /**
+     * Create the tables backing incremental sync: a key/value store for the server cursor and
+     * the server ids that must not be resurrected by a late change.
+     */
+    private void createSyncTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_STATE + " (" +
+                COLUMN_SYNC_KEY + " TEXT PRIMARY KEY, " +
+                COLUMN_SYNC_VALUE + " TEXT)");
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_RECORDING_TOMBSTONES + " (" +
+                COLUMN_TOMBSTONE_SERVER_ID + " INTEGER PRIMARY KEY, " +
+                COLUMN_TOMBSTONE_DELETED_AT + " INTEGER NOT NULL)");
+    }
+
+    private void createChecklistCacheTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CHECKLIST_CACHE + " (" +
+                COLUMN_CACHE_KEY + " TEXT PRIMARY KEY, " +
+                COLUMN_CACHE_BODY + " TEXT NOT NULL, " +
+                COLUMN_CACHE_ETAG + " TEXT, " +
+                COLUMN_CACHE_HASH + " TEXT NOT NULL, " +
+                COLUMN_CACHE_VERSION + " TEXT, " +
+                COLUMN_CACHE_FETCHED_AT + " INTEGER NOT NULL)");
+    }
+
+    // Append-only: a form's draft is its rows replayed in id order
+    private void createChecklistDraftsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CHECKLIST_DRAFTS + " (" +
+                COLUMN_DRAFT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_DRAFT_FORM_ID + " INTEGER NOT NULL, " +
+                COLUMN_DRAFT_QUESTION_ID + " INTEGER NOT NULL, " +
+                COLUMN_DRAFT_KIND + " TEXT NOT NULL, " +
+                COLUMN_DRAFT_VALUE + " TEXT, " +
+                COLUMN_DRAFT_CREATED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_checklist_drafts_form ON " + TABLE_CHECKLIST_DRAFTS +
+                "(" + COLUMN_DRAFT_FORM_ID + ", " + COLUMN_DRAFT_ID + ")");
+    }
+
+    private void createChecklistSubmissionsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CHECKLIST_SUBMISSIONS + " (" +
+                COLUMN_SUBMISSION_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_SUBMISSION_KEY + " TEXT NOT NULL UNIQUE, " +
+                COLUMN_SUBMISSION_FORM_ID + " INTEGER NOT NULL, " +
+                COLUMN_SUBMISSION_DEVICE_ID + " TEXT NOT NULL, " +
+                COLUMN_SUBMISSION_PAYLOAD + " TEXT NOT NULL, " +
+                COLUMN_SUBMISSION_PHOTOS + " TEXT, " +
+                COLUMN_SUBMISSION_STATE + " TEXT NOT NULL, " +
+                COLUMN_SUBMISSION_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SUBMISSION_NEXT_RETRY + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SUBMISSION_LAST_ERROR + " TEXT, " +
+                COLUMN_SUBMISSION_CREATED_AT + " INTEGER NOT NULL)");
+    }
+
+    /**
+     * Summary rows and the triggers that keep them in step with chat_messages inside the same
+     * transaction as each write, so the conversation list never scans the messages. Incoming
+     * messages newer than last_read_at count as unread.
+     */
+    private void createChatSummaryTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CHAT_SUMMARY + " (" +
+                COLUMN_SUMMARY_RECORDING_ID + " INTEGER PRIMARY KEY, " +
+                COLUMN_SUMMARY_LAST_MESSAGE + " TEXT, " +
+                COLUMN_SUMMARY_LAST_MESSAGE_ID + " INTEGER, " +
+                COLUMN_SUMMARY_LAST_TIMESTAMP + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SUMMARY_MESSAGE_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SUMMARY_UNREAD_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SUMMARY_UNSYNCED_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_SUMMARY_LAST_READ_AT + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_chat_summary_activity ON " + TABLE_CHAT_SUMMARY +
+                "(" + COLUMN_SUMMARY_LAST_TIMESTAMP + ")");
+
+        // SET expressions see the row as it was before the update, so last_timestamp is the old one
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_summary_insert AFTER INSERT ON " + TABLE_CHAT_MESSAGES +
+                " BEGIN " +
+                "INSERT OR IGNORE INTO " + TABLE_CHAT_SUMMARY + " (" + COLUMN_SUMMARY_RECORDING_ID + ")" +
+                " VALUES (NEW." + COLUMN_MSG_RECORDING_ID + "); " +
+                "UPDATE " + TABLE_CHAT_SUMMARY + " SET " +
+                COLUMN_SUMMARY_MESSAGE_COUNT + " = " + COLUMN_SUMMARY_MESSAGE_COUNT + " + 1, " +
+                COLUMN_SUMMARY_UNREAD_COUNT + " = " + COLUMN_SUMMARY_UNREAD_COUNT +
+                " + (NEW." + COLUMN_MSG_IS_FROM_DEVICE + " = 0 AND NEW." + COLUMN_MSG_TIMESTAMP + " > " + COLUMN_SUMMARY_LAST_READ_AT + "), " +
+                COLUMN_SUMMARY_UNSYNCED_COUNT + " = " + COLUMN_SUMMARY_UNSYNCED_COUNT +
+                " + (NEW." + COLUMN_MSG_IS_SYNCED + " = 0), " +
+                COLUMN_SUMMARY_LAST_MESSAGE + " = CASE WHEN NEW." + COLUMN_MSG_TIMESTAMP + " >= " + COLUMN_SUMMARY_LAST_TIMESTAMP +
+                " THEN substr(NEW." + COLUMN_MSG_CONTENT + ", 1, " + SUMMARY_PREVIEW_LENGTH + ") ELSE " + COLUMN_SUMMARY_LAST_MESSAGE + " END, " +
+                COLUMN_SUMMARY_LAST_MESSAGE_ID + " = CASE WHEN NEW." + COLUMN_MSG_TIMESTAMP + " >= " + COLUMN_SUMMARY_LAST_TIMESTAMP +
+                " THEN NEW." + COLUMN_MSG_ID + " ELSE " + COLUMN_SUMMARY_LAST_MESSAGE_ID + " END, " +
+                COLUMN_SUMMARY_LAST_TIMESTAMP + " = MAX(" + COLUMN_SUMMARY_LAST_TIMESTAMP + ", NEW." + COLUMN_MSG_TIMESTAMP + ")" +
+                " WHERE " + COLUMN_SUMMARY_RECORDING_ID + " = NEW." + COLUMN_MSG_RECORDING_ID + "; " +
+                "END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_summary_synced AFTER UPDATE OF " + COLUMN_MSG_IS_SYNCED +
+                " ON " + TABLE_CHAT_MESSAGES +
+                " WHEN OLD." + COLUMN_MSG_IS_SYNCED + " <> NEW." + COLUMN_MSG_IS_SYNCED +
+                " BEGIN " +
+                "UPDATE " + TABLE_CHAT_SUMMARY + " SET " +
+                COLUMN_SUMMARY_UNSYNCED_COUNT + " = " + COLUMN_SUMMARY_UNSYNCED_COUNT +
+                " + (NEW." + COLUMN_MSG_IS_SYNCED + " = 0) - (OLD." + COLUMN_MSG_IS_SYNCED + " = 0)" +
+                " WHERE " + COLUMN_SUMMARY_RECORDING_ID + " = NEW." + COLUMN_MSG_RECORDING_ID + "; " +
+                "END");
+
+        // Deleting the last message looks up the new one on the (recording_id, timestamp) index
+        String latest = " FROM " + TABLE_CHAT_MESSAGES +
+                " WHERE " + COLUMN_MSG_RECORDING_ID + " = OLD." + COLUMN_MSG_RECORDING_ID +
+                " ORDER BY " + COLUMN_MSG_TIMESTAMP + " DESC, " + COLUMN_MSG_ID + " DESC LIMIT 1";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_summary_delete AFTER DELETE ON " + TABLE_CHAT_MESSAGES +
+                " BEGIN " +
+                "UPDATE " + TABLE_CHAT_SUMMARY + " SET " +
+                COLUMN_SUMMARY_MESSAGE_COUNT + " = " + COLUMN_SUMMARY_MESSAGE_COUNT + " - 1, " +
+                COLUMN_SUMMARY_UNREAD_COUNT + " = MAX(0, " + COLUMN_SUMMARY_UNREAD_COUNT +
+                " - (OLD." + COLUMN_MSG_IS_FROM_DEVICE + " = 0 AND OLD." + COLUMN_MSG_TIMESTAMP + " > " + COLUMN_SUMMARY_LAST_READ_AT + ")), " +
+                COLUMN_SUMMARY_UNSYNCED_COUNT + " = MAX(0, " + COLUMN_SUMMARY_UNSYNCED_COUNT +
+                " - (OLD." + COLUMN_MSG_IS_SYNCED + " = 0))" +
+                " WHERE " + COLUMN_SUMMARY_RECORDING_ID + " = OLD." + COLUMN_MSG_RECORDING_ID + "; " +
+                "UPDATE " + TABLE_CHAT_SUMMARY + " SET " +
+                COLUMN_SUMMARY_LAST_MESSAGE + " = (SELECT substr(" + COLUMN_MSG_CONTENT + ", 1, " + SUMMARY_PREVIEW_LENGTH + ")" + latest + "), " +
+                COLUMN_SUMMARY_LAST_MESSAGE_ID + " = (SELECT " + COLUMN_MSG_ID + latest + "), " +
+                COLUMN_SUMMARY_LAST_TIMESTAMP + " = COALESCE((SELECT " + COLUMN_MSG_TIMESTAMP + latest + "), 0)" +
+                " WHERE " + COLUMN_SUMMARY_RECORDING_ID + " = OLD." + COLUMN_MSG_RECORDING_ID +
+                " AND " + COLUMN_SUMMARY_LAST_MESSAGE_ID + " = OLD." + COLUMN_MSG_ID + "; " +
+                "DELETE FROM " + TABLE_CHAT_SUMMARY +
+                " WHERE " + COLUMN_SUMMARY_RECORDING_ID + " = OLD." + COLUMN_MSG_RECORDING_ID +
+                " AND " + COLUMN_SUMMARY_MESSAGE_COUNT + " <= 0; " +
+                "END");
+
+        // A deleted recording takes its conversation off the list
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_summary_recording_delete AFTER DELETE ON " + TABLE_RECORDINGS +
+                " BEGIN " +
+                "DELETE FROM " + TABLE_CHAT_SUMMARY + " WHERE " + COLUMN_SUMMARY_RECORDING_ID + " = OLD." + COLUMN_ID + "; " +
+                "END");
+    }
+
+    // Existing history counts as read; only messages arriving after the upgrade are unread
+    private void backfillChatSummary(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_CHAT_SUMMARY);
+        db.execSQL("INSERT INTO " + TABLE_CHAT_SUMMARY + " (" +
+                COLUMN_SUMMARY_RECORDING_ID + ", " +
+                COLUMN_SUMMARY_MESSAGE_COUNT + ", " +
+                COLUMN_SUMMARY_UNSYNCED_COUNT + ", " +
+                COLUMN_SUMMARY_LAST_TIMESTAMP + ", " +
+                COLUMN_SUMMARY_LAST_READ_AT + ")" +
+                " SELECT " + COLUMN_MSG_RECORDING_ID + ", COUNT(*), " +
+                "SUM(" + COLUMN_MSG_IS_SYNCED + " = 0), " +
+                "MAX(" + COLUMN_MSG_TIMESTAMP + "), MAX(" + COLUMN_MSG_TIMESTAMP + ")" +
+                " FROM " + TABLE_CHAT_MESSAGES + " GROUP BY " + COLUMN_MSG_RECORDING_ID);
+        db.execSQL("UPDATE " + TABLE_CHAT_SUMMARY + " SET " + COLUMN_SUMMARY_LAST_MESSAGE_ID +
+                " = (SELECT m." + COLUMN_MSG_ID + " FROM " + TABLE_CHAT_MESSAGES + " m" +
+                " WHERE m." + COLUMN_MSG_RECORDING_ID + " = " + TABLE_CHAT_SUMMARY + "." + COLUMN_SUMMARY_RECORDING_ID +
+                " ORDER BY m." + COLUMN_MSG_TIMESTAMP + " DESC, m." + COLUMN_MSG_ID + " DESC LIMIT 1)");
+        db.execSQL("UPDATE " + TABLE_CHAT_SUMMARY + " SET " + COLUMN_SUMMARY_LAST_MESSAGE +
+                " = (SELECT substr(m." + COLUMN_MSG_CONTENT + ", 1, " + SUMMARY_PREVIEW_LENGTH + ") FROM " + TABLE_CHAT_MESSAGES + " m" +
+                " WHERE m." + COLUMN_MSG_ID + " = " + TABLE_CHAT_SUMMARY + "." + COLUMN_SUMMARY_LAST_MESSAGE_ID + ")");
+    }
+
+    /**
+     * FTS4 indexes over chat_messages.message and recordings.text_content. They are external
+     * content tables: the text stays in the source tables and only the index is stored here, with
+     * docid equal to the source row id. Triggers keep them in step inside each write's
+     * transaction; old tokens have to be removed BEFORE the source row changes because FTS4 reads
+     * them back from the source table. Recordings without text are not indexed.
+     */
+    private void createSearchIndex(SQLiteDatabase db) {
+        createFtsTable(db, TABLE_CHAT_MESSAGES_FTS, TABLE_CHAT_MESSAGES, COLUMN_MSG_CONTENT);
+        createFtsTable(db, TABLE_RECORDINGS_FTS, TABLE_RECORDINGS, COLUMN_TEXT_CONTENT);
+
+        // Only edits of the text touch the index; sync flags and server ids change far more often
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_fts_insert AFTER INSERT ON " + TABLE_CHAT_MESSAGES +
+                " BEGIN " +
+                "INSERT INTO " + TABLE_CHAT_MESSAGES_FTS + " (docid, " + COLUMN_MSG_CONTENT + ")" +
+                " VALUES (NEW." + COLUMN_MSG_ID + ", NEW." + COLUMN_MSG_CONTENT + "); " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_fts_before_update BEFORE UPDATE OF " + COLUMN_MSG_CONTENT +
+                " ON " + TABLE_CHAT_MESSAGES +
+                " BEGIN " +
+                "DELETE FROM " + TABLE_CHAT_MESSAGES_FTS + " WHERE docid = OLD." + COLUMN_MSG_ID + "; " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_fts_after_update AFTER UPDATE OF " + COLUMN_MSG_CONTENT +
+                " ON " + TABLE_CHAT_MESSAGES +
+                " BEGIN " +
+                "INSERT INTO " + TABLE_CHAT_MESSAGES_FTS + " (docid, " + COLUMN_MSG_CONTENT + ")" +
+                " VALUES (NEW." + COLUMN_MSG_ID + ", NEW." + COLUMN_MSG_CONTENT + "); " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_chat_fts_delete BEFORE DELETE ON " + TABLE_CHAT_MESSAGES +
+                " BEGIN " +
+                "DELETE FROM " + TABLE_CHAT_MESSAGES_FTS + " WHERE docid = OLD." + COLUMN_MSG_ID + "; " +
+                "END");
+
+        // The WHEN clauses keep "indexed" equal to "has text", so nothing unindexed is ever deleted
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_recordings_fts_insert AFTER INSERT ON " + TABLE_RECORDINGS +
+                " WHEN NEW." + COLUMN_TEXT_CONTENT + " IS NOT NULL" +
+                " BEGIN " +
+                "INSERT INTO " + TABLE_RECORDINGS_FTS + " (docid, " + COLUMN_TEXT_CONTENT + ")" +
+                " VALUES (NEW." + COLUMN_ID + ", NEW." + COLUMN_TEXT_CONTENT + "); " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_recordings_fts_before_update BEFORE UPDATE OF " + COLUMN_TEXT_CONTENT +
+                " ON " + TABLE_RECORDINGS +
+                " WHEN OLD." + COLUMN_TEXT_CONTENT + " IS NOT NULL" +
+                " BEGIN " +
+                "DELETE FROM " + TABLE_RECORDINGS_FTS + " WHERE docid = OLD." + COLUMN_ID + "; " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_recordings_fts_after_update AFTER UPDATE OF " + COLUMN_TEXT_CONTENT +
+                " ON " + TABLE_RECORDINGS +
+                " WHEN NEW." + COLUMN_TEXT_CONTENT + " IS NOT NULL" +
+                " BEGIN " +
+                "INSERT INTO " + TABLE_RECORDINGS_FTS + " (docid, " + COLUMN_TEXT_CONTENT + ")" +
+                " VALUES (NEW." + COLUMN_ID + ", NEW." + COLUMN_TEXT_CONTENT + "); " +
+                "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_recordings_fts_delete BEFORE DELETE ON " + TABLE_RECORDINGS +
+                " WHEN OLD." + COLUMN_TEXT_CONTENT + " IS NOT NULL" +
+                " BEGIN " +
+                "DELETE FROM " + TABLE_RECORDINGS_FTS + " WHERE docid = OLD." + COLUMN_ID + "; " +
+                "END");
+    }
+
+    private void createFtsTable(SQLiteDatabase db, String ftsTable, String contentTable, String column) {
+        String create = "CREATE VIRTUAL TABLE IF NOT EXISTS " + ftsTable + " USING fts4(content=\"" +
+                contentTable + "\", " + column + ", tokenize=";
+        try {
+            db.execSQL(create + FTS_TOKENIZER + ")");
+        } catch (Exception e) {
+            Log.w(TAG, "unicode61 tokenizer unavailable, indexing " + ftsTable + " with the simple tokenizer", e);
+            db.execSQL(create + FTS_FALLBACK_TOKENIZER + ")");
+        }
+    }
+
+    private void backfillSearchIndex(SQLiteDatabase db) {
+        db.execSQL("INSERT INTO " + TABLE_CHAT_MESSAGES_FTS + " (docid, " + COLUMN_MSG_CONTENT + ")" +
+                " SELECT " + COLUMN_MSG_ID + ", " + COLUMN_MSG_CONTENT + " FROM " + TABLE_CHAT_MESSAGES);
+        db.execSQL("INSERT INTO " + TABLE_RECORDINGS_FTS + " (docid, " + COLUMN_TEXT_CONTENT + ")" +
+                " SELECT " + COLUMN_ID + ", " + COLUMN_TEXT_CONTENT + " FROM " + TABLE_RECORDINGS +
+                " WHERE " + COLUMN_TEXT_CONTENT + " IS NOT NULL");
+    }
+
     /**
      * Check if a column exists in a table
      */
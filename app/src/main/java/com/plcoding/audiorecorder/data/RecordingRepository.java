@@ -5,21 +5,28 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import com.plcoding.audiorecorder.LocalChatMessage;
+import com.plcoding.audiorecorder.api.ChunkedUploader;
+import com.plcoding.audiorecorder.api.RecordingChangesDto;
 import com.plcoding.audiorecorder.api.RecordingApiService;
+import com.plcoding.audiorecorder.api.ReachabilityMonitor;
 import com.plcoding.audiorecorder.api.RecordingDto;
 import com.plcoding.audiorecorder.api.RetrofitClient;
 import com.plcoding.audiorecorder.utils.DeviceIdHelper;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -32,18 +39,48 @@ import retrofit2.Response;
 
 public class RecordingRepository {
     private static final String TAG = "RecordingRepository";
+    private static final int DRAIN_BATCH_SIZE = 20;
+    private static final int CHANGES_PAGE_SIZE = 200;
+    // Stays under SQLite's default limit of 999 bound arguments
+    private static final int MAX_IN_ARGS = 500;
+
+    private static final int OP_INSERT = 0;
+    private static final int OP_UPDATE = 1;
+    private static final int OP_DELETE = 2;
+
+    // Voice files at least this big go through the resumable chunked upload
+    private static final long CHUNKED_UPLOAD_THRESHOLD = 4L * 1024 * 1024;
+
+    // Chunked uploads are blocking; one thread per voice upload the UploadScheduler lets through
+    private static final ExecutorService chunkedUploadExecutor =
+            Executors.newFixedThreadPool(UploadScheduler.DEFAULT_MAX_VOICE_IN_FLIGHT);
+    // Server URLs that answered they have no chunked endpoints; a different server is tried again
+    private static final Set<String> chunkedUploadUnsupportedUrls = ConcurrentHashMap.newKeySet();
+
     private final RecordingDatabase database;
     private final Context context;
     private final ExecutorService executor;
     private RecordingApiService apiService;
 
-    // Flag to track pending uploads
-    private final List<Long> pendingUploads = new ArrayList<>();
+    // Durable outbox of recordings that still have to reach the server
+    private final UploadQueue uploadQueue;
+    // Shared across repositories so the in-flight limits are process-wide
+    private final UploadScheduler uploadScheduler;
+    private final ChunkedUploadStore chunkedUploadStore;
+    private final RecordingSyncStore syncStore;
+    private final InvalidationTracker invalidationTracker;
+    private final SearchIndex searchIndex;
 
     public RecordingRepository(Context context) {
         this.context = context;
-        this.database = new RecordingDatabase(context);
+        this.database = RecordingDatabase.getInstance(context);
         this.executor = Executors.newSingleThreadExecutor();
+        this.uploadQueue = new UploadQueue(database);
+        this.uploadScheduler = UploadScheduler.getInstance();
+        this.chunkedUploadStore = new ChunkedUploadStore(database);
+        this.invalidationTracker = InvalidationTracker.getInstance();
+        this.syncStore = new RecordingSyncStore(database, invalidationTracker);
+        this.searchIndex = new SearchIndex(database);
 
         // Initialize API service only if network is available
         if (isNetworkAvailable()) {
@@ -62,6 +99,11 @@ public class RecordingRepository {
     // Interface for sync status callbacks
     public interface SyncStatusCallback {
         void onSyncComplete(boolean success);
+
+        // Upload syncs also report per-recording results and throughput
+        default void onSyncComplete(boolean success, UploadScheduler.BatchReport report) {
+            onSyncComplete(success);
+        }
     }
 
     // Interface for operation callbacks
@@ -70,6 +112,34 @@ public class RecordingRepository {
         void onError(String errorMessage);
     }
 
+    // -------------- CHANGE NOTIFICATIONS --------------
+
+    /**
+     * Get deltas of the given table after each committed write; see {@link InvalidationTracker}.
+     */
+    public void addObserver(String table, InvalidationTracker.Observer observer) {
+        invalidationTracker.addObserver(table, observer);
+    }
+
+    public void removeObserver(String table, InvalidationTracker.Observer observer) {
+        invalidationTracker.removeObserver(table, observer);
+    }
+
+    private void publish(String table, long rowId, int op) {
+        if (rowId == -1) {
+            return;
+        }
+        InvalidationTracker.Delta delta = new InvalidationTracker.Delta(table);
+        if (op == OP_INSERT) {
+            delta.inserted(rowId);
+        } else if (op == OP_UPDATE) {
+            delta.updated(rowId);
+        } else {
+            delta.deleted(rowId);
+        }
+        invalidationTracker.publish(delta);
+    }
+
     // -------------- LOCAL DATABASE OPERATIONS --------------
 
     public long saveRecording(String title, File file, long duration) {
@@ -85,13 +155,14 @@ public class RecordingRepository {
 
         long id = db.insert(RecordingDatabase.TABLE_RECORDINGS, null, values);
         Log.d(TAG, "Voice recording saved with ID: " + id + ", Device ID: " + DeviceIdHelper.getDeviceId(context));
+        publish(RecordingDatabase.TABLE_RECORDINGS, id, OP_INSERT);
 
-        // Sync with server if connected
-        if (isNetworkAvailable() && isServerAvailable()) {
-            uploadVoiceRecording(id, title, file, duration);
-        } else {
-            // Mark for later upload
-            addToPendingUploads(id);
+        if (id != -1) {
+            // Queue first so the upload survives a process kill, then drain if connected
+            uploadQueue.enqueue(id, UploadQueue.PRIORITY_VOICE);
+            if (isNetworkAvailable() && isServerAvailable()) {
+                drainUploadQueue(null);
+            }
         }
 
         return id;
@@ -119,13 +190,12 @@ public class RecordingRepository {
             Log.e(TAG, "Failed to insert text recording");
         } else {
             Log.d(TAG, "Text recording saved successfully with ID: " + id);
+            publish(RecordingDatabase.TABLE_RECORDINGS, id, OP_INSERT);
 
-            // Sync with server if connected
+            // Queue first so the upload survives a process kill, then drain if connected
+            uploadQueue.enqueue(id, UploadQueue.PRIORITY_TEXT);
             if (isNetworkAvailable() && isServerAvailable()) {
-                uploadTextRecording(id, title, textContent);
-            } else {
-                // Mark for later upload
-                addToPendingUploads(id);
+                drainUploadQueue(null);
             }
         }
 
@@ -147,7 +217,6 @@ public class RecordingRepository {
             cursor.close();
         }
 
-        db.close();
         Log.d(TAG, "Retrieved " + recordings.size() + " recordings from local database");
         return recordings;
     }
@@ -164,10 +233,83 @@ public class RecordingRepository {
             cursor.close();
         }
 
-        db.close();
         return recording;
     }
 
+    /**
+     * The recordings with the given ids that still exist, in no particular order.
+     */
+    public List<Recording> getRecordings(Collection<Long> ids) {
+        List<Recording> recordings = new ArrayList<>(ids.size());
+        SQLiteDatabase db = database.getReadableDatabase();
+        List<Long> remaining = new ArrayList<>(ids);
+
+        for (int start = 0; start < remaining.size(); start += MAX_IN_ARGS) {
+            List<Long> chunk = remaining.subList(start, Math.min(start + MAX_IN_ARGS, remaining.size()));
+            StringBuilder placeholders = new StringBuilder();
+            String[] args = new String[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+                args[i] = String.valueOf(chunk.get(i));
+            }
+
+            Cursor cursor = db.rawQuery("SELECT * FROM " + RecordingDatabase.TABLE_RECORDINGS +
+                    " WHERE " + RecordingDatabase.COLUMN_ID + " IN (" + placeholders + ")", args);
+            try {
+                while (cursor.moveToNext()) {
+                    recordings.add(createRecordingFromCursor(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return recordings;
+    }
+
+    /**
+     * Apply a delta of the recordings table to a list ordered like {@link #getAllRecordings()}.
+     * Only the changed rows are read; a table-wide delta reloads everything. Returns a new list.
+     */
+    public List<Recording> applyRecordingsDelta(List<Recording> current, InvalidationTracker.Delta delta) {
+        if (delta.isTableChanged()) {
+            return getAllRecordings();
+        }
+
+        Set<Long> changed = delta.getChanged();
+        List<Recording> result = new ArrayList<>(current.size() + delta.getInserted().size());
+        for (Recording recording : current) {
+            long id = recording.getId();
+            if (!changed.contains(id) && !delta.getDeleted().contains(id)) {
+                result.add(recording);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            for (Recording recording : getRecordings(changed)) {
+                result.add(insertionPoint(result, recording), recording);
+            }
+        }
+
+        Log.d(TAG, "Applied " + delta + " to " + current.size() + " recordings");
+        return result;
+    }
+
+    // Newest first, like ORDER BY created_at DESC
+    private static int insertionPoint(List<Recording> recordings, Recording recording) {
+        int low = 0;
+        int high = recordings.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (recordings.get(mid).getCreatedAt() >= recording.getCreatedAt()) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     private Recording createRecordingFromCursor(Cursor cursor) {
         long id = cursor.getLong(cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_ID));
         String title = cursor.getString(cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_TITLE));
@@ -177,8 +319,10 @@ public class RecordingRepository {
         String type = cursor.getString(cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_TYPE));
         String textContent = cursor.getString(cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_TEXT_CONTENT));
         String deviceId = cursor.getString(cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_DEVICE_ID));
+        int serverIdIndex = cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_SERVER_ID);
+        long serverId = cursor.isNull(serverIdIndex) ? -1 : cursor.getLong(serverIdIndex);
 
-        return new Recording(id, title, filePath, duration, createdAt, type, textContent, deviceId);
+        return new Recording(id, title, filePath, duration, createdAt, type, textContent, deviceId, serverId);
     }
 
     public boolean deleteRecording(long id) {
@@ -198,11 +342,20 @@ public class RecordingRepository {
             recording.getFile().delete();
         }
 
+        uploadQueue.remove(id);
+        chunkedUploadStore.clear(id);
+
         Log.d(TAG, "Delete result for ID " + id + ": " + result);
+        if (result > 0) {
+            publish(RecordingDatabase.TABLE_RECORDINGS, id, OP_DELETE);
+        }
 
-        // Delete from server if connected
-        if (isNetworkAvailable() && isServerAvailable()) {
-            deleteRecordingFromServer(id);
+        // Only rows that reached the server have anything to delete there
+        if (recording != null && recording.isOnServer()) {
+            syncStore.addTombstone(recording.getServerId());
+            if (isNetworkAvailable() && isServerAvailable()) {
+                deleteRecordingFromServer(recording.getServerId());
+            }
         }
 
         return result > 0;
@@ -210,14 +363,9 @@ public class RecordingRepository {
 
     // -------------- SERVER API OPERATIONS --------------
 
+    // Both come from the process-wide ReachabilityMonitor and never block on a probe
     private boolean isNetworkAvailable() {
-        ConnectivityManager connectivityManager = (ConnectivityManager)
-                context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        if (connectivityManager != null) {
-            NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
-            return activeNetworkInfo != null && activeNetworkInfo.isConnected();
-        }
-        return false;
+        return ReachabilityMonitor.getInstance(context).isNetworkAvailable();
     }
 
     private boolean isServerAvailable() {
@@ -230,30 +378,30 @@ public class RecordingRepository {
             }
         }
 
-        try {
-            return RetrofitClient.getInstance(context).isServerReachable();
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking server availability", e);
-            return false;
-        }
+        return ReachabilityMonitor.getInstance(context).isServerReachable();
     }
 
-    private void addToPendingUploads(long id) {
-        if (!pendingUploads.contains(id)) {
-            pendingUploads.add(id);
-            Log.d(TAG, "Added recording ID " + id + " to pending uploads. Total pending: " + pendingUploads.size());
+    private void onUploadSucceeded(long localId, RecordingDto uploaded, OperationCallback callback) {
+        uploadQueue.markSucceeded(localId);
+        if (uploaded != null && uploaded.getId() != null) {
+            syncStore.linkServerId(localId, uploaded.getId());
+        }
+        if (callback != null) {
+            callback.onSuccess();
         }
     }
 
-    private void removeFromPendingUploads(long id) {
-        pendingUploads.remove(Long.valueOf(id));
-        Log.d(TAG, "Removed recording ID " + id + " from pending uploads. Total pending: " + pendingUploads.size());
+    private void onUploadFailed(long localId, int priority, String error, OperationCallback callback) {
+        uploadQueue.markFailed(localId, priority, error);
+        if (callback != null) {
+            callback.onError(error);
+        }
     }
 
-    private void uploadVoiceRecording(long localId, String title, File file, long duration) {
+    private void uploadVoiceRecording(long localId, String title, File file, long duration, OperationCallback callback) {
         if (apiService == null) {
             Log.e(TAG, "API service not initialized");
-            addToPendingUploads(localId);
+            onUploadFailed(localId, UploadQueue.PRIORITY_VOICE, "API service not initialized", callback);
             return;
         }
 
@@ -267,10 +415,44 @@ public class RecordingRepository {
 
         if (file == null || !file.exists() || !file.canRead()) {
             Log.e(TAG, "File is null, doesn't exist, or can't be read");
-            addToPendingUploads(localId);
+            onUploadFailed(localId, UploadQueue.PRIORITY_VOICE, "File missing or unreadable", callback);
             return;
         }
 
+        if (file.length() >= CHUNKED_UPLOAD_THRESHOLD &&
+                !chunkedUploadUnsupportedUrls.contains(RetrofitClient.getInstance(context).getServerUrl())) {
+            uploadVoiceRecordingChunked(localId, title, file, duration, deviceId, callback);
+            return;
+        }
+
+        uploadVoiceRecordingMultipart(localId, title, file, duration, deviceId, callback);
+    }
+
+    /**
+     * Resumable upload in fixed-size chunks; progress survives dropped connections and restarts.
+     */
+    private void uploadVoiceRecordingChunked(long localId, String title, File file, long duration, String deviceId, OperationCallback callback) {
+        ChunkedUploader uploader = new ChunkedUploader(apiService, chunkedUploadStore);
+        String serverUrl = RetrofitClient.getInstance(context).getServerUrl();
+
+        chunkedUploadExecutor.execute(() -> {
+            try {
+                RecordingDto dto = uploader.upload(localId, file, title, duration, deviceId);
+                Log.d(TAG, "Voice recording uploaded in chunks: " + dto.getId());
+                onUploadSucceeded(localId, dto, callback);
+            } catch (ChunkedUploader.UnsupportedException e) {
+                Log.w(TAG, "Chunked upload not available, falling back to multipart: " + e.getMessage());
+                chunkedUploadUnsupportedUrls.add(serverUrl);
+                uploadVoiceRecordingMultipart(localId, title, file, duration, deviceId, callback);
+            } catch (Exception e) {
+                Log.e(TAG, "Chunked upload of recording " + localId + " interrupted", e);
+                onUploadFailed(localId, UploadQueue.PRIORITY_VOICE, String.valueOf(e.getMessage()), callback);
+            }
+        });
+    }
+
+    private void uploadVoiceRecordingMultipart(long localId, String title, File file, long duration, String deviceId, OperationCallback callback) {
+
         RequestBody requestFile = RequestBody.create(
                 MediaType.parse("audio/mpeg"), file);
 
@@ -300,7 +482,7 @@ public class RecordingRepository {
             public void onResponse(Call<RecordingDto> call, Response<RecordingDto> response) {
                 if (response.isSuccessful()) {
                     Log.d(TAG, "Voice recording uploaded successfully: " + response.body().getId());
-                    removeFromPendingUploads(localId);
+                    onUploadSucceeded(localId, response.body(), callback);
                 } else {
                     Log.e(TAG, "Failed to upload voice recording: " + response.code());
                     try {
@@ -310,7 +492,7 @@ public class RecordingRepository {
                     } catch (IOException e) {
                         e.printStackTrace();
                     }
-                    addToPendingUploads(localId);
+                    onUploadFailed(localId, UploadQueue.PRIORITY_VOICE, "HTTP " + response.code(), callback);
                 }
             }
 
@@ -324,15 +506,15 @@ public class RecordingRepository {
                     Log.e(TAG, "Conversion error: " + t.getMessage());
                 }
 
-                addToPendingUploads(localId);
+                onUploadFailed(localId, UploadQueue.PRIORITY_VOICE, String.valueOf(t.getMessage()), callback);
             }
         });
     }
 
-    private void uploadTextRecording(long localId, String title, String textContent) {
+    private void uploadTextRecording(long localId, String title, String textContent, OperationCallback callback) {
         if (apiService == null) {
             Log.e(TAG, "API service not initialized");
-            addToPendingUploads(localId);
+            onUploadFailed(localId, UploadQueue.PRIORITY_TEXT, "API service not initialized", callback);
             return;
         }
 
@@ -347,7 +529,7 @@ public class RecordingRepository {
             public void onResponse(Call<RecordingDto> call, Response<RecordingDto> response) {
                 if (response.isSuccessful()) {
                     Log.d(TAG, "Text recording uploaded successfully: " + response.body().getId());
-                    removeFromPendingUploads(localId);
+                    onUploadSucceeded(localId, response.body(), callback);
                 } else {
                     Log.e(TAG, "Failed to upload text recording: " + response.code());
                     try {
@@ -355,32 +537,31 @@ public class RecordingRepository {
                     } catch (IOException e) {
                         e.printStackTrace();
                     }
-                    addToPendingUploads(localId);
+                    onUploadFailed(localId, UploadQueue.PRIORITY_TEXT, "HTTP " + response.code(), callback);
                 }
             }
 
             @Override
             public void onFailure(Call<RecordingDto> call, Throwable t) {
                 Log.e(TAG, "Error uploading text recording", t);
-                addToPendingUploads(localId);
+                onUploadFailed(localId, UploadQueue.PRIORITY_TEXT, String.valueOf(t.getMessage()), callback);
             }
         });
     }
 
-    private void deleteRecordingFromServer(long id) {
+    private void deleteRecordingFromServer(long serverId) {
         if (apiService == null) {
             Log.e(TAG, "API service not initialized");
             return;
         }
 
-        Call<Void> call = apiService.deleteRecording(id);
+        Call<Void> call = apiService.deleteRecording(serverId);
 
         call.enqueue(new Callback<Void>() {
             @Override
             public void onResponse(Call<Void> call, Response<Void> response) {
                 if (response.isSuccessful()) {
                     Log.d(TAG, "Recording deleted from server successfully");
-                    removeFromPendingUploads(id);
                 } else {
                     Log.e(TAG, "Failed to delete recording from server: " + response.code());
                 }
@@ -393,6 +574,12 @@ public class RecordingRepository {
         });
     }
 
+    /**
+     * Upload every local recording that is not on the server yet and report once all of them
+     * finished. Recordings go through the upload queue like any other upload, so one that is
+     * already queued or in flight is not sent twice. Uploads already in flight in another drain
+     * finish there and are not part of this sync's report.
+     */
     public void syncAllRecordings(SyncStatusCallback callback) {
         if (!isNetworkAvailable() || !isServerAvailable()) {
             if (callback != null) {
@@ -401,32 +588,49 @@ public class RecordingRepository {
             return;
         }
 
-        List<Recording> localRecordings = getAllRecordings();
-        final int[] syncCount = {0};
-        final boolean[] syncSuccess = {true};
-
-        if (localRecordings.isEmpty()) {
-            if (callback != null) {
-                callback.onSyncComplete(true);
+        for (Recording recording : getAllRecordings()) {
+            if (recording.isOnServer()) {
+                continue;
             }
-            return;
-        }
-
-        for (Recording recording : localRecordings) {
             if (recording.isTextRecording()) {
-                uploadTextRecording(recording.getId(), recording.getTitle(), recording.getTextContent());
-            } else if (recording.isVoiceRecording() && recording.getFile() != null) {
-                uploadVoiceRecording(recording.getId(), recording.getTitle(), recording.getFile(), recording.getDuration());
+                uploadQueue.enqueue(recording.getId(), UploadQueue.PRIORITY_TEXT);
+            } else if (recording.isVoiceRecording()) {
+                uploadQueue.enqueue(recording.getId(), UploadQueue.PRIORITY_VOICE);
             }
+        }
 
-            syncCount[0]++;
+        // A full sync is explicit, so don't wait out retry backoff
+        int ready = uploadQueue.resetForRetry();
+        Log.d(TAG, "Scheduling " + ready + " queued recordings for upload");
 
-            if (syncCount[0] == localRecordings.size() && callback != null) {
-                callback.onSyncComplete(syncSuccess[0]);
+        drainNextBatch(new DrainState(report -> {
+            Log.d(TAG, "Sync of all recordings finished: " + report);
+            if (callback != null) {
+                callback.onSyncComplete(report.isAllSucceeded(), report);
             }
+        }));
+    }
+
+    private UploadScheduler.Task createUploadTask(Recording recording) {
+        if (recording.isTextRecording()) {
+            String text = recording.getTextContent() != null ? recording.getTextContent() : "";
+            return new UploadScheduler.Task(recording.getId(), false,
+                    text.getBytes(StandardCharsets.UTF_8).length,
+                    cb -> uploadTextRecording(recording.getId(), recording.getTitle(), recording.getTextContent(), cb));
+        } else if (recording.isVoiceRecording()) {
+            File file = recording.getFile();
+            return new UploadScheduler.Task(recording.getId(), true,
+                    file != null ? file.length() : 0,
+                    cb -> uploadVoiceRecording(recording.getId(), recording.getTitle(), file, recording.getDuration(), cb));
         }
+        return null;
     }
 
+    /**
+     * Pull server-side changes since the last sync and apply them locally. Each page is applied
+     * in one transaction together with its cursor, so only rows changed since the previous
+     * refresh are transferred.
+     */
     public void downloadRecordingsFromServer(SyncStatusCallback callback) {
         if (!isNetworkAvailable() || !isServerAvailable()) {
             if (callback != null) {
@@ -443,68 +647,98 @@ public class RecordingRepository {
             return;
         }
 
-        String deviceId = DeviceIdHelper.getDeviceId(context);
-        Call<List<RecordingDto>> call = apiService.getRecordings(deviceId);
+        executor.execute(() -> {
+            boolean success = pullRecordingChanges(DeviceIdHelper.getDeviceId(context));
+            if (callback != null) {
+                callback.onSyncComplete(success);
+            }
+        });
+    }
 
-        call.enqueue(new Callback<List<RecordingDto>>() {
-            @Override
-            public void onResponse(Call<List<RecordingDto>> call, Response<List<RecordingDto>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "Received " + response.body().size() + " recordings from server");
-                    if (callback != null) {
-                        callback.onSyncComplete(true);
-                    }
-                } else {
-                    Log.e(TAG, "Failed to get recordings from server: " + response.code());
-                    if (callback != null) {
-                        callback.onSyncComplete(false);
-                    }
+    private boolean pullRecordingChanges(String deviceId) {
+        String since = syncStore.getCursor();
+        int applied = 0;
+
+        try {
+            while (true) {
+                Response<RecordingChangesDto> response =
+                        apiService.getRecordingChanges(deviceId, since, CHANGES_PAGE_SIZE).execute();
+
+                if (response.code() == 404) {
+                    // Server predates the delta feed
+                    return pullFullRecordingList(deviceId);
+                }
+                if (!response.isSuccessful() || response.body() == null) {
+                    Log.e(TAG, "Failed to get recording changes from server: " + response.code());
+                    return false;
                 }
-            }
 
-            @Override
-            public void onFailure(Call<List<RecordingDto>> call, Throwable t) {
-                Log.e(TAG, "Error getting recordings from server", t);
-                if (callback != null) {
-                    callback.onSyncComplete(false);
+                RecordingChangesDto page = response.body();
+                RecordingSyncStore.ApplyResult result = syncStore.applyChanges(page, deviceId);
+                if (result == null) {
+                    return false;
+                }
+                applied += result.getTotal();
+                Log.d(TAG, "Applied recording changes: " + result.getInserted() + " new, " +
+                        result.getUpdated() + " updated, " + result.getDeleted() + " deleted");
+
+                // Stop if the server has nothing more or would hand back the same page
+                if (!page.isHasMore() || page.getCursor() == null || page.getCursor().equals(since)) {
+                    break;
                 }
+                since = page.getCursor();
             }
-        });
+        } catch (IOException e) {
+            Log.e(TAG, "Error getting recording changes from server", e);
+            return false;
+        }
+
+        Log.d(TAG, "Incremental sync finished, " + applied + " changes applied");
+        return true;
     }
 
-    public void syncPendingUploads(Object o) {
-        if (!isNetworkAvailable() || !isServerAvailable() || pendingUploads.isEmpty()) {
-            Log.d(TAG, "Cannot sync: Network or server unavailable, or no pending uploads");
-            return;
+    private boolean pullFullRecordingList(String deviceId) throws IOException {
+        Response<List<RecordingDto>> response = apiService.getRecordings(deviceId).execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            Log.e(TAG, "Failed to get recordings from server: " + response.code());
+            return false;
         }
 
-        Log.d(TAG, "Starting sync of " + pendingUploads.size() + " pending uploads");
-
-        List<Long> pendingIds = new ArrayList<>(pendingUploads);
+        Log.d(TAG, "Received " + response.body().size() + " recordings from server");
+        return syncStore.applySnapshot(response.body(), deviceId) != null;
+    }
 
-        for (Long id : pendingIds) {
-            Recording recording = getRecording(id);
-            if (recording == null) {
-                pendingUploads.remove(id);
-                continue;
-            }
+    /**
+     * Replay the upload queue if the server can be reached.
+     */
+    public void syncPendingUploads() {
+        if (!isNetworkAvailable() || !isServerAvailable()) {
+            Log.d(TAG, "Cannot sync: Network or server unavailable");
+            return;
+        }
 
-            if (recording.isTextRecording()) {
-                uploadTextRecording(recording.getId(), recording.getTitle(), recording.getTextContent());
-            } else if (recording.isVoiceRecording() && recording.getFile() != null) {
-                uploadVoiceRecording(recording.getId(), recording.getTitle(), recording.getFile(), recording.getDuration());
-            }
+        int ready = uploadQueue.getReadyCount();
+        if (ready == 0) {
+            Log.d(TAG, "No queued uploads ready to send");
+            return;
         }
+
+        Log.d(TAG, "Starting sync of " + ready + " queued uploads");
+        drainUploadQueue(null);
     }
 
+    /**
+     * Queue depth, including uploads waiting for their next retry.
+     */
     public int getPendingUploadsCount() {
-        return pendingUploads.size();
+        return uploadQueue.getDepth();
     }
 
     public void forceUploadPending(OperationCallback callback) {
-        Log.d(TAG, "Forcing upload of " + pendingUploads.size() + " pending recordings");
+        int reset = uploadQueue.resetForRetry();
+        Log.d(TAG, "Forcing upload of " + reset + " queued recordings");
 
-        if (pendingUploads.isEmpty()) {
+        if (reset == 0) {
             if (callback != null) {
                 callback.onSuccess();
             }
@@ -523,54 +757,76 @@ public class RecordingRepository {
             }
         }
 
-        List<Long> pendingCopy = new ArrayList<>(pendingUploads);
-        final int[] processed = {0};
-        final boolean[] anySuccess = {false};
+        drainUploadQueue(callback);
+    }
 
-        for (Long id : pendingCopy) {
-            Recording recording = getRecording(id);
-            if (recording == null) {
-                pendingUploads.remove(id);
-                processed[0]++;
-                continue;
+    /**
+     * Drain engine: claims ready rows batch by batch in priority order and hands them to the
+     * upload scheduler. The next batch is claimed once every upload of the current batch has
+     * completed, so a failing row is rescheduled (and skipped) rather than retried in a tight loop.
+     */
+    private void drainUploadQueue(OperationCallback callback) {
+        drainNextBatch(new DrainState(report -> {
+            if (callback == null) {
+                return;
+            }
+            if (report.isAllSucceeded()) {
+                callback.onSuccess();
+            } else {
+                callback.onError(report.getFailedCount() + " of " + report.getResults().size() +
+                        " recordings could not be uploaded");
             }
+        }));
+    }
 
-            OperationCallback innerCallback = new OperationCallback() {
-                @Override
-                public void onSuccess() {
-                    anySuccess[0] = true;
-                    processed[0]++;
+    private void drainNextBatch(DrainState state) {
+        List<UploadQueue.Entry> batch = uploadQueue.claimReady(DRAIN_BATCH_SIZE);
+        if (batch.isEmpty()) {
+            state.finish();
+            return;
+        }
 
-                    if (processed[0] >= pendingCopy.size() && callback != null) {
-                        if (anySuccess[0]) {
-                            callback.onSuccess();
-                        } else {
-                            callback.onError("No recordings could be uploaded");
-                        }
-                    }
-                }
+        List<UploadScheduler.Task> tasks = new ArrayList<>();
+        for (UploadQueue.Entry entry : batch) {
+            Recording recording = getRecording(entry.getRecordingId());
+            UploadScheduler.Task task = recording != null ? createUploadTask(recording) : null;
+            if (task == null) {
+                // Recording was deleted locally, nothing left to upload
+                uploadQueue.remove(entry.getRecordingId());
+            } else {
+                tasks.add(task);
+            }
+        }
 
-                @Override
-                public void onError(String errorMessage) {
-                    processed[0]++;
+        uploadScheduler.submitBatch(tasks, report -> {
+            state.add(report);
+            executor.execute(() -> drainNextBatch(state));
+        });
+    }
 
-                    if (processed[0] >= pendingCopy.size() && callback != null) {
-                        if (anySuccess[0]) {
-                            callback.onSuccess();
-                        } else {
-                            callback.onError("No recordings could be uploaded");
-                        }
-                    }
-                }
-            };
+    // Updated by one batch completion at a time; synchronized for the hand-off between threads
+    private static class DrainState {
+        final UploadScheduler.BatchListener listener;
+        final List<UploadScheduler.ItemResult> results = new ArrayList<>();
+        final long startedAt = System.currentTimeMillis();
 
-            if (recording.isTextRecording()) {
-                uploadTextRecordingWithCallback(id, recording.getTitle(), recording.getTextContent(), innerCallback);
-            } else if (recording.isVoiceRecording() && recording.getFile() != null) {
-                uploadVoiceRecordingWithCallback(id, recording.getTitle(), recording.getFile(), recording.getDuration(), innerCallback);
-            } else {
-                processed[0]++;
+        DrainState(UploadScheduler.BatchListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void add(UploadScheduler.BatchReport report) {
+            results.addAll(report.getResults());
+        }
+
+        // One report over every batch of the drain, so throughput covers the whole run
+        void finish() {
+            UploadScheduler.BatchReport report;
+            synchronized (this) {
+                report = new UploadScheduler.BatchReport(new ArrayList<>(results),
+                        System.currentTimeMillis() - startedAt);
             }
+            Log.d(TAG, "Upload queue drained: " + report);
+            listener.onBatchComplete(report);
         }
     }
 
@@ -592,18 +848,190 @@ public class RecordingRepository {
             values.put(RecordingDatabase.COLUMN_MSG_SERVER_ID, serverMessageId);
             values.put(RecordingDatabase.COLUMN_MSG_SENDER_TYPE, isFromDevice ? "device" : "admin");
 
-            messageId = db.insert(RecordingDatabase.TABLE_CHAT_MESSAGES, null, values);
+            // The unique index on server_message_id makes a re-delivered server message a no-op
+            messageId = db.insertWithOnConflict(RecordingDatabase.TABLE_CHAT_MESSAGES, null, values,
+                    SQLiteDatabase.CONFLICT_IGNORE);
             Log.d(TAG, "✅ Message saved with custom timestamp: " + new Date(customTimestamp));
+            publish(RecordingDatabase.TABLE_CHAT_MESSAGES, messageId, OP_INSERT);
 
         } catch (Exception e) {
             Log.e(TAG, "Error saving chat message", e);
+        }
+
+        return messageId;
+    }
+
+    /**
+     * Store a burst of messages (e.g. chat history) in one transaction with one compiled
+     * statement. Messages whose server id is already stored are skipped by the unique index.
+     * Returns the number of rows actually inserted.
+     */
+    public int saveLocalChatMessages(List<LocalChatMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return 0;
+        }
+
+        SQLiteDatabase db = database.getWritableDatabase();
+        SQLiteStatement statement = null;
+        InvalidationTracker.Delta delta = new InvalidationTracker.Delta(RecordingDatabase.TABLE_CHAT_MESSAGES);
+        int inserted = 0;
+
+        db.beginTransaction();
+        try {
+            statement = db.compileStatement("INSERT OR IGNORE INTO " + RecordingDatabase.TABLE_CHAT_MESSAGES + " (" +
+                    RecordingDatabase.COLUMN_MSG_RECORDING_ID + ", " +
+                    RecordingDatabase.COLUMN_MSG_CONTENT + ", " +
+                    RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE + ", " +
+                    RecordingDatabase.COLUMN_MSG_TIMESTAMP + ", " +
+                    RecordingDatabase.COLUMN_MSG_IS_SYNCED + ", " +
+                    RecordingDatabase.COLUMN_MSG_SERVER_ID + ", " +
+                    RecordingDatabase.COLUMN_MSG_SENDER_TYPE + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+
+            for (LocalChatMessage message : messages) {
+                if (message.getMessage() == null) {
+                    continue;
+                }
+
+                statement.clearBindings();
+                statement.bindLong(1, message.getRecordingId());
+                statement.bindString(2, message.getMessage());
+                statement.bindLong(3, message.isFromDevice() ? 1 : 0);
+                statement.bindLong(4, message.getTimestamp());
+                statement.bindLong(5, message.getMessageId() != null ? 1 : 0);
+                if (message.getMessageId() != null) {
+                    statement.bindString(6, message.getMessageId());
+                } else {
+                    statement.bindNull(6);
+                }
+                statement.bindString(7, message.isFromDevice() ? "device" : "admin");
+
+                long rowId = statement.executeInsert();
+                if (rowId != -1) {
+                    delta.inserted(rowId);
+                    inserted++;
+                }
+            }
+
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Saved " + inserted + " of " + messages.size() + " chat messages in one batch");
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving chat message batch", e);
+            inserted = 0;
         } finally {
-            db.close();
+            if (statement != null) {
+                statement.close();
+            }
+            db.endTransaction();
+        }
+
+        if (inserted > 0) {
+            invalidationTracker.publish(delta);
+        }
+        return inserted;
+    }
+
+    /**
+     * Store a message typed on this device before it is sent. It stays unsynced until the server
+     * echoes its idempotency key back.
+     */
+    public long saveOutgoingChatMessage(long recordingId, String message, String clientMessageId, long timestamp) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        long messageId = -1;
+
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_MSG_RECORDING_ID, recordingId);
+            values.put(RecordingDatabase.COLUMN_MSG_CONTENT, message);
+            values.put(RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE, 1);
+            values.put(RecordingDatabase.COLUMN_MSG_TIMESTAMP, timestamp);
+            values.put(RecordingDatabase.COLUMN_MSG_IS_SYNCED, 0);
+            values.put(RecordingDatabase.COLUMN_MSG_SENDER_TYPE, "device");
+            values.put(RecordingDatabase.COLUMN_MSG_CLIENT_ID, clientMessageId);
+
+            messageId = db.insertWithOnConflict(RecordingDatabase.TABLE_CHAT_MESSAGES, null, values,
+                    SQLiteDatabase.CONFLICT_IGNORE);
+            Log.d(TAG, "Queued outgoing chat message " + clientMessageId + " as row " + messageId);
+            publish(RecordingDatabase.TABLE_CHAT_MESSAGES, messageId, OP_INSERT);
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving outgoing chat message", e);
         }
 
         return messageId;
     }
 
+    /**
+     * Outgoing messages of a recording that the server has not acknowledged yet, oldest first.
+     * Rows saved before idempotency keys existed are never replayed.
+     */
+    public List<LocalChatMessage> getUnsyncedOutgoingMessages(long recordingId) {
+        List<LocalChatMessage> messages = new ArrayList<>();
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+
+        try {
+            cursor = db.query(
+                    RecordingDatabase.TABLE_CHAT_MESSAGES,
+                    new String[]{
+                            RecordingDatabase.COLUMN_MSG_ID,
+                            RecordingDatabase.COLUMN_MSG_CONTENT,
+                            RecordingDatabase.COLUMN_MSG_TIMESTAMP,
+                            RecordingDatabase.COLUMN_MSG_CLIENT_ID
+                    },
+                    RecordingDatabase.COLUMN_MSG_RECORDING_ID + " = ? AND " +
+                            RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE + " = 1 AND " +
+                            RecordingDatabase.COLUMN_MSG_IS_SYNCED + " = 0 AND " +
+                            RecordingDatabase.COLUMN_MSG_CLIENT_ID + " IS NOT NULL",
+                    new String[]{String.valueOf(recordingId)},
+                    null,
+                    null,
+                    RecordingDatabase.COLUMN_MSG_TIMESTAMP + " ASC, " + RecordingDatabase.COLUMN_MSG_ID + " ASC"
+            );
+
+            while (cursor.moveToNext()) {
+                messages.add(new LocalChatMessage(cursor.getLong(0), recordingId, cursor.getString(1),
+                        true, cursor.getLong(2), false, null, cursor.getString(3)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading unsynced chat messages", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return messages;
+    }
+
+    /**
+     * The server acknowledged an outgoing message; link it to the server id and mark it synced.
+     */
+    public void markChatMessageSyncedByClientId(String clientMessageId, String serverMessageId) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        long localId = -1;
+
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_CHAT_MESSAGES,
+                    new String[]{RecordingDatabase.COLUMN_MSG_ID},
+                    RecordingDatabase.COLUMN_MSG_CLIENT_ID + " = ?",
+                    new String[]{clientMessageId},
+                    null, null, null);
+            if (cursor.moveToFirst()) {
+                localId = cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error looking up chat message " + clientMessageId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        if (localId != -1) {
+            updateChatMessageWithServerId(localId, serverMessageId);
+        }
+    }
+
     public List<LocalChatMessage> getLocalChatMessages(long recordingId) {
         List<LocalChatMessage> messages = new ArrayList<>();
         SQLiteDatabase db = database.getReadableDatabase();
@@ -643,11 +1071,70 @@ public class RecordingRepository {
             cursor.close();
         }
 
-        db.close();
         Log.d(TAG, "Retrieved " + messages.size() + " chat messages for recording " + recordingId);
         return messages;
     }
 
+    /**
+     * One page of chat history, oldest first, ending just before the (timestamp, id) keyset
+     * position. Pass {@code beforeTimestamp = Long.MAX_VALUE} for the newest page; for older pages
+     * pass the timestamp and id of the first message of the page already shown. A page shorter
+     * than {@code limit} means there is nothing older.
+     */
+    public List<LocalChatMessage> getLocalChatMessagesPage(long recordingId, long beforeTimestamp, long beforeId, int limit) {
+        List<LocalChatMessage> messages = new ArrayList<>();
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+
+        // Served by idx_chat_recording_time; ping/pong and blank rows never reach the page
+        String query = "SELECT * FROM " + RecordingDatabase.TABLE_CHAT_MESSAGES +
+                " WHERE " + RecordingDatabase.COLUMN_MSG_RECORDING_ID + " = ?" +
+                " AND (" + RecordingDatabase.COLUMN_MSG_TIMESTAMP + " < ?" +
+                " OR (" + RecordingDatabase.COLUMN_MSG_TIMESTAMP + " = ? AND " + RecordingDatabase.COLUMN_MSG_ID + " < ?))" +
+                " AND TRIM(" + RecordingDatabase.COLUMN_MSG_CONTENT + ") != ''" +
+                " AND LOWER(TRIM(" + RecordingDatabase.COLUMN_MSG_CONTENT + ")) NOT IN ('ping', 'pong')" +
+                " ORDER BY " + RecordingDatabase.COLUMN_MSG_TIMESTAMP + " DESC, " + RecordingDatabase.COLUMN_MSG_ID + " DESC" +
+                " LIMIT ?";
+
+        try {
+            cursor = db.rawQuery(query, new String[]{
+                    String.valueOf(recordingId),
+                    String.valueOf(beforeTimestamp),
+                    String.valueOf(beforeTimestamp),
+                    String.valueOf(beforeId),
+                    String.valueOf(limit)
+            });
+
+            int idIndex = cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_MSG_ID);
+            int messageIndex = cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_MSG_CONTENT);
+            int fromDeviceIndex = cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE);
+            int timestampIndex = cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_MSG_TIMESTAMP);
+            int syncedIndex = cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_MSG_IS_SYNCED);
+            int serverIdIndex = cursor.getColumnIndexOrThrow(RecordingDatabase.COLUMN_MSG_SERVER_ID);
+
+            while (cursor.moveToNext()) {
+                messages.add(new LocalChatMessage(
+                        cursor.getLong(idIndex),
+                        recordingId,
+                        cursor.getString(messageIndex),
+                        cursor.getInt(fromDeviceIndex) == 1,
+                        cursor.getLong(timestampIndex),
+                        cursor.getInt(syncedIndex) == 1,
+                        cursor.getString(serverIdIndex)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading chat page for recording " + recordingId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        // Newest first from the query, oldest first for display
+        Collections.reverse(messages);
+        return messages;
+    }
+
     public void updateChatMessageWithServerId(long localMessageId, String serverMessageId) {
         SQLiteDatabase db = database.getWritableDatabase();
 
@@ -656,19 +1143,32 @@ public class RecordingRepository {
             values.put(RecordingDatabase.COLUMN_MSG_SERVER_ID, serverMessageId);
             values.put(RecordingDatabase.COLUMN_MSG_IS_SYNCED, 1);
 
-            int rowsUpdated = db.update(
+            int rowsUpdated = db.updateWithOnConflict(
                     RecordingDatabase.TABLE_CHAT_MESSAGES,
                     values,
                     RecordingDatabase.COLUMN_MSG_ID + " = ?",
-                    new String[]{String.valueOf(localMessageId)}
+                    new String[]{String.valueOf(localMessageId)},
+                    SQLiteDatabase.CONFLICT_IGNORE
             );
 
-            Log.d(TAG, "Updated " + rowsUpdated + " chat message(s) with server ID: " + serverMessageId);
+            if (rowsUpdated == 0 && chatMessageExistsByServerId(db, serverMessageId)) {
+                // The server copy was stored first (e.g. from history); drop the local duplicate
+                int deleted = db.delete(RecordingDatabase.TABLE_CHAT_MESSAGES,
+                        RecordingDatabase.COLUMN_MSG_ID + " = ?",
+                        new String[]{String.valueOf(localMessageId)});
+                Log.d(TAG, "Removed local copy of already stored message " + serverMessageId);
+                if (deleted > 0) {
+                    publish(RecordingDatabase.TABLE_CHAT_MESSAGES, localMessageId, OP_DELETE);
+                }
+            } else {
+                Log.d(TAG, "Updated " + rowsUpdated + " chat message(s) with server ID: " + serverMessageId);
+                if (rowsUpdated > 0) {
+                    publish(RecordingDatabase.TABLE_CHAT_MESSAGES, localMessageId, OP_UPDATE);
+                }
+            }
 
         } catch (Exception e) {
             Log.e(TAG, "Error updating chat message with server ID", e);
-        } finally {
-            db.close();
         }
     }
 
@@ -687,7 +1187,6 @@ public class RecordingRepository {
             cursor.close();
         }
 
-        db.close();
         return count;
     }
 
@@ -696,10 +1195,87 @@ public class RecordingRepository {
         try {
             int deletedRows = db.delete(RecordingDatabase.TABLE_CHAT_MESSAGES, null, null);
             Log.d(TAG, "Cleared " + deletedRows + " chat messages");
+            invalidationTracker.publish(new InvalidationTracker.Delta(RecordingDatabase.TABLE_CHAT_MESSAGES).tableChanged());
         } catch (Exception e) {
             Log.e(TAG, "Error clearing chat messages", e);
+        }
+    }
+
+    // -------------- SEARCH --------------
+
+    /**
+     * Chat messages and text recordings matching the query, best match first, with the matched
+     * words highlighted in each snippet. Runs on the full-text index; call off the main thread.
+     */
+    public List<SearchResult> search(String query, int offset, int limit) {
+        return searchIndex.search(query, offset, limit);
+    }
+
+    // -------------- CONVERSATIONS --------------
+
+    /**
+     * Recordings that have chat, most recent activity first. Reads only the summary rows, so the
+     * cost follows the number of conversations rather than the number of messages.
+     */
+    public List<ConversationSummary> getConversations() {
+        List<ConversationSummary> conversations = new ArrayList<>();
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+
+        try {
+            cursor = db.rawQuery("SELECT r." + RecordingDatabase.COLUMN_ID +
+                    ", r." + RecordingDatabase.COLUMN_TITLE +
+                    ", r." + RecordingDatabase.COLUMN_TYPE +
+                    ", r." + RecordingDatabase.COLUMN_DEVICE_ID +
+                    ", s." + RecordingDatabase.COLUMN_SUMMARY_LAST_MESSAGE +
+                    ", s." + RecordingDatabase.COLUMN_SUMMARY_LAST_TIMESTAMP +
+                    ", s." + RecordingDatabase.COLUMN_SUMMARY_UNREAD_COUNT +
+                    ", s." + RecordingDatabase.COLUMN_SUMMARY_UNSYNCED_COUNT +
+                    " FROM " + RecordingDatabase.TABLE_CHAT_SUMMARY + " s" +
+                    " JOIN " + RecordingDatabase.TABLE_RECORDINGS + " r" +
+                    " ON r." + RecordingDatabase.COLUMN_ID + " = s." + RecordingDatabase.COLUMN_SUMMARY_RECORDING_ID +
+                    " ORDER BY s." + RecordingDatabase.COLUMN_SUMMARY_LAST_TIMESTAMP + " DESC", null);
+
+            while (cursor.moveToNext()) {
+                conversations.add(new ConversationSummary(cursor.getLong(0), cursor.getString(1),
+                        cursor.getString(2), cursor.getString(3), cursor.getString(4),
+                        cursor.getLong(5), cursor.getInt(6), cursor.getInt(7)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading conversations", e);
         } finally {
-            db.close();
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return conversations;
+    }
+
+    /**
+     * Everything received so far in this conversation has been seen.
+     */
+    public void markConversationRead(long recordingId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        SQLiteStatement statement = null;
+        try {
+            // last_read_at moves too, so history fetched later for this stretch doesn't count as unread
+            statement = db.compileStatement("UPDATE " + RecordingDatabase.TABLE_CHAT_SUMMARY + " SET " +
+                    RecordingDatabase.COLUMN_SUMMARY_UNREAD_COUNT + " = 0, " +
+                    RecordingDatabase.COLUMN_SUMMARY_LAST_READ_AT + " = " + RecordingDatabase.COLUMN_SUMMARY_LAST_TIMESTAMP +
+                    " WHERE " + RecordingDatabase.COLUMN_SUMMARY_RECORDING_ID + " = ? AND (" +
+                    RecordingDatabase.COLUMN_SUMMARY_UNREAD_COUNT + " > 0 OR " +
+                    RecordingDatabase.COLUMN_SUMMARY_LAST_READ_AT + " < " + RecordingDatabase.COLUMN_SUMMARY_LAST_TIMESTAMP + ")");
+            statement.bindLong(1, recordingId);
+            if (statement.executeUpdateDelete() > 0) {
+                publish(RecordingDatabase.TABLE_CHAT_SUMMARY, recordingId, OP_UPDATE);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error marking conversation " + recordingId + " read", e);
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
         }
     }
 
@@ -730,7 +1306,6 @@ public class RecordingRepository {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
 
         return hasUnsent;
@@ -772,14 +1347,4 @@ public class RecordingRepository {
 
         return isDuplicate;
     }
-
-    private void uploadVoiceRecordingWithCallback(long id, String title, File file, long duration, OperationCallback callback) {
-        // Implementation similar to uploadVoiceRecording but with callback support
-        // [Omitted for brevity]
-    }
-
-    private void uploadTextRecordingWithCallback(long id, String title, String textContent, OperationCallback callback) {
-        // Implementation similar to uploadTextRecording but with callback support
-        // [Omitted for brevity]
-    }
 }
\ No newline at end of file
@@ -0,0 +1,402 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.plcoding.audiorecorder.api.RecordingChangesDto;
+import com.plcoding.audiorecorder.api.RecordingDto;
+
+import java.io.File;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Local side of the incremental recordings sync.
+ *
+ * Keeps the server cursor, links local rows to their server ids, and applies each page of
+ * changes (upserts and deletions) in a single transaction together with the new cursor, so a
+ * crash mid-sync either applies a whole page or none of it. The rows a page touched are published
+ * as one delta once it has committed. Recordings first seen on the server have no local file.
+ */
+public class RecordingSyncStore {
+    private static final String TAG = "RecordingSyncStore";
+
+    private static final String KEY_RECORDINGS_CURSOR = "recordings_cursor";
+
+    // Server timestamps come in a few ISO-8601 flavours depending on the serializer settings
+    private static final String[] SERVER_DATE_PATTERNS = {
+            "yyyy-MM-dd'T'HH:mm:ss.SSSXXX",
+            "yyyy-MM-dd'T'HH:mm:ssXXX",
+            "yyyy-MM-dd'T'HH:mm:ss.SSS",
+            "yyyy-MM-dd'T'HH:mm:ss"
+    };
+
+    private final RecordingDatabase database;
+    private final InvalidationTracker invalidationTracker;
+
+    public static class ApplyResult {
+        private final int inserted;
+        private final int updated;
+        private final int deleted;
+
+        ApplyResult(int inserted, int updated, int deleted) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.deleted = deleted;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        public int getTotal() {
+            return inserted + updated + deleted;
+        }
+    }
+
+    public RecordingSyncStore(RecordingDatabase database, InvalidationTracker invalidationTracker) {
+        this.database = database;
+        this.invalidationTracker = invalidationTracker;
+    }
+
+    /**
+     * The cursor to send as "since", or null if this device has never completed a delta sync.
+     */
+    public String getCursor() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        String value = null;
+
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_SYNC_STATE,
+                    new String[]{RecordingDatabase.COLUMN_SYNC_VALUE},
+                    RecordingDatabase.COLUMN_SYNC_KEY + " = ?",
+                    new String[]{KEY_RECORDINGS_CURSOR},
+                    null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                value = cursor.getString(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading sync cursor", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Apply one page of the delta feed and advance the cursor, all in one transaction.
+     * Returns null if nothing was written.
+     */
+    public ApplyResult applyChanges(RecordingChangesDto page, String deviceId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        InvalidationTracker.Delta delta = new InvalidationTracker.Delta(RecordingDatabase.TABLE_RECORDINGS);
+        List<File> deletedFiles = new ArrayList<>();
+        ApplyResult result;
+        db.beginTransaction();
+        try {
+            int[] counts = new int[2];
+            int deleted = 0;
+
+            if (page.getDeleted() != null) {
+                for (Long serverId : page.getDeleted()) {
+                    if (serverId != null) {
+                        deleted += deleteByServerId(db, serverId, delta, deletedFiles);
+                    }
+                }
+            }
+
+            if (page.getChanged() != null) {
+                for (RecordingDto dto : page.getChanged()) {
+                    upsert(db, dto, deviceId, counts, delta);
+                }
+            }
+
+            if (page.getCursor() != null) {
+                ContentValues values = new ContentValues();
+                values.put(RecordingDatabase.COLUMN_SYNC_KEY, KEY_RECORDINGS_CURSOR);
+                values.put(RecordingDatabase.COLUMN_SYNC_VALUE, page.getCursor());
+                db.insertWithOnConflict(RecordingDatabase.TABLE_SYNC_STATE, null, values,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            }
+
+            db.setTransactionSuccessful();
+            result = new ApplyResult(counts[0], counts[1], deleted);
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying recording changes", e);
+            return null;
+        } finally {
+            db.endTransaction();
+        }
+
+        // Audio is only removed once the rows pointing at it are gone for good
+        for (File file : deletedFiles) {
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Could not delete audio file " + file.getAbsolutePath());
+            }
+        }
+
+        invalidationTracker.publish(delta);
+        return result;
+    }
+
+    /**
+     * Upsert a full listing from a server without the delta feed. The cursor is left untouched.
+     */
+    public ApplyResult applySnapshot(List<RecordingDto> recordings, String deviceId) {
+        RecordingChangesDto page = new RecordingChangesDto();
+        page.setChanged(recordings);
+        return applyChanges(page, deviceId);
+    }
+
+    /**
+     * Remember which server row a local recording became, so the delta feed updates it in place.
+     */
+    public void linkServerId(long localId, long serverId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_SERVER_ID, serverId);
+            int rows = db.update(RecordingDatabase.TABLE_RECORDINGS, values,
+                    RecordingDatabase.COLUMN_ID + " = ?",
+                    new String[]{String.valueOf(localId)});
+            if (rows > 0) {
+                invalidationTracker.publish(new InvalidationTracker.Delta(RecordingDatabase.TABLE_RECORDINGS).updated(localId));
+            }
+        } catch (Exception e) {
+            // Another row already holds this server id (the delta feed got there first)
+            Log.w(TAG, "Could not link recording " + localId + " to server id " + serverId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Server id of a local recording, or -1 if it has not reached the server yet.
+     */
+    public long getServerId(long localId) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        long serverId = -1;
+
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_RECORDINGS,
+                    new String[]{RecordingDatabase.COLUMN_SERVER_ID},
+                    RecordingDatabase.COLUMN_ID + " = ?",
+                    new String[]{String.valueOf(localId)},
+                    null, null, null);
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                serverId = cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading server id of recording " + localId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return serverId;
+    }
+
+    /**
+     * Record a local deletion so a change fetched before the server processed it can't bring
+     * the recording back.
+     */
+    public void addTombstone(long serverId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            insertTombstone(db, serverId);
+        } catch (Exception e) {
+            Log.e(TAG, "Error recording tombstone for server id " + serverId, e);
+        }
+    }
+
+    // Removes the row together with its pending upload state; its audio file is collected for
+    // deletion after commit
+    private int deleteByServerId(SQLiteDatabase db, long serverId, InvalidationTracker.Delta delta, List<File> deletedFiles) {
+        insertTombstone(db, serverId);
+        long localId = findByServerId(db, serverId);
+        if (localId == -1) {
+            return 0;
+        }
+        String[] args = {String.valueOf(localId)};
+        String filePath = findFilePath(db, localId);
+
+        db.delete(RecordingDatabase.TABLE_UPLOAD_QUEUE,
+                RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID + " = ?", args);
+        db.delete(RecordingDatabase.TABLE_CHUNKED_UPLOADS,
+                RecordingDatabase.COLUMN_CHUNK_RECORDING_ID + " = ?", args);
+        int rows = db.delete(RecordingDatabase.TABLE_RECORDINGS,
+                RecordingDatabase.COLUMN_ID + " = ?", args);
+        if (rows > 0) {
+            delta.deleted(localId);
+            if (filePath != null && !filePath.isEmpty()) {
+                deletedFiles.add(new File(filePath));
+            }
+        }
+        return rows;
+    }
+
+    private String findFilePath(SQLiteDatabase db, long localId) {
+        Cursor cursor = db.query(RecordingDatabase.TABLE_RECORDINGS,
+                new String[]{RecordingDatabase.COLUMN_FILE_PATH},
+                RecordingDatabase.COLUMN_ID + " = ?",
+                new String[]{String.valueOf(localId)},
+                null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long findByServerId(SQLiteDatabase db, long serverId) {
+        Cursor cursor = db.query(RecordingDatabase.TABLE_RECORDINGS,
+                new String[]{RecordingDatabase.COLUMN_ID},
+                RecordingDatabase.COLUMN_SERVER_ID + " = ?",
+                new String[]{String.valueOf(serverId)},
+                null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void insertTombstone(SQLiteDatabase db, long serverId) {
+        ContentValues values = new ContentValues();
+        values.put(RecordingDatabase.COLUMN_TOMBSTONE_SERVER_ID, serverId);
+        values.put(RecordingDatabase.COLUMN_TOMBSTONE_DELETED_AT, System.currentTimeMillis());
+        db.insertWithOnConflict(RecordingDatabase.TABLE_RECORDING_TOMBSTONES, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private void upsert(SQLiteDatabase db, RecordingDto dto, String deviceId, int[] counts, InvalidationTracker.Delta delta) {
+        if (dto == null || dto.getId() == null) {
+            return;
+        }
+        long serverId = dto.getId();
+
+        if (isTombstoned(db, serverId)) {
+            return;
+        }
+
+        String type = dto.getType() != null ? dto.getType()
+                : dto.isTextRecording() ? Recording.TYPE_TEXT : Recording.TYPE_VOICE;
+
+        // Fields the server owns; the local file path of a recording made here is kept
+        ContentValues values = new ContentValues();
+        values.put(RecordingDatabase.COLUMN_TITLE, dto.getTitle() != null ? dto.getTitle() : "");
+        values.put(RecordingDatabase.COLUMN_TEXT_CONTENT, dto.getTextContent());
+        values.put(RecordingDatabase.COLUMN_DURATION, dto.getDuration());
+        values.put(RecordingDatabase.COLUMN_TYPE, type);
+
+        // Looked up by server id first so the delta can name the local row
+        long localId = findByServerId(db, serverId);
+        if (localId != -1) {
+            db.update(RecordingDatabase.TABLE_RECORDINGS, values,
+                    RecordingDatabase.COLUMN_ID + " = ?", new String[]{String.valueOf(localId)});
+            delta.updated(localId);
+            counts[1]++;
+            return;
+        }
+
+        // Recordings uploaded before server ids were stored: adopt the matching unlinked row
+        localId = findUnlinkedMatch(db, dto, type, deviceId);
+        if (localId != -1) {
+            values.put(RecordingDatabase.COLUMN_SERVER_ID, serverId);
+            db.update(RecordingDatabase.TABLE_RECORDINGS, values,
+                    RecordingDatabase.COLUMN_ID + " = ?", new String[]{String.valueOf(localId)});
+            delta.updated(localId);
+            counts[1]++;
+            return;
+        }
+
+        values.put(RecordingDatabase.COLUMN_SERVER_ID, serverId);
+        // The server's path means nothing on this device; the audio has not been downloaded
+        values.putNull(RecordingDatabase.COLUMN_FILE_PATH);
+        values.put(RecordingDatabase.COLUMN_DATE, parseServerTime(dto.getCreatedAt()));
+        values.put(RecordingDatabase.COLUMN_DEVICE_ID, dto.getDeviceId());
+        long rowId = db.insert(RecordingDatabase.TABLE_RECORDINGS, null, values);
+        if (rowId != -1) {
+            delta.inserted(rowId);
+        }
+        counts[0]++;
+    }
+
+    private boolean isTombstoned(SQLiteDatabase db, long serverId) {
+        Cursor cursor = db.query(RecordingDatabase.TABLE_RECORDING_TOMBSTONES,
+                new String[]{RecordingDatabase.COLUMN_TOMBSTONE_SERVER_ID},
+                RecordingDatabase.COLUMN_TOMBSTONE_SERVER_ID + " = ?",
+                new String[]{String.valueOf(serverId)},
+                null, null, null);
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long findUnlinkedMatch(SQLiteDatabase db, RecordingDto dto, String type, String deviceId) {
+        if (deviceId == null || !deviceId.equals(dto.getDeviceId()) || dto.getTitle() == null) {
+            return -1;
+        }
+
+        String selection = RecordingDatabase.COLUMN_SERVER_ID + " IS NULL AND " +
+                RecordingDatabase.COLUMN_DEVICE_ID + " = ? AND " +
+                RecordingDatabase.COLUMN_TITLE + " = ? AND " +
+                RecordingDatabase.COLUMN_TYPE + " = ?";
+        String[] args = {deviceId, dto.getTitle(), type};
+        if (Recording.TYPE_TEXT.equals(type) && dto.getTextContent() != null) {
+            selection += " AND " + RecordingDatabase.COLUMN_TEXT_CONTENT + " = ?";
+            args = new String[]{deviceId, dto.getTitle(), type, dto.getTextContent()};
+        }
+
+        Cursor cursor = db.query(RecordingDatabase.TABLE_RECORDINGS,
+                new String[]{RecordingDatabase.COLUMN_ID},
+                selection, args, null, null,
+                RecordingDatabase.COLUMN_DATE + " ASC", "1");
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long parseServerTime(String value) {
+        if (value != null) {
+            for (String pattern : SERVER_DATE_PATTERNS) {
+                SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+                if (!pattern.endsWith("XXX")) {
+                    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                }
+                try {
+                    Date date = format.parse(value);
+                    if (date != null) {
+                        return date.getTime();
+                    }
+                } catch (ParseException ignored) {
+                    // Try the next pattern
+                }
+            }
+        }
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,193 @@
+package com.plcoding.audiorecorder.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text search over chat messages and text recordings, backed by the FTS4 tables that
+ * {@link RecordingDatabase} keeps in sync with triggers.
+ *
+ * A search runs in two steps. The first reads only docids and matchinfo() of the newest
+ * {@link #MAX_CANDIDATES} hits of each index and ranks them with BM25. The second reads
+ * snippets and row details for just the requested page, so snippet generation and the joins
+ * cost the page size, not the number of hits.
+ */
+public class SearchIndex {
+    private static final String TAG = "SearchIndex";
+
+    // Hits ranked per index; very common words only compete among their most recent rows
+    static final int MAX_CANDIDATES = 1000;
+    private static final String SNIPPET_ELLIPSIS = "…";
+    private static final int SNIPPET_TOKENS = 12;
+
+    private final RecordingDatabase database;
+
+    private static class Candidate {
+        final String kind;
+        final long id;
+        final double score;
+
+        Candidate(String kind, long id, double score) {
+            this.kind = kind;
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    public SearchIndex(RecordingDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * One page of hits for what the user typed, best match first. Ask for the next page while a
+     * full page comes back.
+     */
+    public List<SearchResult> search(String query, int offset, int limit) {
+        String match = SearchQuery.toMatchExpression(query);
+        if (match == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        SQLiteDatabase db = database.getReadableDatabase();
+        List<SearchResult> results = new ArrayList<>();
+
+        try {
+            List<Candidate> candidates = new ArrayList<>();
+            readCandidates(db, RecordingDatabase.TABLE_CHAT_MESSAGES_FTS, SearchResult.KIND_MESSAGE, match, candidates);
+            readCandidates(db, RecordingDatabase.TABLE_RECORDINGS_FTS, SearchResult.KIND_RECORDING, match, candidates);
+            // Ties go to the newer row
+            Collections.sort(candidates, (a, b) -> a.score != b.score
+                    ? Double.compare(b.score, a.score) : Long.compare(b.id, a.id));
+
+            if (offset >= candidates.size()) {
+                return results;
+            }
+            List<Candidate> page = candidates.subList(Math.max(0, offset), Math.min(candidates.size(), offset + limit));
+
+            List<Long> messageIds = new ArrayList<>();
+            List<Long> recordingIds = new ArrayList<>();
+            for (Candidate candidate : page) {
+                (SearchResult.KIND_MESSAGE.equals(candidate.kind) ? messageIds : recordingIds).add(candidate.id);
+            }
+            Map<Long, SearchResult> messages = readMessageHits(db, match, messageIds);
+            Map<Long, SearchResult> recordings = readRecordingHits(db, match, recordingIds);
+
+            // A row deleted between the two steps is simply left out
+            for (Candidate candidate : page) {
+                SearchResult hit = (SearchResult.KIND_MESSAGE.equals(candidate.kind) ? messages : recordings).get(candidate.id);
+                if (hit != null) {
+                    results.add(new SearchResult(hit.getKind(), hit.getId(), hit.getRecordingId(), hit.getTitle(),
+                            hit.getSnippet(), hit.getTimestamp(), hit.isFromDevice(), candidate.score));
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error searching for " + match, e);
+        }
+
+        return results;
+    }
+
+    // FTS4 walks the doclist newest docid first and stops at the limit
+    private void readCandidates(SQLiteDatabase db, String ftsTable, String kind, String match, List<Candidate> out) {
+        Cursor cursor = db.rawQuery("SELECT docid, matchinfo(" + ftsTable + ", '" + SearchQuery.MATCHINFO_FORMAT + "')" +
+                " FROM " + ftsTable + " WHERE " + ftsTable + " MATCH ?" +
+                " ORDER BY docid DESC LIMIT " + MAX_CANDIDATES, new String[]{match});
+        try {
+            while (cursor.moveToNext()) {
+                out.add(new Candidate(kind, cursor.getLong(0), SearchQuery.bm25(SearchQuery.parseMatchInfo(cursor.getBlob(1)))));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Map<Long, SearchResult> readMessageHits(SQLiteDatabase db, String match, List<Long> ids) {
+        Map<Long, SearchResult> hits = new HashMap<>();
+        if (ids.isEmpty()) {
+            return hits;
+        }
+
+        String fts = RecordingDatabase.TABLE_CHAT_MESSAGES_FTS;
+        Cursor cursor = db.rawQuery("SELECT m." + RecordingDatabase.COLUMN_MSG_ID +
+                ", " + snippet(fts) +
+                ", m." + RecordingDatabase.COLUMN_MSG_RECORDING_ID +
+                ", m." + RecordingDatabase.COLUMN_MSG_TIMESTAMP +
+                ", m." + RecordingDatabase.COLUMN_MSG_IS_FROM_DEVICE +
+                ", r." + RecordingDatabase.COLUMN_TITLE +
+                " FROM " + fts +
+                " JOIN " + RecordingDatabase.TABLE_CHAT_MESSAGES + " m ON m." + RecordingDatabase.COLUMN_MSG_ID + " = " + fts + ".docid" +
+                " LEFT JOIN " + RecordingDatabase.TABLE_RECORDINGS + " r ON r." + RecordingDatabase.COLUMN_ID +
+                " = m." + RecordingDatabase.COLUMN_MSG_RECORDING_ID +
+                " WHERE " + fts + " MATCH ? AND m." + RecordingDatabase.COLUMN_MSG_ID + " IN (" + placeholders(ids.size()) + ")",
+                snippetArgs(match, ids));
+        try {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                hits.put(id, new SearchResult(SearchResult.KIND_MESSAGE, id, cursor.getLong(2), cursor.getString(5),
+                        cursor.getString(1), cursor.getLong(3), cursor.getInt(4) == 1, 0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return hits;
+    }
+
+    private Map<Long, SearchResult> readRecordingHits(SQLiteDatabase db, String match, List<Long> ids) {
+        Map<Long, SearchResult> hits = new HashMap<>();
+        if (ids.isEmpty()) {
+            return hits;
+        }
+
+        String fts = RecordingDatabase.TABLE_RECORDINGS_FTS;
+        Cursor cursor = db.rawQuery("SELECT r." + RecordingDatabase.COLUMN_ID +
+                ", " + snippet(fts) +
+                ", r." + RecordingDatabase.COLUMN_DATE +
+                ", r." + RecordingDatabase.COLUMN_TITLE +
+                " FROM " + fts +
+                " JOIN " + RecordingDatabase.TABLE_RECORDINGS + " r ON r." + RecordingDatabase.COLUMN_ID + " = " + fts + ".docid" +
+                " WHERE " + fts + " MATCH ? AND r." + RecordingDatabase.COLUMN_ID + " IN (" + placeholders(ids.size()) + ")",
+                snippetArgs(match, ids));
+        try {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                hits.put(id, new SearchResult(SearchResult.KIND_RECORDING, id, id, cursor.getString(3),
+                        cursor.getString(1), cursor.getLong(2), true, 0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return hits;
+    }
+
+    private static String snippet(String ftsTable) {
+        return "snippet(" + ftsTable + ", ?, ?, ?, -1, " + SNIPPET_TOKENS + ")";
+    }
+
+    // Arguments in query order: the three snippet markers, the MATCH expression, then the ids
+    private static String[] snippetArgs(String match, List<Long> ids) {
+        String[] args = new String[4 + ids.size()];
+        args[0] = SearchResult.HIGHLIGHT_START;
+        args[1] = SearchResult.HIGHLIGHT_END;
+        args[2] = SNIPPET_ELLIPSIS;
+        args[3] = match;
+        for (int i = 0; i < ids.size(); i++) {
+            args[4 + i] = String.valueOf(ids.get(i));
+        }
+        return args;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package com.plcoding.audiorecorder.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns what the user typed into an FTS4 MATCH expression, and scores hits with BM25 from the
+ * FTS4 matchinfo() blob, since Android's SQLite has no built-in ranking function for FTS4.
+ */
+public final class SearchQuery {
+    /** The matchinfo() format {@link #bm25} expects. */
+    public static final String MATCHINFO_FORMAT = "pcnalx";
+
+    private static final int MAX_TERMS = 8;
+    // Shorter prefixes expand to a large part of the vocabulary and cost a scan of all of it
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private SearchQuery() {
+    }
+
+    /**
+     * Every word must match; the last one as a prefix once it has a few letters, so results
+     * follow as the user types. Each word is quoted, which keeps FTS operators and punctuation
+     * in the input literal.
+     *
+     * @return the MATCH expression, or null if the input has no searchable words
+     */
+    public static String toMatchExpression(String input) {
+        if (input == null) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= input.length() && terms.size() < MAX_TERMS; i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) {
+                expression.append(' ');
+            }
+            expression.append('"').append(terms.get(i));
+            if (i == terms.size() - 1 && terms.get(i).length() >= MIN_PREFIX_LENGTH) {
+                expression.append('*');
+            }
+            expression.append('"');
+        }
+        return expression.toString();
+    }
+
+    /**
+     * matchinfo() returns 32-bit unsigned integers in the device's byte order.
+     */
+    public static int[] parseMatchInfo(byte[] blob) {
+        ByteBuffer buffer = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder());
+        int[] values = new int[blob.length / 4];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getInt();
+        }
+        return values;
+    }
+
+    /**
+     * BM25 of one row from its "pcnalx" matchinfo: phrase and column counts, row count, average
+     * and current column lengths in tokens, then per phrase and column the hits in this row, the
+     * hits in all rows and the number of rows with a hit.
+     */
+    public static double bm25(int[] matchInfo) {
+        int phrases = matchInfo[0];
+        int columns = matchInfo[1];
+        long rows = matchInfo[2];
+        int averageLengths = 3;
+        int lengths = averageLengths + columns;
+        int hits = lengths + columns;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = hits + 3 * (phrase * columns + column);
+                int termFrequency = matchInfo[base];
+                if (termFrequency <= 0) {
+                    continue;
+                }
+                int rowsWithHit = matchInfo[base + 2];
+                double idf = Math.log((rows - rowsWithHit + 0.5) / (rowsWithHit + 0.5) + 1);
+                double averageLength = Math.max(1, matchInfo[averageLengths + column]);
+                double lengthRatio = matchInfo[lengths + column] / averageLength;
+                score += idf * termFrequency * (K1 + 1) /
+                        (termFrequency + K1 * (1 - B + B * lengthRatio));
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,78 @@
+package com.plcoding.audiorecorder.data;
+
+/**
+ * One hit of a full-text search: a chat message or a text recording, with a snippet of the
+ * matching text. Matched terms in the snippet are wrapped in {@link #HIGHLIGHT_START} and
+ * {@link #HIGHLIGHT_END} so the UI can style them.
+ */
+public class SearchResult {
+    public static final String KIND_MESSAGE = "message";
+    public static final String KIND_RECORDING = "recording";
+
+    public static final String HIGHLIGHT_START = "\u0001";
+    public static final String HIGHLIGHT_END = "\u0002";
+
+    private final String kind;
+    private final long id;
+    private final long recordingId;
+    private final String title;
+    private final String snippet;
+    private final long timestamp;
+    private final boolean fromDevice;
+    private final double score;
+
+    public SearchResult(String kind, long id, long recordingId, String title, String snippet,
+                        long timestamp, boolean fromDevice, double score) {
+        this.kind = kind;
+        this.id = id;
+        this.recordingId = recordingId;
+        this.title = title;
+        this.snippet = snippet;
+        this.timestamp = timestamp;
+        this.fromDevice = fromDevice;
+        this.score = score;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public boolean isMessage() {
+        return KIND_MESSAGE.equals(kind);
+    }
+
+    /**
+     * The chat message id for message hits, the recording id otherwise.
+     */
+    public long getId() {
+        return id;
+    }
+
+    public long getRecordingId() {
+        return recordingId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public String getPlainSnippet() {
+        return snippet == null ? null : snippet.replace(HIGHLIGHT_START, "").replace(HIGHLIGHT_END, "");
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isFromDevice() {
+        return fromDevice;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,303 @@
+package com.plcoding.audiorecorder.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Durable outbox of recordings waiting to be uploaded.
+ *
+ * Rows live in {@link RecordingDatabase#TABLE_UPLOAD_QUEUE} so pending work survives process death.
+ * A row is claimed (moved to in_flight) before the upload starts, deleted on success and
+ * rescheduled with exponential backoff on failure.
+ */
+public class UploadQueue {
+    private static final String TAG = "UploadQueue";
+
+    public static final String STATE_PENDING = "pending";
+    public static final String STATE_IN_FLIGHT = "in_flight";
+    public static final String STATE_FAILED = "failed";
+
+    // Text notes are tiny, so they go out before voice files
+    public static final int PRIORITY_VOICE = 0;
+    public static final int PRIORITY_TEXT = 10;
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MS = 30_000;
+    private static final long MAX_BACKOFF_MS = 30 * 60_000;
+
+    // In-flight rows left behind by a killed process are only recovered once per process
+    private static final AtomicBoolean recovered = new AtomicBoolean(false);
+
+    private final RecordingDatabase database;
+
+    public static class Entry {
+        private final long recordingId;
+        private final int priority;
+        private final int attempts;
+
+        Entry(long recordingId, int priority, int attempts) {
+            this.recordingId = recordingId;
+            this.priority = priority;
+            this.attempts = attempts;
+        }
+
+        public long getRecordingId() {
+            return recordingId;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+
+    public UploadQueue(RecordingDatabase database) {
+        this.database = database;
+
+        if (recovered.compareAndSet(false, true)) {
+            recoverInFlight();
+        }
+    }
+
+    /**
+     * Add a recording to the outbox. Does nothing if it is already queued.
+     */
+    public void enqueue(long recordingId, int priority) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID, recordingId);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_STATE, STATE_PENDING);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_PRIORITY, priority);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_ATTEMPTS, 0);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_NEXT_RETRY, 0);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_CREATED_AT, System.currentTimeMillis());
+
+            long rowId = db.insertWithOnConflict(RecordingDatabase.TABLE_UPLOAD_QUEUE, null, values,
+                    SQLiteDatabase.CONFLICT_IGNORE);
+            if (rowId != -1) {
+                Log.d(TAG, "Queued recording ID " + recordingId + " (priority " + priority + ")");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error queueing recording " + recordingId, e);
+        }
+    }
+
+    /**
+     * Atomically move up to {@code limit} ready rows to in_flight and return them in drain order.
+     */
+    public List<Entry> claimReady(int limit) {
+        List<Entry> claimed = new ArrayList<>();
+        SQLiteDatabase db = database.getWritableDatabase();
+        Cursor cursor = null;
+
+        db.beginTransaction();
+        try {
+            cursor = db.query(
+                    RecordingDatabase.TABLE_UPLOAD_QUEUE,
+                    new String[]{
+                            RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID,
+                            RecordingDatabase.COLUMN_UPLOAD_PRIORITY,
+                            RecordingDatabase.COLUMN_UPLOAD_ATTEMPTS
+                    },
+                    RecordingDatabase.COLUMN_UPLOAD_STATE + " = ? AND " +
+                            RecordingDatabase.COLUMN_UPLOAD_NEXT_RETRY + " <= ?",
+                    new String[]{STATE_PENDING, String.valueOf(System.currentTimeMillis())},
+                    null,
+                    null,
+                    RecordingDatabase.COLUMN_UPLOAD_PRIORITY + " DESC, " +
+                            RecordingDatabase.COLUMN_UPLOAD_CREATED_AT + " ASC",
+                    String.valueOf(limit)
+            );
+
+            while (cursor.moveToNext()) {
+                claimed.add(new Entry(cursor.getLong(0), cursor.getInt(1), cursor.getInt(2)));
+            }
+
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_UPLOAD_STATE, STATE_IN_FLIGHT);
+            for (Entry entry : claimed) {
+                db.update(RecordingDatabase.TABLE_UPLOAD_QUEUE, values,
+                        RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID + " = ?",
+                        new String[]{String.valueOf(entry.getRecordingId())});
+            }
+
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Error claiming queued uploads", e);
+            claimed.clear();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            db.endTransaction();
+        }
+
+        return claimed;
+    }
+
+    /**
+     * The upload reached the server, drop it from the outbox.
+     */
+    public void markSucceeded(long recordingId) {
+        remove(recordingId);
+    }
+
+    /**
+     * Record a failed attempt and schedule the next one. Rows that are not queued yet are added,
+     * so a failed direct upload is never lost. After {@link #MAX_ATTEMPTS} the row is parked as
+     * failed until {@link #resetForRetry()} is called.
+     */
+    public void markFailed(long recordingId, int priority, String error) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        Cursor cursor = null;
+
+        db.beginTransaction();
+        try {
+            int attempts = 0;
+            cursor = db.query(
+                    RecordingDatabase.TABLE_UPLOAD_QUEUE,
+                    new String[]{RecordingDatabase.COLUMN_UPLOAD_ATTEMPTS},
+                    RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID + " = ?",
+                    new String[]{String.valueOf(recordingId)},
+                    null, null, null
+            );
+            boolean exists = cursor.moveToFirst();
+            if (exists) {
+                attempts = cursor.getInt(0);
+            }
+
+            attempts++;
+            long now = System.currentTimeMillis();
+
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_UPLOAD_STATE, attempts >= MAX_ATTEMPTS ? STATE_FAILED : STATE_PENDING);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_ATTEMPTS, attempts);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_NEXT_RETRY, now + backoffFor(attempts));
+            values.put(RecordingDatabase.COLUMN_UPLOAD_LAST_ERROR, error);
+
+            if (exists) {
+                db.update(RecordingDatabase.TABLE_UPLOAD_QUEUE, values,
+                        RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID + " = ?",
+                        new String[]{String.valueOf(recordingId)});
+            } else {
+                values.put(RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID, recordingId);
+                values.put(RecordingDatabase.COLUMN_UPLOAD_PRIORITY, priority);
+                values.put(RecordingDatabase.COLUMN_UPLOAD_CREATED_AT, now);
+                db.insert(RecordingDatabase.TABLE_UPLOAD_QUEUE, null, values);
+            }
+
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Upload of recording ID " + recordingId + " failed (attempt " + attempts + "): " + error);
+        } catch (Exception e) {
+            Log.e(TAG, "Error recording failed upload for " + recordingId, e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            db.endTransaction();
+        }
+    }
+
+    public void remove(long recordingId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            int removed = db.delete(RecordingDatabase.TABLE_UPLOAD_QUEUE,
+                    RecordingDatabase.COLUMN_UPLOAD_RECORDING_ID + " = ?",
+                    new String[]{String.valueOf(recordingId)});
+            if (removed > 0) {
+                Log.d(TAG, "Removed recording ID " + recordingId + " from upload queue");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error removing recording " + recordingId + " from upload queue", e);
+        }
+    }
+
+    /**
+     * Make every waiting or parked row eligible right away (used by a manual "upload now").
+     */
+    public int resetForRetry() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        int updated = 0;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_UPLOAD_STATE, STATE_PENDING);
+            values.put(RecordingDatabase.COLUMN_UPLOAD_NEXT_RETRY, 0);
+            updated = db.update(RecordingDatabase.TABLE_UPLOAD_QUEUE, values,
+                    RecordingDatabase.COLUMN_UPLOAD_STATE + " != ?",
+                    new String[]{STATE_IN_FLIGHT});
+        } catch (Exception e) {
+            Log.e(TAG, "Error resetting upload queue", e);
+        }
+        return updated;
+    }
+
+    /**
+     * Number of recordings still waiting to reach the server, including parked failures.
+     */
+    public int getDepth() {
+        return count(null, null);
+    }
+
+    /**
+     * Number of recordings that can be claimed right now.
+     */
+    public int getReadyCount() {
+        return count(RecordingDatabase.COLUMN_UPLOAD_STATE + " = ? AND " +
+                        RecordingDatabase.COLUMN_UPLOAD_NEXT_RETRY + " <= ?",
+                new String[]{STATE_PENDING, String.valueOf(System.currentTimeMillis())});
+    }
+
+    private int count(String selection, String[] selectionArgs) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Cursor cursor = null;
+        int count = 0;
+        try {
+            cursor = db.query(RecordingDatabase.TABLE_UPLOAD_QUEUE, new String[]{"COUNT(*)"},
+                    selection, selectionArgs, null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error counting upload queue", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rows still marked in_flight at startup belong to a process that died mid-upload.
+     */
+    private void recoverInFlight() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(RecordingDatabase.COLUMN_UPLOAD_STATE, STATE_PENDING);
+            int recoveredRows = db.update(RecordingDatabase.TABLE_UPLOAD_QUEUE, values,
+                    RecordingDatabase.COLUMN_UPLOAD_STATE + " = ?",
+                    new String[]{STATE_IN_FLIGHT});
+            if (recoveredRows > 0) {
+                Log.d(TAG, "Recovered " + recoveredRows + " interrupted uploads");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error recovering interrupted uploads", e);
+        }
+    }
+
+    private static long backoffFor(int attempts) {
+        long delay = BASE_BACKOFF_MS << Math.min(attempts - 1, 16);
+        return Math.min(MAX_BACKOFF_MS, delay);
+    }
+}
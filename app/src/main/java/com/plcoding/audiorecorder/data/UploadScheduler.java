@@ -0,0 +1,396 @@
+package com.plcoding.audiorecorder.data;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide scheduler that caps how many recording uploads are in flight at once.
+ *
+ * Text and voice uploads have separate limits so a backlog of large voice files can't hold back
+ * small text notes, and the total stays well under OkHttp's per-host limit so other traffic to
+ * the server (checklists, chat history) still gets a connection. Anything over the limit waits
+ * in a FIFO queue until a slot frees up.
+ */
+public class UploadScheduler {
+    private static final String TAG = "UploadScheduler";
+
+    public static final int DEFAULT_MAX_TEXT_IN_FLIGHT = 3;
+    public static final int DEFAULT_MAX_VOICE_IN_FLIGHT = 2;
+
+    private static volatile UploadScheduler instance;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Task> textQueue = new ArrayDeque<>();
+    private final ArrayDeque<Task> voiceQueue = new ArrayDeque<>();
+    private int maxTextInFlight;
+    private int maxVoiceInFlight;
+    private int textInFlight = 0;
+    private int voiceInFlight = 0;
+    private boolean pumping = false;
+
+    // Throughput is measured over the time at least one upload was running
+    private long completedItems = 0;
+    private long completedBytes = 0;
+    private long busyMillis = 0;
+    private long busySince = -1;
+
+    /**
+     * Starts the actual network call and reports back exactly once through the callback.
+     */
+    public interface Starter {
+        void start(RecordingRepository.OperationCallback callback);
+    }
+
+    public interface BatchListener {
+        void onBatchComplete(BatchReport report);
+    }
+
+    public static class Task {
+        private final long recordingId;
+        private final boolean voice;
+        private final long sizeBytes;
+        private final Starter starter;
+        private BatchTracker tracker;
+        private long startedAt;
+
+        public Task(long recordingId, boolean voice, long sizeBytes, Starter starter) {
+            this.recordingId = recordingId;
+            this.voice = voice;
+            this.sizeBytes = sizeBytes;
+            this.starter = starter;
+        }
+
+        public long getRecordingId() {
+            return recordingId;
+        }
+
+        public boolean isVoice() {
+            return voice;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+    }
+
+    public static class ItemResult {
+        private final long recordingId;
+        private final boolean voice;
+        private final boolean success;
+        private final long sizeBytes;
+        private final long durationMs;
+        private final String error;
+
+        ItemResult(long recordingId, boolean voice, boolean success, long sizeBytes, long durationMs, String error) {
+            this.recordingId = recordingId;
+            this.voice = voice;
+            this.success = success;
+            this.sizeBytes = sizeBytes;
+            this.durationMs = durationMs;
+            this.error = error;
+        }
+
+        public long getRecordingId() {
+            return recordingId;
+        }
+
+        public boolean isVoice() {
+            return voice;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    public static class BatchReport {
+        private final List<ItemResult> results;
+        private final long elapsedMs;
+
+        BatchReport(List<ItemResult> results, long elapsedMs) {
+            this.results = Collections.unmodifiableList(results);
+            this.elapsedMs = elapsedMs;
+        }
+
+        public List<ItemResult> getResults() {
+            return results;
+        }
+
+        public int getSucceededCount() {
+            int count = 0;
+            for (ItemResult result : results) {
+                if (result.isSuccess()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public int getFailedCount() {
+            return results.size() - getSucceededCount();
+        }
+
+        public boolean isAllSucceeded() {
+            return getFailedCount() == 0;
+        }
+
+        public long getUploadedBytes() {
+            long bytes = 0;
+            for (ItemResult result : results) {
+                if (result.isSuccess()) {
+                    bytes += result.getSizeBytes();
+                }
+            }
+            return bytes;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public double getBytesPerSecond() {
+            return elapsedMs > 0 ? getUploadedBytes() * 1000.0 / elapsedMs : 0;
+        }
+
+        public double getItemsPerSecond() {
+            return elapsedMs > 0 ? getSucceededCount() * 1000.0 / elapsedMs : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d/%d uploaded in %d ms (%.1f KB/s, %.2f items/s)",
+                    getSucceededCount(), results.size(), elapsedMs,
+                    getBytesPerSecond() / 1024.0, getItemsPerSecond());
+        }
+    }
+
+    private static class BatchTracker {
+        private final BatchListener listener;
+        private final AtomicInteger remaining;
+        private final List<ItemResult> results;
+        private final long startedAt = System.currentTimeMillis();
+
+        BatchTracker(int size, BatchListener listener) {
+            this.listener = listener;
+            this.remaining = new AtomicInteger(size);
+            this.results = Collections.synchronizedList(new ArrayList<>(size));
+        }
+
+        void onItemDone(ItemResult result) {
+            results.add(result);
+            if (remaining.decrementAndGet() == 0 && listener != null) {
+                listener.onBatchComplete(new BatchReport(new ArrayList<>(results),
+                        System.currentTimeMillis() - startedAt));
+            }
+        }
+    }
+
+    public UploadScheduler(int maxTextInFlight, int maxVoiceInFlight) {
+        this.maxTextInFlight = Math.max(1, maxTextInFlight);
+        this.maxVoiceInFlight = Math.max(1, maxVoiceInFlight);
+    }
+
+    public static UploadScheduler getInstance() {
+        if (instance == null) {
+            synchronized (UploadScheduler.class) {
+                if (instance == null) {
+                    instance = new UploadScheduler(DEFAULT_MAX_TEXT_IN_FLIGHT, DEFAULT_MAX_VOICE_IN_FLIGHT);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Change the in-flight limits. Raising a limit starts queued work right away; lowering it
+     * lets running uploads finish and only applies to new starts.
+     */
+    public void setLimits(int maxTextInFlight, int maxVoiceInFlight) {
+        synchronized (lock) {
+            this.maxTextInFlight = Math.max(1, maxTextInFlight);
+            this.maxVoiceInFlight = Math.max(1, maxVoiceInFlight);
+        }
+        pump();
+    }
+
+    public void submit(Task task) {
+        synchronized (lock) {
+            (task.voice ? voiceQueue : textQueue).addLast(task);
+        }
+        pump();
+    }
+
+    /**
+     * Submit a group of uploads and get one report once every one of them has finished.
+     */
+    public void submitBatch(List<Task> tasks, BatchListener listener) {
+        if (tasks.isEmpty()) {
+            if (listener != null) {
+                listener.onBatchComplete(new BatchReport(new ArrayList<>(), 0));
+            }
+            return;
+        }
+
+        BatchTracker tracker = new BatchTracker(tasks.size(), listener);
+        synchronized (lock) {
+            for (Task task : tasks) {
+                task.tracker = tracker;
+                (task.voice ? voiceQueue : textQueue).addLast(task);
+            }
+        }
+        pump();
+    }
+
+    /**
+     * Start as many queued tasks as the limits allow. Tasks are started outside the lock, and a
+     * task that completes synchronously only re-enters the loop instead of recursing.
+     */
+    private void pump() {
+        synchronized (lock) {
+            if (pumping) {
+                return;
+            }
+            pumping = true;
+        }
+
+        try {
+            while (true) {
+                List<Task> toStart = new ArrayList<>();
+                synchronized (lock) {
+                    while (textInFlight < maxTextInFlight && !textQueue.isEmpty()) {
+                        toStart.add(textQueue.pollFirst());
+                        textInFlight++;
+                    }
+                    while (voiceInFlight < maxVoiceInFlight && !voiceQueue.isEmpty()) {
+                        toStart.add(voiceQueue.pollFirst());
+                        voiceInFlight++;
+                    }
+                    if (toStart.isEmpty()) {
+                        pumping = false;
+                        return;
+                    }
+                    if (busySince < 0) {
+                        busySince = System.currentTimeMillis();
+                    }
+                }
+
+                for (Task task : toStart) {
+                    start(task);
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                pumping = false;
+            }
+            throw e;
+        }
+    }
+
+    private void start(Task task) {
+        task.startedAt = System.currentTimeMillis();
+        AtomicInteger reported = new AtomicInteger(0);
+
+        RecordingRepository.OperationCallback callback = new RecordingRepository.OperationCallback() {
+            @Override
+            public void onSuccess() {
+                if (reported.getAndIncrement() == 0) {
+                    onTaskDone(task, true, null);
+                }
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                if (reported.getAndIncrement() == 0) {
+                    onTaskDone(task, false, errorMessage);
+                }
+            }
+        };
+
+        try {
+            task.starter.start(callback);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting upload for recording " + task.recordingId, e);
+            callback.onError(e.getMessage());
+        }
+    }
+
+    private void onTaskDone(Task task, boolean success, String error) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            if (task.voice) {
+                voiceInFlight--;
+            } else {
+                textInFlight--;
+            }
+            if (success) {
+                completedItems++;
+                completedBytes += task.sizeBytes;
+            }
+            if (textInFlight == 0 && voiceInFlight == 0 && busySince >= 0) {
+                busyMillis += now - busySince;
+                busySince = -1;
+            }
+        }
+
+        if (task.tracker != null) {
+            task.tracker.onItemDone(new ItemResult(task.recordingId, task.voice, success,
+                    task.sizeBytes, now - task.startedAt, error));
+        }
+
+        pump();
+    }
+
+    public int getInFlightCount() {
+        synchronized (lock) {
+            return textInFlight + voiceInFlight;
+        }
+    }
+
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return textQueue.size() + voiceQueue.size();
+        }
+    }
+
+    /**
+     * Average upload throughput in bytes per second over the time uploads were running.
+     */
+    public double getBytesPerSecond() {
+        synchronized (lock) {
+            long busy = currentBusyMillis();
+            return busy > 0 ? completedBytes * 1000.0 / busy : 0;
+        }
+    }
+
+    /**
+     * Average number of completed uploads per second over the time uploads were running.
+     */
+    public double getItemsPerSecond() {
+        synchronized (lock) {
+            long busy = currentBusyMillis();
+            return busy > 0 ? completedItems * 1000.0 / busy : 0;
+        }
+    }
+
+    private long currentBusyMillis() {
+        return busyMillis + (busySince >= 0 ? System.currentTimeMillis() - busySince : 0);
+    }
+}
@@ -0,0 +1,319 @@
+package com.plcoding.audiorecorder.forms;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * JPEG encoder that lands just under a byte budget instead of trying fixed qualities.
+ *
+ * It first searches quality at full size; only when even the lowest acceptable quality is too
+ * big does it search for the largest downscale that fits, then raises quality again at that
+ * size. Every pass encodes into the same in-memory buffer, and the total number of passes is
+ * capped, so the worst case is a known number of compress calls.
+ *
+ * Not thread-safe: each thread should use its own instance so the buffer can be reused.
+ */
+public class AdaptiveJpegEncoder {
+    private static final String TAG = "AdaptiveJpegEncoder";
+
+    public static final int MAX_QUALITY = 85;
+    public static final int MIN_QUALITY = 40;
+    public static final float MIN_SCALE = 0.25f;
+    public static final int MAX_PASSES = 12;
+
+    // Searches stop once the interval is this narrow
+    private static final int QUALITY_STEP = 3;
+    private static final float SCALE_STEP = 0.05f;
+    // A result using at least this share of the budget is close enough
+    private static final float GOOD_ENOUGH = 0.9f;
+
+    private static final int INITIAL_BUFFER = 512 * 1024;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER);
+
+    /**
+     * Parameters of the encode that was kept.
+     */
+    public static class Result {
+        private final int quality;
+        private final float scale;
+        private final int width;
+        private final int height;
+        private final long bytes;
+        private final long budget;
+        private final int passes;
+        private final long elapsedMs;
+        private final boolean fits;
+
+        Result(int quality, float scale, int width, int height, long bytes, long budget,
+               int passes, long elapsedMs, boolean fits) {
+            this.quality = quality;
+            this.scale = scale;
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+            this.budget = budget;
+            this.passes = passes;
+            this.elapsedMs = elapsedMs;
+            this.fits = fits;
+        }
+
+        public int getQuality() {
+            return quality;
+        }
+
+        public float getScale() {
+            return scale;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        // 0 when there was no limit
+        public long getBudget() {
+            return budget;
+        }
+
+        public int getPasses() {
+            return passes;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public boolean fits() {
+            return fits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "q=%d scale=%.2f %dx%d %d/%s bytes in %d passes, %d ms",
+                    quality, scale, width, height, bytes, budget > 0 ? String.valueOf(budget) : "unlimited",
+                    passes, elapsedMs);
+        }
+    }
+
+    /**
+     * Byte budget of a photo question; the same 5MB default as ValidationHelper if it sets none.
+     */
+    public static long budgetOf(ChecklistQuestion question) {
+        if (question == null || question.getValidation() == null
+                || question.getValidation().getMax_file_size() == null) {
+            return ValidationHelper.DEFAULT_MAX_FILE_SIZE;
+        }
+        return question.getValidation().getMax_file_size();
+    }
+
+    /**
+     * Encode under maxBytes (0 = no limit). When the result fits, the encoded bytes are left in
+     * the buffer for writeTo; when it doesn't, the buffer content is undefined.
+     */
+    public Result encode(Bitmap bitmap, long maxBytes) throws IOException {
+        long start = System.currentTimeMillis();
+        Search search = new Search(bitmap, maxBytes);
+        try {
+            search.run();
+        } finally {
+            search.releaseScaled();
+        }
+        Result result = new Result(search.bestQuality, search.bestScale, search.bestWidth, search.bestHeight,
+                search.bestBytes, maxBytes, search.passes, System.currentTimeMillis() - start, search.found);
+        Log.d(TAG, "Encoded " + bitmap.getWidth() + "x" + bitmap.getHeight() + ": " + result);
+        return result;
+    }
+
+    /**
+     * Encode under maxBytes straight into outputFile. The file is only written if it fits.
+     */
+    public Result encodeToFile(Bitmap bitmap, long maxBytes, File outputFile) throws IOException {
+        Result result = encode(bitmap, maxBytes);
+        if (result.fits()) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+                writeTo(out);
+            }
+        }
+        return result;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        buffer.writeTo(out);
+    }
+
+    // One search over one bitmap; remembers the best fitting pass
+    private class Search {
+        private final Bitmap source;
+        private final long maxBytes;
+
+        private Bitmap scaled;
+        private float scaledAt = 1f;
+
+        int passes = 0;
+        boolean found = false;
+        boolean bufferHoldsBest = false;
+        int bestQuality;
+        float bestScale;
+        int bestWidth;
+        int bestHeight;
+        long bestBytes;
+
+        Search(Bitmap source, long maxBytes) {
+            this.source = source;
+            this.maxBytes = maxBytes;
+        }
+
+        void run() throws IOException {
+            long size = pass(1f, MAX_QUALITY);
+            if (maxBytes <= 0 || size <= maxBytes) {
+                keep(1f, MAX_QUALITY, size);
+                return;
+            }
+
+            // Lowest quality at full size decides whether scaling is needed at all
+            size = pass(1f, MIN_QUALITY);
+            if (size <= maxBytes) {
+                keep(1f, MIN_QUALITY, size);
+                searchQuality(1f, MIN_QUALITY, MAX_QUALITY);
+                return;
+            }
+
+            float fitting = searchScale(size);
+            if (fitting > 0) {
+                // The scale was sized at MIN_QUALITY, so MAX_QUALITY may well fit there too
+                if (passes < MAX_PASSES && !closeEnough()) {
+                    size = pass(fitting, MAX_QUALITY);
+                    if (size <= maxBytes) {
+                        keep(fitting, MAX_QUALITY, size);
+                        return;
+                    }
+                }
+                searchQuality(fitting, MIN_QUALITY, MAX_QUALITY);
+            }
+        }
+
+        // lo is known to fit and hi is known not to
+        private void searchQuality(float scale, int lo, int hi) throws IOException {
+            while (hi - lo > QUALITY_STEP && passes < MAX_PASSES && !closeEnough()) {
+                int mid = (lo + hi) / 2;
+                long size = pass(scale, mid);
+                if (size <= maxBytes) {
+                    lo = mid;
+                    keep(scale, mid, size);
+                } else {
+                    hi = mid;
+                }
+            }
+            restoreBest();
+        }
+
+        // Largest scale at MIN_QUALITY that fits, or 0 if even MIN_SCALE doesn't
+        private float searchScale(long fullSize) throws IOException {
+            // JPEG size grows roughly with the pixel count, which gives a good first guess
+            float guess = (float) Math.sqrt((double) maxBytes / fullSize);
+            guess = Math.max(MIN_SCALE, Math.min(1f, guess));
+
+            float lo;
+            float hi = 1f;
+            long size = pass(guess, MIN_QUALITY);
+            if (size <= maxBytes) {
+                lo = guess;
+                keep(guess, MIN_QUALITY, size);
+            } else {
+                hi = guess;
+                if (guess <= MIN_SCALE) {
+                    return 0;
+                }
+                size = pass(MIN_SCALE, MIN_QUALITY);
+                if (size > maxBytes) {
+                    return 0;
+                }
+                lo = MIN_SCALE;
+                keep(MIN_SCALE, MIN_QUALITY, size);
+            }
+
+            while (hi - lo > SCALE_STEP && passes < MAX_PASSES && !closeEnough()) {
+                float mid = (lo + hi) / 2;
+                size = pass(mid, MIN_QUALITY);
+                if (size <= maxBytes) {
+                    lo = mid;
+                    keep(mid, MIN_QUALITY, size);
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private boolean closeEnough() {
+            return found && bestBytes >= maxBytes * GOOD_ENOUGH;
+        }
+
+        private long pass(float scale, int quality) throws IOException {
+            Bitmap input = bitmapAt(scale);
+            buffer.reset();
+            if (!input.compress(Bitmap.CompressFormat.JPEG, quality, buffer)) {
+                throw new IOException("JPEG compression failed");
+            }
+            passes++;
+            bufferHoldsBest = false;
+            return buffer.size();
+        }
+
+        private void keep(float scale, int quality, long size) {
+            Bitmap input = bitmapAt(scale);
+            found = true;
+            bestScale = scale;
+            bestQuality = quality;
+            bestWidth = input.getWidth();
+            bestHeight = input.getHeight();
+            bestBytes = size;
+            bufferHoldsBest = true;
+        }
+
+        // The buffer must end up holding the kept encode; redo it if a later pass overwrote it
+        private void restoreBest() throws IOException {
+            if (found && !bufferHoldsBest) {
+                pass(bestScale, bestQuality);
+            }
+        }
+
+        private Bitmap bitmapAt(float scale) {
+            if (scale >= 1f) {
+                return source;
+            }
+            if (scaled == null || scaledAt != scale) {
+                releaseScaled();
+                int width = Math.max(1, Math.round(source.getWidth() * scale));
+                int height = Math.max(1, Math.round(source.getHeight() * scale));
+                scaled = Bitmap.createScaledBitmap(source, width, height, true);
+                scaledAt = scale;
+            }
+            return scaled;
+        }
+
+        void releaseScaled() {
+            if (scaled != null && scaled != source) {
+                scaled.recycle();
+            }
+            scaled = null;
+            scaledAt = 1f;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.plcoding.audiorecorder.forms;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Small pool of mutable bitmaps that decodes can draw into through BitmapFactory.Options.inBitmap,
+ * so replacing a photo preview reuses the old pixels instead of allocating new ones.
+ *
+ * Since API 19 a pooled bitmap can be reused for any decode whose result fits in its allocation,
+ * so lookups only compare byte counts. The pool is capped by total bytes and drops its oldest
+ * bitmaps first.
+ */
+public class BitmapPool {
+    private final long maxBytes;
+    private final ArrayDeque<Bitmap> bitmaps = new ArrayDeque<>();
+    private long currentBytes = 0;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A pooled bitmap large enough for width x height ARGB_8888 pixels, or null.
+     */
+    public synchronized Bitmap get(int width, int height) {
+        long needed = (long) width * height * 4;
+        Iterator<Bitmap> iterator = bitmaps.iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (bitmap.getAllocationByteCount() >= needed) {
+                iterator.remove();
+                currentBytes -= bitmap.getAllocationByteCount();
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hand back a bitmap nothing displays any more. Immutable or recycled bitmaps are ignored.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        bitmaps.addLast(bitmap);
+        currentBytes += size;
+        while (currentBytes > maxBytes && !bitmaps.isEmpty()) {
+            Bitmap evicted = bitmaps.removeFirst();
+            currentBytes -= evicted.getAllocationByteCount();
+            evicted.recycle();
+        }
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        currentBytes = 0;
+    }
+}
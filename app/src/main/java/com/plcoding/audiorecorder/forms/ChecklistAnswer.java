@@ -8,6 +8,7 @@ public class ChecklistAnswer {
     private String question_id;
     private Object value;
     private String photo_base64; // For photo uploads
+    private String photo_part; // Name of the multipart part holding the photo
     // ✅ NEW: Camera tracking fields
     private String photo_source_used; // "camera" or "gallery"
     private String camera_used; // "front" or "back"
@@ -106,6 +107,14 @@ public class ChecklistAnswer {
         }
     }
 
+    public String getPhoto_part() {
+        return photo_part;
+    }
+
+    public void setPhoto_part(String photo_part) {
+        this.photo_part = photo_part;
+    }
+
     // ✅ NEW: Camera tracking getters and setters
     public String getPhoto_source_used() {
         return photo_source_used;
@@ -125,7 +134,8 @@ public class ChecklistAnswer {
 
     // Helper method to check if this is a photo response
     public boolean isPhotoResponse() {
-        return photo_base64 != null && !photo_base64.isEmpty();
+        return (photo_base64 != null && !photo_base64.isEmpty())
+                || (photo_part != null && !photo_part.isEmpty());
     }
 
     // ✅ NEW: Helper method to check if camera was used
@@ -155,7 +165,7 @@ public class ChecklistAnswer {
 
     // Helper method to get the effective value (photo_base64 or value)
     public Object getEffectiveValue() {
-        return isPhotoResponse() ? photo_base64 : value;
+        return photo_base64 != null && !photo_base64.isEmpty() ? photo_base64 : value;
     }
 
     @Override
@@ -164,6 +174,7 @@ public class ChecklistAnswer {
                 "question_id='" + question_id + '\'' +
                 ", value=" + value +
                 ", photo_base64=" + (photo_base64 != null ? "[" + photo_base64.length() + " chars]" : "null") +
+                ", photo_part='" + photo_part + '\'' +
                 ", photo_source_used='" + photo_source_used + '\'' +
                 ", camera_used='" + camera_used + '\'' +
                 '}';
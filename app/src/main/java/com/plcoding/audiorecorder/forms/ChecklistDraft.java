@@ -0,0 +1,249 @@
+package com.plcoding.audiorecorder.forms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An unsubmitted checklist rebuilt from its draft journal. Each journal entry records one change
+ * (an answer, the raw text of a number field, a photo file or where that photo came from) and a
+ * null value removes what was there, so replaying the entries in order gives the latest state.
+ */
+public class ChecklistDraft {
+    public static final String KIND_ANSWER = "answer";
+    public static final String KIND_INPUT = "input";
+    public static final String KIND_PHOTO = "photo";
+    public static final String KIND_SOURCE = "source";
+
+    // Replays shorter than this are never worth rewriting
+    private static final int COMPACT_MIN_ENTRIES = 64;
+
+    private final Map<Integer, Object> answers = new LinkedHashMap<>();
+    private final Map<Integer, String> inputs = new LinkedHashMap<>();
+    private final Map<Integer, String> photoPaths = new LinkedHashMap<>();
+    private final Map<Integer, String> sources = new LinkedHashMap<>();
+    private int replayed = 0;
+
+    public static class Entry {
+        private final int questionId;
+        private final String kind;
+        private final String value;
+
+        public Entry(int questionId, String kind, String value) {
+            this.questionId = questionId;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        public int getQuestionId() {
+            return questionId;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * The draft a journal would replay to for the current state of a form.
+     */
+    public static ChecklistDraft snapshot(FormState state, Map<Integer, String> sources) {
+        ChecklistDraft draft = new ChecklistDraft();
+        for (Map.Entry<Integer, Object> entry : state.getAnswers().entrySet()) {
+            if (!state.hasPhoto(entry.getKey())) {
+                draft.apply(entry.getKey(), KIND_ANSWER, encode(entry.getValue()));
+            }
+        }
+        for (Map.Entry<Integer, String> entry : state.getInputs().entrySet()) {
+            draft.apply(entry.getKey(), KIND_INPUT, entry.getValue());
+        }
+        for (Map.Entry<Integer, String> entry : state.getPhotoPaths().entrySet()) {
+            draft.apply(entry.getKey(), KIND_PHOTO, entry.getValue());
+            String source = sources.get(entry.getKey());
+            if (source != null) {
+                draft.apply(entry.getKey(), KIND_SOURCE, source);
+            }
+        }
+        return draft;
+    }
+
+    public void apply(int questionId, String kind, String value) {
+        replayed++;
+        if (KIND_ANSWER.equals(kind)) {
+            Object answer = decode(value);
+            if (answer != null) {
+                answers.put(questionId, answer);
+            } else {
+                answers.remove(questionId);
+            }
+        } else if (KIND_INPUT.equals(kind)) {
+            putOrRemove(inputs, questionId, value);
+        } else if (KIND_PHOTO.equals(kind)) {
+            putOrRemove(photoPaths, questionId, value);
+            if (value == null) {
+                sources.remove(questionId);
+            }
+        } else if (KIND_SOURCE.equals(kind)) {
+            putOrRemove(sources, questionId, value);
+        }
+    }
+
+    private static void putOrRemove(Map<Integer, String> map, int questionId, String value) {
+        if (value != null) {
+            map.put(questionId, value);
+        } else {
+            map.remove(questionId);
+        }
+    }
+
+    public boolean isEmpty() {
+        return answers.isEmpty() && inputs.isEmpty() && photoPaths.isEmpty();
+    }
+
+    public Map<Integer, String> getPhotoPaths() {
+        return Collections.unmodifiableMap(photoPaths);
+    }
+
+    public Map<Integer, String> getSources() {
+        return Collections.unmodifiableMap(sources);
+    }
+
+    /**
+     * Copy the draft into state without reporting the copies back to the journal. Questions the
+     * user already touched keep their current values, and photos whose file is gone are skipped.
+     * Returns the number of questions restored.
+     */
+    public int restoreInto(FormState state) {
+        FormState.EditListener editListener = state.getEditListener();
+        state.setEditListener(null);
+        int restored = 0;
+        try {
+            for (Map.Entry<Integer, String> entry : photoPaths.entrySet()) {
+                int questionId = entry.getKey();
+                if (!isTouched(state, questionId) && new File(entry.getValue()).isFile()) {
+                    state.setPhotoPath(questionId, entry.getValue());
+                    restored++;
+                }
+            }
+            for (Map.Entry<Integer, Object> entry : answers.entrySet()) {
+                int questionId = entry.getKey();
+                if (!photoPaths.containsKey(questionId) && !isTouched(state, questionId)) {
+                    state.setAnswer(questionId, entry.getValue());
+                    restored++;
+                }
+            }
+            for (Map.Entry<Integer, String> entry : inputs.entrySet()) {
+                if (state.getInput(entry.getKey()) == null) {
+                    state.setInput(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            state.setEditListener(editListener);
+        }
+        return restored;
+    }
+
+    private static boolean isTouched(FormState state, int questionId) {
+        return state.getAnswer(questionId) != null || state.hasPhoto(questionId);
+    }
+
+    /**
+     * True once most replayed entries are overwritten history, so rewriting the journal as
+     * {@link #toEntries()} would shrink it substantially.
+     */
+    public boolean needsCompaction() {
+        return replayed >= COMPACT_MIN_ENTRIES && replayed > 2 * liveEntryCount();
+    }
+
+    private int liveEntryCount() {
+        return answers.size() + inputs.size() + photoPaths.size() + sources.size();
+    }
+
+    /**
+     * The smallest journal that replays to this draft.
+     */
+    public List<Entry> toEntries() {
+        List<Entry> entries = new ArrayList<>(liveEntryCount());
+        for (Map.Entry<Integer, Object> entry : answers.entrySet()) {
+            entries.add(new Entry(entry.getKey(), KIND_ANSWER, encode(entry.getValue())));
+        }
+        for (Map.Entry<Integer, String> entry : inputs.entrySet()) {
+            entries.add(new Entry(entry.getKey(), KIND_INPUT, entry.getValue()));
+        }
+        for (Map.Entry<Integer, String> entry : photoPaths.entrySet()) {
+            entries.add(new Entry(entry.getKey(), KIND_PHOTO, entry.getValue()));
+        }
+        for (Map.Entry<Integer, String> entry : sources.entrySet()) {
+            entries.add(new Entry(entry.getKey(), KIND_SOURCE, entry.getValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * Answer values as a type letter and the value: "b:true", "i:12", "d:3.5", "s:text" or
+     * "l:4,7" for selected option ids. Null stays null.
+     */
+    public static String encode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return "b:" + value;
+        }
+        if (value instanceof Integer) {
+            return "i:" + value;
+        }
+        if (value instanceof Double) {
+            return "d:" + value;
+        }
+        if (value instanceof List) {
+            StringBuilder builder = new StringBuilder("l:");
+            for (Object item : (List<?>) value) {
+                if (builder.length() > 2) {
+                    builder.append(',');
+                }
+                builder.append(item);
+            }
+            return builder.toString();
+        }
+        return "s:" + value;
+    }
+
+    public static Object decode(String encoded) {
+        if (encoded == null || encoded.length() < 2 || encoded.charAt(1) != ':') {
+            return null;
+        }
+        String value = encoded.substring(2);
+        try {
+            switch (encoded.charAt(0)) {
+                case 'b':
+                    return Boolean.valueOf(value);
+                case 'i':
+                    return Integer.valueOf(value);
+                case 'd':
+                    return Double.valueOf(value);
+                case 'l':
+                    List<Integer> ids = new ArrayList<>();
+                    if (!value.isEmpty()) {
+                        for (String id : value.split(",")) {
+                            ids.add(Integer.valueOf(id));
+                        }
+                    }
+                    return ids;
+                case 's':
+                    return value;
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
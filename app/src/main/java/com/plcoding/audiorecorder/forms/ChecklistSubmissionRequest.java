@@ -7,6 +7,8 @@ import java.util.List;
 public class ChecklistSubmissionRequest {
     private int form_id;
     private List<ChecklistAnswer> responses;
+    // Same for every attempt of one submission, so the server can drop retried duplicates
+    private String client_submission_id;
 
     // Getters and setters
     public int getForm_id() {
@@ -24,4 +26,12 @@ public class ChecklistSubmissionRequest {
     public void setResponses(List<ChecklistAnswer> responses) {
         this.responses = responses;
     }
+
+    public String getClient_submission_id() {
+        return client_submission_id;
+    }
+
+    public void setClient_submission_id(String client_submission_id) {
+        this.client_submission_id = client_submission_id;
+    }
 }
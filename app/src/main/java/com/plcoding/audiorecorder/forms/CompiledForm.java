@@ -0,0 +1,96 @@
+package com.plcoding.audiorecorder.forms;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A loaded checklist prepared for editing: questions indexed by id, their validation rules
+ * compiled once, and a running set of required questions that still lack an answer. Bound to a
+ * FormState, every answer change moves at most one id in or out of that set, so checking whether
+ * the form can be submitted costs the same for 5 questions or 500.
+ */
+public class CompiledForm implements FormState.AnswerListener {
+    private final Map<Integer, ChecklistQuestion> questions = new LinkedHashMap<>();
+    private final Map<Integer, QuestionRules> rules = new LinkedHashMap<>();
+    private final Set<Integer> unsatisfied = new HashSet<>();
+
+    public static CompiledForm compile(List<ChecklistQuestionsResponse.CategorySection> categorized,
+                                       List<ChecklistQuestion> uncategorized) {
+        CompiledForm form = new CompiledForm();
+        if (categorized != null) {
+            for (ChecklistQuestionsResponse.CategorySection section : categorized) {
+                if (section.getQuestions() != null) {
+                    form.addAll(section.getQuestions());
+                }
+            }
+        }
+        if (uncategorized != null) {
+            form.addAll(uncategorized);
+        }
+        return form;
+    }
+
+    private void addAll(List<ChecklistQuestion> list) {
+        for (ChecklistQuestion question : list) {
+            if (question != null) {
+                questions.put(question.getId(), question);
+                rules.put(question.getId(), QuestionRules.compile(question));
+            }
+        }
+    }
+
+    /**
+     * Count what state already answers, then keep the count current as it changes.
+     */
+    public void bind(FormState state) {
+        unsatisfied.clear();
+        for (Map.Entry<Integer, QuestionRules> entry : rules.entrySet()) {
+            if (entry.getValue().isRequired() && !state.isAnswered(entry.getKey())) {
+                unsatisfied.add(entry.getKey());
+            }
+        }
+        state.setAnswerListener(this);
+    }
+
+    @Override
+    public void onAnswerChanged(int questionId, boolean answered) {
+        QuestionRules questionRules = rules.get(questionId);
+        if (questionRules == null || !questionRules.isRequired()) {
+            return;
+        }
+        if (answered) {
+            unsatisfied.remove(questionId);
+        } else {
+            unsatisfied.add(questionId);
+        }
+    }
+
+    public ChecklistQuestion getQuestion(int questionId) {
+        return questions.get(questionId);
+    }
+
+    public QuestionRules getRules(int questionId) {
+        return rules.get(questionId);
+    }
+
+    public Collection<ChecklistQuestion> getQuestions() {
+        return Collections.unmodifiableCollection(questions.values());
+    }
+
+    public int size() {
+        return questions.size();
+    }
+
+    public int getUnsatisfiedCount() {
+        return unsatisfied.size();
+    }
+
+    public boolean isComplete() {
+        return unsatisfied.isEmpty();
+    }
+}
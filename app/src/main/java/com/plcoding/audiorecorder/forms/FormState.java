@@ -0,0 +1,185 @@
+package com.plcoding.audiorecorder.forms;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the user has entered in a checklist, keyed by question id and kept apart from the
+ * views that show it. Rows of the form list are recycled, so each bind reads its state from here
+ * and each edit writes back here.
+ */
+public class FormState {
+    // Submitted values: Boolean, option id, option id list, String, Integer/Double or photo path
+    private final Map<Integer, Object> answers = new HashMap<>();
+    // Text exactly as typed, including numbers that don't parse yet
+    private final Map<Integer, String> inputs = new HashMap<>();
+    // Compressed photo files waiting to be submitted
+    private final Map<Integer, String> photoPaths = new HashMap<>();
+    private final Map<Integer, Bitmap> previews = new HashMap<>();
+    private AnswerListener answerListener;
+    private EditListener editListener;
+
+    /**
+     * Told about every answer change, with whether the question now counts as answered.
+     */
+    public interface AnswerListener {
+        void onAnswerChanged(int questionId, boolean answered);
+    }
+
+    public void setAnswerListener(AnswerListener listener) {
+        this.answerListener = listener;
+    }
+
+    /**
+     * Told about every write with the value written (null when removed), so each edit can be
+     * persisted on its own.
+     */
+    public interface EditListener {
+        void onAnswerWritten(int questionId, Object value);
+
+        void onInputWritten(int questionId, String text);
+
+        void onPhotoWritten(int questionId, String path);
+    }
+
+    public void setEditListener(EditListener listener) {
+        this.editListener = listener;
+    }
+
+    EditListener getEditListener() {
+        return editListener;
+    }
+
+    public Object getAnswer(int questionId) {
+        return answers.get(questionId);
+    }
+
+    public void setAnswer(int questionId, Object value) {
+        answers.put(questionId, value);
+        notifyAnswerChanged(questionId);
+        if (editListener != null) {
+            editListener.onAnswerWritten(questionId, value);
+        }
+    }
+
+    public void clearAnswer(int questionId) {
+        answers.remove(questionId);
+        notifyAnswerChanged(questionId);
+        if (editListener != null) {
+            editListener.onAnswerWritten(questionId, null);
+        }
+    }
+
+    public Map<Integer, Object> getAnswers() {
+        return Collections.unmodifiableMap(answers);
+    }
+
+    public boolean hasAnswers() {
+        return !answers.isEmpty() || !photoPaths.isEmpty();
+    }
+
+    public boolean isAnswered(int questionId) {
+        Object answer = answers.get(questionId);
+        if (answer instanceof String) {
+            return hasText((String) answer);
+        }
+        if (answer instanceof List) {
+            return !((List<?>) answer).isEmpty();
+        }
+        return answer != null;
+    }
+
+    public String getInput(int questionId) {
+        return inputs.get(questionId);
+    }
+
+    public void setInput(int questionId, String text) {
+        inputs.put(questionId, text);
+        if (editListener != null) {
+            editListener.onInputWritten(questionId, text);
+        }
+    }
+
+    public Map<Integer, String> getInputs() {
+        return Collections.unmodifiableMap(inputs);
+    }
+
+    public String getPhotoPath(int questionId) {
+        return photoPaths.get(questionId);
+    }
+
+    /**
+     * Set or (with null) remove a photo answer. Returns the path it replaced.
+     */
+    public String setPhotoPath(int questionId, String path) {
+        String previous;
+        if (path != null) {
+            answers.put(questionId, path);
+            previous = photoPaths.put(questionId, path);
+        } else {
+            answers.remove(questionId);
+            previous = photoPaths.remove(questionId);
+        }
+        notifyAnswerChanged(questionId);
+        if (editListener != null && (path == null ? previous != null : !path.equals(previous))) {
+            editListener.onPhotoWritten(questionId, path);
+        }
+        return previous;
+    }
+
+    public boolean hasPhoto(int questionId) {
+        return photoPaths.containsKey(questionId);
+    }
+
+    public Map<Integer, String> getPhotoPaths() {
+        return Collections.unmodifiableMap(photoPaths);
+    }
+
+    public Bitmap getPreview(int questionId) {
+        return previews.get(questionId);
+    }
+
+    /**
+     * Set or (with null) remove a preview. Returns the bitmap it replaced.
+     */
+    public Bitmap setPreview(int questionId, Bitmap preview) {
+        return preview != null ? previews.put(questionId, preview) : previews.remove(questionId);
+    }
+
+    /**
+     * Remove every preview, handing them back so they can be pooled.
+     */
+    public List<Bitmap> takePreviews() {
+        List<Bitmap> taken = new ArrayList<>(previews.values());
+        previews.clear();
+        return taken;
+    }
+
+    private void notifyAnswerChanged(int questionId) {
+        if (answerListener != null) {
+            answerListener.onAnswerChanged(questionId, isAnswered(questionId));
+        }
+    }
+
+    // Same as !text.trim().isEmpty() without copying the text on every keystroke
+    private static boolean hasText(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        answers.clear();
+        inputs.clear();
+        photoPaths.clear();
+        previews.clear();
+    }
+}
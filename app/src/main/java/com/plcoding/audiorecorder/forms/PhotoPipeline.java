@@ -0,0 +1,239 @@
+package com.plcoding.audiorecorder.forms;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background processing of checklist photos.
+ *
+ * Each photo is decoded twice from the source, never at full resolution: once subsampled to a
+ * small preview (drawn into a pooled bitmap when one fits) and once subsampled to upload size,
+ * rotated per its EXIF orientation and written to the upload file. The preview is delivered as
+ * soon as it is ready so the UI updates before the slower upload encode finishes.
+ */
+public class PhotoPipeline {
+    private static final String TAG = "PhotoPipeline";
+
+    // Upload bounds, long side x short side
+    private static final int UPLOAD_MAX_LONG = 1920;
+    private static final int UPLOAD_MAX_SHORT = 1080;
+    private static final int PREVIEW_MAX_SIDE = 512;
+    private static final long POOL_MAX_BYTES = 8L * 1024 * 1024;
+
+    private static final int THREADS = 2;
+    private static final int MAX_QUEUED = 8;
+
+    private static volatile PhotoPipeline instance;
+
+    private final ContentResolver contentResolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BitmapPool previewPool = new BitmapPool(POOL_MAX_BYTES);
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Called on the main thread. onPreviewReady comes first; then exactly one of onUploadFileReady
+     * or onError.
+     */
+    public interface Callback {
+        void onPreviewReady(Bitmap preview);
+        void onUploadFileReady(File uploadFile);
+        void onError(String message);
+    }
+
+    private PhotoPipeline(Context context) {
+        this.contentResolver = context.getApplicationContext().getContentResolver();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+            Thread thread = new Thread(r, "PhotoPipeline");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static PhotoPipeline getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PhotoPipeline.class) {
+                if (instance == null) {
+                    instance = new PhotoPipeline(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void processFile(String path, ChecklistQuestion question, File uploadFile, Callback callback) {
+        submit(() -> new FileInputStream(path), question, uploadFile, callback);
+    }
+
+    public void processUri(Uri uri, ChecklistQuestion question, File uploadFile, Callback callback) {
+        submit(() -> contentResolver.openInputStream(uri), question, uploadFile, callback);
+    }
+
+    /**
+     * Return a preview that is no longer displayed so a later decode can reuse it.
+     */
+    public void releasePreview(Bitmap preview) {
+        previewPool.put(preview);
+    }
+
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private void submit(Source source, ChecklistQuestion question, File uploadFile, Callback callback) {
+        try {
+            executor.execute(() -> process(source, question, uploadFile, callback));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Photo queue full");
+            callback.onError("Too many photos are being processed, try again");
+        }
+    }
+
+    private void process(Source source, ChecklistQuestion question, File uploadFile, Callback callback) {
+        long start = System.currentTimeMillis();
+        try {
+            BitmapFactory.Options bounds = readBounds(source);
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                post(() -> callback.onError("Failed to load image"));
+                return;
+            }
+            int rotation = readRotation(source);
+
+            Bitmap preview = decodePreview(source, bounds, rotation);
+            if (preview != null) {
+                post(() -> callback.onPreviewReady(preview));
+            }
+
+            Bitmap full = decodeSampled(source, sampleSize(bounds.outWidth, bounds.outHeight,
+                    UPLOAD_MAX_LONG, UPLOAD_MAX_SHORT), null);
+            if (full == null) {
+                post(() -> callback.onError("Failed to load image"));
+                return;
+            }
+            full = rotate(full, rotation, false);
+
+            File written = PhotoUploadHelper.writeJpegForUpload(full, question, uploadFile);
+            full.recycle();
+
+            Log.d(TAG, "Processed " + bounds.outWidth + "x" + bounds.outHeight + " photo in " +
+                    (System.currentTimeMillis() - start) + " ms");
+            if (written != null) {
+                post(() -> callback.onUploadFileReady(written));
+            } else {
+                post(() -> callback.onError("Image file size exceeds maximum allowed size"));
+            }
+        } catch (OutOfMemoryError | Exception e) {
+            Log.e(TAG, "Error processing photo", e);
+            post(() -> callback.onError("Error processing photo: " + e.getMessage()));
+        }
+    }
+
+    private BitmapFactory.Options readBounds(Source source) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = source.open()) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        return options;
+    }
+
+    private int readRotation(Source source) {
+        try (InputStream in = source.open()) {
+            ExifInterface exif = new ExifInterface(in);
+            switch (exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read EXIF orientation: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private Bitmap decodePreview(Source source, BitmapFactory.Options bounds, int rotation) throws IOException {
+        int sampleSize = sampleSize(bounds.outWidth, bounds.outHeight, PREVIEW_MAX_SIDE, PREVIEW_MAX_SIDE);
+        int width = (bounds.outWidth + sampleSize - 1) / sampleSize;
+        int height = (bounds.outHeight + sampleSize - 1) / sampleSize;
+
+        Bitmap reusable = previewPool.get(width, height);
+        Bitmap preview;
+        try {
+            preview = decodeSampled(source, sampleSize, reusable);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused for this image
+            previewPool.put(reusable);
+            preview = decodeSampled(source, sampleSize, null);
+        }
+        if (preview == null) {
+            previewPool.put(reusable);
+            return null;
+        }
+        return rotate(preview, rotation, true);
+    }
+
+    private Bitmap decodeSampled(Source source, int sampleSize, Bitmap inBitmap) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inBitmap = inBitmap;
+        try (InputStream in = source.open()) {
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+
+    private Bitmap rotate(Bitmap bitmap, int rotation, boolean pooled) {
+        if (rotation == 0) {
+            return bitmap;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postRotate(rotation);
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) {
+            if (pooled) {
+                previewPool.put(bitmap);
+            } else {
+                bitmap.recycle();
+            }
+        }
+        return rotated;
+    }
+
+    // Largest power of two that keeps the image at or above the target on both axes
+    static int sampleSize(int width, int height, int maxLong, int maxShort) {
+        int longSide = Math.max(width, height);
+        int shortSide = Math.min(width, height);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= maxLong && shortSide / (sampleSize * 2) >= maxShort) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private void post(Runnable runnable) {
+        mainHandler.post(runnable);
+    }
+}
@@ -13,11 +13,25 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
 public class PhotoUploadHelper {
     private static final String TAG = "PhotoUploadHelper";
     private static final int MAX_WIDTH = 1920;
     private static final int MAX_HEIGHT = 1080;
     private static final int JPEG_QUALITY = 85;
+    private static final String MEDIA_TYPE_JPEG = "image/jpeg";
+
+    // One encoder per thread so its output buffer is reused across photos
+    private static final ThreadLocal<AdaptiveJpegEncoder> ENCODERS = new ThreadLocal<AdaptiveJpegEncoder>() {
+        @Override
+        protected AdaptiveJpegEncoder initialValue() {
+            return new AdaptiveJpegEncoder();
+        }
+    };
 
     public static String encodeImageToBase64(String imagePath, ChecklistQuestion question) {
         try {
@@ -48,6 +62,105 @@ public class PhotoUploadHelper {
         }
     }
 
+    /**
+     * Compress a photo answer to a JPEG file that is later streamed as a multipart part. Quality,
+     * and if needed size, are chosen to fit just under the question's max_file_size. Returns null
+     * (and leaves no file) if even the smallest acceptable encode doesn't fit.
+     */
+    public static File writeJpegForUpload(Bitmap bitmap, ChecklistQuestion question, File outputFile) {
+        try {
+            AdaptiveJpegEncoder.Result result = ENCODERS.get().encodeToFile(bitmap,
+                    AdaptiveJpegEncoder.budgetOf(question), outputFile);
+            if (!result.fits()) {
+                Log.e(TAG, "Image file size exceeds maximum allowed size even after compression: " + result);
+                outputFile.delete();
+                return null;
+            }
+            Log.d(TAG, "Image written for upload: " + result);
+            return outputFile;
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing image for upload", e);
+            outputFile.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Multipart part that OkHttp streams from disk while the request is written.
+     */
+    public static MultipartBody.Part createPhotoPart(String partName, File file) {
+        RequestBody body = RequestBody.create(MediaType.parse(MEDIA_TYPE_JPEG), file);
+        return MultipartBody.Part.createFormData(partName, file.getName(), body);
+    }
+
+    /**
+     * Same part, reporting how much of the file has been written to the connection.
+     */
+    public static MultipartBody.Part createPhotoPart(String partName, File file, ProgressListener listener) {
+        return MultipartBody.Part.createFormData(partName, file.getName(), new ProgressFileRequestBody(file, listener));
+    }
+
+    public interface ProgressListener {
+        void onProgress(long bytesWritten, long totalBytes);
+    }
+
+    /**
+     * Streams a photo from disk in 8 KB writes, reporting after each. Repeatable, so OkHttp may
+     * write it again on a retried connection; progress then restarts from zero.
+     */
+    static class ProgressFileRequestBody extends RequestBody {
+        private final File file;
+        private final ProgressListener listener;
+
+        ProgressFileRequestBody(File file, ProgressListener listener) {
+            this.file = file;
+            this.listener = listener;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MediaType.parse(MEDIA_TYPE_JPEG);
+        }
+
+        @Override
+        public long contentLength() {
+            return file.length();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            long total = contentLength();
+            long written = 0;
+            byte[] buffer = new byte[8192];
+            try (FileInputStream in = new FileInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    sink.write(buffer, 0, read);
+                    written += read;
+                    listener.onProgress(written, total);
+                }
+            }
+        }
+    }
+
+    /**
+     * Data URL for servers that only accept photos inline in the JSON submission.
+     */
+    public static String encodeFileToDataUrl(File file) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return "data:" + MEDIA_TYPE_JPEG + ";base64," + Base64.encodeToString(bytes.toByteArray(), Base64.NO_WRAP);
+        } catch (IOException e) {
+            Log.e(TAG, "Error encoding image file", e);
+            return null;
+        }
+    }
+
     private static Bitmap loadAndCompressImage(String imagePath) {
         try {
             // First, get image dimensions
@@ -0,0 +1,137 @@
+package com.plcoding.audiorecorder.forms;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The ValidationHelper checks of one question, prepared once when the form loads: type flags,
+ * numeric bounds, size limit, allowed file types and the error texts are resolved up front so
+ * validating a keystroke is a parse and two comparisons.
+ */
+public class QuestionRules {
+    private static final Set<String> DEFAULT_FILE_TYPES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("jpg", "jpeg", "png", "gif", "webp")));
+
+    private final boolean required;
+    private final boolean integer;
+    private final boolean decimal;
+    private final boolean photo;
+    private final boolean photoConfigured;
+    private final double min;
+    private final double max;
+    private final long maxFileSize;
+    private final Set<String> allowedFileTypes;
+    private final String rangeError;
+    private final String rangeText;
+
+    private QuestionRules(ChecklistQuestion question) {
+        String type = question.getType();
+        required = question.isIs_required();
+        integer = ChecklistQuestion.TYPE_INTEGER.equals(type);
+        decimal = ChecklistQuestion.TYPE_DECIMAL.equals(type);
+        photo = ChecklistQuestion.TYPE_PHOTO_UPLOAD.equals(type);
+        photoConfigured = question.getPhoto_source() != null;
+
+        ChecklistQuestion.ValidationRules validation = question.getValidation();
+        Double minValue = validation != null ? validation.getMin_value() : null;
+        Double maxValue = validation != null ? validation.getMax_value() : null;
+        min = minValue != null ? minValue : Double.NEGATIVE_INFINITY;
+        max = maxValue != null ? maxValue : Double.POSITIVE_INFINITY;
+
+        maxFileSize = validation != null && validation.getMax_file_size() != null
+                ? validation.getMax_file_size() : ValidationHelper.DEFAULT_MAX_FILE_SIZE;
+
+        if (validation != null && validation.getAllowed_file_types() != null) {
+            Set<String> types = new HashSet<>();
+            for (String fileType : validation.getAllowed_file_types()) {
+                types.add(fileType.toLowerCase(Locale.ROOT));
+            }
+            allowedFileTypes = Collections.unmodifiableSet(types);
+        } else {
+            allowedFileTypes = DEFAULT_FILE_TYPES;
+        }
+
+        rangeError = integer || decimal ? formatRangeError(minValue, maxValue) : null;
+        rangeText = formatRangeText(minValue, maxValue);
+    }
+
+    public static QuestionRules compile(ChecklistQuestion question) {
+        return new QuestionRules(question);
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    /**
+     * Same result as ValidationHelper.getValidationErrorMessage, without re-reading the question.
+     */
+    public String errorFor(String input) {
+        boolean empty = input == null || input.trim().isEmpty();
+        if (required && empty) {
+            return "This field is required";
+        }
+        if (integer || decimal) {
+            if (empty) {
+                return null;
+            }
+            try {
+                double value = integer ? Integer.parseInt(input.trim()) : Double.parseDouble(input.trim());
+                return value < min || value > max ? rangeError : null;
+            } catch (NumberFormatException e) {
+                return rangeError;
+            }
+        }
+        if (photo && !photoConfigured) {
+            return "Photo upload not configured for this question";
+        }
+        return null;
+    }
+
+    public boolean isFileSizeAllowed(long fileSize) {
+        return fileSize <= maxFileSize;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public boolean isFileTypeAllowed(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return false;
+        }
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return allowedFileTypes.contains(extension);
+    }
+
+    // "Range: 1.0 - 10.0" style hint shown under number inputs, empty if unbounded
+    public String getRangeText() {
+        return rangeText;
+    }
+
+    private String formatRangeError(Double minValue, Double maxValue) {
+        String format = integer ? "%.0f" : "%.2f";
+        if (minValue != null && maxValue != null) {
+            return String.format("Please enter a number between " + format + " and " + format, minValue, maxValue);
+        } else if (minValue != null) {
+            return String.format("Please enter a number greater than or equal to " + format, minValue);
+        } else if (maxValue != null) {
+            return String.format("Please enter a number less than or equal to " + format, maxValue);
+        }
+        return integer ? "Please enter a valid integer" : "Please enter a valid decimal number";
+    }
+
+    private static String formatRangeText(Double minValue, Double maxValue) {
+        if (minValue != null && maxValue != null) {
+            return "Range: " + minValue + " - " + maxValue;
+        } else if (minValue != null) {
+            return "Minimum: " + minValue;
+        } else if (maxValue != null) {
+            return "Maximum: " + maxValue;
+        }
+        return "";
+    }
+}
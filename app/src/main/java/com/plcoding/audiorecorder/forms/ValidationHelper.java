@@ -5,6 +5,8 @@ package com.plcoding.audiorecorder.forms;
 import java.util.List;
 
 public class ValidationHelper {
+    // Photo size limit for questions that don't set max_file_size
+    public static final long DEFAULT_MAX_FILE_SIZE = 5242880;
 
     public static boolean validateIntegerResponse(ChecklistQuestion question, String input) {
         if (input == null || input.trim().isEmpty()) {
@@ -57,7 +59,7 @@ public class ValidationHelper {
         if (validation != null && validation.getMax_file_size() != null) {
             return fileSize <= validation.getMax_file_size();
         }
-        return fileSize <= 5242880; // Default 5MB limit
+        return fileSize <= DEFAULT_MAX_FILE_SIZE; // Default 5MB limit
     }
 
     public static boolean validateFileType(ChecklistQuestion question, String fileName) {
@@ -0,0 +1,57 @@
+package com.plcoding.audiorecorder.record;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of direct buffers that carry PCM from the capture thread to the encoder thread.
+ *
+ * All buffers are allocated up front, so recording allocates nothing per read. Direct buffers
+ * let AudioRecord write and MediaCodec read without copying through the Java heap. When every
+ * buffer is in flight the capture thread waits, and AudioRecord's own buffer absorbs the stall.
+ */
+public class PcmBufferPool {
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+
+    public PcmBufferPool(int count, int bufferSize) {
+        if (count <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("Pool needs at least one non-empty buffer");
+        }
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(count);
+        for (int i = 0; i < count; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder()));
+        }
+    }
+
+    /**
+     * A cleared buffer, or null if none was handed back within the timeout.
+     */
+    public ByteBuffer acquire(long timeoutMs) throws InterruptedException {
+        ByteBuffer buffer = free.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (buffer != null) {
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) {
+            throw new IllegalArgumentException("Buffer does not belong to this pool");
+        }
+        if (!free.offer(buffer)) {
+            throw new IllegalStateException("More buffers released than the pool holds");
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getAvailableCount() {
+        return free.size();
+    }
+}
@@ -0,0 +1,364 @@
+package com.plcoding.audiorecorder.record;
+
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.media.MediaRecorder;
+import android.util.Log;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AudioRecorder built on AudioRecord and a MediaCodec AAC encoder instead of MediaRecorder, so
+ * the audio is available while recording rather than only after stop().
+ *
+ * A capture thread reads 20 ms of PCM at a time into pooled direct buffers. An encoder thread
+ * shows each buffer to the PCM tap, encodes it and writes the AAC frames to an MPEG-4 file,
+ * passing every frame to the chunk listener as well. Level meters and silence detection can
+ * sit on the tap, and uploads can start from the chunks.
+ */
+public class StreamingAudioRecorder implements AudioRecorder {
+    private static final String TAG = "StreamingAudioRecorder";
+
+    public static final int SAMPLE_RATE = 44100;
+    public static final int CHANNEL_COUNT = 1;
+    private static final int BYTES_PER_FRAME = 2 * CHANNEL_COUNT; // 16-bit PCM
+    private static final int BIT_RATE = 64_000; // Plenty for speech in mono AAC-LC
+    private static final int CHUNK_MILLIS = 20;
+    // 320 ms of audio can wait for the encoder before capture has to
+    private static final int POOL_BUFFERS = 16;
+    private static final long ACQUIRE_TIMEOUT_MS = 100;
+    private static final long CODEC_TIMEOUT_US = 10_000;
+    private static final long STOP_TIMEOUT_MS = 2_000;
+
+    /**
+     * Receives the raw audio: 16-bit PCM in native byte order, {@link #SAMPLE_RATE} Hz,
+     * {@link #CHANNEL_COUNT} channel. Called on the encoder thread; the buffer is reused once the
+     * call returns, so copy anything that has to outlive it.
+     */
+    public interface PcmListener {
+        void onPcm(ByteBuffer pcm, long presentationTimeUs);
+    }
+
+    /**
+     * Receives the encoded stream: raw AAC frames without ADTS headers, preceded once by the codec
+     * config (AudioSpecificConfig). Called on the encoder thread; the buffer belongs to the codec
+     * and is reused once the call returns.
+     */
+    public interface EncodedChunkListener {
+        void onEncodedChunk(ByteBuffer chunk, long presentationTimeUs, boolean codecConfig);
+    }
+
+    private final PcmBufferPool pool;
+    // Filled buffers on their way to the encoder, then the end-of-stream marker
+    private final ArrayBlockingQueue<ByteBuffer> filled;
+    private final ByteBuffer endOfStream = ByteBuffer.allocateDirect(0);
+
+    private volatile PcmListener pcmListener;
+    private volatile EncodedChunkListener chunkListener;
+    private volatile boolean capturing = false;
+    private Thread captureThread;
+    private Thread encoderThread;
+
+    public StreamingAudioRecorder() {
+        pool = new PcmBufferPool(POOL_BUFFERS, SAMPLE_RATE * CHUNK_MILLIS / 1000 * BYTES_PER_FRAME);
+        filled = new ArrayBlockingQueue<>(POOL_BUFFERS + 1);
+    }
+
+    public void setPcmListener(PcmListener listener) {
+        pcmListener = listener;
+    }
+
+    public void setEncodedChunkListener(EncodedChunkListener listener) {
+        chunkListener = listener;
+    }
+
+    // RECORD_AUDIO is requested by the activity before recording can start
+    @SuppressLint("MissingPermission")
+    @Override
+    public void start(File outputFile) {
+        if (capturing) {
+            Log.w(TAG, "Already recording");
+            return;
+        }
+
+        AudioRecord audioRecord = null;
+        MediaCodec encoder = null;
+        MediaMuxer muxer = null;
+        try {
+            int minBufferSize = AudioRecord.getMinBufferSize(SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+            // Headroom of several chunks, so an encoder hiccup doesn't overrun the microphone
+            audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                    Math.max(minBufferSize, pool.getBufferSize()) * 4);
+            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+                throw new IllegalStateException("AudioRecord failed to initialize");
+            }
+
+            MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, SAMPLE_RATE, CHANNEL_COUNT);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+            format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, pool.getBufferSize());
+            encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            muxer = new MediaMuxer(outputFile.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+
+            encoder.start();
+            audioRecord.startRecording();
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting recording", e);
+            if (audioRecord != null) {
+                audioRecord.release();
+            }
+            new EncoderSession(encoder, muxer).release();
+            return;
+        }
+
+        // Buffers a timed-out session left behind go back to the pool
+        ByteBuffer leftover;
+        while ((leftover = filled.poll()) != null) {
+            if (leftover != endOfStream) {
+                pool.release(leftover);
+            }
+        }
+
+        capturing = true;
+        AudioRecord record = audioRecord;
+        EncoderSession session = new EncoderSession(encoder, muxer);
+        captureThread = new Thread(() -> capture(record), "AudioCapture");
+        encoderThread = new Thread(session::run, "AudioEncode");
+        encoderThread.start();
+        captureThread.start();
+    }
+
+    /**
+     * Stops capture and waits for the encoder to finish the file, so like MediaRecorder the file
+     * is complete when this returns.
+     */
+    @Override
+    public void stop() {
+        if (!capturing) {
+            return;
+        }
+        capturing = false;
+        join(captureThread);
+        join(encoderThread);
+        captureThread = null;
+        encoderThread = null;
+    }
+
+    private void join(Thread thread) {
+        try {
+            thread.join(STOP_TIMEOUT_MS);
+            if (thread.isAlive()) {
+                Log.w(TAG, thread.getName() + " did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void capture(AudioRecord record) {
+        try {
+            while (capturing) {
+                ByteBuffer buffer = pool.acquire(ACQUIRE_TIMEOUT_MS);
+                if (buffer == null) {
+                    // Encoder is behind; AudioRecord keeps buffering meanwhile
+                    continue;
+                }
+                // Reading into a ByteBuffer leaves its position alone
+                int read = record.read(buffer, buffer.capacity(), AudioRecord.READ_BLOCKING);
+                if (read <= 0) {
+                    pool.release(buffer);
+                    if (read < 0) {
+                        Log.e(TAG, "AudioRecord read failed: " + read);
+                        break;
+                    }
+                    continue;
+                }
+                buffer.limit(read);
+                filled.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                record.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "AudioRecord was not recording", e);
+            }
+            record.release();
+            // Room is guaranteed: at most every pooled buffer is queued ahead of it
+            filled.offer(endOfStream);
+        }
+    }
+
+    /**
+     * Encoder and muxer of one recording, driven by the encoder thread.
+     */
+    private class EncoderSession {
+        private final MediaCodec encoder;
+        private final MediaMuxer muxer;
+        private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        private int track = -1;
+        private int samplesWritten = 0;
+        private long framesQueued = 0;
+
+        EncoderSession(MediaCodec encoder, MediaMuxer muxer) {
+            this.encoder = encoder;
+            this.muxer = muxer;
+        }
+
+        void run() {
+            try {
+                while (true) {
+                    ByteBuffer pcm = filled.poll(CHUNK_MILLIS, TimeUnit.MILLISECONDS);
+                    if (pcm == endOfStream) {
+                        finish();
+                        break;
+                    }
+                    if (pcm != null) {
+                        tap(pcm);
+                        queue(pcm);
+                        pool.release(pcm);
+                    }
+                    drain(0);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                Log.e(TAG, "Encoding failed", e);
+            } finally {
+                release();
+            }
+        }
+
+        private long presentationTimeUs() {
+            return framesQueued * 1_000_000L / SAMPLE_RATE;
+        }
+
+        private void tap(ByteBuffer pcm) {
+            PcmListener listener = pcmListener;
+            if (listener == null) {
+                return;
+            }
+            int limit = pcm.limit();
+            try {
+                listener.onPcm(pcm, presentationTimeUs());
+            } catch (Exception e) {
+                Log.e(TAG, "PCM listener failed", e);
+            }
+            pcm.limit(limit).position(0);
+        }
+
+        // A chunk can be larger than one codec input buffer, so it may take several
+        private void queue(ByteBuffer pcm) {
+            while (pcm.hasRemaining()) {
+                int index = encoder.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                if (index < 0) {
+                    drain(0);
+                    continue;
+                }
+                ByteBuffer input = encoder.getInputBuffer(index);
+                input.clear();
+                int length = Math.min(pcm.remaining(), input.remaining());
+                int limit = pcm.limit();
+                pcm.limit(pcm.position() + length);
+                input.put(pcm);
+                pcm.limit(limit);
+                encoder.queueInputBuffer(index, 0, length, presentationTimeUs(), 0);
+                framesQueued += length / BYTES_PER_FRAME;
+            }
+        }
+
+        private void finish() {
+            int index;
+            while ((index = encoder.dequeueInputBuffer(CODEC_TIMEOUT_US)) < 0) {
+                drain(0);
+            }
+            encoder.queueInputBuffer(index, 0, 0, presentationTimeUs(), MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+
+            long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+            while (!drain(CODEC_TIMEOUT_US)) {
+                if (System.currentTimeMillis() > deadline) {
+                    Log.w(TAG, "Encoder did not reach end of stream");
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Writes out whatever the encoder has ready. Returns true once it has emitted end of stream.
+         */
+        private boolean drain(long timeoutUs) {
+            while (true) {
+                int index = encoder.dequeueOutputBuffer(info, timeoutUs);
+                if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                    return false;
+                }
+                if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    track = muxer.addTrack(encoder.getOutputFormat());
+                    muxer.start();
+                    continue;
+                }
+                if (index < 0) {
+                    continue;
+                }
+
+                ByteBuffer output = encoder.getOutputBuffer(index);
+                boolean codecConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                if (output != null && info.size > 0) {
+                    // The muxer takes the codec config from the output format, not as a sample
+                    if (!codecConfig && track >= 0) {
+                        output.position(info.offset).limit(info.offset + info.size);
+                        muxer.writeSampleData(track, output, info);
+                        samplesWritten++;
+                    }
+                    EncodedChunkListener listener = chunkListener;
+                    if (listener != null) {
+                        output.position(info.offset).limit(info.offset + info.size);
+                        try {
+                            listener.onEncodedChunk(output, info.presentationTimeUs, codecConfig);
+                        } catch (Exception e) {
+                            Log.e(TAG, "Chunk listener failed", e);
+                        }
+                    }
+                }
+                encoder.releaseOutputBuffer(index, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            if (encoder != null) {
+                try {
+                    encoder.stop();
+                } catch (Exception e) {
+                    Log.w(TAG, "Error stopping encoder", e);
+                }
+                encoder.release();
+            }
+            if (muxer != null) {
+                try {
+                    // A muxer that never got a sample can't be stopped
+                    if (samplesWritten > 0) {
+                        muxer.stop();
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error finishing recording file", e);
+                }
+                muxer.release();
+            }
+        }
+    }
+}
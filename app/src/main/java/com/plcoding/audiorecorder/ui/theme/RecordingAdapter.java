@@ -1,6 +1,7 @@
 package com.plcoding.audiorecorder.ui.theme;
 
 import android.annotation.SuppressLint;
+import android.content.res.ColorStateList;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,19 +10,33 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.plcoding.audiorecorder.R;
 import com.plcoding.audiorecorder.data.Recording;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recordings list. New lists are diffed against the shown one on a background thread, so a save
+ * or delete only touches the rows that changed, and play/stop rebinds just the play button of the
+ * rows whose state flipped.
+ */
+public class RecordingAdapter extends ListAdapter<Recording, RecordingAdapter.RecordingViewHolder> {
+    private static final Object PAYLOAD_PLAYBACK = new Object();
+    private static final long NONE = Long.MIN_VALUE;
 
-public class RecordingAdapter extends RecyclerView.Adapter<RecordingAdapter.RecordingViewHolder> {
-    private List<Recording> recordings = new ArrayList<>();
     private boolean isPlaying = false;
     private Long currentlyPlayingId = null;
+    private final Map<Long, Integer> positionsById = new HashMap<>();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+    private final Date date = new Date();
     private final OnPlayClickListener onPlayClick;
     private final OnStopClickListener onStopClick;
     private final OnDeleteClickListener onDeleteClick;
@@ -38,29 +53,80 @@ public class RecordingAdapter extends RecyclerView.Adapter<RecordingAdapter.Reco
         void onDeleteClick(Recording recording);
     }
 
+    private static final DiffUtil.ItemCallback<Recording> DIFF_CALLBACK = new DiffUtil.ItemCallback<Recording>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Recording oldItem, @NonNull Recording newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Recording oldItem, @NonNull Recording newItem) {
+            return oldItem.getDuration() == newItem.getDuration()
+                    && oldItem.getCreatedAt() == newItem.getCreatedAt()
+                    && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getType(), newItem.getType());
+        }
+    };
+
     public RecordingAdapter(
             OnPlayClickListener onPlayClick,
             OnStopClickListener onStopClick,
             OnDeleteClickListener onDeleteClick
     ) {
+        super(DIFF_CALLBACK);
         this.onPlayClick = onPlayClick;
         this.onStopClick = onStopClick;
         this.onDeleteClick = onDeleteClick;
+        setHasStableIds(true);
     }
 
     public void setRecordings(List<Recording> recordings) {
-        this.recordings = recordings;
-        notifyDataSetChanged();
+        submitList(recordings);
     }
 
     public void setIsPlaying(boolean isPlaying) {
+        long before = playingRowId();
         this.isPlaying = isPlaying;
-        notifyDataSetChanged();
+        notifyPlaybackChanged(before);
     }
 
     public void setCurrentlyPlayingId(Long currentlyPlayingId) {
+        long before = playingRowId();
         this.currentlyPlayingId = currentlyPlayingId;
-        notifyDataSetChanged();
+        notifyPlaybackChanged(before);
+    }
+
+    private long playingRowId() {
+        return isPlaying && currentlyPlayingId != null ? currentlyPlayingId : NONE;
+    }
+
+    private void notifyPlaybackChanged(long before) {
+        long after = playingRowId();
+        if (before != after) {
+            notifyPlaybackChanged(before, after);
+        }
+    }
+
+    private void notifyPlaybackChanged(long... ids) {
+        for (long id : ids) {
+            Integer position = positionsById.get(id);
+            if (position != null) {
+                notifyItemChanged(position, PAYLOAD_PLAYBACK);
+            }
+        }
+    }
+
+    @Override
+    public void onCurrentListChanged(@NonNull List<Recording> previousList, @NonNull List<Recording> currentList) {
+        positionsById.clear();
+        for (int i = 0; i < currentList.size(); i++) {
+            positionsById.put(currentList.get(i).getId(), i);
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     @NonNull
@@ -68,13 +134,50 @@ public class RecordingAdapter extends RecyclerView.Adapter<RecordingAdapter.Reco
     public RecordingViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_recording, parent, false);
-        return new RecordingViewHolder(view);
+        RecordingViewHolder holder = new RecordingViewHolder(view);
+
+        // Listeners are bound once per view and look up the row they are clicked on
+        holder.playButton.setOnClickListener(v -> {
+            Recording recording = recordingAt(holder);
+            if (recording == null) {
+                return;
+            }
+            if (!recording.isTextRecording() && isCurrentlyPlaying(recording)) {
+                onStopClick.onStopClick(recording);
+            } else {
+                onPlayClick.onPlayClick(recording);
+            }
+        });
+        holder.deleteButton.setOnClickListener(v -> {
+            Recording recording = recordingAt(holder);
+            if (recording != null) {
+                onDeleteClick.onDeleteClick(recording);
+            }
+        });
+        return holder;
+    }
+
+    private Recording recordingAt(RecordingViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        return position != RecyclerView.NO_POSITION ? getItem(position) : null;
+    }
+
+    private boolean isCurrentlyPlaying(Recording recording) {
+        return playingRowId() == recording.getId();
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecordingViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindPlayback(holder, getItem(position));
+        }
     }
 
     @Override
     public void onBindViewHolder(@NonNull RecordingViewHolder holder, int position) {
-        Recording recording = recordings.get(position);
-        boolean isCurrentlyPlaying = isPlaying && recording.getId() == currentlyPlayingId;
+        Recording recording = getItem(position);
 
         holder.titleTextView.setText(recording.getTitle());
         holder.dateTextView.setText(formatDateTime(recording.getCreatedAt()));
@@ -83,52 +186,40 @@ public class RecordingAdapter extends RecyclerView.Adapter<RecordingAdapter.Reco
         if (recording.isTextRecording()) {
             holder.typeIcon.setImageResource(R.drawable.ic_text);
             holder.durationTextView.setText("Text Note");
-            holder.playButton.setImageResource(R.drawable.ic_text);
             // Change background color for text items
-            View iconBackground = ((ViewGroup) holder.typeIcon.getParent()).getChildAt(0);
-            if (iconBackground != null) {
-                iconBackground.setBackgroundTintList(
-                        ContextCompat.getColorStateList(holder.itemView.getContext(), R.color.text_color)
-                );
-            }
+            setIconBackgroundTint(holder, R.color.text_color);
         } else {
             holder.typeIcon.setImageResource(R.drawable.ic_mic);
             holder.durationTextView.setText(formatDuration(recording.getDuration()));
-            holder.playButton.setImageResource(
-                    isCurrentlyPlaying ? R.drawable.ic_pause : R.drawable.ic_play
-            );
             // Change background color for voice items
-            View iconBackground = ((ViewGroup) holder.typeIcon.getParent()).getChildAt(0);
-            if (iconBackground != null) {
-                iconBackground.setBackgroundTintList(
-                        ContextCompat.getColorStateList(holder.itemView.getContext(), R.color.voice_color)
-                );
-            }
+            setIconBackgroundTint(holder, R.color.voice_color);
         }
 
-        holder.playButton.setOnClickListener(v -> {
-            if (recording.isTextRecording()) {
-                onPlayClick.onPlayClick(recording);
-            } else {
-                if (isCurrentlyPlaying) {
-                    onStopClick.onStopClick(recording);
-                } else {
-                    onPlayClick.onPlayClick(recording);
-                }
-            }
-        });
+        bindPlayback(holder, recording);
+    }
 
-        holder.deleteButton.setOnClickListener(v -> onDeleteClick.onDeleteClick(recording));
+    private void bindPlayback(RecordingViewHolder holder, Recording recording) {
+        if (recording.isTextRecording()) {
+            holder.playButton.setImageResource(R.drawable.ic_text);
+        } else {
+            holder.playButton.setImageResource(
+                    isCurrentlyPlaying(recording) ? R.drawable.ic_pause : R.drawable.ic_play
+            );
+        }
     }
 
-    @Override
-    public int getItemCount() {
-        return recordings.size();
+    private void setIconBackgroundTint(RecordingViewHolder holder, int colorRes) {
+        if (holder.iconBackground == null || holder.iconTint == colorRes) {
+            return;
+        }
+        ColorStateList tint = ContextCompat.getColorStateList(holder.itemView.getContext(), colorRes);
+        holder.iconBackground.setBackgroundTintList(tint);
+        holder.iconTint = colorRes;
     }
 
     private String formatDateTime(long timestamp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
-        return sdf.format(new Date(timestamp));
+        date.setTime(timestamp);
+        return dateFormat.format(date);
     }
 
     private String formatDuration(long durationMs) {
@@ -143,8 +234,10 @@ public class RecordingAdapter extends RecyclerView.Adapter<RecordingAdapter.Reco
         TextView dateTextView;
         TextView durationTextView;
         ImageView typeIcon;
+        View iconBackground;
         ImageButton playButton;
         ImageButton deleteButton;
+        int iconTint = 0;
 
         @SuppressLint("WrongViewCast")
         RecordingViewHolder(View itemView) {
@@ -155,6 +248,7 @@ public class RecordingAdapter extends RecyclerView.Adapter<RecordingAdapter.Reco
             typeIcon = itemView.findViewById(R.id.type_icon);
             playButton = itemView.findViewById(R.id.play_button);
             deleteButton = itemView.findViewById(R.id.delete_button);
+            iconBackground = ((ViewGroup) typeIcon.getParent()).getChildAt(0);
         }
     }
-}
\ No newline at end of file
+}
@@ -6,8 +6,11 @@ import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import com.plcoding.audiorecorder.data.InvalidationTracker;
 import com.plcoding.audiorecorder.data.Recording;
+import com.plcoding.audiorecorder.data.RecordingDatabase;
 import com.plcoding.audiorecorder.data.RecordingRepository;
+import com.plcoding.audiorecorder.data.UploadScheduler;
 import com.plcoding.audiorecorder.playback.AudioPlayer;
 import com.plcoding.audiorecorder.record.AudioRecorder;
 
@@ -16,7 +19,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class RecordingViewModel extends ViewModel {
@@ -25,7 +28,7 @@ public class RecordingViewModel extends ViewModel {
     private final AudioRecorder recorder;
     private final AudioPlayer player;
     private final Context appContext;
-    private final Executor executor;
+    private final ExecutorService executor;
 
     private final MutableLiveData<List<Recording>> _recordings = new MutableLiveData<>(null);
     private final MutableLiveData<Boolean> _isRecording = new MutableLiveData<>(false);
@@ -39,6 +42,16 @@ public class RecordingViewModel extends ViewModel {
     private File currentRecordingFile;
     private long recordingStartTime;
 
+    // Last list posted to _recordings; only touched on the executor
+    private List<Recording> loadedRecordings;
+    private final InvalidationTracker.Observer recordingsObserver =
+            delta -> {
+                // A delta already being dispatched can still arrive after onCleared
+                if (!executor.isShutdown()) {
+                    executor.execute(() -> applyRecordingsDelta(delta));
+                }
+            };
+
     public RecordingViewModel(
             RecordingRepository repository,
             AudioRecorder recorder,
@@ -51,6 +64,8 @@ public class RecordingViewModel extends ViewModel {
         this.appContext = appContext;
         this.executor = Executors.newSingleThreadExecutor();
 
+        // Writes anywhere in the app update the list through deltas from here on
+        repository.addObserver(RecordingDatabase.TABLE_RECORDINGS, recordingsObserver);
         loadRecordings();
     }
 
@@ -58,6 +73,7 @@ public class RecordingViewModel extends ViewModel {
         executor.execute(() -> {
             try {
                 List<Recording> recordingsList = repository.getAllRecordings();
+                loadedRecordings = recordingsList;
                 _recordings.postValue(recordingsList);
                 Log.d(TAG, "Loaded " + (recordingsList != null ? recordingsList.size() : 0) + " recordings");
             } catch (Exception e) {
@@ -66,6 +82,19 @@ public class RecordingViewModel extends ViewModel {
         });
     }
 
+    private void applyRecordingsDelta(InvalidationTracker.Delta delta) {
+        // Changes made before the first load are already in what it reads
+        if (loadedRecordings == null) {
+            return;
+        }
+        try {
+            loadedRecordings = repository.applyRecordingsDelta(loadedRecordings, delta);
+            _recordings.postValue(loadedRecordings);
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying recordings delta", e);
+        }
+    }
+
     public void startRecording() {
         if (Boolean.TRUE.equals(_isRecording.getValue())) return;
 
@@ -93,7 +122,6 @@ public class RecordingViewModel extends ViewModel {
             executor.execute(() -> {
                 try {
                     repository.saveRecording(title, file, duration);
-                    loadRecordings();
                     Log.d(TAG, "Voice recording saved: " + title);
                 } catch (Exception e) {
                     Log.e(TAG, "Error saving voice recording", e);
@@ -118,7 +146,6 @@ public class RecordingViewModel extends ViewModel {
             try {
                 long id = repository.saveTextRecording(title, text);
                 Log.d(TAG, "Text recording saved with ID: " + id + ", Title: " + title + ", Content: " + text);
-                loadRecordings();
             } catch (Exception e) {
                 Log.e(TAG, "Error saving text recording", e);
             }
@@ -169,7 +196,6 @@ public class RecordingViewModel extends ViewModel {
         executor.execute(() -> {
             try {
                 repository.deleteRecording(id);
-                loadRecordings();
                 Log.d(TAG, "Recording deleted: " + id);
             } catch (Exception e) {
                 Log.e(TAG, "Error deleting recording", e);
@@ -188,29 +214,57 @@ public class RecordingViewModel extends ViewModel {
 
         executor.execute(() -> {
             // First upload local recordings to server
-            repository.syncAllRecordings(uploadSuccess -> {
-                if (uploadSuccess) {
-                    _syncMessage.postValue("Uploading successful. Downloading from server...");
-
-                    // Then download recordings from server
-                    repository.downloadRecordingsFromServer(downloadSuccess -> {
-                        _isSyncing.postValue(false);
-
-                        if (downloadSuccess) {
-                            _syncMessage.postValue("Sync completed successfully");
-                            loadRecordings();  // Reload recordings after sync
-                        } else {
-                            _syncMessage.postValue("Error downloading recordings from server");
-                        }
-                    });
-                } else {
-                    _isSyncing.postValue(false);
-                    _syncMessage.postValue("Error uploading recordings to server");
+            repository.syncAllRecordings(new RecordingRepository.SyncStatusCallback() {
+                @Override
+                public void onSyncComplete(boolean uploadSuccess) {
+                    onSyncComplete(uploadSuccess, null);
+                }
+
+                @Override
+                public void onSyncComplete(boolean uploadSuccess, UploadScheduler.BatchReport report) {
+                    onUploadComplete(uploadSuccess, report);
                 }
             });
         });
     }
 
+    private void onUploadComplete(boolean uploadSuccess, UploadScheduler.BatchReport report) {
+        if (report != null) {
+            Log.d(TAG, String.format(Locale.US, "Uploaded %d/%d recordings at %.1f KB/s, %.2f items/s",
+                    report.getSucceededCount(), report.getResults().size(),
+                    report.getBytesPerSecond() / 1024.0, report.getItemsPerSecond()));
+        }
+
+        if (uploadSuccess) {
+            _syncMessage.postValue("Uploading successful. Downloading from server...");
+
+            // Then download recordings from server
+            repository.downloadRecordingsFromServer(downloadSuccess -> {
+                _isSyncing.postValue(false);
+
+                if (downloadSuccess) {
+                    _syncMessage.postValue("Sync completed successfully");
+                } else {
+                    _syncMessage.postValue("Error downloading recordings from server");
+                }
+            });
+        } else if (report != null && report.getFailedCount() > 0) {
+            _isSyncing.postValue(false);
+            _syncMessage.postValue(report.getFailedCount() + " of " + report.getResults().size() +
+                    " recordings could not be uploaded");
+        } else {
+            _isSyncing.postValue(false);
+            _syncMessage.postValue("Error uploading recordings to server");
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        repository.removeObserver(RecordingDatabase.TABLE_RECORDINGS, recordingsObserver);
+        executor.shutdown();
+    }
+
     public LiveData<List<Recording>> getRecordings() {
         return _recordings;
     }
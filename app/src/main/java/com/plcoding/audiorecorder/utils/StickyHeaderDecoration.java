@@ -0,0 +1,104 @@
+package com.plcoding.audiorecorder.utils;
+
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Draws the header of the section at the top of a vertical RecyclerView over the list, and lets
+ * the next section's header push it up as it scrolls in. The pinned header is one extra view
+ * that is rebound only when the section changes, so it costs the same for any list length.
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    public interface StickyHeaderAdapter {
+        boolean isHeader(int position);
+
+        // Position of the header of the section containing position, or NO_POSITION
+        int getHeaderPositionFor(int position);
+
+        View createHeaderView(ViewGroup parent);
+
+        void bindHeaderView(View header, int headerPosition);
+    }
+
+    private final StickyHeaderAdapter adapter;
+    private View headerView;
+    private int boundHeaderPosition = RecyclerView.NO_POSITION;
+
+    public StickyHeaderDecoration(StickyHeaderAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Forget the bound header, e.g. after the list content changed.
+     */
+    public void invalidate() {
+        boundHeaderPosition = RecyclerView.NO_POSITION;
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas canvas, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        View topChild = parent.getChildAt(0);
+        if (topChild == null) {
+            return;
+        }
+        int topPosition = parent.getChildAdapterPosition(topChild);
+        if (topPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int headerPosition = adapter.getHeaderPositionFor(topPosition);
+        if (headerPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        View header = getHeaderView(parent, headerPosition);
+
+        // The next section's header pushes the pinned one out of the way
+        int offset = 0;
+        for (int i = 1; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            int position = parent.getChildAdapterPosition(child);
+            if (position != RecyclerView.NO_POSITION && adapter.isHeader(position)) {
+                int childTop = child.getTop();
+                if (childTop < header.getHeight()) {
+                    offset = childTop - header.getHeight();
+                }
+                break;
+            }
+        }
+
+        canvas.save();
+        canvas.translate(parent.getPaddingLeft(), offset);
+        header.draw(canvas);
+        canvas.restore();
+    }
+
+    private View getHeaderView(RecyclerView parent, int headerPosition) {
+        if (headerView == null) {
+            headerView = adapter.createHeaderView(parent);
+            boundHeaderPosition = RecyclerView.NO_POSITION;
+        }
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        if (headerPosition != boundHeaderPosition || headerView.getWidth() != width) {
+            adapter.bindHeaderView(headerView, headerPosition);
+            boundHeaderPosition = headerPosition;
+            measure(headerView, width);
+        }
+        return headerView;
+    }
+
+    private static void measure(View view, int width) {
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        if (view.getLayoutParams() == null) {
+            view.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT));
+        }
+        view.measure(widthSpec, heightSpec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+}
@@ -0,0 +1,218 @@
+package com.plcoding.audiorecorder.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+public class ChunkedUploaderTest {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int FILE_SIZE = 3 * CHUNK_SIZE + 100;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private RecordingApiService apiService;
+    private InMemoryProgressStore store;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .retryOnConnectionFailure(false)
+                .build();
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(RecordingApiService.class);
+
+        store = new InMemoryProgressStore();
+        file = createFile(FILE_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsEveryChunkThenCompletes() throws Exception {
+        server.enqueue(session(0));
+        server.enqueue(session(CHUNK_SIZE));
+        server.enqueue(session(2 * CHUNK_SIZE));
+        server.enqueue(session(3 * CHUNK_SIZE));
+        server.enqueue(session(FILE_SIZE));
+        server.enqueue(completed(42));
+
+        RecordingDto dto = newUploader().upload(7, file, "Site visit", 1000, "device1");
+
+        assertEquals(Long.valueOf(42), dto.getId());
+        assertEquals("/api/recordings/uploads/", server.takeRequest().getPath());
+        assertChunk(server.takeRequest(), 0, CHUNK_SIZE);
+        assertChunk(server.takeRequest(), CHUNK_SIZE, CHUNK_SIZE);
+        assertChunk(server.takeRequest(), 2 * CHUNK_SIZE, CHUNK_SIZE);
+        assertChunk(server.takeRequest(), 3 * CHUNK_SIZE, 100);
+        assertEquals("/api/recordings/uploads/abc/complete/", server.takeRequest().getPath());
+        assertNull(store.load(7));
+    }
+
+    @Test
+    public void resumesFromServerOffsetAfterDisconnectMidChunk() throws Exception {
+        server.enqueue(session(0));
+        server.enqueue(session(CHUNK_SIZE));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_REQUEST_BODY));
+        server.enqueue(session(CHUNK_SIZE));  // status: second chunk never landed
+        server.enqueue(session(2 * CHUNK_SIZE));
+        server.enqueue(session(3 * CHUNK_SIZE));
+        server.enqueue(session(FILE_SIZE));
+        server.enqueue(completed(42));
+
+        newUploader().upload(7, file, "Site visit", 1000, "device1");
+
+        server.takeRequest();  // start
+        assertChunk(server.takeRequest(), 0, CHUNK_SIZE);
+        server.takeRequest();  // dropped chunk
+        RecordedRequest status = server.takeRequest();
+        assertEquals("GET", status.getMethod());
+        assertEquals("/api/recordings/uploads/abc/", status.getPath());
+        assertChunk(server.takeRequest(), CHUNK_SIZE, CHUNK_SIZE);
+        assertChunk(server.takeRequest(), 2 * CHUNK_SIZE, CHUNK_SIZE);
+        assertChunk(server.takeRequest(), 3 * CHUNK_SIZE, 100);
+        assertEquals("/api/recordings/uploads/abc/complete/", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void keepsAcknowledgedOffsetWhenConnectionIsLost() throws Exception {
+        server.enqueue(session(0));
+        server.enqueue(session(CHUNK_SIZE));
+        server.enqueue(session(2 * CHUNK_SIZE));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_REQUEST_BODY));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        try {
+            newUploader().upload(7, file, "Site visit", 1000, "device1");
+            fail("Expected the upload to fail while the server is unreachable");
+        } catch (IOException expected) {
+            // Connection lost for good
+        }
+
+        ChunkedUploader.UploadProgress progress = store.load(7);
+        assertEquals("abc", progress.getUploadId());
+        assertEquals(2 * CHUNK_SIZE, progress.getAckedOffset());
+    }
+
+    @Test
+    public void resumesPersistedUploadWithoutStartingANewSession() throws Exception {
+        store.save(new ChunkedUploader.UploadProgress(7, "abc", FILE_SIZE, CHUNK_SIZE, CHUNK_SIZE));
+        server.enqueue(session(2 * CHUNK_SIZE));  // status: the server got further than we recorded
+        server.enqueue(session(3 * CHUNK_SIZE));
+        server.enqueue(session(FILE_SIZE));
+        server.enqueue(completed(42));
+
+        newUploader().upload(7, file, "Site visit", 1000, "device1");
+
+        RecordedRequest status = server.takeRequest();
+        assertEquals("GET", status.getMethod());
+        assertEquals("/api/recordings/uploads/abc/", status.getPath());
+        assertChunk(server.takeRequest(), 2 * CHUNK_SIZE, CHUNK_SIZE);
+        assertChunk(server.takeRequest(), 3 * CHUNK_SIZE, 100);
+        assertEquals("/api/recordings/uploads/abc/complete/", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void reportsUnsupportedWhenServerHasNoChunkedEndpoint() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        try {
+            newUploader().upload(7, file, "Site visit", 1000, "device1");
+            fail("Expected UnsupportedException");
+        } catch (ChunkedUploader.UnsupportedException expected) {
+            assertTrue(expected.getMessage().contains("404"));
+        }
+    }
+
+    private ChunkedUploader newUploader() {
+        return new ChunkedUploader(apiService, store, CHUNK_SIZE, 3, 0);
+    }
+
+    private static MockResponse session(long offset) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"upload_id\":\"abc\",\"offset\":" + offset + ",\"file_size\":" + FILE_SIZE + "}");
+    }
+
+    private static MockResponse completed(long id) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"id\":" + id + ",\"title\":\"Site visit\",\"type\":\"voice\"}");
+    }
+
+    private static void assertChunk(RecordedRequest request, long start, int length) {
+        assertEquals("PUT", request.getMethod());
+        assertEquals("/api/recordings/uploads/abc/", request.getPath());
+        assertEquals("bytes " + start + "-" + (start + length - 1) + "/" + FILE_SIZE, request.getHeader("Content-Range"));
+        assertEquals(length, request.getBodySize());
+
+        byte[] body = request.getBody().readByteArray();
+        for (int i = 0; i < body.length; i++) {
+            assertEquals((byte) ((start + i) % 251), body[i]);
+        }
+    }
+
+    private File createFile(int size) throws IOException {
+        File created = tempFolder.newFile("recording.mp3");
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        try (FileOutputStream out = new FileOutputStream(created)) {
+            out.write(data);
+        }
+        return created;
+    }
+
+    private static class InMemoryProgressStore implements ChunkedUploader.ProgressStore {
+        private final Map<Long, ChunkedUploader.UploadProgress> rows = new HashMap<>();
+
+        @Override
+        public ChunkedUploader.UploadProgress load(long recordingId) {
+            return rows.get(recordingId);
+        }
+
+        @Override
+        public void save(ChunkedUploader.UploadProgress progress) {
+            rows.put(progress.getRecordingId(), progress);
+        }
+
+        @Override
+        public void clear(long recordingId) {
+            rows.remove(recordingId);
+        }
+    }
+}
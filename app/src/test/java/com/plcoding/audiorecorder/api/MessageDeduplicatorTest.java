@@ -0,0 +1,176 @@
+package com.plcoding.audiorecorder.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MessageDeduplicatorTest {
+    private static final long WINDOW_MS = 1000;
+
+    private long now = 0;
+    private final MessageDeduplicator.Clock clock = () -> now;
+
+    @Test
+    public void evictsLeastRecentlyUsedIdFirst() {
+        MessageDeduplicator dedup = new MessageDeduplicator(3, 10, WINDOW_MS, clock);
+        dedup.record("a", null);
+        dedup.record("b", null);
+        dedup.record("c", null);
+
+        // Touch "a" so "b" becomes the eldest
+        assertTrue(dedup.isDuplicate("a", null));
+        dedup.record("d", null);
+
+        assertEquals(3, dedup.getIdCount());
+        assertFalse(dedup.isDuplicate("b", null));
+        assertTrue(dedup.isDuplicate("a", null));
+        assertTrue(dedup.isDuplicate("c", null));
+        assertTrue(dedup.isDuplicate("d", null));
+    }
+
+    @Test
+    public void evictsInInsertionOrderWithoutAccess() {
+        MessageDeduplicator dedup = new MessageDeduplicator(2, 10, WINDOW_MS, clock);
+        dedup.record("1", null);
+        dedup.record("2", null);
+        dedup.record("3", null);
+        dedup.record("4", null);
+
+        assertFalse(dedup.isDuplicate("1", null));
+        assertFalse(dedup.isDuplicate("2", null));
+        assertTrue(dedup.isDuplicate("3", null));
+        assertTrue(dedup.isDuplicate("4", null));
+    }
+
+    @Test
+    public void evictsOldestFingerprintWhenFull() {
+        MessageDeduplicator dedup = new MessageDeduplicator(10, 2, WINDOW_MS, clock);
+        dedup.record(null, "first");
+        dedup.record(null, "second");
+        // Seeing "first" again moves it to the young end
+        dedup.record(null, "first");
+        dedup.record(null, "third");
+
+        assertEquals(2, dedup.getFingerprintCount());
+        assertFalse(dedup.isDuplicate(null, "second"));
+        assertTrue(dedup.isDuplicate(null, "first"));
+        assertTrue(dedup.isDuplicate(null, "third"));
+    }
+
+    @Test
+    public void fingerprintIsNormalizedAndExpiresAfterWindow() {
+        MessageDeduplicator dedup = new MessageDeduplicator(10, 10, WINDOW_MS, clock);
+        now = 1500;
+        dedup.record(null, "  Hello ");
+
+        assertTrue(dedup.isDuplicate(null, "hello"));
+
+        // Still inside the following bucket
+        now = 2999;
+        assertTrue(dedup.isDuplicate(null, "HELLO"));
+
+        // Two buckets later the same text is a new message
+        now = 3000;
+        assertFalse(dedup.isDuplicate(null, "hello"));
+        assertEquals(0, dedup.getFingerprintCount());
+    }
+
+    @Test
+    public void expiredFingerprintsAreDroppedOldestFirst() {
+        MessageDeduplicator dedup = new MessageDeduplicator(10, 10, WINDOW_MS, clock);
+        now = 0;
+        dedup.record(null, "old");
+        now = 1000;
+        dedup.record(null, "middle");
+        now = 2000;
+        dedup.record(null, "new");
+
+        assertFalse(dedup.isDuplicate(null, "old"));
+        assertTrue(dedup.isDuplicate(null, "middle"));
+        assertTrue(dedup.isDuplicate(null, "new"));
+        assertEquals(2, dedup.getFingerprintCount());
+    }
+
+    @Test
+    public void idMatchIgnoresContentWindow() {
+        MessageDeduplicator dedup = new MessageDeduplicator(10, 10, WINDOW_MS, clock);
+        dedup.record("42", "text");
+        now = 10 * WINDOW_MS;
+
+        assertTrue(dedup.isDuplicate("42", "other text"));
+        assertFalse(dedup.isDuplicate("43", "text"));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        MessageDeduplicator dedup = new MessageDeduplicator(10, 10, WINDOW_MS, clock);
+
+        assertFalse(dedup.checkAndRecord("1", "a"));
+        assertTrue(dedup.checkAndRecord("1", "b"));
+        assertFalse(dedup.checkAndRecord("2", "a"));
+        assertFalse(dedup.checkAndRecord(null, "c"));
+        assertTrue(dedup.checkAndRecord(null, "c"));
+
+        assertEquals(2, dedup.getHits());
+        assertEquals(3, dedup.getMisses());
+    }
+
+    @Test
+    public void sameTextWithDifferentIdsIsNotADuplicate() {
+        MessageDeduplicator dedup = new MessageDeduplicator(10, 10, WINDOW_MS, clock);
+
+        assertFalse(dedup.checkAndRecord("1", "ok"));
+        assertFalse(dedup.checkAndRecord("2", "ok"));
+        // Messages with an id leave no fingerprint behind
+        assertEquals(0, dedup.getFingerprintCount());
+        assertFalse(dedup.checkAndRecord(null, "ok"));
+        assertTrue(dedup.checkAndRecord(null, "ok"));
+    }
+
+    @Test
+    public void emptyInputIsNeverADuplicate() {
+        MessageDeduplicator dedup = new MessageDeduplicator(10, 10, WINDOW_MS, clock);
+        dedup.record("", "   ");
+
+        assertFalse(dedup.checkAndRecord(null, "   "));
+        assertFalse(dedup.checkAndRecord("", null));
+        assertEquals(0, dedup.getIdCount());
+    }
+
+    @Test
+    public void concurrentCheckAndRecordLetsEachIdThroughOnce() throws InterruptedException {
+        MessageDeduplicator dedup = new MessageDeduplicator(10_000, 10, WINDOW_MS, clock);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (!dedup.checkAndRecord("id" + i, null)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1000, accepted.get());
+        assertEquals(3000, dedup.getHits());
+    }
+}
@@ -0,0 +1,113 @@
+package com.plcoding.audiorecorder.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class InvalidationTrackerTest {
+
+    // Runs dispatches only when the test says so, so publishes can pile up first
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            List<Runnable> queued = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Runnable task : queued) {
+                task.run();
+            }
+        }
+    }
+
+    @Test
+    public void deltaKeepsOnlyTheNetChange() {
+        InvalidationTracker.Delta delta = new InvalidationTracker.Delta("recordings")
+                .inserted(1).updated(1)
+                .inserted(2).deleted(2)
+                .updated(3).deleted(3)
+                .deleted(4).inserted(4)
+                .updated(5);
+
+        assertEquals(Collections.singleton(1L), delta.getInserted());
+        assertEquals(new LinkedHashSet<>(Arrays.asList(4L, 5L)), delta.getUpdated());
+        assertEquals(Collections.singleton(3L), delta.getDeleted());
+        assertEquals(new LinkedHashSet<>(Arrays.asList(1L, 4L, 5L)), delta.getChanged());
+    }
+
+    @Test
+    public void publishesBeforeADispatchArriveAsOneDeltaPerTable() {
+        ManualExecutor executor = new ManualExecutor();
+        InvalidationTracker tracker = new InvalidationTracker(executor);
+        List<InvalidationTracker.Delta> received = new ArrayList<>();
+        tracker.addObserver("recordings", received::add);
+
+        tracker.publish(new InvalidationTracker.Delta("recordings").inserted(1));
+        tracker.publish(new InvalidationTracker.Delta("recordings").inserted(2).updated(7));
+        tracker.publish(new InvalidationTracker.Delta("recordings").deleted(1));
+        tracker.publish(new InvalidationTracker.Delta("chat_messages").inserted(9));
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+
+        assertEquals(1, received.size());
+        InvalidationTracker.Delta delta = received.get(0);
+        assertEquals(Collections.singleton(2L), delta.getInserted());
+        assertEquals(Collections.singleton(7L), delta.getUpdated());
+        assertTrue(delta.getDeleted().isEmpty());
+    }
+
+    @Test
+    public void tableWideChangeAbsorbsRowChanges() {
+        ManualExecutor executor = new ManualExecutor();
+        InvalidationTracker tracker = new InvalidationTracker(executor);
+        List<InvalidationTracker.Delta> received = new ArrayList<>();
+        tracker.addObserver("chat_messages", received::add);
+
+        tracker.publish(new InvalidationTracker.Delta("chat_messages").inserted(3));
+        tracker.publish(new InvalidationTracker.Delta("chat_messages").tableChanged());
+        tracker.publish(new InvalidationTracker.Delta("chat_messages").inserted(4));
+        executor.runAll();
+
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).isTableChanged());
+        assertTrue(received.get(0).getChanged().isEmpty());
+    }
+
+    @Test
+    public void removedObserversAndEmptyDeltasAreNotDispatched() {
+        ManualExecutor executor = new ManualExecutor();
+        InvalidationTracker tracker = new InvalidationTracker(executor);
+        List<InvalidationTracker.Delta> received = new ArrayList<>();
+        InvalidationTracker.Observer observer = received::add;
+        tracker.addObserver("recordings", observer);
+
+        tracker.publish(new InvalidationTracker.Delta("recordings"));
+        assertTrue(executor.tasks.isEmpty());
+
+        tracker.removeObserver("recordings", observer);
+        tracker.publish(new InvalidationTracker.Delta("recordings").inserted(1));
+        executor.runAll();
+        assertTrue(received.isEmpty());
+
+        // A later publish schedules a fresh dispatch
+        tracker.addObserver("recordings", observer);
+        tracker.publish(new InvalidationTracker.Delta("recordings").updated(1));
+        executor.runAll();
+        assertEquals(1, received.size());
+        assertFalse(received.get(0).isEmpty());
+    }
+}
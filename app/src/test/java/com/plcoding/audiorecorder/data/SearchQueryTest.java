@@ -0,0 +1,57 @@
+package com.plcoding.audiorecorder.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class SearchQueryTest {
+
+    @Test
+    public void wordsAreQuotedAndTheLastOneIsAPrefix() {
+        assertEquals("\"Compressor\" \"oil\" \"lea*\"", SearchQuery.toMatchExpression("  Compressor, oil-lea"));
+        assertEquals("\"huile\" \"élevée*\"", SearchQuery.toMatchExpression("huile élevée"));
+    }
+
+    @Test
+    public void operatorsAndQuotesStayLiteral() {
+        assertEquals("\"pump\" \"OR\" \"NOT\" \"valve*\"", SearchQuery.toMatchExpression("pump OR \"NOT valve*"));
+    }
+
+    @Test
+    public void shortLastWordIsMatchedExactly() {
+        assertEquals("\"oil\" \"co\"", SearchQuery.toMatchExpression("oil co"));
+    }
+
+    @Test
+    public void inputWithoutWordsHasNoExpression() {
+        assertNull(SearchQuery.toMatchExpression(null));
+        assertNull(SearchQuery.toMatchExpression(" *-\"() "));
+    }
+
+    @Test
+    public void matchInfoIsReadInNativeByteOrder() {
+        ByteBuffer buffer = ByteBuffer.allocate(12).order(ByteOrder.nativeOrder());
+        buffer.putInt(1).putInt(2).putInt(500_000);
+        assertArrayEquals(new int[]{1, 2, 500_000}, SearchQuery.parseMatchInfo(buffer.array()));
+    }
+
+    @Test
+    public void moreHitsShorterRowsAndRarerWordsScoreHigher() {
+        // One phrase, one column, 1000 rows averaging 10 tokens
+        double base = SearchQuery.bm25(matchInfo(10, 1, 10));
+        assertTrue(SearchQuery.bm25(matchInfo(10, 3, 10)) > base);
+        assertTrue(SearchQuery.bm25(matchInfo(5, 1, 10)) > base);
+        assertTrue(SearchQuery.bm25(matchInfo(10, 1, 2)) > base);
+        assertEquals(0, SearchQuery.bm25(matchInfo(10, 0, 10)), 0);
+    }
+
+    private static int[] matchInfo(int rowLength, int hits, int rowsWithHit) {
+        return new int[]{1, 1, 1000, 10, rowLength, hits, rowsWithHit * 2, rowsWithHit};
+    }
+}
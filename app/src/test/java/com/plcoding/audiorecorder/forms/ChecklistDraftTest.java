@@ -0,0 +1,162 @@
+package com.plcoding.audiorecorder.forms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ChecklistDraftTest {
+
+    @Test
+    public void encodedValuesDecodeToTheSameTypes() {
+        List<Object> values = Arrays.asList(true, 12, -3.5, "2024-05-01", "a:b,c",
+                new ArrayList<>(Arrays.asList(4, 7)), new ArrayList<Integer>());
+        for (Object value : values) {
+            assertEquals(value, ChecklistDraft.decode(ChecklistDraft.encode(value)));
+        }
+        assertNull(ChecklistDraft.encode(null));
+        assertNull(ChecklistDraft.decode(null));
+        assertNull(ChecklistDraft.decode("i:notanumber"));
+    }
+
+    @Test
+    public void replayKeepsTheLatestValueOfEachQuestion() throws IOException {
+        File photo = File.createTempFile("draft", ".jpg");
+        photo.deleteOnExit();
+
+        ChecklistDraft draft = new ChecklistDraft();
+        draft.apply(1, ChecklistDraft.KIND_ANSWER, "b:true");
+        draft.apply(1, ChecklistDraft.KIND_ANSWER, "b:false");
+        draft.apply(2, ChecklistDraft.KIND_INPUT, "1");
+        draft.apply(2, ChecklistDraft.KIND_ANSWER, "i:1");
+        draft.apply(2, ChecklistDraft.KIND_INPUT, "1x");
+        draft.apply(2, ChecklistDraft.KIND_ANSWER, null);
+        draft.apply(3, ChecklistDraft.KIND_ANSWER, "s:gone");
+        draft.apply(3, ChecklistDraft.KIND_ANSWER, null);
+        draft.apply(4, ChecklistDraft.KIND_PHOTO, photo.getAbsolutePath());
+        draft.apply(4, ChecklistDraft.KIND_SOURCE, "front");
+
+        FormState state = new FormState();
+        assertEquals(2, draft.restoreInto(state));
+
+        assertEquals(false, state.getAnswer(1));
+        assertNull(state.getAnswer(2));
+        assertEquals("1x", state.getInput(2));
+        assertNull(state.getAnswer(3));
+        assertEquals(photo.getAbsolutePath(), state.getPhotoPath(4));
+        assertEquals("front", draft.getSources().get(4));
+    }
+
+    @Test
+    public void removedPhotoDropsItsSource() {
+        ChecklistDraft draft = new ChecklistDraft();
+        draft.apply(5, ChecklistDraft.KIND_PHOTO, "/data/q5.jpg");
+        draft.apply(5, ChecklistDraft.KIND_SOURCE, "gallery");
+        draft.apply(5, ChecklistDraft.KIND_PHOTO, null);
+
+        assertTrue(draft.isEmpty());
+        assertTrue(draft.getSources().isEmpty());
+    }
+
+    @Test
+    public void restoreSkipsMissingFilesAndEditsAlreadyMade() {
+        ChecklistDraft draft = new ChecklistDraft();
+        draft.apply(1, ChecklistDraft.KIND_ANSWER, "s:from draft");
+        draft.apply(2, ChecklistDraft.KIND_PHOTO, "/does/not/exist.jpg");
+
+        FormState state = new FormState();
+        state.setAnswer(1, "typed before restore");
+
+        assertEquals(0, draft.restoreInto(state));
+        assertEquals("typed before restore", state.getAnswer(1));
+        assertFalse(state.hasPhoto(2));
+    }
+
+    @Test
+    public void restoreIsNotJournaledAgain() {
+        ChecklistDraft draft = new ChecklistDraft();
+        draft.apply(1, ChecklistDraft.KIND_ANSWER, "b:true");
+        draft.apply(2, ChecklistDraft.KIND_INPUT, "4");
+
+        List<String> journaled = new ArrayList<>();
+        FormState state = new FormState();
+        FormState.EditListener listener = new FormState.EditListener() {
+            @Override
+            public void onAnswerWritten(int questionId, Object value) {
+                journaled.add("answer " + questionId);
+            }
+
+            @Override
+            public void onInputWritten(int questionId, String text) {
+                journaled.add("input " + questionId);
+            }
+
+            @Override
+            public void onPhotoWritten(int questionId, String path) {
+                journaled.add("photo " + questionId);
+            }
+        };
+        state.setEditListener(listener);
+
+        draft.restoreInto(state);
+        assertEquals(Collections.emptyList(), journaled);
+
+        state.setAnswer(3, "later edit");
+        assertEquals(Collections.singletonList("answer 3"), journaled);
+    }
+
+    @Test
+    public void compactedEntriesReplayToTheSameDraft() {
+        ChecklistDraft draft = new ChecklistDraft();
+        for (int i = 0; i < 100; i++) {
+            draft.apply(1, ChecklistDraft.KIND_INPUT, String.valueOf(i));
+            draft.apply(1, ChecklistDraft.KIND_ANSWER, "i:" + i);
+        }
+        draft.apply(2, ChecklistDraft.KIND_ANSWER, "l:3,9");
+        assertTrue(draft.needsCompaction());
+
+        ChecklistDraft compacted = new ChecklistDraft();
+        for (ChecklistDraft.Entry entry : draft.toEntries()) {
+            compacted.apply(entry.getQuestionId(), entry.getKind(), entry.getValue());
+        }
+        assertEquals(3, draft.toEntries().size());
+        assertFalse(compacted.needsCompaction());
+
+        FormState state = new FormState();
+        compacted.restoreInto(state);
+        assertEquals(99, state.getAnswer(1));
+        assertEquals("99", state.getInput(1));
+        assertEquals(Arrays.asList(3, 9), state.getAnswer(2));
+    }
+
+    @Test
+    public void snapshotReplaysToTheCurrentState() throws IOException {
+        File photo = File.createTempFile("snapshot", ".jpg");
+        photo.deleteOnExit();
+
+        FormState state = new FormState();
+        state.setAnswer(1, true);
+        state.setInput(2, "7");
+        state.setAnswer(2, 7);
+        state.setPhotoPath(3, photo.getAbsolutePath());
+
+        ChecklistDraft draft = ChecklistDraft.snapshot(state, Collections.singletonMap(3, "back"));
+
+        FormState restored = new FormState();
+        assertEquals(3, draft.restoreInto(restored));
+        assertEquals(true, restored.getAnswer(1));
+        assertEquals("7", restored.getInput(2));
+        assertEquals(7, restored.getAnswer(2));
+        assertEquals(photo.getAbsolutePath(), restored.getPhotoPath(3));
+        assertEquals("back", draft.getSources().get(3));
+    }
+}
@@ -0,0 +1,120 @@
+package com.plcoding.audiorecorder.forms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompiledFormTest {
+    private static final String FORM_JSON = "{"
+            + "\"categorized_questions\": [{"
+            + "  \"category\": {\"id\": 1, \"name\": \"Safety\"},"
+            + "  \"questions\": ["
+            + "    {\"id\": 1, \"text\": \"Helmet on?\", \"type\": \"yes_no\", \"is_required\": true},"
+            + "    {\"id\": 2, \"text\": \"Notes\", \"type\": \"text\", \"is_required\": false},"
+            + "    {\"id\": 3, \"text\": \"Pressure\", \"type\": \"integer\", \"is_required\": true,"
+            + "     \"validation\": {\"min_value\": 10, \"max_value\": 20}}"
+            + "  ]"
+            + "}],"
+            + "\"uncategorized_questions\": ["
+            + "  {\"id\": 4, \"text\": \"Checks\", \"type\": \"radio_multiple\", \"is_required\": true},"
+            + "  {\"id\": 5, \"text\": \"Photo\", \"type\": \"photo_upload\", \"is_required\": true,"
+            + "   \"photo_source\": {\"camera_enabled\": true},"
+            + "   \"validation\": {\"max_file_size\": 1000, \"allowed_file_types\": [\"JPG\", \"png\"]}}"
+            + "]}";
+
+    private final ChecklistQuestionsResponse response = new Gson().fromJson(FORM_JSON, ChecklistQuestionsResponse.class);
+
+    private CompiledForm compile() {
+        return CompiledForm.compile(response.getCategorized_questions(), response.getUncategorized_questions());
+    }
+
+    @Test
+    public void indexesQuestionsById() {
+        CompiledForm form = compile();
+
+        assertEquals(5, form.size());
+        assertSame(response.getUncategorized_questions().get(1), form.getQuestion(5));
+        assertNull(form.getQuestion(99));
+    }
+
+    @Test
+    public void countsUnansweredRequiredQuestionsAsAnswersChange() {
+        CompiledForm form = compile();
+        FormState state = new FormState();
+        form.bind(state);
+        assertEquals(4, form.getUnsatisfiedCount());
+
+        state.setAnswer(1, true);
+        state.setAnswer(2, "optional");
+        assertEquals(3, form.getUnsatisfiedCount());
+
+        // Blank text and empty selections don't count as answers
+        state.setAnswer(4, Collections.emptyList());
+        assertEquals(3, form.getUnsatisfiedCount());
+        state.setAnswer(4, new ArrayList<>(Arrays.asList(7, 8)));
+        state.setAnswer(3, 15);
+        state.setPhotoPath(5, "/tmp/q5.jpg");
+        assertTrue(form.isComplete());
+
+        state.setAnswer(3, null);
+        state.setPhotoPath(5, null);
+        assertEquals(2, form.getUnsatisfiedCount());
+
+        // Answering the same question twice moves it only once
+        state.setAnswer(3, 12);
+        state.setAnswer(3, 13);
+        assertEquals(1, form.getUnsatisfiedCount());
+    }
+
+    @Test
+    public void bindCountsAnswersAlreadyInState() {
+        FormState state = new FormState();
+        state.setAnswer(1, false);
+        state.setAnswer(3, "   ");
+
+        CompiledForm form = compile();
+        form.bind(state);
+
+        assertEquals(3, form.getUnsatisfiedCount());
+    }
+
+    @Test
+    public void numericRulesMatchValidationHelper() {
+        ChecklistQuestion question = compile().getQuestion(3);
+        QuestionRules rules = QuestionRules.compile(question);
+
+        List<String> inputs = Arrays.asList("", "  ", "9", "10", "15", "20", "21", "abc", "1.5", "-3");
+        for (String input : inputs) {
+            assertEquals("input '" + input + "'",
+                    ValidationHelper.getValidationErrorMessage(question, input), rules.errorFor(input));
+        }
+        assertEquals("Range: 10.0 - 20.0", rules.getRangeText());
+    }
+
+    @Test
+    public void fileRulesArePrecompiled() {
+        QuestionRules photo = compile().getRules(5);
+
+        assertTrue(photo.isFileSizeAllowed(1000));
+        assertFalse(photo.isFileSizeAllowed(1001));
+        assertTrue(photo.isFileTypeAllowed("IMG_1.jpg"));
+        assertTrue(photo.isFileTypeAllowed("scan.PNG"));
+        assertFalse(photo.isFileTypeAllowed("clip.gif"));
+        assertFalse(photo.isFileTypeAllowed("noextension"));
+
+        QuestionRules text = compile().getRules(2);
+        assertEquals(ValidationHelper.DEFAULT_MAX_FILE_SIZE, text.getMaxFileSize());
+        assertTrue(text.isFileTypeAllowed("a.webp"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.plcoding.audiorecorder.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+public class PcmBufferPoolTest {
+
+    @Test
+    public void handsOutOnlyItsPreallocatedDirectBuffers() throws InterruptedException {
+        PcmBufferPool pool = new PcmBufferPool(3, 1764);
+        // ByteBuffer equality compares contents, so count distinct instances
+        Set<ByteBuffer> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 3; i++) {
+            ByteBuffer buffer = pool.acquire(0);
+            assertTrue(buffer.isDirect());
+            assertEquals(1764, buffer.remaining());
+            seen.add(buffer);
+        }
+        assertEquals(3, seen.size());
+        assertNull(pool.acquire(0));
+    }
+
+    @Test
+    public void releasedBufferComesBackCleared() throws InterruptedException {
+        PcmBufferPool pool = new PcmBufferPool(1, 64);
+        ByteBuffer buffer = pool.acquire(0);
+        buffer.putInt(7).limit(4);
+        pool.release(buffer);
+
+        ByteBuffer again = pool.acquire(0);
+        assertSame(buffer, again);
+        assertEquals(0, again.position());
+        assertEquals(64, again.limit());
+    }
+
+    @Test
+    public void acquireWaitsForARelease() throws InterruptedException {
+        PcmBufferPool pool = new PcmBufferPool(1, 64);
+        ByteBuffer buffer = pool.acquire(0);
+        Thread releaser = new Thread(() -> pool.release(buffer));
+        releaser.start();
+
+        assertSame(buffer, pool.acquire(5_000));
+        releaser.join();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBuffersFromElsewhere() {
+        new PcmBufferPool(1, 64).release(ByteBuffer.allocateDirect(32));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMoreReleasesThanBuffers() {
+        PcmBufferPool pool = new PcmBufferPool(1, 64);
+        pool.release(ByteBuffer.allocateDirect(64));
+    }
+}